@@ -0,0 +1,108 @@
+package games.connectfour;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * BatchKernels on the incubating Vector API, as many positions per
+ * instruction as the CPU's widest vectors hold, with the remainder of each
+ * batch handed to the scalar kernels.
+ *
+ * Lives in its own source folder because it needs the jdk.incubator.vector
+ * module to compile and run. BoardBatch loads it reflectively and falls back
+ * to ScalarBatchKernels when it is missing:
+ *
+ * javac -d bin $(find src -name '*.java')
+ *
+ * javac --add-modules jdk.incubator.vector -cp bin -d bin $(find src-vector
+ * -name '*.java')
+ *
+ * java --add-modules jdk.incubator.vector -cp bin ...
+ */
+final class VectorBatchKernels implements BatchKernels
+{
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    private final ScalarBatchKernels tail_ = new ScalarBatchKernels();
+
+    @Override
+    public void playableSpaces(final BitboardLayout layout, final long[] player1,
+            final long[] player2, final long[] playable, final int from, final int to)
+    {
+        final long bottom = layout.bottomMask();
+        final long board = layout.boardMask();
+        final int bound = from + SPECIES.loopBound(to - from);
+        for(int i = from; i < bound; i += SPECIES.length())
+        {
+            LongVector.fromArray(SPECIES, player1, i).or(
+                    LongVector.fromArray(SPECIES, player2, i)).add(bottom).and(board)
+                    .intoArray(playable, i);
+        }
+        tail_.playableSpaces(layout, player1, player2, playable, bound, to);
+    }
+
+    @Override
+    public void winningMoves(final BitboardLayout layout, final long[] own,
+            final long[] player1, final long[] player2, final long[] winning, final int from,
+            final int to)
+    {
+        final int stride = layout.getHeight() + 1;
+        final long bottom = layout.bottomMask();
+        final long board = layout.boardMask();
+        final int bound = from + SPECIES.loopBound(to - from);
+        for(int i = from; i < bound; i += SPECIES.length())
+        {
+            final LongVector player = LongVector.fromArray(SPECIES, own, i);
+            final LongVector mask = LongVector.fromArray(SPECIES, player1, i).or(
+                    LongVector.fromArray(SPECIES, player2, i));
+            // Vertical: three stones directly below
+            LongVector spaces = shift(player, 1).and(shift(player, 2)).and(shift(player, 3));
+            spaces = spaces.or(lineCompletions(player, stride));
+            spaces = spaces.or(lineCompletions(player, stride - 1));
+            spaces = spaces.or(lineCompletions(player, stride + 1));
+            spaces.and(mask.not().and(board)).and(mask.add(bottom).and(board)).intoArray(
+                    winning, i);
+        }
+        tail_.winningMoves(layout, own, player1, player2, winning, bound, to);
+    }
+
+    @Override
+    public void hasFour(final BitboardLayout layout, final long[] own, final boolean[] won,
+            final int from, final int to)
+    {
+        final int stride = layout.getHeight() + 1;
+        final int bound = from + SPECIES.loopBound(to - from);
+        for(int i = from; i < bound; i += SPECIES.length())
+        {
+            final LongVector player = LongVector.fromArray(SPECIES, own, i);
+            fours(player, 1).or(fours(player, stride)).or(fours(player, stride - 1)).or(
+                    fours(player, stride + 1)).compare(VectorOperators.NE, 0).intoArray(won, i);
+        }
+        tail_.hasFour(layout, own, won, bound, to);
+    }
+
+    // Left shifts for positive amounts, logical right shifts for negative ones
+    private static LongVector shift(final LongVector player, final int amount)
+    {
+        return amount >= 0 ? player.lanewise(VectorOperators.LSHL, amount) : player.lanewise(
+                VectorOperators.LSHR, -amount);
+    }
+
+    // Spaces that complete three stones along the given shift (both directions)
+    private static LongVector lineCompletions(final LongVector player, final int shift)
+    {
+        LongVector pair = shift(player, shift).and(shift(player, 2 * shift));
+        LongVector result = pair.and(shift(player, 3 * shift));
+        result = result.or(pair.and(shift(player, -shift)));
+        pair = shift(player, -shift).and(shift(player, -2 * shift));
+        result = result.or(pair.and(shift(player, shift)));
+        return result.or(pair.and(shift(player, -3 * shift)));
+    }
+
+    private static LongVector fours(final LongVector player, final int shift)
+    {
+        final LongVector pair = player.and(shift(player, -shift));
+        return pair.and(shift(pair, -2 * shift));
+    }
+}
@@ -5,6 +5,8 @@ import game.Player;
 import games.connectfour.ConnectFourGameBoard;
 import games.connectfour.ConnectFourMove;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 public abstract class AI
 {
     final Player player_;
@@ -17,6 +19,75 @@ public abstract class AI
 
     public abstract ConnectFourMove determineMove(final ConnectFourGameBoard gameBoard);
 
+    /**
+     * @return The player this AI plays for
+     */
+    public Player getPlayer()
+    {
+        return player_;
+    }
+
+    /**
+     * Asks a running determineMove() to return as soon as possible. AIs that
+     * think for a while should return their best move found so far. May be
+     * called from any thread; AIs that answer instantly can ignore it.
+     */
+    public void stop()
+    {
+    }
+
+    /**
+     * Like determineMove(), but returns as soon as possible once the provided
+     * flag is set, including when it was set before the call. Unlike stop(),
+     * the flag belongs to this one call, so a stop meant for it cannot be
+     * lost or leak into another. The default ignores the flag, leaving only
+     * stop() to end the call early.
+     * 
+     * @param gameBoard
+     *            Non-null board to move on
+     * @param stop
+     *            Non-null flag of this call
+     * @return The move
+     */
+    public ConnectFourMove determineMove(final ConnectFourGameBoard gameBoard,
+            final AtomicBoolean stop)
+    {
+        return determineMove(gameBoard);
+    }
+
+    /**
+     * AIs that always answer a position with the same move (for the same
+     * getSettings()) may have their decisions shared between games, see
+     * DecisionCache.
+     * 
+     * @return True if determineMove() only depends on the position and the
+     *         settings
+     */
+    public boolean isDeterministic()
+    {
+        return false;
+    }
+
+    /**
+     * @return Everything besides the position that decides this AI's moves
+     *         (e.g. its search depth), part of the DecisionCache key
+     */
+    public String getSettings()
+    {
+        return "";
+    }
+
+    /**
+     * AIs that search report statistics about their most recent search here.
+     * 
+     * @return Statistics of the last determineMove(), or null if the AI does
+     *         not search (or has not searched yet)
+     */
+    public SearchResult getLastSearchResult()
+    {
+        return null;
+    }
+
     @Override
     public String toString()
     {
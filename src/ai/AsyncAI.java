@@ -0,0 +1,36 @@
+package ai;
+
+import game.Player;
+import games.connectfour.ConnectFourGameBoard;
+import games.connectfour.ConnectFourMove;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An AI that answers without blocking the caller.
+ * 
+ * Cancelling the returned future asks the AI to stop thinking; the time
+ * budget is a deadline after which the AI is asked to settle for the best
+ * move it has found so far. Both are cooperative: an AI that cannot stop
+ * early simply completes later.
+ * 
+ * See AsyncAIAdapter to use any (synchronous) AI asynchronously.
+ */
+public interface AsyncAI
+{
+    /**
+     * @return The player this AI plays for
+     */
+    public Player getPlayer();
+
+    /**
+     * @param gameBoard
+     *            Non-null board. The AI works on its own copy, so the caller is
+     *            free to change the board as soon as this returns.
+     * @param timeBudgetMillis
+     *            Time the AI may think for, 0 for no limit
+     * @return Future completed with the chosen move
+     */
+    public CompletableFuture<ConnectFourMove> determineMoveAsync(
+            final ConnectFourGameBoard gameBoard, final long timeBudgetMillis);
+}
@@ -0,0 +1,169 @@
+package ai;
+
+import game.Player;
+import games.connectfour.ConnectFourGameBoard;
+import games.connectfour.ConnectFourMove;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import utils.Validate;
+
+/**
+ * Runs a synchronous AI's determineMove() on an Executor.
+ * 
+ * Cancelling a request, or reaching its deadline, sets the stop flag of that
+ * request (see AI.determineMove(board, stop)), and calls the AI's stop() if the
+ * request is running, so a SearchAI returns the best move of its deepest
+ * completed iteration. The time budget counts from when the request starts
+ * running, so a request queued behind others still gets all of it. A
+ * request cancelled before it starts never runs at all.
+ * 
+ * The wrapped AI does not need to be thread-safe: requests run one after the
+ * other, each starting once the previous one has actually returned (which,
+ * for a cancelled request, may be after its future completed).
+ */
+public final class AsyncAIAdapter implements AsyncAI
+{
+    // Only ever flips stop flags, so one thread serves every adapter
+    private static final ScheduledExecutorService DEADLINES = Executors
+            .newSingleThreadScheduledExecutor(runnable ->
+            {
+                final Thread thread = new Thread(runnable, "AI-Deadlines");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final AI ai_;
+    private final Executor executor_;
+
+    // Completes once the latest request has finished running, guarded by this
+    private CompletableFuture<Void> idle_ = CompletableFuture.completedFuture(null);
+    // Stop flag of the running request, null while none is
+    private volatile AtomicBoolean current_;
+
+    /**
+     * @param ai
+     *            Non-null AI to wrap
+     * @param executor
+     *            Non-null Executor to think on
+     */
+    public AsyncAIAdapter(final AI ai, final Executor executor)
+    {
+        Validate.notNull(ai, "Cannot adapt a null AI");
+        Validate.notNull(executor, "Cannot run an AI on a null Executor");
+        ai_ = ai;
+        executor_ = executor;
+    }
+
+    @Override
+    public Player getPlayer()
+    {
+        return ai_.getPlayer();
+    }
+
+    @Override
+    public CompletableFuture<ConnectFourMove> determineMoveAsync(
+            final ConnectFourGameBoard gameBoard, final long timeBudgetMillis)
+    {
+        Validate.notNull(gameBoard, "Cannot determine a move for a null board");
+        Validate.isTrue(timeBudgetMillis >= 0, "Time budget cannot be negative");
+        final ConnectFourGameBoard copy = new ConnectFourGameBoard(gameBoard);
+        final CompletableFuture<ConnectFourMove> future = new CompletableFuture<ConnectFourMove>();
+
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicBoolean running = new AtomicBoolean();
+        final CompletableFuture<Void> finished = new CompletableFuture<Void>();
+        final CompletableFuture<Void> previous;
+        synchronized(this)
+        {
+            previous = idle_;
+            idle_ = finished;
+        }
+        previous.thenRunAsync(() ->
+        {
+            ScheduledFuture<?> deadline = null;
+            try
+            {
+                if(!future.isDone())
+                {
+                    current_ = stop;
+                    running.set(true);
+                    if(timeBudgetMillis > 0)
+                    {
+                        deadline = DEADLINES.schedule(() -> stop(stop, running),
+                                timeBudgetMillis, TimeUnit.MILLISECONDS);
+                    }
+                    future.complete(ai_.determineMove(copy, stop));
+                }
+            }
+            catch(final Throwable t)
+            {
+                future.completeExceptionally(t);
+            }
+            finally
+            {
+                if(deadline != null)
+                {
+                    deadline.cancel(false);
+                }
+                running.set(false);
+                current_ = null;
+                finished.complete(null);
+            }
+        }, executor_);
+
+        future.whenComplete((move, error) ->
+        {
+            if(future.isCancelled())
+            {
+                stop(stop, running);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Stops the running request, if there is one, without cancelling it: its
+     * future still completes, with the best move found so far. Queued
+     * requests are not affected. May be called from any thread.
+     */
+    public void stop()
+    {
+        final AtomicBoolean stop = current_;
+        if(stop != null)
+        {
+            stop.set(true);
+            ai_.stop();
+        }
+    }
+
+    /**
+     * @return The wrapped AI
+     */
+    public AI getAI()
+    {
+        return ai_;
+    }
+
+    @Override
+    public String toString()
+    {
+        return ai_.toString();
+    }
+
+    // Stops the request, whether it is running yet or not
+    private void stop(final AtomicBoolean stop, final AtomicBoolean running)
+    {
+        stop.set(true);
+        if(running.get())
+        {
+            ai_.stop();
+        }
+    }
+}
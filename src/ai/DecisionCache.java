@@ -0,0 +1,564 @@
+package ai;
+
+import games.connectfour.ConnectFourGameBoard;
+import games.connectfour.ConnectFourMove;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import utils.Validate;
+
+/**
+ * Bounded, thread-safe cache of decisions shared between any number of games,
+ * so that deterministic AIs (see AI.isDeterministic()) answer positions they
+ * have already seen without thinking again. Decisions are keyed by the AI's
+ * class, settings and player, the board size and the position hash.
+ *
+ * The cache is split into independently locked segments. Each segment keeps
+ * its entries in packed arrays, so nothing is allocated after construction,
+ * ordered from most to least recently used. A new decision only replaces the
+ * least recently used one if its position has been asked for more often
+ * (TinyLFU admission), counted in a small count-min sketch of 4 bit counters
+ * that is halved periodically so that old popularity fades. Positions seen
+ * once deep into a game therefore cannot flush the openings every game
+ * shares.
+ */
+public final class DecisionCache
+{
+    /**
+     * Returned from lookup() when the decision is not cached
+     */
+    public static final int MISS = -1;
+
+    private static final int SEGMENT_BITS = 4;
+    private static final int MIN_SEGMENT_ENTRIES = 16;
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    private final Segment[] segments_;
+    private final ConcurrentHashMap<String, Integer> profiles_;
+    private final AtomicInteger nextProfile_;
+    private final LongAdder hits_;
+    private final LongAdder misses_;
+    private final LongAdder evictions_;
+    private final LongAdder rejections_;
+    private final LongAdder timeSavedNanos_;
+
+    /**
+     * @param entries
+     *            Maximum number of decisions to keep, must be positive
+     */
+    public DecisionCache(final int entries)
+    {
+        Validate.isTrue(entries > 0, "Cannot create a DecisionCache with <= 0 entries");
+        final int count = 1 << SEGMENT_BITS;
+        final int perSegment = Math.max(MIN_SEGMENT_ENTRIES, (entries + count - 1) / count);
+        segments_ = new Segment[count];
+        for(int i = 0; i < count; ++i)
+        {
+            segments_[i] = new Segment(perSegment);
+        }
+        profiles_ = new ConcurrentHashMap<String, Integer>();
+        nextProfile_ = new AtomicInteger();
+        hits_ = new LongAdder();
+        misses_ = new LongAdder();
+        evictions_ = new LongAdder();
+        rejections_ = new LongAdder();
+        timeSavedNanos_ = new LongAdder();
+    }
+
+    /**
+     * Asks the cache first, and the AI only if the decision is not cached (or
+     * the AI is not deterministic).
+     *
+     * @param ai
+     *            Non-null AI
+     * @param gameBoard
+     *            Non-null board to decide on
+     * @return The AI's move
+     */
+    public ConnectFourMove determineMove(final AI ai, final ConnectFourGameBoard gameBoard)
+    {
+        final int column = lookup(ai, gameBoard);
+        if(column != MISS)
+        {
+            return new ConnectFourMove(column, ai.getPlayer());
+        }
+        final long start = System.nanoTime();
+        final ConnectFourMove move = ai.determineMove(gameBoard);
+        store(ai, gameBoard, move, System.nanoTime() - start);
+        return move;
+    }
+
+    /**
+     * @param ai
+     *            Non-null AI
+     * @param gameBoard
+     *            Non-null board
+     * @return Column the AI chose for this position before, or MISS. Always
+     *         MISS for AIs that are not deterministic.
+     */
+    public int lookup(final AI ai, final ConnectFourGameBoard gameBoard)
+    {
+        Validate.notNull(ai, "Cannot look up a decision of a null AI");
+        Validate.notNull(gameBoard, "Cannot look up a decision for a null board");
+        if(!ai.isDeterministic())
+        {
+            return MISS;
+        }
+        final int profile = profile(ai, gameBoard);
+        final long hash = gameBoard.positionHash();
+        final long key = mix(hash, profile);
+        final long found = segment(key).get(hash, profile, key);
+        if(found < 0)
+        {
+            misses_.increment();
+            return MISS;
+        }
+        hits_.increment();
+        timeSavedNanos_.add((found >>> Byte.SIZE) * 1000);
+        return (int) (found & 0xFF);
+    }
+
+    /**
+     * Remembers a decision, if the AI is deterministic. Whether it is kept is
+     * up to the eviction policy.
+     *
+     * @param ai
+     *            Non-null AI
+     * @param gameBoard
+     *            Non-null board the AI decided on
+     * @param move
+     *            The AI's move, ignored if null
+     * @param latencyNanos
+     *            How long the AI took, reported as time saved on later hits
+     */
+    public void store(final AI ai, final ConnectFourGameBoard gameBoard,
+            final ConnectFourMove move, final long latencyNanos)
+    {
+        Validate.notNull(ai, "Cannot store a decision of a null AI");
+        Validate.notNull(gameBoard, "Cannot store a decision for a null board");
+        if(move == null || !ai.isDeterministic() || move.getColumn() > 0xFF)
+        {
+            return;
+        }
+        final int profile = profile(ai, gameBoard);
+        final long hash = gameBoard.positionHash();
+        final long key = mix(hash, profile);
+        final int micros = (int) Math.min(Integer.MAX_VALUE, Math.max(0, latencyNanos / 1000));
+        final int outcome = segment(key).put(hash, profile, key, move.getColumn(), micros);
+        if(outcome == Segment.EVICTED)
+        {
+            evictions_.increment();
+        }
+        else if(outcome == Segment.REJECTED)
+        {
+            rejections_.increment();
+        }
+    }
+
+    /**
+     * @return Number of lookups answered from the cache
+     */
+    public long getHits()
+    {
+        return hits_.sum();
+    }
+
+    /**
+     * @return Number of lookups of deterministic AIs that were not cached
+     */
+    public long getMisses()
+    {
+        return misses_.sum();
+    }
+
+    /**
+     * @return Fraction of lookups that hit, 0 if there were none
+     */
+    public double getHitRate()
+    {
+        final long hits = getHits();
+        final long lookups = hits + getMisses();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * @return Number of decisions that replaced a less popular one
+     */
+    public long getEvictions()
+    {
+        return evictions_.sum();
+    }
+
+    /**
+     * @return Number of decisions not admitted because the one they would
+     *         have replaced was asked for at least as often
+     */
+    public long getRejections()
+    {
+        return rejections_.sum();
+    }
+
+    /**
+     * @return Total time the original decisions took, summed over every hit
+     */
+    public long getTimeSavedNanos()
+    {
+        return timeSavedNanos_.sum();
+    }
+
+    /**
+     * @return Number of decisions currently cached
+     */
+    public int size()
+    {
+        int size = 0;
+        for(final Segment segment : segments_)
+        {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return Maximum number of decisions kept
+     */
+    public int capacity()
+    {
+        return segments_.length * segments_[0].capacity();
+    }
+
+    /**
+     * @return Bytes used by the cache's tables, which are allocated up front
+     */
+    public long getMemoryBytes()
+    {
+        long bytes = 0;
+        for(final Segment segment : segments_)
+        {
+            bytes += segment.memoryBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%d/%d decisions, %.1f%% hit rate (%d hits, %d misses), "
+                + "%d evictions, %d rejections, %.1f s saved, %.1f KiB", size(), capacity(),
+                100 * getHitRate(), getHits(), getMisses(), getEvictions(), getRejections(),
+                getTimeSavedNanos() / 1e9, getMemoryBytes() / 1024.0);
+    }
+
+    // Everything besides the position that decides the AI's move
+    private int profile(final AI ai, final ConnectFourGameBoard gameBoard)
+    {
+        final String profile = ai.getClass().getName() + '[' + ai.getSettings() + "] "
+                + ai.getPlayer() + ' ' + gameBoard.getWidth() + 'x' + gameBoard.getHeight();
+        return profiles_.computeIfAbsent(profile, ignored -> nextProfile_.getAndIncrement());
+    }
+
+    private Segment segment(final long key)
+    {
+        return segments_[(int) (key >>> (Long.SIZE - SEGMENT_BITS))];
+    }
+
+    private static long mix(final long hash, final int profile)
+    {
+        return scramble(hash ^ (profile * GOLDEN));
+    }
+
+    // MurmurHash3's 64 bit finalizer
+    private static long scramble(long key)
+    {
+        key = (key ^ (key >>> 33)) * 0xFF51AFD7ED558CCDL;
+        key = (key ^ (key >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return key ^ (key >>> 33);
+    }
+
+    /*
+     * One lock's worth of entries: packed arrays indexed by entry number, a
+     * doubly linked recency list through previous_/next_, and an open
+     * addressing (linear probing) index from key to entry number + 1.
+     */
+    private static final class Segment
+    {
+        static final int STORED = 0;
+        static final int EVICTED = 1;
+        static final int REJECTED = 2;
+
+        private final long[] hashes_;
+        private final int[] profiles_;
+        private final byte[] columns_;
+        private final int[] micros_;
+        private final int[] previous_;
+        private final int[] next_;
+        private final int[] index_;
+        private final int indexMask_;
+        private final Sketch sketch_;
+
+        private int size_;
+        // Most and least recently used entries, -1 when empty
+        private int head_;
+        private int tail_;
+
+        Segment(final int capacity)
+        {
+            hashes_ = new long[capacity];
+            profiles_ = new int[capacity];
+            columns_ = new byte[capacity];
+            micros_ = new int[capacity];
+            previous_ = new int[capacity];
+            next_ = new int[capacity];
+            index_ = new int[Integer.highestOneBit(capacity - 1) << 2];
+            indexMask_ = index_.length - 1;
+            sketch_ = new Sketch(capacity);
+            head_ = -1;
+            tail_ = -1;
+        }
+
+        // Returns (micros << 8) | column, or -1 if absent
+        synchronized long get(final long hash, final int profile, final long key)
+        {
+            sketch_.increment(key);
+            final int slot = find(hash, profile, key);
+            if(slot < 0)
+            {
+                return -1;
+            }
+            final int entry = index_[slot] - 1;
+            touch(entry);
+            return ((long) micros_[entry] << Byte.SIZE) | (columns_[entry] & 0xFF);
+        }
+
+        synchronized int put(final long hash, final int profile, final long key, final int column,
+                final int micros)
+        {
+            final int slot = find(hash, profile, key);
+            if(slot >= 0)
+            {
+                final int entry = index_[slot] - 1;
+                columns_[entry] = (byte) column;
+                micros_[entry] = micros;
+                touch(entry);
+                return STORED;
+            }
+
+            final int entry;
+            final int outcome;
+            if(size_ < hashes_.length)
+            {
+                entry = size_++;
+                outcome = STORED;
+            }
+            else
+            {
+                entry = tail_;
+                if(sketch_.frequency(key) <= sketch_.frequency(keyOf(entry)))
+                {
+                    return REJECTED;
+                }
+                unindex(entry);
+                unlink(entry);
+                outcome = EVICTED;
+            }
+
+            hashes_[entry] = hash;
+            profiles_[entry] = profile;
+            columns_[entry] = (byte) column;
+            micros_[entry] = micros;
+            int free = (int) key & indexMask_;
+            while(index_[free] != 0)
+            {
+                free = (free + 1) & indexMask_;
+            }
+            index_[free] = entry + 1;
+            linkFirst(entry);
+            return outcome;
+        }
+
+        synchronized int size()
+        {
+            return size_;
+        }
+
+        int capacity()
+        {
+            return hashes_.length;
+        }
+
+        long memoryBytes()
+        {
+            final int capacity = hashes_.length;
+            // Element data plus a 16 byte header per array
+            return capacity * (8L + 4 + 1 + 4 + 4 + 4) + index_.length * 4L
+                    + sketch_.memoryBytes() + 7 * 16;
+        }
+
+        private long keyOf(final int entry)
+        {
+            return mix(hashes_[entry], profiles_[entry]);
+        }
+
+        // Index slot holding the decision, -1 if absent
+        private int find(final long hash, final int profile, final long key)
+        {
+            int slot = (int) key & indexMask_;
+            while(true)
+            {
+                final int value = index_[slot];
+                if(value == 0)
+                {
+                    return -1;
+                }
+                if(hashes_[value - 1] == hash && profiles_[value - 1] == profile)
+                {
+                    return slot;
+                }
+                slot = (slot + 1) & indexMask_;
+            }
+        }
+
+        // Removes the entry from the index, shifting later probes back
+        private void unindex(final int entry)
+        {
+            int hole = (int) keyOf(entry) & indexMask_;
+            while(index_[hole] != entry + 1)
+            {
+                hole = (hole + 1) & indexMask_;
+            }
+            index_[hole] = 0;
+            int slot = hole;
+            while(true)
+            {
+                slot = (slot + 1) & indexMask_;
+                final int value = index_[slot];
+                if(value == 0)
+                {
+                    return;
+                }
+                final int home = (int) keyOf(value - 1) & indexMask_;
+                // Move it unless its home lies cyclically within (hole, slot]
+                final boolean reachable = hole <= slot ? home > hole && home <= slot : home > hole
+                        || home <= slot;
+                if(!reachable)
+                {
+                    index_[hole] = value;
+                    index_[slot] = 0;
+                    hole = slot;
+                }
+            }
+        }
+
+        private void touch(final int entry)
+        {
+            if(entry != head_)
+            {
+                unlink(entry);
+                linkFirst(entry);
+            }
+        }
+
+        private void linkFirst(final int entry)
+        {
+            previous_[entry] = -1;
+            next_[entry] = head_;
+            if(head_ >= 0)
+            {
+                previous_[head_] = entry;
+            }
+            head_ = entry;
+            if(tail_ < 0)
+            {
+                tail_ = entry;
+            }
+        }
+
+        private void unlink(final int entry)
+        {
+            final int previous = previous_[entry];
+            final int next = next_[entry];
+            if(previous >= 0)
+            {
+                next_[previous] = next;
+            }
+            else
+            {
+                head_ = next;
+            }
+            if(next >= 0)
+            {
+                previous_[next] = previous;
+            }
+            else
+            {
+                tail_ = previous;
+            }
+        }
+    }
+
+    /*
+     * Count-min sketch of 4 bit counters, 16 per long and 4 per key. Once
+     * ten times the segment's capacity has been counted every counter is
+     * halved.
+     */
+    private static final class Sketch
+    {
+        private static final long HALF_MASK = 0x7777777777777777L;
+
+        private final long[] table_;
+        private final int mask_;
+        private final int sampleSize_;
+        private int additions_;
+
+        Sketch(final int capacity)
+        {
+            table_ = new long[Math.max(8, Integer.highestOneBit(capacity - 1) << 1)];
+            mask_ = table_.length - 1;
+            sampleSize_ = 10 * capacity;
+        }
+
+        int frequency(final long key)
+        {
+            int frequency = 15;
+            for(int i = 0; i < 4; ++i)
+            {
+                final long hash = scramble(key + (i + 1) * GOLDEN);
+                final int shift = ((int) hash & 15) << 2;
+                final int index = (int) (hash >>> 32) & mask_;
+                frequency = Math.min(frequency, (int) (table_[index] >>> shift) & 15);
+            }
+            return frequency;
+        }
+
+        void increment(final long key)
+        {
+            boolean added = false;
+            for(int i = 0; i < 4; ++i)
+            {
+                final long hash = scramble(key + (i + 1) * GOLDEN);
+                final int shift = ((int) hash & 15) << 2;
+                final int index = (int) (hash >>> 32) & mask_;
+                if(((table_[index] >>> shift) & 15) != 15)
+                {
+                    table_[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if(added && ++additions_ == sampleSize_)
+            {
+                for(int i = 0; i < table_.length; ++i)
+                {
+                    table_[i] = (table_[i] >>> 1) & HALF_MASK;
+                }
+                additions_ /= 2;
+            }
+        }
+
+        long memoryBytes()
+        {
+            return table_.length * 8L + 16;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package ai;
+
+import game.Player;
+import games.connectfour.BoardCodec;
+import games.connectfour.ConnectFourGameBoard;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One worker process speaking EngineHost's protocol. Requests are written as
+ * soon as they are made and answered by a reader thread, so any number can
+ * be in flight at once.
+ */
+final class EngineConnection
+{
+    private static final long QUIT_WAIT_MILLIS = 1000;
+
+    private final Process process_;
+    private final Writer output_;
+    private final BufferedReader input_;
+    private final Map<Long, CompletableFuture<Integer>> pending_;
+    private final AtomicLong nextId_;
+    private final String name_;
+    private final StringBuilder request_;
+
+    private volatile boolean alive_;
+
+    /**
+     * Starts the process and waits until it is ready for requests.
+     *
+     * @param command
+     *            Non-null command line of the worker
+     * @throws IOException
+     *             if the process cannot be started or does not answer the
+     *             handshake
+     */
+    EngineConnection(final List<String> command) throws IOException
+    {
+        process_ = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        output_ = new BufferedWriter(new OutputStreamWriter(process_.getOutputStream(),
+                StandardCharsets.US_ASCII));
+        input_ = new BufferedReader(new InputStreamReader(process_.getInputStream(),
+                StandardCharsets.US_ASCII));
+        pending_ = new ConcurrentHashMap<Long, CompletableFuture<Integer>>();
+        nextId_ = new AtomicLong();
+        request_ = new StringBuilder();
+
+        output_.write("uci\nisready\n");
+        output_.flush();
+        String name = command.get(command.size() - 1);
+        String line;
+        while(!"readyok".equals(line = input_.readLine()))
+        {
+            if(line == null)
+            {
+                process_.destroyForcibly();
+                throw new IOException("Engine " + command + " exited during the handshake");
+            }
+            if(line.startsWith("id name "))
+            {
+                name = line.substring("id name ".length());
+            }
+        }
+        name_ = name;
+        alive_ = true;
+
+        final Thread reader = new Thread(this::readAnswers, "Engine-" + process_.pid());
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * @param gameBoard
+     *            Non-null board to search
+     * @param player
+     *            Non-null player to move
+     * @param timeBudgetMillis
+     *            Time the engine may think for, 0 for no limit
+     * @return Future completed with the chosen column, or exceptionally if
+     *         the engine reports an error or dies
+     */
+    CompletableFuture<Integer> go(final ConnectFourGameBoard gameBoard, final Player player,
+            final long timeBudgetMillis)
+    {
+        final long id = nextId_.incrementAndGet();
+        final CompletableFuture<Integer> future = new CompletableFuture<Integer>();
+        pending_.put(id, future);
+        try
+        {
+            synchronized(request_)
+            {
+                request_.setLength(0);
+                BoardCodec.appendText(gameBoard, request_.append("position "));
+                request_.append("\ngo ").append(id).append(' ').append(
+                        player == Player.PLAYER_1 ? '1' : '2');
+                if(timeBudgetMillis > 0)
+                {
+                    request_.append(" movetime ").append(timeBudgetMillis);
+                }
+                request_.append('\n');
+                output_.append(request_);
+                output_.flush();
+            }
+        }
+        catch(final IOException e)
+        {
+            fail(id, new IllegalStateException("Engine " + name_ + " cannot be written to", e));
+        }
+        if(!alive_)
+        {
+            // The reader may have given up on every request before this one was added
+            fail(id, new IllegalStateException("Engine " + name_ + " has exited"));
+        }
+        return future;
+    }
+
+    /**
+     * Asks the engine to answer every running request as soon as possible.
+     */
+    void stop()
+    {
+        synchronized(request_)
+        {
+            try
+            {
+                output_.write("stop\n");
+                output_.flush();
+            }
+            catch(final IOException e)
+            {
+                // Nothing to stop in an engine that is gone
+            }
+        }
+    }
+
+    /**
+     * Asks the engine to quit, killing it if it does not.
+     */
+    void close()
+    {
+        synchronized(request_)
+        {
+            try
+            {
+                output_.write("quit\n");
+                output_.flush();
+            }
+            catch(final IOException e)
+            {
+                // Killed below
+            }
+        }
+        try
+        {
+            if(!process_.waitFor(QUIT_WAIT_MILLIS, TimeUnit.MILLISECONDS))
+            {
+                process_.destroyForcibly();
+            }
+        }
+        catch(final InterruptedException e)
+        {
+            process_.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return Number of requests not answered yet
+     */
+    int pending()
+    {
+        return pending_.size();
+    }
+
+    /**
+     * @return False once the engine has exited
+     */
+    boolean isAlive()
+    {
+        return alive_;
+    }
+
+    /**
+     * @return Name the engine reported
+     */
+    String getName()
+    {
+        return name_;
+    }
+
+    private void readAnswers()
+    {
+        try
+        {
+            String line;
+            while((line = input_.readLine()) != null)
+            {
+                final String[] tokens = line.split(" ", 3);
+                final boolean answer = "bestmove".equals(tokens[0]) || "error".equals(tokens[0]);
+                // Anything else (e.g. errors about no request in particular) is ignored
+                if(!answer || tokens.length < 3 || "-".equals(tokens[1]))
+                {
+                    continue;
+                }
+                final long id = Long.parseLong(tokens[1]);
+                if("bestmove".equals(tokens[0]))
+                {
+                    final CompletableFuture<Integer> future = pending_.remove(id);
+                    if(future != null)
+                    {
+                        future.complete(Integer.parseInt(tokens[2]));
+                    }
+                }
+                else
+                {
+                    fail(id, new IllegalStateException("Engine " + name_ + ": " + tokens[2]));
+                }
+            }
+        }
+        catch(final IOException | NumberFormatException e)
+        {
+            // Treated like the engine exiting
+        }
+        alive_ = false;
+        process_.destroyForcibly();
+        for(final Long id : pending_.keySet())
+        {
+            fail(id, new IllegalStateException("Engine " + name_ + " has exited"));
+        }
+    }
+
+    private void fail(final long id, final RuntimeException error)
+    {
+        final CompletableFuture<Integer> future = pending_.remove(id);
+        if(future != null)
+        {
+            future.completeExceptionally(error);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s (pid %d)", name_, process_.pid());
+    }
+}
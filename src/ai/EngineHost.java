@@ -0,0 +1,220 @@
+package ai;
+
+import game.Player;
+import games.connectfour.BoardCodec;
+import games.connectfour.ConnectFourGameBoard;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import utils.Validate;
+
+/**
+ * Serves an AI over a line based text protocol on a pair of streams (the
+ * process's stdin and stdout when run from main), so that the AI runs in its
+ * own process: a crashing or garbage-heavy bot cannot take the controller
+ * down with it. See ProcessAI and EnginePool for the controller's side.
+ *
+ * Modelled on UCI. Commands, one per line:
+ *
+ * uci -> id name ..., then uciok
+ *
+ * isready -> readyok (once every earlier command has been read)
+ *
+ * ucinewgame -> nothing
+ *
+ * position board -> nothing (board as in BoardCodec's text notation: rows from
+ * the top, '/' separated, '.' empty, 1 or 2 for a player's disc)
+ *
+ * go id player [movetime ms] -> bestmove id column (0 indexed), or error id
+ * message. movetime counts from when the search starts, not from when go is
+ * read, so a request waiting behind others keeps its whole budget.
+ *
+ * stop -> nothing, every running search returns its best move so far
+ *
+ * quit -> exits
+ *
+ * Each go searches the position given by the latest position command. Any
+ * number of requests may be sent without waiting for answers; they are
+ * searched one after the other and answered by id, as soon as each is done.
+ */
+public final class EngineHost
+{
+    private final Function<Player, AI> factory_;
+    private final String name_;
+    private final BufferedReader input_;
+    private final Writer output_;
+    private final ExecutorService searchThread_;
+    private final Map<Player, AsyncAIAdapter> ais_;
+
+    /**
+     * @param factory
+     *            Non-null factory of the AI to serve, called once per player
+     * @param name
+     *            Non-null name reported by uci
+     * @param input
+     *            Non-null stream commands are read from
+     * @param output
+     *            Non-null stream answers are written to
+     */
+    public EngineHost(final Function<Player, AI> factory, final String name,
+            final InputStream input, final OutputStream output)
+    {
+        Validate.notNull(factory, "Cannot host a null AI factory");
+        Validate.notNull(name, "Cannot host an engine without a name");
+        Validate.notNull(input, "Cannot read commands from a null stream");
+        Validate.notNull(output, "Cannot write answers to a null stream");
+        factory_ = factory;
+        name_ = name;
+        input_ = new BufferedReader(new InputStreamReader(input, StandardCharsets.US_ASCII));
+        output_ = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.US_ASCII));
+        searchThread_ = Executors.newSingleThreadExecutor(runnable ->
+        {
+            final Thread thread = new Thread(runnable, "Engine-Search");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ais_ = new EnumMap<Player, AsyncAIAdapter>(Player.class);
+    }
+
+    /**
+     * Serves commands until quit or the end of the input.
+     *
+     * @throws IOException
+     *             if the streams fail
+     */
+    public void run() throws IOException
+    {
+        ConnectFourGameBoard position = null;
+        try
+        {
+            String line;
+            while((line = input_.readLine()) != null)
+            {
+                final String[] tokens = line.trim().split("\\s+");
+                switch(tokens[0])
+                {
+                case "uci":
+                    write("id name " + name_ + "\nuciok");
+                    break;
+                case "isready":
+                    write("readyok");
+                    break;
+                case "ucinewgame":
+                case "":
+                    break;
+                case "position":
+                    position = parsePosition(tokens);
+                    break;
+                case "go":
+                    go(tokens, position);
+                    break;
+                case "stop":
+                    for(final AsyncAIAdapter ai : ais_.values())
+                    {
+                        ai.stop();
+                    }
+                    break;
+                case "quit":
+                    return;
+                default:
+                    write("error - unknown command " + tokens[0]);
+                    break;
+                }
+            }
+        }
+        finally
+        {
+            searchThread_.shutdownNow();
+        }
+    }
+
+    private ConnectFourGameBoard parsePosition(final String[] tokens)
+    {
+        try
+        {
+            return BoardCodec.parseText(tokens.length > 1 ? tokens[1] : "");
+        }
+        catch(final IllegalArgumentException e)
+        {
+            write("error - " + oneLine(e));
+            return null;
+        }
+    }
+
+    private void go(final String[] tokens, final ConnectFourGameBoard position)
+    {
+        final String id = tokens.length > 1 ? tokens[1] : "-";
+        try
+        {
+            Validate.isTrue(tokens.length >= 3, "Usage: go id player [movetime ms]");
+            Validate.isTrue(position != null, "No position was set");
+            final Player player = "1".equals(tokens[2]) ? Player.PLAYER_1 : "2"
+                    .equals(tokens[2]) ? Player.PLAYER_2 : null;
+            Validate.isTrue(player != null, "Player must be 1 or 2");
+            final long budget = tokens.length >= 5 && "movetime".equals(tokens[3]) ? Long
+                    .parseLong(tokens[4]) : 0;
+            final AsyncAIAdapter ai = ais_.computeIfAbsent(player,
+                    owner -> new AsyncAIAdapter(factory_.apply(owner), searchThread_));
+            ai.determineMoveAsync(position, budget).whenComplete((move, error) -> write(
+                    error == null ? "bestmove " + id + " " + move.getColumn() : "error " + id
+                            + " " + oneLine(error)));
+        }
+        catch(final RuntimeException e)
+        {
+            write("error " + id + " " + oneLine(e));
+        }
+    }
+
+    private static String oneLine(final Throwable error)
+    {
+        final Throwable cause = error.getCause() != null ? error.getCause() : error;
+        return String.valueOf(cause.getMessage()).replace('\n', ' ');
+    }
+
+    // Answers come from the reading and the searching thread
+    private synchronized void write(final String line)
+    {
+        try
+        {
+            output_.write(line);
+            output_.write('\n');
+            output_.flush();
+        }
+        catch(final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Serves depth limited SearchAIs on stdin/stdout.
+     *
+     * Usage: EngineHost [depth] [table entries]
+     *
+     * @param args
+     *            See usage
+     * @throws IOException
+     *             if stdin or stdout fail
+     */
+    public static void main(String args[]) throws IOException
+    {
+        final int depth = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        final int entries = args.length > 1 ? Integer.parseInt(args[1]) : 1 << 20;
+        new EngineHost(player -> new SearchAI(player, depth, 0, new TranspositionTable(entries)),
+                "SearchAI depth " + depth, System.in, System.out).run();
+    }
+}
@@ -0,0 +1,205 @@
+package ai;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import utils.Validate;
+
+/**
+ * A fixed number of warm worker processes speaking EngineHost's protocol,
+ * shared by any number of ProcessAIs.
+ *
+ * Every request goes to the live worker with the fewest unanswered requests,
+ * and is pipelined behind them rather than waiting for a free worker. A
+ * worker that dies fails its unanswered requests and is started again the
+ * next time a request comes along.
+ */
+public final class EnginePool implements Closeable
+{
+    private final List<String> command_;
+    private final AtomicReferenceArray<EngineConnection> workers_;
+    private final LongAdder requests_;
+    private final LongAdder restarts_;
+
+    private volatile boolean closed_;
+
+    /**
+     * Starts every worker and waits until all of them are ready.
+     *
+     * @param command
+     *            Non-empty command line of a worker (see javaCommand(...))
+     * @param workers
+     *            Number of worker processes, must be positive
+     * @throws IOException
+     *             if a worker cannot be started
+     */
+    public EnginePool(final List<String> command, final int workers) throws IOException
+    {
+        Validate.notNull(command, "Cannot start workers from a null command");
+        Validate.isTrue(!command.isEmpty(), "Cannot start workers from an empty command");
+        Validate.isTrue(workers > 0, "Cannot create an EnginePool with <= 0 workers");
+        command_ = Collections.unmodifiableList(new ArrayList<String>(command));
+        workers_ = new AtomicReferenceArray<EngineConnection>(workers);
+        requests_ = new LongAdder();
+        restarts_ = new LongAdder();
+        try
+        {
+            for(int i = 0; i < workers; ++i)
+            {
+                workers_.set(i, new EngineConnection(command_));
+            }
+        }
+        catch(final IOException e)
+        {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param mainClass
+     *            Non-null class whose main serves the protocol, e.g.
+     *            EngineHost
+     * @param args
+     *            Arguments of the main
+     * @return Command line running the class in a new JVM with this
+     *         process's Java and class path
+     */
+    public static List<String> javaCommand(final Class<?> mainClass, final String... args)
+    {
+        Validate.notNull(mainClass, "Cannot run a null class");
+        final List<String> command = new ArrayList<String>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path", "." + File.pathSeparator));
+        command.add(mainClass.getName());
+        command.addAll(Arrays.asList(args));
+        return command;
+    }
+
+    /**
+     * @return The worker with the fewest unanswered requests, restarting
+     *         dead workers on the way
+     * @throws IllegalStateException
+     *             if the pool is closed or no worker can be started
+     */
+    EngineConnection acquire()
+    {
+        Validate.isTrue(!closed_, "EnginePool has been closed");
+        requests_.increment();
+        EngineConnection best = null;
+        for(int i = 0; i < workers_.length(); ++i)
+        {
+            EngineConnection worker = workers_.get(i);
+            if(!worker.isAlive())
+            {
+                worker = restart(i, worker);
+                if(worker == null)
+                {
+                    continue;
+                }
+            }
+            if(best == null || worker.pending() < best.pending())
+            {
+                best = worker;
+            }
+        }
+        if(best == null)
+        {
+            throw new IllegalStateException("No worker of " + command_ + " could be started");
+        }
+        return best;
+    }
+
+    // Returns the live replacement, or null if the worker cannot be started
+    private synchronized EngineConnection restart(final int index, final EngineConnection dead)
+    {
+        final EngineConnection current = workers_.get(index);
+        if(current != dead || closed_)
+        {
+            return current.isAlive() ? current : null;
+        }
+        try
+        {
+            final EngineConnection worker = new EngineConnection(command_);
+            workers_.set(index, worker);
+            restarts_.increment();
+            return worker;
+        }
+        catch(final IOException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * @return Number of worker processes
+     */
+    public int size()
+    {
+        return workers_.length();
+    }
+
+    /**
+     * @return Number of requests handed to workers
+     */
+    public long getRequests()
+    {
+        return requests_.sum();
+    }
+
+    /**
+     * @return Number of workers started again after dying
+     */
+    public long getRestarts()
+    {
+        return restarts_.sum();
+    }
+
+    /**
+     * @return Number of unanswered requests over every worker
+     */
+    public int getPending()
+    {
+        int pending = 0;
+        for(int i = 0; i < workers_.length(); ++i)
+        {
+            final EngineConnection worker = workers_.get(i);
+            pending += worker == null ? 0 : worker.pending();
+        }
+        return pending;
+    }
+
+    /**
+     * Asks every worker to quit, killing the ones that do not.
+     */
+    @Override
+    public synchronized void close()
+    {
+        closed_ = true;
+        for(int i = 0; i < workers_.length(); ++i)
+        {
+            final EngineConnection worker = workers_.get(i);
+            if(worker != null)
+            {
+                worker.close();
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        final EngineConnection worker = workers_.get(0);
+        return String.format("%d x %s", workers_.length(), worker == null ? command_ : worker
+                .getName());
+    }
+}
@@ -0,0 +1,19 @@
+package ai;
+
+/**
+ * Callback told about every iteration a SearchAI completes, so callers can
+ * follow a search as it deepens (e.g. to see when it settled on its move).
+ */
+@FunctionalInterface
+public interface IterationListener
+{
+    /**
+     * Called on the searching thread, so keep it quick.
+     * 
+     * @param result
+     *            Result of the search so far: best column and score of the
+     *            iteration that just completed, with totals since the search
+     *            started
+     */
+    public void iterationComplete(final SearchResult result);
+}
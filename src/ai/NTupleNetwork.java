@@ -0,0 +1,523 @@
+package ai;
+
+import game.Player;
+import games.connectfour.BitboardLayout;
+import games.connectfour.ConnectFourGameBoard;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import utils.Validate;
+
+/**
+ * Position evaluator built from n-tuple pattern tables (see NTupleTrainer).
+ *
+ * A tuple is a fixed list of board cells. Every cell is empty, PLAYER_1 or
+ * PLAYER_2, so the contents of a tuple of n cells are a base 3 number below
+ * 3^n, which indexes that tuple's table of weights. A position's value is the
+ * sum of the weights its tuples select, from PLAYER_1's point of view, where
+ * +/-SCALE means a sure win/loss.
+ *
+ * Weights are shorts and values ints, so evaluation is integer arithmetic
+ * only. An Accumulator keeps every tuple's index up to date as discs are
+ * added and removed, touching only the tuples that contain the changed cell
+ * instead of recomputing the whole sum.
+ *
+ * Networks are immutable and may be shared by any number of threads.
+ */
+public final class NTupleNetwork
+{
+    /**
+     * Value of a position PLAYER_1 is sure to win
+     */
+    public static final int SCALE = 10000;
+
+    private static final int MAGIC = 0x43344E54;
+    private static final int VERSION = 1;
+    private static final int MAX_TUPLE_CELLS = 12;
+
+    private final int width_;
+    private final int height_;
+    private final int[][] tuples_;
+    private final int[] offsets_;
+    private final short[] weights_;
+    // For every cell: the tuples containing it and the cell's power of 3 there
+    private final int[][] cellTuples_;
+    private final int[][] cellPowers_;
+    // Null if the board does not fit in a bitboard
+    private final long[] cellBits_;
+    private final int hash_;
+
+    /**
+     * Creates an untrained network (all weights 0) over standardTuples(...).
+     *
+     * @param width
+     *            Board width
+     * @param height
+     *            Board height
+     */
+    public NTupleNetwork(final int width, final int height)
+    {
+        this(width, height, standardTuples(width, height), null);
+    }
+
+    /**
+     * @param width
+     *            Board width
+     * @param height
+     *            Board height
+     * @param tuples
+     *            Non-empty tuples, each a list of distinct cells (column *
+     *            height + row) of at most 12 cells
+     * @param weights
+     *            Weights of every tuple's table, one after the other, null
+     *            for all 0. Copied.
+     */
+    public NTupleNetwork(final int width, final int height, final int[][] tuples,
+            final short[] weights)
+    {
+        // Fail fast on dimensions the board would reject
+        new ConnectFourGameBoard(width, height);
+        Validate.notNull(tuples, "Cannot create a network without tuples");
+        Validate.isTrue(tuples.length > 0, "Cannot create a network without tuples");
+        width_ = width;
+        height_ = height;
+        tuples_ = new int[tuples.length][];
+        offsets_ = new int[tuples.length + 1];
+        final int cells = width * height;
+        final List<List<int[]>> byCell = new ArrayList<List<int[]>>(cells);
+        for(int cell = 0; cell < cells; ++cell)
+        {
+            byCell.add(new ArrayList<int[]>());
+        }
+        for(int i = 0; i < tuples.length; ++i)
+        {
+            final int[] tuple = tuples[i];
+            Validate.isTrue(tuple != null && tuple.length > 0 && tuple.length <= MAX_TUPLE_CELLS,
+                    "Tuples must have between 1 and 12 cells");
+            tuples_[i] = tuple.clone();
+            int power = 1;
+            for(final int cell : tuple)
+            {
+                Validate.isTrue(cell >= 0 && cell < cells, () -> String.format(
+                        "Cell %d is not on a %dx%d board", cell, width, height));
+                for(final int[] seen : byCell.get(cell))
+                {
+                    Validate.isTrue(seen[0] != i, "Tuples cannot repeat a cell");
+                }
+                byCell.get(cell).add(new int[] { i, power });
+                power *= 3;
+            }
+            offsets_[i + 1] = offsets_[i] + power;
+        }
+        Validate.isTrue(weights == null || weights.length == offsets_[tuples.length],
+                "Weights do not match the tuples");
+        weights_ = weights == null ? new short[offsets_[tuples.length]] : weights.clone();
+
+        cellTuples_ = new int[cells][];
+        cellPowers_ = new int[cells][];
+        for(int cell = 0; cell < cells; ++cell)
+        {
+            final List<int[]> entries = byCell.get(cell);
+            cellTuples_[cell] = new int[entries.size()];
+            cellPowers_[cell] = new int[entries.size()];
+            for(int i = 0; i < entries.size(); ++i)
+            {
+                cellTuples_[cell][i] = entries.get(i)[0];
+                cellPowers_[cell][i] = entries.get(i)[1];
+            }
+        }
+
+        if(BitboardLayout.supports(width, height))
+        {
+            final BitboardLayout layout = new BitboardLayout(width, height);
+            cellBits_ = new long[cells];
+            for(int cell = 0; cell < cells; ++cell)
+            {
+                cellBits_[cell] = layout.bit(cell / height, cell % height);
+            }
+        }
+        else
+        {
+            cellBits_ = null;
+        }
+        hash_ = 31 * Arrays.deepHashCode(tuples_) + Arrays.hashCode(weights_);
+    }
+
+    /**
+     * Every line of four cells (the lines that win games) plus every 2x3 and
+     * 3x2 rectangle, which see how neighbouring lines interact.
+     *
+     * @param width
+     *            Board width
+     * @param height
+     *            Board height
+     * @return Tuples for a board of that size
+     */
+    public static int[][] standardTuples(final int width, final int height)
+    {
+        final List<int[]> tuples = new ArrayList<int[]>();
+        final int[][] directions = { { 1, 0 }, { 0, 1 }, { 1, 1 }, { 1, -1 } };
+        for(int column = 0; column < width; ++column)
+        {
+            for(int row = 0; row < height; ++row)
+            {
+                for(final int[] direction : directions)
+                {
+                    final int lastColumn = column + 3 * direction[0];
+                    final int lastRow = row + 3 * direction[1];
+                    if(lastColumn < width && lastRow >= 0 && lastRow < height)
+                    {
+                        final int[] tuple = new int[4];
+                        for(int i = 0; i < 4; ++i)
+                        {
+                            tuple[i] = (column + i * direction[0]) * height + row + i
+                                    * direction[1];
+                        }
+                        tuples.add(tuple);
+                    }
+                }
+                addRectangle(tuples, width, height, column, row, 2, 3);
+                addRectangle(tuples, width, height, column, row, 3, 2);
+            }
+        }
+        return tuples.toArray(new int[tuples.size()][]);
+    }
+
+    private static void addRectangle(final List<int[]> tuples, final int width,
+            final int height, final int column, final int row, final int columns,
+            final int rows)
+    {
+        if(column + columns > width || row + rows > height)
+        {
+            return;
+        }
+        final int[] tuple = new int[columns * rows];
+        int i = 0;
+        for(int c = column; c < column + columns; ++c)
+        {
+            for(int r = row; r < row + rows; ++r)
+            {
+                tuple[i++] = c * height + r;
+            }
+        }
+        tuples.add(tuple);
+    }
+
+    /**
+     * @param file
+     *            File written by save(...)
+     * @return The saved network
+     * @throws IOException
+     *             if the file cannot be read
+     * @throws IllegalArgumentException
+     *             if the file is not a network of this version
+     */
+    public static NTupleNetwork load(final Path file) throws IOException
+    {
+        Validate.notNull(file, "Cannot load a network from a null file");
+        try(final DataInputStream input = new DataInputStream(new BufferedInputStream(Files
+                .newInputStream(file))))
+        {
+            Validate.isTrue(input.readInt() == MAGIC, () -> file + " is not an n-tuple network");
+            final int version = input.readInt();
+            Validate.isTrue(version == VERSION, () -> String.format(
+                    "%s has unsupported n-tuple network version %d", file, version));
+            final int width = input.readInt();
+            final int height = input.readInt();
+            final int[][] tuples = new int[input.readInt()][];
+            for(int i = 0; i < tuples.length; ++i)
+            {
+                tuples[i] = new int[input.readUnsignedByte()];
+                for(int j = 0; j < tuples[i].length; ++j)
+                {
+                    tuples[i][j] = input.readUnsignedShort();
+                }
+            }
+            final short[] weights = new short[input.readInt()];
+            for(int i = 0; i < weights.length; ++i)
+            {
+                weights[i] = input.readShort();
+            }
+            return new NTupleNetwork(width, height, tuples, weights);
+        }
+    }
+
+    /**
+     * Writes the network to a temporary file that is then moved over the
+     * target.
+     *
+     * @param file
+     *            File to (over)write
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    public void save(final Path file) throws IOException
+    {
+        Validate.notNull(file, "Cannot save a network to a null file");
+        final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try(final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files
+                .newOutputStream(temporary))))
+        {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(width_);
+            output.writeInt(height_);
+            output.writeInt(tuples_.length);
+            for(final int[] tuple : tuples_)
+            {
+                output.writeByte(tuple.length);
+                for(final int cell : tuple)
+                {
+                    output.writeShort(cell);
+                }
+            }
+            output.writeInt(weights_.length);
+            for(final short weight : weights_)
+            {
+                output.writeShort(weight);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Evaluates a position from scratch, reading every cell of every tuple.
+     *
+     * @param gameBoard
+     *            Non-null board of the network's size
+     * @return Value of the position for PLAYER_1
+     */
+    public int evaluate(final ConnectFourGameBoard gameBoard)
+    {
+        checkSize(gameBoard);
+        final long player1 = cellBits_ == null ? 0 : gameBoard.getBitboard(Player.PLAYER_1);
+        final long player2 = cellBits_ == null ? 0 : gameBoard.getBitboard(Player.PLAYER_2);
+        int value = 0;
+        for(int i = 0; i < tuples_.length; ++i)
+        {
+            final int[] tuple = tuples_[i];
+            int index = 0;
+            int power = 1;
+            for(final int cell : tuple)
+            {
+                index += code(gameBoard, player1, player2, cell) * power;
+                power *= 3;
+            }
+            value += weights_[offsets_[i] + index];
+        }
+        return value;
+    }
+
+    /**
+     * @param gameBoard
+     *            Non-null board of the network's size
+     * @return Accumulator holding the board's current position
+     */
+    public Accumulator newAccumulator(final ConnectFourGameBoard gameBoard)
+    {
+        checkSize(gameBoard);
+        final long player1 = cellBits_ == null ? 0 : gameBoard.getBitboard(Player.PLAYER_1);
+        final long player2 = cellBits_ == null ? 0 : gameBoard.getBitboard(Player.PLAYER_2);
+        final int[] indices = new int[tuples_.length];
+        for(int cell = 0; cell < width_ * height_; ++cell)
+        {
+            final int code = code(gameBoard, player1, player2, cell);
+            final int[] tuples = cellTuples_[cell];
+            final int[] powers = cellPowers_[cell];
+            for(int i = 0; i < tuples.length; ++i)
+            {
+                indices[tuples[i]] += code * powers[i];
+            }
+        }
+        return new Accumulator(indices);
+    }
+
+    /**
+     * @return Board width
+     */
+    public int getWidth()
+    {
+        return width_;
+    }
+
+    /**
+     * @return Board height
+     */
+    public int getHeight()
+    {
+        return height_;
+    }
+
+    /**
+     * @return Number of tuples
+     */
+    public int getTupleCount()
+    {
+        return tuples_.length;
+    }
+
+    /**
+     * @return Total number of weights
+     */
+    public int getWeightCount()
+    {
+        return weights_.length;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hash_;
+    }
+
+    @Override
+    public boolean equals(final Object other)
+    {
+        if(this == other)
+        {
+            return true;
+        }
+        if(!(other instanceof NTupleNetwork))
+        {
+            return false;
+        }
+        final NTupleNetwork network = (NTupleNetwork) other;
+        return width_ == network.width_ && height_ == network.height_
+                && Arrays.deepEquals(tuples_, network.tuples_)
+                && Arrays.equals(weights_, network.weights_);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("NTupleNetwork %dx%d, %d tuples, %d weights", width_, height_,
+                tuples_.length, weights_.length);
+    }
+
+    int[][] tuples()
+    {
+        return tuples_;
+    }
+
+    int[] offsets()
+    {
+        return offsets_;
+    }
+
+    short[] weights()
+    {
+        return weights_;
+    }
+
+    int[] cellTuples(final int cell)
+    {
+        return cellTuples_[cell];
+    }
+
+    int[] cellPowers(final int cell)
+    {
+        return cellPowers_[cell];
+    }
+
+    private void checkSize(final ConnectFourGameBoard gameBoard)
+    {
+        Validate.notNull(gameBoard, "Cannot evaluate a null board");
+        Validate.isTrue(gameBoard.getWidth() == width_ && gameBoard.getHeight() == height_,
+                "The network was built for another board size");
+    }
+
+    // 0 empty, 1 PLAYER_1, 2 PLAYER_2
+    private int code(final ConnectFourGameBoard gameBoard, final long player1,
+            final long player2, final int cell)
+    {
+        if(cellBits_ != null)
+        {
+            final long bit = cellBits_[cell];
+            return (player1 & bit) != 0 ? 1 : (player2 & bit) != 0 ? 2 : 0;
+        }
+        final Player player = gameBoard.playerAt(cell / height_, cell % height_);
+        return player == null ? 0 : player == Player.PLAYER_1 ? 1 : 2;
+    }
+
+    /**
+     * Running value of a position that is changed one disc at a time (e.g.
+     * by a search making and taking back moves). Not thread-safe.
+     */
+    public final class Accumulator
+    {
+        private final int[] indices_;
+        private int value_;
+
+        private Accumulator(final int[] indices)
+        {
+            indices_ = indices;
+            for(int i = 0; i < indices.length; ++i)
+            {
+                value_ += weights_[offsets_[i] + indices[i]];
+            }
+        }
+
+        /**
+         * @param column
+         *            Column of the new disc
+         * @param row
+         *            Row of the new disc, must be empty
+         * @param player
+         *            Non-null owner of the disc
+         */
+        public void add(final int column, final int row, final Player player)
+        {
+            update(column * height_ + row, player == Player.PLAYER_1 ? 1 : 2);
+        }
+
+        /**
+         * @param column
+         *            Column of the removed disc
+         * @param row
+         *            Row of the removed disc
+         * @param player
+         *            Non-null owner of the disc
+         */
+        public void remove(final int column, final int row, final Player player)
+        {
+            update(column * height_ + row, player == Player.PLAYER_1 ? -1 : -2);
+        }
+
+        /**
+         * @return Value of the current position for PLAYER_1
+         */
+        public int value()
+        {
+            return value_;
+        }
+
+        // Only the tuples containing the cell change
+        private void update(final int cell, final int change)
+        {
+            final int[] tuples = cellTuples_[cell];
+            final int[] powers = cellPowers_[cell];
+            int value = value_;
+            for(int i = 0; i < tuples.length; ++i)
+            {
+                final int tuple = tuples[i];
+                final int offset = offsets_[tuple];
+                final int before = indices_[tuple];
+                final int after = before + change * powers[i];
+                value += weights_[offset + after] - weights_[offset + before];
+                indices_[tuple] = after;
+            }
+            value_ = value;
+        }
+    }
+}
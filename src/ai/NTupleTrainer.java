@@ -0,0 +1,328 @@
+package ai;
+
+import game.Player;
+import games.connectfour.ConnectFourGameBoard;
+import games.connectfour.ConnectFourMove;
+import games.connectfour.MoveStrings;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import utils.Validate;
+
+/**
+ * Learns the weights of an NTupleNetwork from finished games by temporal
+ * difference learning.
+ *
+ * Every game is replayed and the value of each position after a move is
+ * moved towards its TD(lambda) return: the final result (+/-SCALE for a
+ * PLAYER_1 win/loss, 0 for a draw) blended backwards through the values of
+ * the positions that followed. Recorded games are complete, so the returns
+ * are computed exactly, backwards from the end of each game, instead of with
+ * eligibility traces.
+ *
+ * Training keeps the weights as ints with 8 fractional bits, so that small
+ * updates are not lost to rounding, and network() rounds them to the
+ * network's shorts.
+ *
+ * Note: This class is not thread-safe.
+ */
+public final class NTupleTrainer
+{
+    /**
+     * Default step size, as a fraction of the error spread over all tuples
+     */
+    public static final double DEFAULT_ALPHA = 0.05;
+
+    /**
+     * Default weight of later returns in each position's target
+     */
+    public static final double DEFAULT_LAMBDA = 0.5;
+
+    private static final int FRACTION_BITS = 8;
+
+    private final NTupleNetwork shape_;
+    private final int[] weights_;
+    private final double alpha_;
+    private final double lambda_;
+
+    private long games_;
+    private long positions_;
+    private double squaredError_;
+
+    /**
+     * @param initial
+     *            Non-null network whose tuples are trained, starting from its
+     *            weights
+     * @param alpha
+     *            Step size, within (0, 1]
+     * @param lambda
+     *            Weight of later returns, within [0, 1]
+     */
+    public NTupleTrainer(final NTupleNetwork initial, final double alpha, final double lambda)
+    {
+        Validate.notNull(initial, "Cannot train a null network");
+        Validate.isTrue(alpha > 0 && alpha <= 1, "alpha must be within (0, 1]");
+        Validate.isTrue(lambda >= 0 && lambda <= 1, "lambda must be within [0, 1]");
+        shape_ = initial;
+        alpha_ = alpha;
+        lambda_ = lambda;
+        final short[] weights = initial.weights();
+        weights_ = new int[weights.length];
+        for(int i = 0; i < weights.length; ++i)
+        {
+            weights_[i] = weights[i] << FRACTION_BITS;
+        }
+    }
+
+    /**
+     * Learns from one game. Games that did not finish (nobody won and the
+     * board is not full) are skipped.
+     *
+     * @param moves
+     *            Non-null moves of the game, in order
+     * @return True if the game was learned from
+     * @throws IllegalArgumentException
+     *             if a move is illegal
+     */
+    public boolean train(final List<ConnectFourMove> moves)
+    {
+        Validate.notNull(moves, "Cannot train on null moves");
+        final int tupleCount = shape_.getTupleCount();
+        final ConnectFourGameBoard board = new ConnectFourGameBoard(shape_.getWidth(), shape_
+                .getHeight());
+        // Tuple indices of the position after every move
+        final int[][] indices = new int[moves.size()][];
+        final int[] current = new int[tupleCount];
+        Player winner = null;
+        int played = 0;
+        for(final ConnectFourMove move : moves)
+        {
+            // Checked whatever the validation level, training games come from outside
+            if(winner != null || !board.isLegalMove(move))
+            {
+                throw new IllegalArgumentException(String.format("Illegal move in column %d",
+                        move.getColumn()));
+            }
+            if(board.checkIfWinningMove(move))
+            {
+                winner = move.getPlayer();
+            }
+            board.addMove(move);
+            final int cell = move.getColumn() * shape_.getHeight()
+                    + board.columnHeight(move.getColumn()) - 1;
+            final int code = move.getPlayer() == Player.PLAYER_1 ? 1 : 2;
+            final int[] tuples = shape_.cellTuples(cell);
+            final int[] powers = shape_.cellPowers(cell);
+            for(int i = 0; i < tuples.length; ++i)
+            {
+                current[tuples[i]] += code * powers[i];
+            }
+            indices[played++] = current.clone();
+        }
+        if(winner == null && !board.boardFull())
+        {
+            return false;
+        }
+
+        // The last position is the result itself, learn the ones leading to it
+        final double result = winner == null ? 0 : winner == Player.PLAYER_1
+                ? NTupleNetwork.SCALE : -NTupleNetwork.SCALE;
+        double target = result;
+        double next = result;
+        for(int position = played - 2; position >= 0; --position)
+        {
+            target = (1 - lambda_) * next + lambda_ * target;
+            final double value = value(indices[position]);
+            next = value;
+            final double error = target - value;
+            squaredError_ += error * error;
+            ++positions_;
+            final int step = (int) Math.round(alpha_ * error * (1 << FRACTION_BITS) / tupleCount);
+            if(step != 0)
+            {
+                adjust(indices[position], step);
+            }
+        }
+        ++games_;
+        return true;
+    }
+
+    /**
+     * Trains on every game several times, in a different order every epoch.
+     *
+     * @param games
+     *            Non-null games to learn from
+     * @param epochs
+     *            Passes over the games
+     * @param random
+     *            Non-null source of the shuffling
+     * @return RMS error of the positions trained in every epoch, 0 for an
+     *         epoch without any
+     */
+    public double[] train(final List<List<ConnectFourMove>> games, final int epochs,
+            final Random random)
+    {
+        Validate.notNull(games, "Cannot train on null games");
+        Validate.notNull(random, "Cannot shuffle with a null Random");
+        final List<List<ConnectFourMove>> order = new ArrayList<List<ConnectFourMove>>(games);
+        final double[] errors = new double[Math.max(0, epochs)];
+        for(int epoch = 0; epoch < epochs; ++epoch)
+        {
+            Collections.shuffle(order, random);
+            final long positions = positions_;
+            final double squaredError = squaredError_;
+            for(final List<ConnectFourMove> game : order)
+            {
+                train(game);
+            }
+            final long trained = positions_ - positions;
+            errors[epoch] = trained == 0 ? 0 : Math.sqrt((squaredError_ - squaredError)
+                    / trained);
+        }
+        return errors;
+    }
+
+    /**
+     * @return Network with the weights learned so far
+     */
+    public NTupleNetwork network()
+    {
+        final short[] weights = new short[weights_.length];
+        for(int i = 0; i < weights.length; ++i)
+        {
+            final int rounded = (weights_[i] + (1 << (FRACTION_BITS - 1))) >> FRACTION_BITS;
+            weights[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, rounded));
+        }
+        return new NTupleNetwork(shape_.getWidth(), shape_.getHeight(), shape_.tuples(),
+                weights);
+    }
+
+    /**
+     * @return Number of games learned from
+     */
+    public long getGames()
+    {
+        return games_;
+    }
+
+    /**
+     * @return Number of positions learned from
+     */
+    public long getPositions()
+    {
+        return positions_;
+    }
+
+    private double value(final int[] indices)
+    {
+        final int[] offsets = shape_.offsets();
+        long value = 0;
+        for(int i = 0; i < indices.length; ++i)
+        {
+            value += weights_[offsets[i] + indices[i]];
+        }
+        return (double) value / (1 << FRACTION_BITS);
+    }
+
+    private void adjust(final int[] indices, final int step)
+    {
+        final int[] offsets = shape_.offsets();
+        final int limit = Short.MAX_VALUE << FRACTION_BITS;
+        for(int i = 0; i < indices.length; ++i)
+        {
+            final int weight = offsets[i] + indices[i];
+            weights_[weight] = Math.max(-limit, Math.min(limit, weights_[weight] + step));
+        }
+    }
+
+    /**
+     * Trains a network on a file of games, one move string (see MoveStrings)
+     * per line, and saves it.
+     *
+     * Usage: NTupleTrainer games output [--epochs n] [--alpha a] [--lambda l]
+     * [--width w] [--height h] [--initial network]
+     *
+     * @param args
+     *            See usage
+     * @throws IOException
+     *             if the games cannot be read or the network written
+     */
+    public static void main(String args[]) throws IOException
+    {
+        if(args.length < 2)
+        {
+            System.out.println("Usage: NTupleTrainer games output [--epochs n] [--alpha a] "
+                    + "[--lambda l] [--width w] [--height h] [--initial network]");
+            return;
+        }
+        int epochs = 10;
+        double alpha = DEFAULT_ALPHA;
+        double lambda = DEFAULT_LAMBDA;
+        int width = 7;
+        int height = 6;
+        Path initial = null;
+        for(int i = 2; i + 1 < args.length; i += 2)
+        {
+            switch(args[i])
+            {
+            case "--epochs":
+                epochs = Integer.parseInt(args[i + 1]);
+                break;
+            case "--alpha":
+                alpha = Double.parseDouble(args[i + 1]);
+                break;
+            case "--lambda":
+                lambda = Double.parseDouble(args[i + 1]);
+                break;
+            case "--width":
+                width = Integer.parseInt(args[i + 1]);
+                break;
+            case "--height":
+                height = Integer.parseInt(args[i + 1]);
+                break;
+            case "--initial":
+                initial = Paths.get(args[i + 1]);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        final List<List<ConnectFourMove>> games = new ArrayList<List<ConnectFourMove>>();
+        try(final BufferedReader reader = Files.newBufferedReader(Paths.get(args[0])))
+        {
+            String line;
+            while((line = reader.readLine()) != null)
+            {
+                if(!line.trim().isEmpty())
+                {
+                    games.add(MoveStrings.parse(line.trim()));
+                }
+            }
+        }
+        final NTupleNetwork network = initial == null ? new NTupleNetwork(width, height)
+                : NTupleNetwork.load(initial);
+        System.out.printf("%s, %d games%n", network, games.size());
+        final NTupleTrainer trainer = new NTupleTrainer(network, alpha, lambda);
+        final Random random = new Random(42);
+        for(int epoch = 1; epoch <= epochs; ++epoch)
+        {
+            final long positions = trainer.getPositions();
+            final long start = System.nanoTime();
+            final double error = trainer.train(games, 1, random)[0];
+            final long trained = trainer.getPositions() - positions;
+            final double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("epoch %d: %d positions, RMS error %.1f, %.0f positions/s%n",
+                    epoch, trained, error, trained / seconds);
+        }
+        trainer.network().save(Paths.get(args[1]));
+    }
+}
@@ -0,0 +1,279 @@
+package ai;
+
+import game.Player;
+import games.connectfour.ConnectFourGameBoard;
+import games.connectfour.ConnectFourMove;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import metrics.CacheHitEvent;
+import utils.Validate;
+
+/**
+ * Wraps a SearchAI so that it keeps thinking on the opponent's time.
+ *
+ * After every determineMove() the engine's predicted reply is applied to a
+ * copy of the board and that position is searched on a background thread
+ * until the next determineMove() arrives. If the opponent played the
+ * predicted reply and the ponder search completed, the move is returned
+ * instantly (a ponder hit). Otherwise the background search is stopped and a
+ * regular search runs, which still benefits from the transposition table
+ * entries the ponder search left behind.
+ *
+ * The engine is only ever used by one thread at a time: the ponder search is
+ * always stopped (and waited for) before the foreground search starts.
+ *
+ * Note: Call shutdown() once the AI is no longer needed to release the
+ * background thread.
+ */
+public final class PonderingAI extends AI
+{
+    private final SearchAI engine_;
+    private final ExecutorService ponderThread_;
+    private final AtomicBoolean stopRequested_;
+    // Stop flag of the running determineMove(), null while none is
+    private volatile AtomicBoolean foreground_;
+
+    private AtomicBoolean ponderStop_;
+    private Future<SearchResult> ponderTask_;
+    private ConnectFourGameBoard ponderPosition_;
+    private SearchResult lastResult_;
+
+    private long ponderHits_;
+    private long ponderMisses_;
+    private long timeSavedNanos_;
+
+    /**
+     * @param engine
+     *            Non-null engine to ponder with. It must not be used by anyone
+     *            else while this PonderingAI is alive.
+     */
+    public PonderingAI(final SearchAI engine)
+    {
+        super(engineOwner(engine));
+        engine_ = engine;
+        ponderThread_ = Executors.newSingleThreadExecutor(runnable ->
+        {
+            final Thread thread = new Thread(runnable, "Ponder-" + player_);
+            thread.setDaemon(true);
+            return thread;
+        });
+        stopRequested_ = new AtomicBoolean();
+    }
+
+    @Override
+    public ConnectFourMove determineMove(final ConnectFourGameBoard gameBoard)
+    {
+        Validate.notNull(gameBoard, "Cannot determine a move for a null board");
+        stopRequested_.set(false);
+        return determineMove(gameBoard, stopRequested_);
+    }
+
+    @Override
+    public ConnectFourMove determineMove(final ConnectFourGameBoard gameBoard,
+            final AtomicBoolean stop)
+    {
+        Validate.notNull(gameBoard, "Cannot determine a move for a null board");
+        Validate.notNull(stop, "Cannot determine a move without a stop flag");
+        foreground_ = stop;
+        try
+        {
+            return ponderedMove(gameBoard, stop);
+        }
+        finally
+        {
+            foreground_ = null;
+        }
+    }
+
+    /**
+     * Stops the running determineMove(), including a stop that arrives while
+     * the ponder search is being stopped. Pondering is not affected; it stops
+     * anyway as soon as determineMove() is called.
+     */
+    @Override
+    public void stop()
+    {
+        stopRequested_.set(true);
+        final AtomicBoolean stop = foreground_;
+        if(stop != null)
+        {
+            stop.set(true);
+        }
+    }
+
+    private ConnectFourMove ponderedMove(final ConnectFourGameBoard gameBoard,
+            final AtomicBoolean stop)
+    {
+        final SearchResult pondered = stopPondering();
+        final boolean predicted = ponderPosition_ != null && ponderPosition_.equals(gameBoard);
+
+        final ConnectFourMove move;
+        if(predicted && pondered != null && pondered.isComplete())
+        {
+            ++ponderHits_;
+            timeSavedNanos_ += pondered.getElapsedNanos();
+            lastResult_ = pondered;
+            move = new ConnectFourMove(pondered.getColumn(), player_);
+
+            final CacheHitEvent event = new CacheHitEvent();
+            if(event.isEnabled())
+            {
+                event.cache = "ponder";
+                event.ai = toString();
+                event.savedNanos = pondered.getElapsedNanos();
+                event.commit();
+            }
+        }
+        else
+        {
+            if(ponderPosition_ != null)
+            {
+                ++ponderMisses_;
+            }
+            move = engine_.determineMove(gameBoard, stop);
+            lastResult_ = engine_.getLastSearchResult();
+            if(predicted && pondered != null)
+            {
+                /*
+                 * Right position but the ponder search was cut short: count the
+                 * part of the search that was already done for us.
+                 */
+                timeSavedNanos_ += Math.min(pondered.getElapsedNanos(),
+                        lastResult_.getElapsedNanos());
+            }
+        }
+
+        startPondering(gameBoard, move);
+        return move;
+    }
+
+    /**
+     * Stops any background search and releases the pondering thread. The AI
+     * can still be used afterwards, but will no longer ponder.
+     */
+    public void shutdown()
+    {
+        stopPondering();
+        ponderPosition_ = null;
+        ponderThread_.shutdownNow();
+    }
+
+    /**
+     * On a ponder hit this is the result of the background search.
+     */
+    @Override
+    public SearchResult getLastSearchResult()
+    {
+        return lastResult_;
+    }
+
+    /**
+     * @return Number of determineMove() calls answered instantly
+     */
+    public long getPonderHits()
+    {
+        return ponderHits_;
+    }
+
+    /**
+     * @return Number of determineMove() calls that pondered on a position that
+     *         did not occur, or did not finish in time
+     */
+    public long getPonderMisses()
+    {
+        return ponderMisses_;
+    }
+
+    /**
+     * @return Fraction of pondered moves that were ponder hits, 0 if nothing
+     *         has been pondered yet
+     */
+    public double getPonderHitRate()
+    {
+        final long attempts = ponderHits_ + ponderMisses_;
+        return attempts == 0 ? 0 : (double) ponderHits_ / attempts;
+    }
+
+    /**
+     * @return Total search time (in nanoseconds) done on the opponent's time
+     *         that the foreground search did not have to repeat
+     */
+    public long getTimeSavedNanos()
+    {
+        return timeSavedNanos_;
+    }
+
+    /**
+     * @return The underlying engine
+     */
+    public SearchAI getEngine()
+    {
+        return engine_;
+    }
+
+    private void startPondering(final ConnectFourGameBoard gameBoard, final ConnectFourMove move)
+    {
+        ponderPosition_ = null;
+        if(ponderThread_.isShutdown())
+        {
+            return;
+        }
+
+        final ConnectFourGameBoard position = new ConnectFourGameBoard(gameBoard);
+        if(position.checkedAddMove(move) || position.boardFull())
+        {
+            return;
+        }
+        final Player opponent = player_.opponent();
+        final ConnectFourMove reply = new ConnectFourMove(engine_.predictColumn(position,
+                opponent), opponent);
+        if(position.checkedAddMove(reply) || position.boardFull())
+        {
+            return;
+        }
+
+        final AtomicBoolean stop = new AtomicBoolean();
+        ponderStop_ = stop;
+        ponderPosition_ = position;
+        ponderTask_ = ponderThread_.submit(() -> engine_.search(position, player_,
+                engine_.getMaxDepth(), 0, stop));
+    }
+
+    // Returns the result of the ponder search, if there was one
+    private SearchResult stopPondering()
+    {
+        if(ponderTask_ == null)
+        {
+            return null;
+        }
+
+        ponderStop_.set(true);
+        final Future<SearchResult> task = ponderTask_;
+        ponderTask_ = null;
+        ponderStop_ = null;
+        try
+        {
+            return task.get();
+        }
+        catch(final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        catch(final ExecutionException e)
+        {
+            throw new IllegalStateException("Pondering failed", e.getCause());
+        }
+    }
+
+    private static Player engineOwner(final SearchAI engine)
+    {
+        Validate.notNull(engine, "Cannot ponder with a null SearchAI");
+        return engine.player_;
+    }
+}
@@ -0,0 +1,109 @@
+package ai;
+
+import game.Player;
+import games.connectfour.ConnectFourGameBoard;
+import games.connectfour.ConnectFourMove;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import utils.Validate;
+
+/**
+ * An AI that thinks in another process: every move is requested from a
+ * worker of an EnginePool, so a misbehaving bot can crash or stall its own
+ * JVM but never the controller's.
+ *
+ * Used asynchronously, any number of requests (from any number of games) can
+ * be in flight at once; they are pipelined to the pool's workers.
+ *
+ * Note: stop() and cancelling a request stop whatever the worker is running,
+ * which with a shared pool may include other AIs' requests. They still get an
+ * answer, just a quicker one.
+ */
+public final class ProcessAI extends AI implements AsyncAI
+{
+    private final EnginePool pool_;
+    private final long timeBudgetMillis_;
+
+    private volatile EngineConnection current_;
+
+    /**
+     * @param player
+     *            Player the AI plays for
+     * @param pool
+     *            Non-null pool of workers to ask
+     * @param timeBudgetMillis
+     *            Time allowed per move by determineMove(), 0 for no limit
+     */
+    public ProcessAI(final Player player, final EnginePool pool, final long timeBudgetMillis)
+    {
+        super(player);
+        Validate.notNull(pool, "Cannot play through a null EnginePool");
+        Validate.isTrue(timeBudgetMillis >= 0, "Cannot think with a negative time budget");
+        pool_ = pool;
+        timeBudgetMillis_ = timeBudgetMillis;
+    }
+
+    /**
+     * @throws IllegalStateException
+     *             if the worker reports an error or dies
+     */
+    @Override
+    public ConnectFourMove determineMove(final ConnectFourGameBoard gameBoard)
+    {
+        try
+        {
+            return determineMoveAsync(gameBoard, timeBudgetMillis_).join();
+        }
+        catch(final CompletionException e)
+        {
+            throw e.getCause() instanceof IllegalStateException ? (IllegalStateException) e
+                    .getCause() : new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public CompletableFuture<ConnectFourMove> determineMoveAsync(
+            final ConnectFourGameBoard gameBoard, final long timeBudgetMillis)
+    {
+        Validate.notNull(gameBoard, "Cannot determine a move for a null board");
+        Validate.isTrue(timeBudgetMillis >= 0, "Time budget cannot be negative");
+        final EngineConnection worker = pool_.acquire();
+        current_ = worker;
+        final CompletableFuture<ConnectFourMove> future = worker.go(gameBoard, player_,
+                timeBudgetMillis).thenApply(column -> new ConnectFourMove(column, player_));
+        future.whenComplete((move, error) ->
+        {
+            if(future.isCancelled())
+            {
+                worker.stop();
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public void stop()
+    {
+        final EngineConnection worker = current_;
+        if(worker != null)
+        {
+            worker.stop();
+        }
+    }
+
+    /**
+     * @return The pool this AI asks
+     */
+    public EnginePool getPool()
+    {
+        return pool_;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("ProcessAI (%s) piloting %s", pool_, player_);
+    }
+}
@@ -0,0 +1,538 @@
+package ai;
+
+import game.Player;
+import games.connectfour.ConnectFourGameBoard;
+import games.connectfour.ConnectFourMove;
+import games.connectfour.MoveStrings;
+import games.connectfour.Tablebase.Result;
+
+import java.util.Arrays;
+
+import utils.Validate;
+
+/**
+ * Depth-first proof-number search (df-pn), which proves the outcome of a
+ * position instead of estimating it. Unlike alpha-beta, its effort goes where
+ * the proof is cheapest (fewest open options for the defender), so it keeps
+ * working on wide boards where a depth-limited search cannot see far enough.
+ *
+ * A win is proved with the player to move as the attacker; failing that, a
+ * loss is proved with the opponent as the attacker, and a draw is what is
+ * left when both fail.
+ *
+ * Moves are pruned with the board's threat detection: an immediate win ends
+ * the node, and only moves that neither ignore the opponent's immediate win
+ * nor uncover one below the opponent's disc are considered. Thresholds use
+ * the 1 + epsilon trick (epsilon = 1/4) to keep df-pn from thrashing between
+ * siblings.
+ *
+ * Proof and disproof numbers live in a fixed-size node table sized from a
+ * memory limit, so the solver's memory never grows while solving. Once the
+ * table is three quarters full, the entries with the smallest subtrees (the
+ * cheapest to search again) are collected, at least half of the entries at a
+ * time. Full buckets replace their smallest subtree as well.
+ *
+ * Note: A ProofNumberSolver is not thread-safe, and boards are limited to 32
+ * columns (see ConnectFourGameBoard.winningColumns(...)).
+ */
+public final class ProofNumberSolver
+{
+    // Proof/disproof number of a proven/disproven node
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    // Bytes per entry: key, packed numbers and work
+    private static final int ENTRY_BYTES = Long.BYTES + Long.BYTES + Integer.BYTES;
+
+    private static final int BUCKET_SIZE = 4;
+    private static final int BUCKET_MASK = ~(BUCKET_SIZE - 1);
+
+    private static final long EMPTY = 0L;
+    private static final long UNKNOWN_NUMBERS = pack(1, 1);
+
+    // Mixed into the key so the same discs with a different mover or attacker differ
+    private static final long SIDE_TO_MOVE_KEY = 0x2545F4914F6CDD1DL;
+    private static final long ATTACKER_KEY = 0x6A09E667F3BCC909L;
+
+    // Node table
+    private final long[] keys_;
+    private final long[] numbers_;
+    private final int[] work_;
+    private final int mask_;
+    private final int[] workLevels_;
+    private int size_;
+
+    // Per-ply scratch, so nodes do not allocate
+    private int[][] columns_;
+    private long[][] children_;
+    private ConnectFourMove[][] moves_;
+
+    // Per-solve state
+    private Player attacker_;
+    private long nodes_;
+    private long maxNodes_;
+    private boolean aborted_;
+    private volatile boolean stopRequested_;
+
+    private int column_;
+    private long collections_;
+    private long collected_;
+    private long replacements_;
+
+    /**
+     * @param memoryBytes
+     *            Memory the node table may take, at least 1 KB. Rounded down
+     *            to a power of two entries.
+     */
+    public ProofNumberSolver(final long memoryBytes)
+    {
+        Validate.isTrue(memoryBytes >= 1024, "A ProofNumberSolver needs at least 1 KB");
+        final long entries = Math.min(memoryBytes / ENTRY_BYTES, 1 << 30);
+        final int capacity = Integer.highestOneBit((int) entries);
+        keys_ = new long[capacity];
+        numbers_ = new long[capacity];
+        work_ = new int[capacity];
+        mask_ = capacity - 1;
+        workLevels_ = new int[Integer.SIZE + 1];
+    }
+
+    /**
+     * Proves the outcome of a position. The board is not modified.
+     *
+     * @param gameBoard
+     *            Non-null board, at most 32 columns wide
+     * @param player
+     *            Non-null player to move
+     * @param maxNodes
+     *            Nodes the solver may visit before giving up, 0 for no limit
+     * @return Outcome for the player to move, UNKNOWN if it was not proved
+     *         within maxNodes (or stop() was called)
+     */
+    public Result solve(final ConnectFourGameBoard gameBoard, final Player player,
+            final long maxNodes)
+    {
+        Validate.notNull(gameBoard, "Cannot solve a null board");
+        Validate.notNull(player, "Cannot solve for a null player");
+        Validate.isTrue(gameBoard.getWidth() <= Integer.SIZE,
+                "Cannot solve boards wider than 32 columns");
+        Validate.isTrue(maxNodes >= 0, "Cannot solve with a negative node limit");
+        final ConnectFourGameBoard board = new ConnectFourGameBoard(gameBoard);
+        initializeScratch(board);
+        stopRequested_ = false;
+        nodes_ = 0;
+        maxNodes_ = maxNodes == 0 ? Long.MAX_VALUE : maxNodes;
+        column_ = -1;
+
+        final long win = prove(board, player, player);
+        if(phi(win) == 0)
+        {
+            return Result.WIN;
+        }
+        column_ = -1;
+        final long loss = prove(board, player, player.opponent());
+        if(delta(loss) == 0)
+        {
+            return Result.LOSS;
+        }
+        if(delta(win) == 0 && phi(loss) == 0)
+        {
+            return Result.DRAW;
+        }
+        column_ = -1;
+        return Result.UNKNOWN;
+    }
+
+    /**
+     * Asks a running solve() to give up as soon as possible. May be called
+     * from any thread.
+     */
+    public void stop()
+    {
+        stopRequested_ = true;
+    }
+
+    /**
+     * @return Column proving the last solve()'s result: a winning column for
+     *         WIN, a column that holds the draw for DRAW, -1 otherwise
+     */
+    public int getColumn()
+    {
+        return column_;
+    }
+
+    /**
+     * @return Nodes visited by the last solve()
+     */
+    public long getNodes()
+    {
+        return nodes_;
+    }
+
+    /**
+     * @return Number of times the node table was garbage collected
+     */
+    public long getCollections()
+    {
+        return collections_;
+    }
+
+    /**
+     * @return Number of entries removed by garbage collection
+     */
+    public long getCollected()
+    {
+        return collected_;
+    }
+
+    /**
+     * @return Number of entries overwritten because their bucket was full
+     */
+    public long getReplacements()
+    {
+        return replacements_;
+    }
+
+    /**
+     * @return Number of entries in the node table
+     */
+    public int size()
+    {
+        return size_;
+    }
+
+    /**
+     * @return Number of entries the node table can hold
+     */
+    public int capacity()
+    {
+        return keys_.length;
+    }
+
+    /**
+     * @return Bytes taken by the node table
+     */
+    public long getMemoryBytes()
+    {
+        return (long) keys_.length * ENTRY_BYTES;
+    }
+
+    // Returns the root's packed (phi, delta) from the player to move's view
+    private long prove(final ConnectFourGameBoard board, final Player player,
+            final Player attacker)
+    {
+        attacker_ = attacker;
+        aborted_ = false;
+        return search(board, player, INFINITY, INFINITY, 0);
+    }
+
+    /*
+     * Negamax formulation: phi is the proof number of the player to move
+     * winning (in the attacker's sense, where a draw counts for the
+     * defender), delta its disproof number.
+     */
+    private long search(final ConnectFourGameBoard board, final Player player,
+            final int phiThreshold, final int deltaThreshold, final int ply)
+    {
+        ++nodes_;
+        if(nodes_ >= maxNodes_ || stopRequested_)
+        {
+            aborted_ = true;
+        }
+        final long key = key(board, player);
+        final int slot = find(key);
+        final long existing = slot < 0 ? UNKNOWN_NUMBERS : numbers_[slot];
+        final int previousWork = slot < 0 ? 0 : work_[slot];
+        // The root is always expanded, so that its proving column is known
+        if(aborted_ || ply > 0 && (phi(existing) == 0 || delta(existing) == 0))
+        {
+            return existing;
+        }
+
+        // Finished games
+        final long terminal;
+        final int wins = board.winningColumns(player);
+        final int playable = wins != 0 || board.boardFull() ? 0 : board.nonLosingColumns(player);
+        if(wins != 0)
+        {
+            terminal = pack(0, INFINITY);
+            if(ply == 0)
+            {
+                column_ = Integer.numberOfTrailingZeros(wins);
+            }
+        }
+        else if(board.boardFull())
+        {
+            // A draw is a win for the defender
+            terminal = player == attacker_ ? pack(INFINITY, 0) : pack(0, INFINITY);
+        }
+        else if(playable == 0)
+        {
+            terminal = pack(INFINITY, 0);
+        }
+        else
+        {
+            terminal = UNKNOWN_NUMBERS;
+        }
+        if(terminal != UNKNOWN_NUMBERS)
+        {
+            store(key, terminal, 1);
+            return terminal;
+        }
+
+        // Children, center-out, that survive the threat pruning
+        final int[] columns = columns_[ply];
+        final long[] children = children_[ply];
+        int count = 0;
+        for(final int column : columns_[columns_.length - 1])
+        {
+            if((playable & (1 << column)) != 0)
+            {
+                columns[count] = column;
+                board.addMove(moves_[player.ordinal()][column]);
+                final int childSlot = find(key(board, player.opponent()));
+                board.removeLastMove();
+                children[count++] = childSlot < 0 ? UNKNOWN_NUMBERS : numbers_[childSlot];
+            }
+        }
+
+        final long startNodes = nodes_;
+        long numbers;
+        while(true)
+        {
+            // phi = min child delta, delta = sum of child phi
+            int best = 0;
+            int bestDelta = INFINITY;
+            int secondDelta = INFINITY;
+            long phiSum = 0;
+            for(int i = 0; i < count; ++i)
+            {
+                final int childDelta = delta(children[i]);
+                phiSum = Math.min(INFINITY, phiSum + phi(children[i]));
+                if(childDelta < bestDelta)
+                {
+                    secondDelta = bestDelta;
+                    bestDelta = childDelta;
+                    best = i;
+                }
+                else if(childDelta < secondDelta)
+                {
+                    secondDelta = childDelta;
+                }
+            }
+            numbers = pack(bestDelta, (int) phiSum);
+            if(bestDelta >= phiThreshold || phiSum >= deltaThreshold || aborted_)
+            {
+                if(ply == 0 && bestDelta == 0)
+                {
+                    column_ = columns[best];
+                }
+                break;
+            }
+
+            final long childPhi = Math.min(INFINITY, (long) deltaThreshold - phiSum
+                    + phi(children[best]));
+            final long childDelta = Math.min(phiThreshold, Math.max(secondDelta + 1L,
+                    secondDelta + secondDelta / 4L));
+            board.addMove(moves_[player.ordinal()][columns[best]]);
+            children[best] = search(board, player.opponent(), (int) childPhi,
+                    (int) Math.min(INFINITY, childDelta), ply + 1);
+            board.removeLastMove();
+        }
+
+        final long work = previousWork + nodes_ - startNodes + 1;
+        store(key, numbers, (int) Math.min(Integer.MAX_VALUE, work));
+        return numbers;
+    }
+
+    private long key(final ConnectFourGameBoard board, final Player player)
+    {
+        long key = board.positionHash();
+        if(player == Player.PLAYER_2)
+        {
+            key ^= SIDE_TO_MOVE_KEY;
+        }
+        if(attacker_ == Player.PLAYER_2)
+        {
+            key ^= ATTACKER_KEY;
+        }
+        return key == EMPTY ? 1 : key;
+    }
+
+    private int find(final long key)
+    {
+        final int bucket = index(key);
+        for(int slot = bucket; slot < bucket + BUCKET_SIZE; ++slot)
+        {
+            if(keys_[slot] == key)
+            {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void store(final long key, final long numbers, final int work)
+    {
+        final int bucket = index(key);
+        int target = -1;
+        int smallest = bucket;
+        for(int slot = bucket; slot < bucket + BUCKET_SIZE; ++slot)
+        {
+            if(keys_[slot] == key)
+            {
+                target = slot;
+                break;
+            }
+            if(keys_[slot] == EMPTY && target < 0)
+            {
+                target = slot;
+            }
+            if(work_[slot] < work_[smallest])
+            {
+                smallest = slot;
+            }
+        }
+        if(target < 0)
+        {
+            target = smallest;
+            ++replacements_;
+        }
+        else if(keys_[target] == EMPTY)
+        {
+            ++size_;
+        }
+        keys_[target] = key;
+        numbers_[target] = numbers;
+        work_[target] = work;
+
+        if(size_ >= keys_.length - keys_.length / 4)
+        {
+            collect();
+        }
+    }
+
+    /*
+     * SmallTreeGC: removes every entry whose subtree is at most a power of two
+     * in size, choosing the smallest power that frees at least half the
+     * table.
+     */
+    private void collect()
+    {
+        Arrays.fill(workLevels_, 0);
+        for(int slot = 0; slot < keys_.length; ++slot)
+        {
+            if(keys_[slot] != EMPTY)
+            {
+                ++workLevels_[Integer.SIZE - Integer.numberOfLeadingZeros(work_[slot])];
+            }
+        }
+        int level = 0;
+        int freed = workLevels_[0];
+        while(freed < size_ / 2 && level < Integer.SIZE)
+        {
+            freed += workLevels_[++level];
+        }
+        final int limit = level >= Integer.SIZE - 1 ? Integer.MAX_VALUE : (1 << level) - 1;
+        for(int slot = 0; slot < keys_.length; ++slot)
+        {
+            if(keys_[slot] != EMPTY && work_[slot] <= limit)
+            {
+                keys_[slot] = EMPTY;
+                numbers_[slot] = 0;
+                work_[slot] = 0;
+                --size_;
+                ++collected_;
+            }
+        }
+        ++collections_;
+    }
+
+    private void initializeScratch(final ConnectFourGameBoard board)
+    {
+        final int width = board.getWidth();
+        final int plies = width * board.getHeight() - board.getMoveCount() + 1;
+        if(columns_ != null && columns_[0].length == width && columns_.length > plies)
+        {
+            return;
+        }
+        // The last row holds every column, center-out
+        columns_ = new int[plies + 1][width];
+        children_ = new long[plies][width];
+        final int[] order = columns_[plies];
+        for(int i = 0; i < width; ++i)
+        {
+            order[i] = i;
+        }
+        for(int i = 1; i < width; ++i)
+        {
+            for(int j = i; j > 0 && distance(order[j], width) < distance(order[j - 1], width); --j)
+            {
+                final int swap = order[j];
+                order[j] = order[j - 1];
+                order[j - 1] = swap;
+            }
+        }
+        moves_ = new ConnectFourMove[2][width];
+        for(final Player player : Player.values())
+        {
+            for(int column = 0; column < width; ++column)
+            {
+                moves_[player.ordinal()][column] = new ConnectFourMove(column, player);
+            }
+        }
+    }
+
+    private static int distance(final int column, final int width)
+    {
+        return Math.abs(2 * column - (width - 1));
+    }
+
+    private int index(final long key)
+    {
+        return (int) (key ^ (key >>> 32)) & mask_ & BUCKET_MASK;
+    }
+
+    private static long pack(final int phi, final int delta)
+    {
+        return (long) phi << 32 | (delta & 0xFFFFFFFFL);
+    }
+
+    private static int phi(final long numbers)
+    {
+        return (int) (numbers >>> 32);
+    }
+
+    private static int delta(final long numbers)
+    {
+        return (int) numbers;
+    }
+
+    /**
+     * Solves the position after a move string and prints the outcome for the
+     * player to move.
+     *
+     * Usage: ProofNumberSolver moves [width height] [memory MB] [max nodes]
+     */
+    public static void main(String args[])
+    {
+        Validate.isTrue(args.length > 0,
+                "Usage: ProofNumberSolver moves [width height] [memory MB] [max nodes]");
+        final int width = args.length > 2 ? Integer.parseInt(args[1]) : 7;
+        final int height = args.length > 2 ? Integer.parseInt(args[2]) : 6;
+        final long memory = (args.length > 3 ? Long.parseLong(args[3]) : 256) << 20;
+        final long maxNodes = args.length > 4 ? Long.parseLong(args[4]) : 0;
+
+        final String moves = "-".equals(args[0]) ? "" : args[0];
+        final ConnectFourGameBoard board = MoveStrings.toBoard(width, height, moves);
+        final Player player = moves.length() % 2 == 0 ? Player.PLAYER_1 : Player.PLAYER_2;
+        final ProofNumberSolver solver = new ProofNumberSolver(memory);
+        final long start = System.nanoTime();
+        final Result result = solver.solve(board, player, maxNodes);
+        final long elapsed = System.nanoTime() - start;
+        System.out.printf("%s to move: %s (column %d)%n", player, result, solver.getColumn());
+        System.out.printf("%d nodes in %d ms (%.0f nodes/s), table %d/%d entries, "
+                + "%d collections freed %d, %d replacements%n", solver.getNodes(),
+                elapsed / 1000000, solver.getNodes() * 1e9 / Math.max(1, elapsed), solver.size(),
+                solver.capacity(), solver.getCollections(), solver.getCollected(),
+                solver.getReplacements());
+    }
+}
@@ -0,0 +1,627 @@
+package ai;
+
+import game.Player;
+import games.connectfour.ConnectFourGameBoard;
+import games.connectfour.ConnectFourMove;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import utils.Validate;
+
+/**
+ * Iterative deepening alpha-beta (negamax) search backed by a
+ * TranspositionTable.
+ *
+ * Searches are bounded by a maximum depth and, optionally, a time budget per
+ * move. Whatever the limits, the best move of the deepest completed iteration
+ * is returned.
+ *
+ * Note: A SearchAI is not thread-safe, only one search may run at a time.
+ */
+public class SearchAI extends AI
+{
+    /**
+     * Score of a win on the very next move. Wins further away score slightly
+     * lower so that faster wins are preferred.
+     */
+    public static final int WIN_SCORE = 1000000;
+
+    // Any score beyond this is a proven win/loss
+    private static final int WIN_THRESHOLD = WIN_SCORE - 10000;
+
+    private static final int INFINITY = Integer.MAX_VALUE - 1;
+
+    // Network values are clamped so they never look like proven results
+    private static final int MAX_EVALUATION = WIN_THRESHOLD - 1;
+
+    private static final int DEFAULT_TABLE_ENTRIES = 1 << 20;
+
+    // Clock and stop flag are only checked every 1024 nodes
+    private static final long CHECK_INTERVAL_MASK = 1023;
+
+    // Mixed into the key so the same discs with different sides to move differ
+    private static final long SIDE_TO_MOVE_KEY = 0x2545F4914F6CDD1DL;
+
+    private final int maxDepth_;
+    private final long timeBudgetNanos_;
+    private final TranspositionTable table_;
+    private final NTupleNetwork network_;
+
+    private final AtomicBoolean stopRequested_;
+
+    // Per-search state, the stop flag also read by stop() from other threads
+    private volatile AtomicBoolean stop_;
+    private long deadline_;
+    private long nodes_;
+    private long interiorNodes_;
+    private boolean aborted_;
+    private int[] columnRank_;
+    private int[] columnWeight_;
+    // Boards up to 32 columns wide use the board's threat column sets
+    private boolean columnSets_;
+    private NTupleNetwork.Accumulator accumulator_;
+
+    private SearchResult lastResult_;
+    private volatile IterationListener listener_;
+
+    /**
+     * Creates a depth-limited SearchAI with its own transposition table.
+     *
+     * @param player
+     *            Player the AI plays for
+     * @param maxDepth
+     *            Maximum depth (in plies) to search, must be positive
+     */
+    public SearchAI(final Player player, final int maxDepth)
+    {
+        this(player, maxDepth, 0);
+    }
+
+    /**
+     * Creates a SearchAI with its own transposition table.
+     *
+     * @param player
+     *            Player the AI plays for
+     * @param maxDepth
+     *            Maximum depth (in plies) to search, must be positive
+     * @param timeBudgetMillis
+     *            Time allowed per move, 0 for no limit
+     */
+    public SearchAI(final Player player, final int maxDepth, final long timeBudgetMillis)
+    {
+        this(player, maxDepth, timeBudgetMillis, new TranspositionTable(DEFAULT_TABLE_ENTRIES));
+    }
+
+    /**
+     * Creates a SearchAI using the provided transposition table.
+     *
+     * @param player
+     *            Player the AI plays for
+     * @param maxDepth
+     *            Maximum depth (in plies) to search, must be positive
+     * @param timeBudgetMillis
+     *            Time allowed per move, 0 for no limit
+     * @param table
+     *            Non-null transposition table
+     */
+    public SearchAI(final Player player, final int maxDepth, final long timeBudgetMillis,
+            final TranspositionTable table)
+    {
+        this(player, maxDepth, timeBudgetMillis, table, null);
+    }
+
+    /**
+     * Creates a SearchAI that evaluates the positions at its depth limit with
+     * an NTupleNetwork instead of the built-in column weights. The network is
+     * updated incrementally as the search makes and takes back moves.
+     *
+     * @param player
+     *            Player the AI plays for
+     * @param maxDepth
+     *            Maximum depth (in plies) to search, must be positive
+     * @param timeBudgetMillis
+     *            Time allowed per move, 0 for no limit
+     * @param table
+     *            Non-null transposition table
+     * @param network
+     *            Network for the size of board the AI will play on, null for
+     *            the built-in evaluation
+     */
+    public SearchAI(final Player player, final int maxDepth, final long timeBudgetMillis,
+            final TranspositionTable table, final NTupleNetwork network)
+    {
+        super(player);
+        Validate.isTrue(maxDepth > 0 && maxDepth < 256, "maxDepth must be within [1, 255]");
+        Validate.isTrue(timeBudgetMillis >= 0, "Cannot search with a negative time budget");
+        Validate.notNull(table, "Cannot search with a null TranspositionTable");
+        maxDepth_ = maxDepth;
+        timeBudgetNanos_ = timeBudgetMillis * 1000000L;
+        table_ = table;
+        network_ = network;
+        stopRequested_ = new AtomicBoolean();
+    }
+
+    @Override
+    public ConnectFourMove determineMove(final ConnectFourGameBoard gameBoard)
+    {
+        Validate.notNull(gameBoard, "Cannot determine a move for a null board");
+        stopRequested_.set(false);
+        return determineMove(gameBoard, stopRequested_);
+    }
+
+    @Override
+    public ConnectFourMove determineMove(final ConnectFourGameBoard gameBoard,
+            final AtomicBoolean stop)
+    {
+        Validate.notNull(gameBoard, "Cannot determine a move for a null board");
+        final SearchResult result = search(gameBoard, player_, maxDepth_, timeBudgetNanos_,
+                stop);
+        return new ConnectFourMove(result.getColumn(), player_);
+    }
+
+    /**
+     * Asks the running search, whichever way it was started, to return as soon
+     * as possible with the best move found so far. May be called from any
+     * thread.
+     */
+    @Override
+    public void stop()
+    {
+        stopRequested_.set(true);
+        final AtomicBoolean stop = stop_;
+        if(stop != null)
+        {
+            stop.set(true);
+        }
+    }
+
+    /**
+     * Searches the provided position. The board is not modified.
+     *
+     * @param gameBoard
+     *            Non-null board with at least one available move
+     * @param player
+     *            Player to move
+     * @param maxDepth
+     *            Maximum depth to search
+     * @param timeBudgetNanos
+     *            Time allowed, 0 for no limit
+     * @param stop
+     *            Non-null flag, the search ends early once this is set
+     * @return Result of the search
+     */
+    public SearchResult search(final ConnectFourGameBoard gameBoard, final Player player,
+            final int maxDepth, final long timeBudgetNanos, final AtomicBoolean stop)
+    {
+        Validate.notNull(gameBoard, "Cannot search a null board");
+        Validate.notNull(player, "Cannot search for a null player");
+        Validate.notNull(stop, "Cannot search without a stop flag");
+        Validate.isTrue(!gameBoard.boardFull(), "Cannot search a full board");
+
+        final long start = System.nanoTime();
+        final long probes = table_.getProbes();
+        final long hits = table_.getHits();
+        final ConnectFourGameBoard board = new ConnectFourGameBoard(gameBoard);
+        stop_ = stop;
+        deadline_ = timeBudgetNanos > 0 ? start + timeBudgetNanos : Long.MAX_VALUE;
+        nodes_ = 0;
+        interiorNodes_ = 0;
+        aborted_ = false;
+        initializeColumnTables(board.getWidth());
+        columnSets_ = board.getWidth() <= Integer.SIZE;
+        accumulator_ = network_ == null ? null : network_.newAccumulator(board);
+
+        int evaluation = 0;
+        for(final ConnectFourMove move : gameBoard.getMoveHistory())
+        {
+            evaluation += signedWeight(move);
+        }
+
+        int bestColumn = predictColumn(board, player);
+        int bestScore = 0;
+        int completedDepth = 0;
+        for(int depth = 1; depth <= maxDepth; ++depth)
+        {
+            final long entry = rootSearch(board, player, depth, evaluation);
+            if(aborted_)
+            {
+                break;
+            }
+            bestColumn = (int) (entry >> 32);
+            bestScore = (int) entry;
+            completedDepth = depth;
+            final IterationListener listener = listener_;
+            if(listener != null)
+            {
+                listener.iterationComplete(new SearchResult(bestColumn, bestScore, depth,
+                        nodes_, interiorNodes_, table_.getProbes() - probes, table_.getHits()
+                                - hits, System.nanoTime() - start, true));
+            }
+            if(Math.abs(bestScore) >= WIN_THRESHOLD)
+            {
+                break;
+            }
+        }
+
+        lastResult_ = new SearchResult(bestColumn, bestScore, completedDepth, nodes_,
+                interiorNodes_, table_.getProbes() - probes, table_.getHits() - hits,
+                System.nanoTime() - start, !aborted_);
+        stop_ = null;
+        accumulator_ = null;
+        return lastResult_;
+    }
+
+    /**
+     * @param listener
+     *            Listener told about every completed iteration of later
+     *            searches, null for none
+     */
+    public void setIterationListener(final IterationListener listener)
+    {
+        listener_ = listener;
+    }
+
+    /**
+     * @param score
+     *            Any search score
+     * @return True if the score is a proven win or loss rather than an
+     *         estimate
+     */
+    public static boolean isProvenScore(final int score)
+    {
+        return Math.abs(score) >= WIN_THRESHOLD;
+    }
+
+    /**
+     * Makes a cheap guess at the column the provided player would play,
+     * based on whatever the transposition table already knows about the
+     * position. Falls back to the most central playable column.
+     *
+     * @param gameBoard
+     *            Non-null board with at least one available move
+     * @param player
+     *            Player to move
+     * @return Predicted column
+     */
+    public int predictColumn(final ConnectFourGameBoard gameBoard, final Player player)
+    {
+        final List<ConnectFourMove> moves = gameBoard.availableMovesFor(player);
+        Validate.isTrue(!moves.isEmpty(), "Cannot predict a move on a full board");
+
+        final long entry = table_.probe(key(gameBoard, player));
+        final int tableColumn = entry == TranspositionTable.MISS ? -1 : TranspositionTable
+                .bestColumn(entry);
+        final double center = (gameBoard.getWidth() - 1) / 2.0;
+        int predicted = -1;
+        for(final ConnectFourMove move : moves)
+        {
+            final int column = move.getColumn();
+            if(column == tableColumn)
+            {
+                return column;
+            }
+            if(predicted == -1
+                    || Math.abs(column - center) < Math.abs(predicted - center))
+            {
+                predicted = column;
+            }
+        }
+        return predicted;
+    }
+
+    @Override
+    public SearchResult getLastSearchResult()
+    {
+        return lastResult_;
+    }
+
+    /**
+     * Without a time budget every move comes from a search to the same depth.
+     * Which of several equally scored columns wins can still depend on what
+     * the transposition table remembers from earlier searches; a cached
+     * decision simply pins the first one.
+     */
+    @Override
+    public boolean isDeterministic()
+    {
+        return timeBudgetNanos_ == 0;
+    }
+
+    @Override
+    public String getSettings()
+    {
+        return "depth=" + maxDepth_
+                + (timeBudgetNanos_ == 0 ? "" : ",budget=" + timeBudgetNanos_ / 1000000 + "ms")
+                + (network_ == null ? "" : ",ntuple=" + Integer.toHexString(network_.hashCode()));
+    }
+
+    /**
+     * @return The transposition table backing this AI
+     */
+    public TranspositionTable getTranspositionTable()
+    {
+        return table_;
+    }
+
+    /**
+     * @return Network evaluating the positions at the depth limit, null for
+     *         the built-in evaluation
+     */
+    public NTupleNetwork getNetwork()
+    {
+        return network_;
+    }
+
+    /**
+     * @return Maximum depth this AI searches to
+     */
+    public int getMaxDepth()
+    {
+        return maxDepth_;
+    }
+
+    /**
+     * @return Time allowed per move in nanoseconds, 0 for no limit
+     */
+    public long getTimeBudgetNanos()
+    {
+        return timeBudgetNanos_;
+    }
+
+    // Returns (column << 32 | score)
+    private long rootSearch(final ConnectFourGameBoard board, final Player player,
+            final int depth, final int evaluation)
+    {
+        final List<ConnectFourMove> moves = orderedMoves(board, player);
+        int alpha = -INFINITY;
+        int bestColumn = moves.get(0).getColumn();
+        for(final ConnectFourMove move : moves)
+        {
+            if(board.checkIfWinningMove(move))
+            {
+                alpha = WIN_SCORE;
+                bestColumn = move.getColumn();
+                break;
+            }
+        }
+
+        if(alpha != WIN_SCORE)
+        {
+            ++interiorNodes_;
+            for(final ConnectFourMove move : moves)
+            {
+                makeMove(board, move);
+                final int score = -negamax(board, player.opponent(), depth - 1, -INFINITY,
+                        -alpha, 1, evaluation + signedWeight(move));
+                takeBackMove(board);
+                if(aborted_)
+                {
+                    break;
+                }
+                if(score > alpha)
+                {
+                    alpha = score;
+                    bestColumn = move.getColumn();
+                }
+            }
+        }
+
+        if(!aborted_)
+        {
+            table_.store(key(board, player), alpha, depth, TranspositionTable.EXACT, bestColumn);
+        }
+        return ((long) bestColumn << 32) | (alpha & 0xFFFFFFFFL);
+    }
+
+    private int negamax(final ConnectFourGameBoard board, final Player player, final int depth,
+            int alpha, int beta, final int ply, final int evaluation)
+    {
+        ++nodes_;
+        if((nodes_ & CHECK_INTERVAL_MASK) == 0 && (stop_.get() || System.nanoTime() > deadline_))
+        {
+            aborted_ = true;
+        }
+        if(aborted_)
+        {
+            return 0;
+        }
+
+        final List<ConnectFourMove> moves = board.availableMovesFor(player);
+        if(moves.isEmpty())
+        {
+            return 0;
+        }
+        if(columnSets_)
+        {
+            if(board.winningColumns(player) != 0)
+            {
+                return WIN_SCORE - ply;
+            }
+            // Only search moves that don't hand the opponent an immediate win
+            final int nonLosing = board.nonLosingColumns(player);
+            if(nonLosing == 0)
+            {
+                return -(WIN_SCORE - ply - 1);
+            }
+            moves.removeIf(move -> (nonLosing & (1 << move.getColumn())) == 0);
+        }
+        else
+        {
+            for(final ConnectFourMove move : moves)
+            {
+                if(board.checkIfWinningMove(move))
+                {
+                    return WIN_SCORE - ply;
+                }
+            }
+        }
+        if(depth <= 0)
+        {
+            final int value = accumulator_ == null ? evaluation : Math.max(-MAX_EVALUATION, Math
+                    .min(MAX_EVALUATION, accumulator_.value()));
+            return player == Player.PLAYER_1 ? value : -value;
+        }
+
+        final int originalAlpha = alpha;
+        final long key = key(board, player);
+        final long entry = table_.probe(key);
+        int tableColumn = -1;
+        if(entry != TranspositionTable.MISS)
+        {
+            tableColumn = TranspositionTable.bestColumn(entry);
+            if(TranspositionTable.depth(entry) >= depth)
+            {
+                final int score = fromTableScore(TranspositionTable.score(entry), ply);
+                switch(TranspositionTable.flag(entry))
+                {
+                case TranspositionTable.EXACT:
+                    return score;
+                case TranspositionTable.LOWER_BOUND:
+                    alpha = Math.max(alpha, score);
+                    break;
+                case TranspositionTable.UPPER_BOUND:
+                    beta = Math.min(beta, score);
+                    break;
+                }
+                if(alpha >= beta)
+                {
+                    return score;
+                }
+            }
+        }
+
+        sortMoves(moves, tableColumn);
+        ++interiorNodes_;
+        int bestScore = -INFINITY;
+        int bestColumn = -1;
+        for(final ConnectFourMove move : moves)
+        {
+            makeMove(board, move);
+            final int score = -negamax(board, player.opponent(), depth - 1, -beta, -alpha,
+                    ply + 1, evaluation + signedWeight(move));
+            takeBackMove(board);
+            if(aborted_)
+            {
+                return 0;
+            }
+            if(score > bestScore)
+            {
+                bestScore = score;
+                bestColumn = move.getColumn();
+            }
+            alpha = Math.max(alpha, score);
+            if(alpha >= beta)
+            {
+                break;
+            }
+        }
+
+        final int flag = bestScore <= originalAlpha ? TranspositionTable.UPPER_BOUND
+                : bestScore >= beta ? TranspositionTable.LOWER_BOUND : TranspositionTable.EXACT;
+        table_.store(key, toTableScore(bestScore, ply), depth, flag, bestColumn);
+        return bestScore;
+    }
+
+    private void makeMove(final ConnectFourGameBoard board, final ConnectFourMove move)
+    {
+        board.addMove(move);
+        if(accumulator_ != null)
+        {
+            final int column = move.getColumn();
+            accumulator_.add(column, board.columnHeight(column) - 1, move.getPlayer());
+        }
+    }
+
+    private void takeBackMove(final ConnectFourGameBoard board)
+    {
+        final ConnectFourMove move = board.removeLastMove();
+        if(accumulator_ != null)
+        {
+            final int column = move.getColumn();
+            accumulator_.remove(column, board.columnHeight(column), move.getPlayer());
+        }
+    }
+
+    private List<ConnectFourMove> orderedMoves(final ConnectFourGameBoard board,
+            final Player player)
+    {
+        final List<ConnectFourMove> moves = board.availableMovesFor(player);
+        final long entry = table_.probe(key(board, player));
+        sortMoves(moves, entry == TranspositionTable.MISS ? -1 : TranspositionTable
+                .bestColumn(entry));
+        return moves;
+    }
+
+    // Best known column first, then center-out
+    private void sortMoves(final List<ConnectFourMove> moves, final int firstColumn)
+    {
+        moves.sort((first, second) ->
+        {
+            final int firstRank = first.getColumn() == firstColumn ? -1
+                    : columnRank_[first.getColumn()];
+            final int secondRank = second.getColumn() == firstColumn ? -1
+                    : columnRank_[second.getColumn()];
+            return Integer.compare(firstRank, secondRank);
+        });
+    }
+
+    /*
+     * Central columns take part in more lines than edge columns, so discs
+     * there are worth more. Positive values favour PLAYER_1.
+     */
+    private int signedWeight(final ConnectFourMove move)
+    {
+        final int weight = columnWeight_[move.getColumn()];
+        return move.getPlayer() == Player.PLAYER_1 ? weight : -weight;
+    }
+
+    private void initializeColumnTables(final int width)
+    {
+        if(columnRank_ != null && columnRank_.length == width)
+        {
+            return;
+        }
+        columnRank_ = new int[width];
+        columnWeight_ = new int[width];
+        for(int column = 0; column < width; ++column)
+        {
+            final int distance = Math.abs(2 * column - (width - 1));
+            columnRank_[column] = distance;
+            columnWeight_[column] = width - distance;
+        }
+    }
+
+    // Win scores are stored relative to the node so they can be reused at any ply
+    private static int toTableScore(final int score, final int ply)
+    {
+        if(score >= WIN_THRESHOLD)
+        {
+            return score + ply;
+        }
+        if(score <= -WIN_THRESHOLD)
+        {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTableScore(final int score, final int ply)
+    {
+        if(score >= WIN_THRESHOLD)
+        {
+            return score - ply;
+        }
+        if(score <= -WIN_THRESHOLD)
+        {
+            return score + ply;
+        }
+        return score;
+    }
+
+    private static long key(final ConnectFourGameBoard board, final Player player)
+    {
+        return player == Player.PLAYER_1 ? board.positionHash() : board.positionHash()
+                ^ SIDE_TO_MOVE_KEY;
+    }
+}
@@ -0,0 +1,143 @@
+package ai;
+
+/**
+ * Immutable summary of a single search performed by a SearchAI.
+ */
+public final class SearchResult
+{
+    private final int column_;
+    private final int score_;
+    private final int depth_;
+    private final long nodes_;
+    private final long interiorNodes_;
+    private final long tableProbes_;
+    private final long tableHits_;
+    private final long elapsedNanos_;
+    private final boolean complete_;
+
+    /**
+     * @param column
+     *            Best column found (0 indexed)
+     * @param score
+     *            Score of the best column from the searching player's
+     *            perspective
+     * @param depth
+     *            Deepest fully completed iteration
+     * @param nodes
+     *            Number of positions visited
+     * @param interiorNodes
+     *            Number of visited positions whose children were searched
+     * @param tableProbes
+     *            Number of transposition table lookups
+     * @param tableHits
+     *            Number of transposition table lookups that found an entry
+     * @param elapsedNanos
+     *            Wall-clock time spent searching
+     * @param complete
+     *            True if the search ran to its depth limit (or proved the
+     *            result) instead of being stopped early
+     */
+    public SearchResult(final int column, final int score, final int depth, final long nodes,
+            final long interiorNodes, final long tableProbes, final long tableHits,
+            final long elapsedNanos, final boolean complete)
+    {
+        column_ = column;
+        score_ = score;
+        depth_ = depth;
+        nodes_ = nodes;
+        interiorNodes_ = interiorNodes;
+        tableProbes_ = tableProbes;
+        tableHits_ = tableHits;
+        elapsedNanos_ = elapsedNanos;
+        complete_ = complete;
+    }
+
+    /**
+     * @return Best column found
+     */
+    public int getColumn()
+    {
+        return column_;
+    }
+
+    /**
+     * @return Score of the best column
+     */
+    public int getScore()
+    {
+        return score_;
+    }
+
+    /**
+     * @return Deepest fully completed iteration
+     */
+    public int getDepth()
+    {
+        return depth_;
+    }
+
+    /**
+     * @return Number of positions visited
+     */
+    public long getNodes()
+    {
+        return nodes_;
+    }
+
+    /**
+     * @return Number of visited positions whose children were searched
+     */
+    public long getInteriorNodes()
+    {
+        return interiorNodes_;
+    }
+
+    /**
+     * @return Average number of children searched per interior node (the
+     *         effective branching factor), 0 if no node was expanded
+     */
+    public double getAverageBranchingFactor()
+    {
+        // Every counted node is the child of an interior node (the root is not counted)
+        return interiorNodes_ == 0 ? 0 : (double) nodes_ / interiorNodes_;
+    }
+
+    /**
+     * @return Number of transposition table lookups
+     */
+    public long getTableProbes()
+    {
+        return tableProbes_;
+    }
+
+    /**
+     * @return Number of transposition table lookups that found an entry
+     */
+    public long getTableHits()
+    {
+        return tableHits_;
+    }
+
+    /**
+     * @return Time spent searching, in nanoseconds
+     */
+    public long getElapsedNanos()
+    {
+        return elapsedNanos_;
+    }
+
+    /**
+     * @return True if the search was not cut short
+     */
+    public boolean isComplete()
+    {
+        return complete_;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("column %d score %d depth %d nodes %d (%.3f ms)%s", column_, score_,
+                depth_, nodes_, elapsedNanos_ / 1e6, complete_ ? "" : " [stopped]");
+    }
+}
@@ -0,0 +1,186 @@
+package ai;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import utils.Validate;
+
+/**
+ * Saves a TranspositionTable to disk and restores it, so that a restarted
+ * process starts with everything its engines had already searched (best
+ * columns included, which is what orders the moves of later searches).
+ * 
+ * The file is a small header followed by the raw key and entry arrays, both
+ * transferred in bulk through memory mappings. Keys are position hashes,
+ * which depend on the board size, so the file records the board it was
+ * searched on and refuses to restore onto any other.
+ * 
+ * Saving writes a temporary file that is then moved over the target, so a
+ * process dying mid-save never leaves a corrupt table behind.
+ */
+public final class TableFile
+{
+    /*
+     * Bump whenever TranspositionTable's entry packing, SearchAI's scores or
+     * ConnectFourGameBoard.positionHash() change: older files are then
+     * meaningless. Version 2 stores keys XORed with their entries.
+     */
+    static final int VERSION = 2;
+    private static final int MAGIC = 0x43345454;
+    private static final int HEADER_BYTES = 32;
+    // Longs per mapping, keeps every mapping well under 2 GB
+    private static final int CHUNK_LONGS = 1 << 27;
+
+    private TableFile()
+    {
+        // Static access only
+    }
+
+    /**
+     * @param table
+     *            Non-null table to save. Must not be in use while saving.
+     * @param width
+     *            Width of the board the table was filled on
+     * @param height
+     *            Height of the board the table was filled on
+     * @param file
+     *            File to (over)write
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    public static void save(final TranspositionTable table, final int width, final int height,
+            final Path file) throws IOException
+    {
+        Validate.notNull(table, "Cannot save a null TranspositionTable");
+        Validate.notNull(file, "Cannot save a TranspositionTable to a null file");
+        final long[] keys = table.keys();
+        final long[] entries = table.entries();
+        final long size = HEADER_BYTES + 2L * keys.length * Long.BYTES;
+
+        final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try(final FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height)
+                    .putInt(keys.length);
+            transfer(channel, HEADER_BYTES, keys, true);
+            transfer(channel, HEADER_BYTES + (long) keys.length * Long.BYTES, entries, true);
+            Validate.isTrue(channel.size() == size, "TranspositionTable file is incomplete");
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a saved table into the provided one, replacing its contents.
+     * Tables of the same capacity are copied in bulk, otherwise every saved
+     * entry is stored again.
+     * 
+     * @param table
+     *            Non-null table to fill. Must not be in use while restoring.
+     * @param width
+     *            Width of the board the table will be used on
+     * @param height
+     *            Height of the board the table will be used on
+     * @param file
+     *            File written by save(...)
+     * @throws IOException
+     *             if the file cannot be read
+     * @throws IllegalArgumentException
+     *             if the file is not a table, is of another version, or was
+     *             saved for another board size
+     */
+    public static void restore(final TranspositionTable table, final int width,
+            final int height, final Path file) throws IOException
+    {
+        Validate.notNull(table, "Cannot restore into a null TranspositionTable");
+        Validate.notNull(file, "Cannot restore a TranspositionTable from a null file");
+        try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            Validate.isTrue(channel.size() >= HEADER_BYTES, () -> file
+                    + " is not a TranspositionTable file");
+            final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            Validate.isTrue(header.getInt(0) == MAGIC, () -> file
+                    + " is not a TranspositionTable file");
+            Validate.isTrue(header.getInt(4) == VERSION, () -> String.format(
+                    "%s has unsupported TranspositionTable version %d", file, header.getInt(4)));
+            Validate.isTrue(header.getInt(8) == width && header.getInt(12) == height,
+                    () -> String.format("%s was saved for a %dx%d board, not %dx%d", file,
+                            header.getInt(8), header.getInt(12), width, height));
+            final int capacity = header.getInt(16);
+            Validate.isTrue(channel.size() == HEADER_BYTES + 2L * capacity * Long.BYTES,
+                    () -> file + " is truncated");
+
+            if(capacity == table.capacity())
+            {
+                transfer(channel, HEADER_BYTES, table.keys(), false);
+                transfer(channel, HEADER_BYTES + (long) capacity * Long.BYTES, table.entries(),
+                        false);
+                return;
+            }
+
+            table.clear();
+            final long[] keys = new long[Math.min(capacity, CHUNK_LONGS)];
+            final long[] entries = new long[keys.length];
+            for(int start = 0; start < capacity; start += keys.length)
+            {
+                final int count = Math.min(keys.length, capacity - start);
+                read(channel, HEADER_BYTES + (long) start * Long.BYTES, keys, 0, count);
+                read(channel, HEADER_BYTES + ((long) capacity + start) * Long.BYTES, entries, 0,
+                        count);
+                for(int i = 0; i < count; ++i)
+                {
+                    final long entry = entries[i];
+                    if(entry != TranspositionTable.MISS)
+                    {
+                        // Saved keys are XORed with their entries, see TranspositionTable
+                        table.store(keys[i] ^ entry, TranspositionTable.score(entry),
+                                TranspositionTable.depth(entry), TranspositionTable.flag(entry),
+                                TranspositionTable.bestColumn(entry));
+                    }
+                }
+            }
+        }
+    }
+
+    // Bulk copies a whole array to (write) or from the file at the given offset
+    private static void transfer(final FileChannel channel, final long offset,
+            final long[] values, final boolean write) throws IOException
+    {
+        for(int start = 0; start < values.length; start += CHUNK_LONGS)
+        {
+            final int count = Math.min(CHUNK_LONGS, values.length - start);
+            if(write)
+            {
+                final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE,
+                        offset + (long) start * Long.BYTES, (long) count * Long.BYTES);
+                mapped.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().put(values, start, count);
+            }
+            else
+            {
+                read(channel, offset + (long) start * Long.BYTES, values, start, count);
+            }
+        }
+    }
+
+    private static void read(final FileChannel channel, final long offset,
+            final long[] values, final int start, final int count) throws IOException
+    {
+        final LongBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                (long) count * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        mapped.get(values, start, count);
+    }
+}
@@ -0,0 +1,169 @@
+package ai;
+
+import game.Player;
+import games.connectfour.ConnectFourGameBoard;
+import games.connectfour.ConnectFourMove;
+import games.connectfour.Tablebase;
+import games.connectfour.Tablebase.Result;
+
+import java.util.List;
+
+import utils.Validate;
+
+/**
+ * Plays perfectly from a Tablebase, handing every position the tablebase
+ * does not cover (other board sizes, positions before its disc window or off
+ * its base position, or positions where it is not this AI's turn by move
+ * parity) to a fallback AI.
+ *
+ * Among moves with the same result the most central column is preferred, and
+ * an immediate win is always taken.
+ */
+public final class TablebaseAI extends AI
+{
+    private final Tablebase tablebase_;
+    private final AI fallback_;
+
+    private long probes_;
+    private long fallbacks_;
+    // Whether the fallback chose the last move
+    private boolean fellBack_;
+
+    /**
+     * @param tablebase
+     *            Non-null, open tablebase. It may be shared between any number
+     *            of AIs.
+     * @param fallback
+     *            Non-null AI used when the tablebase does not apply. Must play
+     *            for the same player.
+     */
+    public TablebaseAI(final Tablebase tablebase, final AI fallback)
+    {
+        super(fallbackOwner(fallback));
+        Validate.notNull(tablebase, "Cannot create a TablebaseAI without a tablebase");
+        tablebase_ = tablebase;
+        fallback_ = fallback;
+    }
+
+    @Override
+    public ConnectFourMove determineMove(final ConnectFourGameBoard gameBoard)
+    {
+        Validate.notNull(gameBoard, "Cannot determine a move for a null board");
+        fellBack_ = !covers(gameBoard);
+        if(fellBack_)
+        {
+            ++fallbacks_;
+            return fallback_.determineMove(gameBoard);
+        }
+
+        final List<ConnectFourMove> moves = gameBoard.availableMovesFor(player_);
+        final int center = (gameBoard.getWidth() - 1) / 2;
+        ConnectFourMove best = null;
+        Result bestResult = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for(final ConnectFourMove move : moves)
+        {
+            if(gameBoard.checkIfWinningMove(move))
+            {
+                return move;
+            }
+            gameBoard.addMove(move);
+            ++probes_;
+            final Result result = tablebase_.probe(gameBoard).flip();
+            gameBoard.removeLastMove();
+
+            final int distance = Math.abs(move.getColumn() - center);
+            final int order = rank(result) - rank(bestResult);
+            if(best == null || order > 0 || (order == 0 && distance < bestDistance))
+            {
+                best = move;
+                bestResult = result;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return Number of positions looked up in the tablebase
+     */
+    public long getProbes()
+    {
+        return probes_;
+    }
+
+    /**
+     * @return Number of moves that were handed to the fallback AI
+     */
+    public long getFallbacks()
+    {
+        return fallbacks_;
+    }
+
+    @Override
+    public void stop()
+    {
+        fallback_.stop();
+    }
+
+    /**
+     * @return The fallback's search if it chose the last move, null if the
+     *         tablebase did
+     */
+    @Override
+    public SearchResult getLastSearchResult()
+    {
+        return fellBack_ ? fallback_.getLastSearchResult() : null;
+    }
+
+    @Override
+    public boolean isDeterministic()
+    {
+        return fallback_.isDeterministic();
+    }
+
+    @Override
+    public String getSettings()
+    {
+        return String.format("%dx%d,fallback=%s[%s]", tablebase_.getWidth(),
+                tablebase_.getHeight(), fallback_.getClass().getName(), fallback_.getSettings());
+    }
+
+    private boolean covers(final ConnectFourGameBoard gameBoard)
+    {
+        if(gameBoard.getWidth() != tablebase_.getWidth()
+                || gameBoard.getHeight() != tablebase_.getHeight() || gameBoard.boardFull())
+        {
+            return false;
+        }
+        // The tablebase assumes PLAYER_1 moved first
+        final Player toMove = (gameBoard.getMoveCount() & 1) == 0 ? Player.PLAYER_1
+                : Player.PLAYER_2;
+        return toMove == player_ && tablebase_.covers(gameBoard);
+    }
+
+    private static int rank(final Result result)
+    {
+        if(result == null)
+        {
+            return -1;
+        }
+        switch(result)
+        {
+        case WIN:
+            return 3;
+        case DRAW:
+            return 2;
+        case LOSS:
+            return 1;
+        default:
+            return 0;
+        }
+    }
+
+    private static Player fallbackOwner(final AI fallback)
+    {
+        Validate.notNull(fallback, "Cannot create a TablebaseAI without a fallback AI");
+        return fallback.player_;
+    }
+}
@@ -0,0 +1,228 @@
+package ai;
+
+import java.util.Arrays;
+
+import utils.Validate;
+
+/**
+ * Fixed-size hash table of previously searched positions, keyed by
+ * ConnectFourGameBoard.positionHash().
+ *
+ * Each entry is packed into a pair of longs (full key + packed data), so the
+ * table never allocates after construction. Entries are replaced whenever the
+ * incoming search is at least as deep as the stored one.
+ *
+ * The key is stored XORed with the data, so a slot torn by two threads
+ * writing (or one writing while another reads) no longer matches any key and
+ * simply reads as a miss. Searches on several threads may therefore share one
+ * table without locking; the probe/hit statistics are then approximate.
+ * clear(), and saving or loading with TableFile, still need the table to
+ * themselves.
+ */
+public final class TranspositionTable
+{
+    /**
+     * Stored score is exact
+     */
+    public static final int EXACT = 1;
+    /**
+     * Stored score is a lower bound (search failed high)
+     */
+    public static final int LOWER_BOUND = 2;
+    /**
+     * Stored score is an upper bound (search failed low)
+     */
+    public static final int UPPER_BOUND = 3;
+
+    /**
+     * Returned from probe() when no entry exists for the position
+     */
+    public static final long MISS = 0L;
+
+    private final long[] keys_;
+    private final long[] entries_;
+    private final int mask_;
+
+    private long probes_;
+    private long hits_;
+
+    /**
+     * Creates a table with at least the requested number of entries (rounded
+     * up to a power of two).
+     *
+     * @param entries
+     *            Minimum number of entries, must be positive
+     */
+    public TranspositionTable(final int entries)
+    {
+        Validate.isTrue(entries > 0, "Cannot create a TranspositionTable with <= 0 entries");
+        final int size = Integer.highestOneBit(Math.max(1, entries - 1)) << 1;
+        keys_ = new long[size];
+        entries_ = new long[size];
+        mask_ = size - 1;
+    }
+
+    /**
+     * Looks up the provided position.
+     *
+     * @param key
+     *            Position hash
+     * @return Packed entry, or MISS if the position is not stored. Use the
+     *         static accessors to unpack it.
+     */
+    public long probe(final long key)
+    {
+        ++probes_;
+        final int index = index(key);
+        final long entry = entries_[index];
+        if(entry != MISS && (keys_[index] ^ entry) == key)
+        {
+            ++hits_;
+            return entry;
+        }
+        return MISS;
+    }
+
+    /**
+     * Stores the result of searching a position.
+     *
+     * @param key
+     *            Position hash
+     * @param score
+     *            Score of the position from the side to move's perspective
+     * @param depth
+     *            Depth the position was searched to (0 - 255)
+     * @param flag
+     *            One of EXACT, LOWER_BOUND or UPPER_BOUND
+     * @param bestColumn
+     *            Best column found, or -1 if unknown
+     */
+    public void store(final long key, final int score, final int depth, final int flag,
+            final int bestColumn)
+    {
+        final int index = index(key);
+        final long existing = entries_[index];
+        if(existing != MISS && (keys_[index] ^ existing) != key && depth(existing) > depth)
+        {
+            return;
+        }
+        final long entry = pack(score, depth, flag, bestColumn);
+        keys_[index] = key ^ entry;
+        entries_[index] = entry;
+    }
+
+    /**
+     * Removes every entry and resets the statistics.
+     */
+    public void clear()
+    {
+        Arrays.fill(keys_, 0L);
+        Arrays.fill(entries_, MISS);
+        probes_ = 0;
+        hits_ = 0;
+    }
+
+    /**
+     * @return Number of entries the table can hold
+     */
+    public int capacity()
+    {
+        return keys_.length;
+    }
+
+    /**
+     * @return Total number of probe() calls
+     */
+    public long getProbes()
+    {
+        return probes_;
+    }
+
+    /**
+     * @return Number of probe() calls that found their position
+     */
+    public long getHits()
+    {
+        return hits_;
+    }
+
+    /**
+     * @return Number of slots holding an entry
+     */
+    public int size()
+    {
+        int size = 0;
+        for(final long entry : entries_)
+        {
+            if(entry != MISS)
+            {
+                ++size;
+            }
+        }
+        return size;
+    }
+
+    // Raw storage (keys XORed with their entries), for TableFile's bulk transfers
+    long[] keys()
+    {
+        return keys_;
+    }
+
+    long[] entries()
+    {
+        return entries_;
+    }
+
+    /**
+     * @param entry
+     *            Packed entry
+     * @return Stored score
+     */
+    public static int score(final long entry)
+    {
+        return (int) entry;
+    }
+
+    /**
+     * @param entry
+     *            Packed entry
+     * @return Stored depth
+     */
+    public static int depth(final long entry)
+    {
+        return (int) ((entry >>> 32) & 0xFF);
+    }
+
+    /**
+     * @param entry
+     *            Packed entry
+     * @return Stored flag (EXACT, LOWER_BOUND, UPPER_BOUND)
+     */
+    public static int flag(final long entry)
+    {
+        return (int) ((entry >>> 40) & 0x3);
+    }
+
+    /**
+     * @param entry
+     *            Packed entry
+     * @return Stored best column, or -1 if none was stored
+     */
+    public static int bestColumn(final long entry)
+    {
+        return (int) ((entry >>> 42) & 0xFFFF) - 1;
+    }
+
+    // Flag is never 0, which guarantees a stored entry never equals MISS
+    private static long pack(final int score, final int depth, final int flag,
+            final int bestColumn)
+    {
+        return (score & 0xFFFFFFFFL) | ((long) (depth & 0xFF) << 32)
+                | ((long) (flag & 0x3) << 40) | ((long) ((bestColumn + 1) & 0xFFFF) << 42);
+    }
+
+    private int index(final long key)
+    {
+        return (int) (key ^ (key >>> 32)) & mask_;
+    }
+}
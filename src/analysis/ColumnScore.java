@@ -0,0 +1,84 @@
+package analysis;
+
+import ai.SearchAI;
+
+/**
+ * Immutable score of one root column, as streamed by RootAnalyzer. Scores are
+ * search scores (see SearchAI) from the point of view of the player to move.
+ */
+public final class ColumnScore
+{
+    private final int column_;
+    private final int score_;
+    private final int depth_;
+    private final int reply_;
+    private final boolean final_;
+
+    ColumnScore(final int column, final int score, final int depth, final int reply,
+            final boolean isFinal)
+    {
+        column_ = column;
+        score_ = score;
+        depth_ = depth;
+        reply_ = reply;
+        final_ = isFinal;
+    }
+
+    /**
+     * @return Column scored (0 indexed)
+     */
+    public int getColumn()
+    {
+        return column_;
+    }
+
+    /**
+     * @return Score of playing the column
+     */
+    public int getScore()
+    {
+        return score_;
+    }
+
+    /**
+     * @return Depth the score was searched to, counting the column's own move
+     */
+    public int getDepth()
+    {
+        return depth_;
+    }
+
+    /**
+     * @return Opponent's best reply to the column, or -1 if the column ends
+     *         the game
+     */
+    public int getReply()
+    {
+        return reply_;
+    }
+
+    /**
+     * @return True if the column will not be searched any deeper: the score
+     *         is proven, the column ends the game, or the depth limit was
+     *         reached
+     */
+    public boolean isFinal()
+    {
+        return final_;
+    }
+
+    /**
+     * @return True if the score is a proven win or loss
+     */
+    public boolean isProven()
+    {
+        return SearchAI.isProvenScore(score_);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("column %d: %d at depth %d%s%s", column_, score_, depth_,
+                reply_ < 0 ? "" : ", reply " + reply_, final_ ? " (final)" : "");
+    }
+}
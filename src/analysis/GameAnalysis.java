@@ -0,0 +1,59 @@
+package analysis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable annotations of every move of one analyzed game.
+ */
+public final class GameAnalysis
+{
+    private final long gameIndex_;
+    private final List<MoveAnnotation> annotations_;
+
+    GameAnalysis(final long gameIndex, final List<MoveAnnotation> annotations)
+    {
+        gameIndex_ = gameIndex;
+        annotations_ = Collections.unmodifiableList(annotations);
+    }
+
+    /**
+     * @return Position of the game in the analyzed input (0 indexed)
+     */
+    public long getGameIndex()
+    {
+        return gameIndex_;
+    }
+
+    /**
+     * @return Unmodifiable annotations, one per move in game order
+     */
+    public List<MoveAnnotation> getAnnotations()
+    {
+        return annotations_;
+    }
+
+    /**
+     * @return The moves flagged as blunders, in game order
+     */
+    public List<MoveAnnotation> getBlunders()
+    {
+        final List<MoveAnnotation> blunders = new ArrayList<MoveAnnotation>();
+        for(final MoveAnnotation annotation : annotations_)
+        {
+            if(annotation.isBlunder())
+            {
+                blunders.add(annotation);
+            }
+        }
+        return blunders;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("Game %d: %d moves, %d blunders", gameIndex_, annotations_.size(),
+                getBlunders().size());
+    }
+}
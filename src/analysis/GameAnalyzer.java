@@ -0,0 +1,337 @@
+package analysis;
+
+import game.Player;
+import games.connectfour.ConnectFourGameBoard;
+import games.connectfour.ConnectFourMove;
+import games.connectfour.MoveStrings;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import ai.SearchAI;
+import ai.SearchResult;
+import ai.TranspositionTable;
+import utils.Validate;
+
+/**
+ * Replays recorded games and annotates every move against a fixed-depth
+ * SearchAI.
+ * 
+ * Games are analyzed in parallel, one game per worker at a time; each worker
+ * thread keeps its own engine and transposition table for the whole run.
+ * Games are pulled from the input only as workers free up (at most a few per
+ * worker are in flight), and every analysis is handed to the sink as soon as
+ * it is done, so memory stays bounded however many games are analyzed.
+ * 
+ * Each position is searched at the analysis depth. A move that matches the
+ * best column scores the same as the position. Any other move is scored as
+ * the negated score of the position it led to, searched one ply shallower
+ * so that both scores look equally far ahead. A move that ends the game
+ * scores as a win or a draw. The score drop is the best score minus the
+ * move's score.
+ */
+public final class GameAnalyzer
+{
+    /**
+     * Default score drop at which a move counts as a blunder
+     */
+    public static final int DEFAULT_BLUNDER_THRESHOLD = 200;
+
+    private static final int TABLE_ENTRIES = 1 << 18;
+    private static final int GAMES_IN_FLIGHT_PER_THREAD = 4;
+    private static final AtomicBoolean NEVER_STOP = new AtomicBoolean();
+
+    private final int width_;
+    private final int height_;
+    private final int depth_;
+    private final int threads_;
+    private final int blunderThreshold_;
+
+    private final LongAdder games_ = new LongAdder();
+    private final LongAdder positions_ = new LongAdder();
+    private final LongAdder nodes_ = new LongAdder();
+    private volatile long elapsedNanos_;
+
+    /**
+     * @param width
+     *            Width of the boards the games were played on
+     * @param height
+     *            Height of the boards the games were played on
+     * @param depth
+     *            Search depth of every position, at least 2 so that played
+     *            moves can be searched one ply shallower
+     * @param threads
+     *            Number of games analyzed at once
+     * @param blunderThreshold
+     *            Score drop at which a move counts as a blunder
+     */
+    public GameAnalyzer(final int width, final int height, final int depth, final int threads,
+            final int blunderThreshold)
+    {
+        new ConnectFourGameBoard(width, height);
+        Validate.isTrue(depth > 1 && depth < 256, "depth must be within [2, 255]");
+        Validate.isTrue(threads > 0, "Cannot analyze with fewer than one thread");
+        Validate.isTrue(blunderThreshold > 0, "Blunder threshold must be positive");
+        width_ = width;
+        height_ = height;
+        depth_ = depth;
+        threads_ = threads;
+        blunderThreshold_ = blunderThreshold;
+    }
+
+    /**
+     * Analyzes every game the iterator provides, blocking until all are done.
+     * 
+     * @param games
+     *            Non-null source of move histories (such as
+     *            ConnectFourGameBoard.getMoveHistory()), only consumed from the
+     *            calling thread
+     * @param sink
+     *            Non-null consumer of the analyses, in completion order. Never
+     *            called by two threads at once.
+     * @throws IllegalArgumentException
+     *             if a game contains an invalid move
+     */
+    public void analyze(final Iterator<List<ConnectFourMove>> games,
+            final Consumer<GameAnalysis> sink) throws InterruptedException
+    {
+        Validate.notNull(games, "Cannot analyze null games");
+        Validate.notNull(sink, "Cannot analyze games without a sink");
+
+        final ExecutorService workers = Executors.newFixedThreadPool(threads_, runnable ->
+        {
+            final Thread thread = new Thread(runnable, "Analyzer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final ThreadLocal<SearchAI> engines = ThreadLocal.withInitial(() -> new SearchAI(
+                Player.PLAYER_1, depth_, 0, new TranspositionTable(TABLE_ENTRIES)));
+        final Semaphore inFlight = new Semaphore(threads_ * GAMES_IN_FLIGHT_PER_THREAD);
+        final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+        final Object sinkLock = new Object();
+        final long start = System.nanoTime();
+        try
+        {
+            long index = 0;
+            while(games.hasNext() && failure.get() == null)
+            {
+                final List<ConnectFourMove> moves = games.next();
+                final long gameIndex = index++;
+                inFlight.acquire();
+                workers.execute(() ->
+                {
+                    try
+                    {
+                        final GameAnalysis analysis = analyze(gameIndex, moves, engines.get());
+                        synchronized(sinkLock)
+                        {
+                            sink.accept(analysis);
+                        }
+                    }
+                    catch(final RuntimeException e)
+                    {
+                        failure.compareAndSet(null, e);
+                    }
+                    finally
+                    {
+                        inFlight.release();
+                    }
+                });
+            }
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        finally
+        {
+            workers.shutdownNow();
+            elapsedNanos_ += System.nanoTime() - start;
+        }
+        if(failure.get() != null)
+        {
+            throw failure.get();
+        }
+    }
+
+    /**
+     * Analyzes a single game on the calling thread.
+     * 
+     * @param moves
+     *            Non-null move history
+     * @return Annotations of every move
+     */
+    public GameAnalysis analyze(final List<ConnectFourMove> moves)
+    {
+        Validate.notNull(moves, "Cannot analyze a null game");
+        return analyze(0, moves, new SearchAI(Player.PLAYER_1, depth_, 0,
+                new TranspositionTable(TABLE_ENTRIES)));
+    }
+
+    /**
+     * @return Number of games analyzed
+     */
+    public long getGamesAnalyzed()
+    {
+        return games_.sum();
+    }
+
+    /**
+     * @return Number of positions searched
+     */
+    public long getPositionsAnalyzed()
+    {
+        return positions_.sum();
+    }
+
+    /**
+     * @return Positions searched per second of analyze(...) wall-clock time
+     */
+    public double getPositionsPerSecond()
+    {
+        final long elapsed = elapsedNanos_;
+        return elapsed == 0 ? 0 : positions_.sum() * 1e9 / elapsed;
+    }
+
+    /**
+     * @return Nodes searched per second of analyze(...) wall-clock time
+     */
+    public double getNodesPerSecond()
+    {
+        final long elapsed = elapsedNanos_;
+        return elapsed == 0 ? 0 : nodes_.sum() * 1e9 / elapsed;
+    }
+
+    private GameAnalysis analyze(final long gameIndex, final List<ConnectFourMove> moves,
+            final SearchAI engine)
+    {
+        final ConnectFourGameBoard gameBoard = new ConnectFourGameBoard(width_, height_);
+        final int count = moves.size();
+        final int[] bestColumns = new int[count];
+        // Score of every position for the side to move
+        final int[] scores = new int[count];
+        // Score of every move played, for the side that played it
+        final int[] played = new int[count];
+        int ended = -1;
+        long nodes = 0;
+        int searched = 0;
+
+        for(int i = 0; i < count; ++i)
+        {
+            final ConnectFourMove move = moves.get(i);
+            final int moveNumber = i;
+            Validate.isTrue(ended < 0, () -> String.format("Game %d continues after it ended",
+                    gameIndex));
+            // Checked whatever the validation level, games come from outside
+            if(!gameBoard.isLegalMove(move))
+            {
+                throw new IllegalArgumentException(String.format(
+                        "Game %d has an illegal move at %d", gameIndex, moveNumber));
+            }
+            final SearchResult result = engine.search(gameBoard, move.getPlayer(), depth_, 0,
+                    NEVER_STOP);
+            bestColumns[i] = result.getColumn();
+            scores[i] = result.getScore();
+            nodes += result.getNodes();
+            ++searched;
+            final boolean won = gameBoard.checkedAddMove(move);
+            if(won || gameBoard.boardFull())
+            {
+                // Ended the game: either the winning move or the last space
+                ended = i;
+                played[i] = won ? SearchAI.WIN_SCORE : 0;
+            }
+            else if(move.getColumn() == bestColumns[i])
+            {
+                played[i] = scores[i];
+            }
+            else
+            {
+                /*
+                 * One ply shallower than the position's own search, so both
+                 * scores look equally far ahead
+                 */
+                final SearchResult reply = engine.search(gameBoard, move.getPlayer()
+                        .opponent(), depth_ - 1, 0, NEVER_STOP);
+                played[i] = -reply.getScore();
+                nodes += reply.getNodes();
+                ++searched;
+            }
+        }
+
+        final List<MoveAnnotation> annotations = new ArrayList<MoveAnnotation>(count);
+        for(int i = 0; i < count; ++i)
+        {
+            final ConnectFourMove move = moves.get(i);
+            annotations.add(new MoveAnnotation(i, move.getPlayer(), move.getColumn(),
+                    bestColumns[i], scores[i], played[i], isBlunder(scores[i], played[i])));
+        }
+
+        games_.increment();
+        positions_.add(searched);
+        nodes_.add(nodes);
+        return new GameAnalysis(gameIndex, annotations);
+    }
+
+    private boolean isBlunder(final int best, final int played)
+    {
+        final int bestOutcome = outcome(best);
+        final int playedOutcome = outcome(played);
+        if(bestOutcome != playedOutcome)
+        {
+            return playedOutcome < bestOutcome;
+        }
+        return bestOutcome == 0 && best - played >= blunderThreshold_;
+    }
+
+    // 1 for a proven win, -1 for a proven loss, 0 otherwise
+    private static int outcome(final int score)
+    {
+        return SearchAI.isProvenScore(score) ? Integer.signum(score) : 0;
+    }
+
+    /**
+     * Annotates a file of move strings (one game per line, see MoveStrings)
+     * and prints every blunder followed by the throughput.
+     * 
+     * Usage: GameAnalyzer file [depth] [threads] [width height]
+     */
+    public static void main(String args[]) throws IOException, InterruptedException
+    {
+        Validate.isTrue(args.length > 0, "Usage: GameAnalyzer file [depth] [threads] [width height]");
+        final int depth = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        final int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime()
+                .availableProcessors();
+        final int width = args.length > 4 ? Integer.parseInt(args[3]) : 7;
+        final int height = args.length > 4 ? Integer.parseInt(args[4]) : 6;
+
+        final GameAnalyzer analyzer = new GameAnalyzer(width, height, depth, threads,
+                DEFAULT_BLUNDER_THRESHOLD);
+        try(final BufferedReader reader = Files.newBufferedReader(Paths.get(args[0])))
+        {
+            final Iterator<List<ConnectFourMove>> games = reader.lines().map(String::trim)
+                    .filter(line -> !line.isEmpty()).map(MoveStrings::parse).iterator();
+            analyzer.analyze(games, analysis ->
+            {
+                for(final MoveAnnotation blunder : analysis.getBlunders())
+                {
+                    System.out.printf("game %d: %s%n", analysis.getGameIndex(), blunder);
+                }
+            });
+        }
+        System.out.printf("%d games, %d positions: %.0f positions/s, %.0f nodes/s%n",
+                analyzer.getGamesAnalyzed(), analyzer.getPositionsAnalyzed(),
+                analyzer.getPositionsPerSecond(), analyzer.getNodesPerSecond());
+    }
+}
@@ -0,0 +1,103 @@
+package analysis;
+
+import game.Player;
+
+/**
+ * Immutable verdict on a single move of an analyzed game. Scores are search
+ * scores (see SearchAI) from the point of view of the player who moved.
+ */
+public final class MoveAnnotation
+{
+    private final int moveNumber_;
+    private final Player player_;
+    private final int playedColumn_;
+    private final int bestColumn_;
+    private final int bestScore_;
+    private final int playedScore_;
+    private final boolean blunder_;
+
+    MoveAnnotation(final int moveNumber, final Player player, final int playedColumn,
+            final int bestColumn, final int bestScore, final int playedScore,
+            final boolean blunder)
+    {
+        moveNumber_ = moveNumber;
+        player_ = player;
+        playedColumn_ = playedColumn;
+        bestColumn_ = bestColumn;
+        bestScore_ = bestScore;
+        playedScore_ = playedScore;
+        blunder_ = blunder;
+    }
+
+    /**
+     * @return Index of the move in the game (0 is the first move)
+     */
+    public int getMoveNumber()
+    {
+        return moveNumber_;
+    }
+
+    /**
+     * @return Player who made the move
+     */
+    public Player getPlayer()
+    {
+        return player_;
+    }
+
+    /**
+     * @return Column that was played
+     */
+    public int getPlayedColumn()
+    {
+        return playedColumn_;
+    }
+
+    /**
+     * @return Column the analysis preferred
+     */
+    public int getBestColumn()
+    {
+        return bestColumn_;
+    }
+
+    /**
+     * @return Score of the best column
+     */
+    public int getBestScore()
+    {
+        return bestScore_;
+    }
+
+    /**
+     * @return Score of the column that was played
+     */
+    public int getPlayedScore()
+    {
+        return playedScore_;
+    }
+
+    /**
+     * @return How much worse the played column scored than the best one
+     */
+    public int getScoreDrop()
+    {
+        return bestScore_ - playedScore_;
+    }
+
+    /**
+     * @return True if the move threw away a proven result, or lost more than
+     *         the analyzer's blunder threshold
+     */
+    public boolean isBlunder()
+    {
+        return blunder_;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%d. %s played %d (%d), best %d (%d)%s", moveNumber_ + 1, player_,
+                playedColumn_, playedScore_, bestColumn_, bestScore_, blunder_ ? " ??" : "");
+    }
+}
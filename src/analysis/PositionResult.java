@@ -0,0 +1,108 @@
+package analysis;
+
+/**
+ * Immutable outcome of running an AI on one TestPosition.
+ */
+public final class PositionResult
+{
+    private final String moves_;
+    private final int column_;
+    private final boolean solved_;
+    private final int depth_;
+    private final long nodes_;
+    private final long solveNanos_;
+    private final long totalNanos_;
+
+    /**
+     * @param moves
+     *            Move string of the position
+     * @param column
+     *            Column the AI chose
+     * @param solved
+     *            True if the column (and value, when known) was right
+     * @param depth
+     *            Depth reached, 0 if the AI does not search
+     * @param nodes
+     *            Nodes searched, 0 if the AI does not search
+     * @param solveNanos
+     *            Time until the AI settled on a right answer for good, -1 if
+     *            it never did
+     * @param totalNanos
+     *            Time the AI took
+     */
+    public PositionResult(final String moves, final int column, final boolean solved,
+            final int depth, final long nodes, final long solveNanos, final long totalNanos)
+    {
+        moves_ = moves;
+        column_ = column;
+        solved_ = solved;
+        depth_ = depth;
+        nodes_ = nodes;
+        solveNanos_ = solveNanos;
+        totalNanos_ = totalNanos;
+    }
+
+    /**
+     * @return Move string of the position
+     */
+    public String getMoves()
+    {
+        return moves_;
+    }
+
+    /**
+     * @return Column the AI chose
+     */
+    public int getColumn()
+    {
+        return column_;
+    }
+
+    /**
+     * @return True if the AI's answer was right
+     */
+    public boolean isSolved()
+    {
+        return solved_;
+    }
+
+    /**
+     * @return Depth reached, 0 if the AI does not search
+     */
+    public int getDepth()
+    {
+        return depth_;
+    }
+
+    /**
+     * @return Nodes searched, 0 if the AI does not search
+     */
+    public long getNodes()
+    {
+        return nodes_;
+    }
+
+    /**
+     * @return Time until the AI settled on a right answer, -1 if it never did
+     */
+    public long getSolveNanos()
+    {
+        return solveNanos_;
+    }
+
+    /**
+     * @return Time the AI took
+     */
+    public long getTotalNanos()
+    {
+        return totalNanos_;
+    }
+
+    /**
+     * @return Nodes searched per second, 0 if the AI does not search
+     */
+    public double getNodesPerSecond()
+    {
+        return totalNanos_ == 0 ? 0 : nodes_ * 1e9 / totalNanos_;
+    }
+}
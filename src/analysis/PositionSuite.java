@@ -0,0 +1,152 @@
+package analysis;
+
+import games.connectfour.Tablebase.Result;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import utils.Validate;
+
+/**
+ * Ordered, immutable list of TestPositions read from a text file:
+ * 
+ * <pre>
+ * # Comments and blank lines are ignored
+ * board 7 6
+ * 4453  3,4  W
+ * 44    -    -
+ * </pre>
+ * 
+ * Each position is a move string ("-" for the empty board), the best
+ * columns (1 indexed and comma separated, "-" for any) and optionally the
+ * result for the side to move (W, D, L, or "-" for unknown). "board" lines
+ * set the size of the positions that follow (7x6 by default).
+ */
+public final class PositionSuite
+{
+    private final String name_;
+    private final List<TestPosition> positions_;
+
+    /**
+     * @param name
+     *            Name of the suite
+     * @param positions
+     *            Non-null positions
+     */
+    public PositionSuite(final String name, final List<TestPosition> positions)
+    {
+        Validate.notNull(positions, "Cannot create a suite without positions");
+        name_ = name;
+        positions_ = Collections.unmodifiableList(new ArrayList<TestPosition>(positions));
+    }
+
+    /**
+     * @param file
+     *            Suite file
+     * @return The suite, named after the file
+     * @throws IOException
+     *             if the file cannot be read
+     * @throws IllegalArgumentException
+     *             if a line cannot be parsed
+     */
+    public static PositionSuite load(final Path file) throws IOException
+    {
+        Validate.notNull(file, "Cannot load a suite from a null file");
+        final List<TestPosition> positions = new ArrayList<TestPosition>();
+        int width = 7;
+        int height = 6;
+        try(final BufferedReader reader = Files.newBufferedReader(file))
+        {
+            int lineNumber = 0;
+            for(String line = reader.readLine(); line != null; line = reader.readLine())
+            {
+                ++lineNumber;
+                final int comment = line.indexOf('#');
+                final String content = (comment < 0 ? line : line.substring(0, comment)).trim();
+                if(content.isEmpty())
+                {
+                    continue;
+                }
+                final String[] fields = content.split("\\s+");
+                final int number = lineNumber;
+                try
+                {
+                    if(fields[0].equals("board"))
+                    {
+                        Validate.isTrue(fields.length == 3, "Expected: board width height");
+                        width = Integer.parseInt(fields[1]);
+                        height = Integer.parseInt(fields[2]);
+                        continue;
+                    }
+                    Validate.isTrue(fields.length == 2 || fields.length == 3,
+                            "Expected: moves best-columns [value]");
+                    positions.add(new TestPosition(fields[0].equals("-") ? "" : fields[0],
+                            width, height, parseColumns(fields[1]),
+                            fields.length == 3 ? parseValue(fields[2]) : Result.UNKNOWN));
+                }
+                catch(final IllegalArgumentException e)
+                {
+                    throw new IllegalArgumentException(String.format("%s:%d: %s", file, number,
+                            e.getMessage()), e);
+                }
+            }
+        }
+        return new PositionSuite(file.getFileName().toString(), positions);
+    }
+
+    /**
+     * @return Name of the suite
+     */
+    public String getName()
+    {
+        return name_;
+    }
+
+    /**
+     * @return Unmodifiable positions, in file order
+     */
+    public List<TestPosition> getPositions()
+    {
+        return positions_;
+    }
+
+    private static int parseColumns(final String field)
+    {
+        if(field.equals("-"))
+        {
+            return 0;
+        }
+        int columns = 0;
+        for(final String column : field.split(","))
+        {
+            final int index = Integer.parseInt(column) - 1;
+            Validate.isTrue(index >= 0 && index < Integer.SIZE, () -> "Invalid column "
+                    + column);
+            columns |= 1 << index;
+        }
+        return columns;
+    }
+
+    private static Result parseValue(final String field)
+    {
+        switch(field)
+        {
+        case "W":
+            return Result.WIN;
+        case "D":
+            return Result.DRAW;
+        case "L":
+            return Result.LOSS;
+        case "-":
+            return Result.UNKNOWN;
+        default:
+            throw new IllegalArgumentException("Invalid value " + field
+                    + ", expected W, D, L or -");
+        }
+    }
+}
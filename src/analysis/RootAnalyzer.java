@@ -0,0 +1,281 @@
+package analysis;
+
+import game.Player;
+import games.connectfour.ConnectFourGameBoard;
+import games.connectfour.ConnectFourMove;
+import games.connectfour.MoveStrings;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+import ai.SearchAI;
+import ai.SearchResult;
+import ai.TranspositionTable;
+import utils.Validate;
+
+/**
+ * Scores every available column of a position rather than just picking the
+ * best one, e.g. for hints or to compare the alternatives to a move.
+ *
+ * Every column is searched separately, as the negated score of the position
+ * it leads to, one depth at a time: once a column's search to depth d is done
+ * its score is streamed to the listener and the search to d + 1 joins the back
+ * of the queue. The columns are thus spread over the worker threads and
+ * deepen together. All workers share one transposition table, so each
+ * iteration reuses what the previous ones (and the other columns' searches
+ * through transposed positions) already found.
+ */
+public final class RootAnalyzer implements Closeable
+{
+    /**
+     * Orders column scores best first, and equal scores by column
+     */
+    public static final Comparator<ColumnScore> BEST_FIRST = Comparator.comparingInt(
+            ColumnScore::getScore).reversed().thenComparingInt(ColumnScore::getColumn);
+
+    private final TranspositionTable table_;
+    private final ExecutorService workers_;
+    private final ThreadLocal<SearchAI> engines_;
+    private final Set<Analysis> running_;
+
+    /**
+     * @param threads
+     *            Number of columns searched at once
+     * @param table
+     *            Non-null table shared by every search. Must not be used by
+     *            anything else while analyses are running.
+     */
+    public RootAnalyzer(final int threads, final TranspositionTable table)
+    {
+        Validate.isTrue(threads > 0, "Cannot analyze with fewer than one thread");
+        Validate.notNull(table, "Cannot analyze with a null TranspositionTable");
+        table_ = table;
+        workers_ = Executors.newFixedThreadPool(threads, runnable ->
+        {
+            final Thread thread = new Thread(runnable, "Root-Analyzer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        engines_ = ThreadLocal.withInitial(() -> new SearchAI(Player.PLAYER_1, 1, 0, table_));
+        running_ = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Starts scoring every available column.
+     *
+     * @param gameBoard
+     *            Non-null board with at least one available move. The analysis
+     *            works on its own copy.
+     * @param player
+     *            Non-null player to move
+     * @param maxDepth
+     *            Depth at which the analysis ends, counting the column's own
+     *            move, within [2, 256]
+     * @param timeBudgetMillis
+     *            Time the analysis may take, 0 for no limit
+     * @param listener
+     *            Non-null consumer of every new column score, as soon as it is
+     *            known. Called on the worker threads, but never by two at
+     *            once.
+     * @return Future completed with the deepest score of every column (columns
+     *         that did not complete a single depth in time are left out), best
+     *         first. Cancelling it stops the analysis.
+     */
+    public CompletableFuture<List<ColumnScore>> analyze(final ConnectFourGameBoard gameBoard,
+            final Player player, final int maxDepth, final long timeBudgetMillis,
+            final Consumer<ColumnScore> listener)
+    {
+        Validate.notNull(gameBoard, "Cannot analyze a null board");
+        Validate.notNull(player, "Cannot analyze for a null player");
+        Validate.isTrue(maxDepth >= 2 && maxDepth <= 256, "maxDepth must be within [2, 256]");
+        Validate.isTrue(timeBudgetMillis >= 0, "Cannot analyze with a negative time budget");
+        Validate.notNull(listener, "Cannot analyze without a listener");
+        final List<ConnectFourMove> moves = gameBoard.availableMovesFor(player);
+        Validate.isTrue(!moves.isEmpty(), "Cannot analyze a full board");
+
+        final Analysis analysis = new Analysis(new ConnectFourGameBoard(gameBoard), player,
+                maxDepth, timeBudgetMillis, listener, moves.size());
+        running_.add(analysis);
+        analysis.result_.whenComplete((scores, error) -> running_.remove(analysis));
+        for(final ConnectFourMove move : moves)
+        {
+            analysis.schedule(move, 2);
+        }
+        return analysis.result_;
+    }
+
+    /**
+     * Stops the worker threads. Running analyses fail with an
+     * IllegalStateException.
+     */
+    @Override
+    public void close()
+    {
+        workers_.shutdownNow();
+        for(final Analysis analysis : running_)
+        {
+            analysis.result_.completeExceptionally(new IllegalStateException(
+                    "RootAnalyzer has been closed"));
+        }
+    }
+
+    private final class Analysis
+    {
+        private final ConnectFourGameBoard board_;
+        private final Player player_;
+        private final int maxDepth_;
+        private final long deadline_;
+        private final Consumer<ColumnScore> listener_;
+        private final AtomicBoolean stop_;
+        private final AtomicReferenceArray<ColumnScore> latest_;
+        private final AtomicInteger remaining_;
+        private final CompletableFuture<List<ColumnScore>> result_;
+
+        Analysis(final ConnectFourGameBoard board, final Player player, final int maxDepth,
+                final long timeBudgetMillis, final Consumer<ColumnScore> listener,
+                final int columns)
+        {
+            board_ = board;
+            player_ = player;
+            maxDepth_ = maxDepth;
+            deadline_ = timeBudgetMillis > 0 ? System.nanoTime() + timeBudgetMillis * 1000000L
+                    : Long.MAX_VALUE;
+            listener_ = listener;
+            stop_ = new AtomicBoolean();
+            latest_ = new AtomicReferenceArray<ColumnScore>(board.getWidth());
+            remaining_ = new AtomicInteger(columns);
+            result_ = new CompletableFuture<List<ColumnScore>>();
+            result_.whenComplete((scores, error) -> stop_.set(true));
+        }
+
+        void schedule(final ConnectFourMove move, final int depth)
+        {
+            try
+            {
+                workers_.execute(() -> search(move, depth));
+            }
+            catch(final RuntimeException e)
+            {
+                result_.completeExceptionally(e);
+            }
+        }
+
+        private void search(final ConnectFourMove move, final int depth)
+        {
+            try
+            {
+                final long now = System.nanoTime();
+                if(stop_.get() || now >= deadline_)
+                {
+                    finish();
+                    return;
+                }
+                final int column = move.getColumn();
+                final ConnectFourGameBoard board = new ConnectFourGameBoard(board_);
+                final ColumnScore score;
+                if(board.checkedAddMove(move))
+                {
+                    score = new ColumnScore(column, SearchAI.WIN_SCORE, 1, -1, true);
+                }
+                else if(board.boardFull())
+                {
+                    score = new ColumnScore(column, 0, 1, -1, true);
+                }
+                else
+                {
+                    final SearchResult result = engines_.get().search(board, player_.opponent(),
+                            depth - 1, deadline_ == Long.MAX_VALUE ? 0 : deadline_ - now, stop_);
+                    if(!result.isComplete())
+                    {
+                        finish();
+                        return;
+                    }
+                    score = new ColumnScore(column, -result.getScore(), result.getDepth() + 1,
+                            result.getColumn(), depth >= maxDepth_
+                                    || SearchAI.isProvenScore(result.getScore()));
+                }
+                latest_.set(column, score);
+                synchronized(this)
+                {
+                    listener_.accept(score);
+                }
+                if(score.isFinal())
+                {
+                    finish();
+                }
+                else
+                {
+                    schedule(move, depth + 1);
+                }
+            }
+            catch(final RuntimeException e)
+            {
+                result_.completeExceptionally(e);
+            }
+        }
+
+        // Called once per column, when it will not be searched any more
+        private void finish()
+        {
+            if(remaining_.decrementAndGet() > 0)
+            {
+                return;
+            }
+            final List<ColumnScore> scores = new ArrayList<ColumnScore>();
+            for(int column = 0; column < latest_.length(); ++column)
+            {
+                final ColumnScore score = latest_.get(column);
+                if(score != null)
+                {
+                    scores.add(score);
+                }
+            }
+            scores.sort(BEST_FIRST);
+            result_.complete(scores);
+        }
+    }
+
+    /**
+     * Prints every column score of a position as the analysis deepens.
+     *
+     * Usage: RootAnalyzer [moves] [depth] [threads] [budget ms] [width height]
+     */
+    public static void main(String args[])
+    {
+        final String moves = args.length > 0 ? args[0] : "";
+        final int depth = args.length > 1 ? Integer.parseInt(args[1]) : 12;
+        final int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime()
+                .availableProcessors();
+        final long budget = args.length > 3 ? Long.parseLong(args[3]) : 0;
+        final int width = args.length > 5 ? Integer.parseInt(args[4]) : 7;
+        final int height = args.length > 5 ? Integer.parseInt(args[5]) : 6;
+
+        final ConnectFourGameBoard board = MoveStrings.toBoard(width, height, moves);
+        final Player player = moves.length() % 2 == 0 ? Player.PLAYER_1 : Player.PLAYER_2;
+        try(final RootAnalyzer analyzer = new RootAnalyzer(threads, new TranspositionTable(
+                1 << 22)))
+        {
+            final long start = System.nanoTime();
+            final List<ColumnScore> scores = analyzer.analyze(board, player, depth, budget,
+                    score -> System.out.printf("%6d ms  %s%n",
+                            (System.nanoTime() - start) / 1000000, score)).join();
+            System.out.printf("%s to move, best first after %d ms:%n", player, (System
+                    .nanoTime() - start) / 1000000);
+            for(final ColumnScore score : scores)
+            {
+                System.out.println("  " + score);
+            }
+        }
+    }
+}
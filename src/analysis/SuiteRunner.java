@@ -0,0 +1,357 @@
+package analysis;
+
+import game.Player;
+import games.connectfour.ConnectFourGameBoard;
+import games.connectfour.ConnectFourMove;
+import games.connectfour.Tablebase.Result;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import ai.AI;
+import ai.SearchAI;
+import ai.SearchResult;
+import utils.Validate;
+
+/**
+ * Runs an AI on every position of a PositionSuite and measures how well and
+ * how quickly it finds the right answers.
+ * 
+ * Every position gets a fresh AI from the factory, so no position benefits
+ * from another's transposition table. For SearchAIs the time to solution is
+ * taken from the iteration after which the search's answer was right and
+ * stayed right; other AIs only report their total time.
+ * 
+ * Results are written as tab-separated values, one position per line, so
+ * runs can be diffed, and regressions(...) compares a run with a baseline so
+ * a build can fail when the AI gets slower or stops solving positions.
+ */
+public final class SuiteRunner
+{
+    private static final String HEADER = "moves\tcolumn\tsolved\tdepth\tnodes\tsolve_ms"
+            + "\ttotal_ms\tnodes_per_sec";
+
+    private final Function<Player, AI> ais_;
+
+    /**
+     * @param ais
+     *            Non-null factory creating the AI to test for the given player
+     */
+    public SuiteRunner(final Function<Player, AI> ais)
+    {
+        Validate.notNull(ais, "Cannot run a suite without an AI factory");
+        ais_ = ais;
+    }
+
+    /**
+     * @param suite
+     *            Non-null suite
+     * @return Result of every position, in suite order
+     */
+    public List<PositionResult> run(final PositionSuite suite)
+    {
+        Validate.notNull(suite, "Cannot run a null suite");
+        final List<PositionResult> results = new ArrayList<PositionResult>();
+        for(final TestPosition position : suite.getPositions())
+        {
+            results.add(run(position));
+        }
+        return results;
+    }
+
+    /**
+     * @param position
+     *            Non-null position, which must not be over
+     * @return How the AI did
+     */
+    public PositionResult run(final TestPosition position)
+    {
+        Validate.notNull(position, "Cannot run a null position");
+        final ConnectFourGameBoard gameBoard = position.toBoard();
+        Validate.isTrue(!gameBoard.boardFull(), () -> position + " is a full board");
+        final Player player = (gameBoard.getMoveCount() & 1) == 0 ? Player.PLAYER_1
+                : Player.PLAYER_2;
+        final AI ai = ais_.apply(player);
+        Validate.isTrue(ai != null && ai.getPlayer() == player,
+                "The AI factory must create an AI for the requested player");
+
+        final List<SearchResult> iterations = new ArrayList<SearchResult>();
+        if(ai instanceof SearchAI)
+        {
+            ((SearchAI) ai).setIterationListener(iterations::add);
+        }
+        final long start = System.nanoTime();
+        final ConnectFourMove move = ai.determineMove(gameBoard);
+        final long total = System.nanoTime() - start;
+
+        final SearchResult result = ai.getLastSearchResult();
+        final boolean solved = move != null && solves(position, move.getColumn(), result);
+        long solveNanos = -1;
+        if(solved)
+        {
+            solveNanos = total;
+            // Walk back over the iterations that already had it right
+            for(int i = iterations.size() - 1; i >= 0
+                    && solves(position, iterations.get(i).getColumn(), iterations.get(i)); --i)
+            {
+                solveNanos = iterations.get(i).getElapsedNanos();
+            }
+        }
+        return new PositionResult(position.getMoves(), move == null ? -1 : move.getColumn(),
+                solved, result == null ? 0 : result.getDepth(), result == null ? 0 : result
+                        .getNodes(), solveNanos, total);
+    }
+
+    /**
+     * Writes results as tab-separated values with a header line.
+     * 
+     * @param results
+     *            Non-null results
+     * @param out
+     *            Non-null destination
+     */
+    public static void write(final List<PositionResult> results, final Writer out)
+            throws IOException
+    {
+        out.write(HEADER);
+        out.write('\n');
+        for(final PositionResult result : results)
+        {
+            out.write(String.format("%s\t%d\t%b\t%d\t%d\t%.3f\t%.3f\t%.0f\n",
+                    result.getMoves().isEmpty() ? "-" : result.getMoves(),
+                    result.getColumn() + 1, result.isSolved(), result.getDepth(),
+                    result.getNodes(), result.getSolveNanos() < 0 ? -1
+                            : result.getSolveNanos() / 1e6, result.getTotalNanos() / 1e6,
+                    result.getNodesPerSecond()));
+        }
+    }
+
+    /**
+     * @param file
+     *            File written by write(...)
+     * @return The results it holds
+     */
+    public static List<PositionResult> read(final Path file) throws IOException
+    {
+        final List<PositionResult> results = new ArrayList<PositionResult>();
+        try(final BufferedReader reader = Files.newBufferedReader(file))
+        {
+            Validate.isTrue(HEADER.equals(reader.readLine()), () -> file
+                    + " does not hold suite results");
+            for(String line = reader.readLine(); line != null; line = reader.readLine())
+            {
+                final String current = line;
+                final String[] fields = line.split("\t");
+                Validate.isTrue(fields.length == 8, () -> "Malformed result line: " + current);
+                final double solveMillis = Double.parseDouble(fields[5]);
+                results.add(new PositionResult(fields[0].equals("-") ? "" : fields[0],
+                        Integer.parseInt(fields[1]) - 1, Boolean.parseBoolean(fields[2]),
+                        Integer.parseInt(fields[3]), Long.parseLong(fields[4]),
+                        solveMillis < 0 ? -1 : (long) (solveMillis * 1e6),
+                        (long) (Double.parseDouble(fields[6]) * 1e6)));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Compares a run against a baseline run of the same suite. A regression
+     * is a position the baseline solved but the run did not, or suite totals
+     * (nodes, time to solution over positions both solved) exceeding the
+     * baseline's by more than the tolerance.
+     * 
+     * @param baseline
+     *            Non-null baseline results
+     * @param current
+     *            Non-null results of the run being checked
+     * @param tolerance
+     *            Allowed relative increase, e.g. 0.1 for 10%
+     * @return Description of every regression, empty if there are none
+     */
+    public static List<String> regressions(final List<PositionResult> baseline,
+            final List<PositionResult> current, final double tolerance)
+    {
+        final Map<String, PositionResult> before = new HashMap<String, PositionResult>();
+        for(final PositionResult result : baseline)
+        {
+            before.put(result.getMoves(), result);
+        }
+
+        final List<String> regressions = new ArrayList<String>();
+        long nodesBefore = 0;
+        long nodesNow = 0;
+        long solveBefore = 0;
+        long solveNow = 0;
+        for(final PositionResult result : current)
+        {
+            final PositionResult old = before.get(result.getMoves());
+            if(old == null)
+            {
+                continue;
+            }
+            if(old.isSolved() && !result.isSolved())
+            {
+                regressions.add(String.format("%s is no longer solved", old.getMoves()
+                        .isEmpty() ? "-" : old.getMoves()));
+            }
+            nodesBefore += old.getNodes();
+            nodesNow += result.getNodes();
+            if(old.isSolved() && result.isSolved())
+            {
+                solveBefore += old.getSolveNanos();
+                solveNow += result.getSolveNanos();
+            }
+        }
+        if(nodesNow > nodesBefore * (1 + tolerance))
+        {
+            regressions.add(String.format("Nodes rose from %d to %d", nodesBefore, nodesNow));
+        }
+        if(solveNow > solveBefore * (1 + tolerance))
+        {
+            regressions.add(String.format("Time to solution rose from %.1f ms to %.1f ms",
+                    solveBefore / 1e6, solveNow / 1e6));
+        }
+        return regressions;
+    }
+
+    private static boolean solves(final TestPosition position, final int column,
+            final SearchResult result)
+    {
+        if(!position.isBestColumn(column))
+        {
+            return false;
+        }
+        // AIs that don't search cannot be checked for the value
+        if(position.getValue() == Result.UNKNOWN || result == null)
+        {
+            return true;
+        }
+        final boolean proven = SearchAI.isProvenScore(result.getScore());
+        switch(position.getValue())
+        {
+        case WIN:
+            return proven && result.getScore() > 0;
+        case LOSS:
+            return proven && result.getScore() < 0;
+        default:
+            return !proven;
+        }
+    }
+
+    private static void summarize(final PositionSuite suite, final List<PositionResult> results,
+            final PrintStream out)
+    {
+        int solved = 0;
+        long nodes = 0;
+        long total = 0;
+        long solve = 0;
+        for(final PositionResult result : results)
+        {
+            nodes += result.getNodes();
+            total += result.getTotalNanos();
+            if(result.isSolved())
+            {
+                ++solved;
+                solve += result.getSolveNanos();
+            }
+        }
+        out.printf("%s: solved %d/%d, %d nodes in %.1f ms (%.0f nodes/s), "
+                + "mean time to solution %.2f ms%n", suite.getName(), solved, results.size(),
+                nodes, total / 1e6, total == 0 ? 0 : nodes * 1e9 / total, solved == 0 ? 0
+                        : solve / 1e6 / solved);
+    }
+
+    /**
+     * Runs a SearchAI on a suite and exits with status 1 on any regression
+     * against the baseline.
+     * 
+     * The suite is run once untimed first (see --warmup), otherwise the
+     * first positions mostly measure the JIT compiler. Node counts are
+     * deterministic for fixed-depth runs; times are not, so give time
+     * comparisons a generous tolerance.
+     * 
+     * Usage: SuiteRunner suite [--depth N | --time ms] [--output file]
+     * [--baseline file] [--tolerance fraction] [--warmup runs]
+     */
+    public static void main(String args[]) throws IOException
+    {
+        Validate.isTrue(args.length > 0 && args.length % 2 == 1, "Usage: SuiteRunner suite "
+                + "[--depth N | --time ms] [--output file] [--baseline file] [--tolerance x] "
+                + "[--warmup runs]");
+        int depth = 12;
+        long timeMillis = 0;
+        Path output = null;
+        Path baseline = null;
+        double tolerance = 0.1;
+        int warmup = 1;
+        for(int i = 1; i < args.length; i += 2)
+        {
+            switch(args[i])
+            {
+            case "--depth":
+                depth = Integer.parseInt(args[i + 1]);
+                break;
+            case "--time":
+                timeMillis = Long.parseLong(args[i + 1]);
+                depth = 255;
+                break;
+            case "--output":
+                output = Paths.get(args[i + 1]);
+                break;
+            case "--baseline":
+                baseline = Paths.get(args[i + 1]);
+                break;
+            case "--tolerance":
+                tolerance = Double.parseDouble(args[i + 1]);
+                break;
+            case "--warmup":
+                warmup = Integer.parseInt(args[i + 1]);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        final PositionSuite suite = PositionSuite.load(Paths.get(args[0]));
+        final int maxDepth = depth;
+        final long budget = timeMillis;
+        final SuiteRunner runner = new SuiteRunner(player -> new SearchAI(player, maxDepth,
+                budget));
+        for(int i = 0; i < warmup; ++i)
+        {
+            runner.run(suite);
+        }
+        final List<PositionResult> results = runner.run(suite);
+        if(output != null)
+        {
+            try(final Writer writer = Files.newBufferedWriter(output))
+            {
+                write(results, writer);
+            }
+        }
+        summarize(suite, results, System.out);
+
+        if(baseline != null)
+        {
+            final List<String> regressions = regressions(read(baseline), results, tolerance);
+            for(final String regression : regressions)
+            {
+                System.out.println("REGRESSION: " + regression);
+            }
+            if(!regressions.isEmpty())
+            {
+                System.exit(1);
+            }
+        }
+    }
+}
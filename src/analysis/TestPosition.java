@@ -0,0 +1,91 @@
+package analysis;
+
+import games.connectfour.ConnectFourGameBoard;
+import games.connectfour.MoveStrings;
+import games.connectfour.Tablebase.Result;
+
+/**
+ * Immutable test position: a move string plus what is known about it.
+ */
+public final class TestPosition
+{
+    private final String moves_;
+    private final int width_;
+    private final int height_;
+    private final int bestColumns_;
+    private final Result value_;
+
+    /**
+     * @param moves
+     *            Move string leading to the position (see MoveStrings)
+     * @param width
+     *            Board width
+     * @param height
+     *            Board height
+     * @param bestColumns
+     *            Columns (bit i for column i) that count as solving the
+     *            position, 0 if any column does
+     * @param value
+     *            Known result for the side to move, UNKNOWN if not checked
+     */
+    public TestPosition(final String moves, final int width, final int height,
+            final int bestColumns, final Result value)
+    {
+        // Fail fast on positions that cannot be played
+        MoveStrings.toBoard(width, height, moves);
+        moves_ = moves;
+        width_ = width;
+        height_ = height;
+        bestColumns_ = bestColumns;
+        value_ = value == null ? Result.UNKNOWN : value;
+    }
+
+    /**
+     * @return Move string leading to the position
+     */
+    public String getMoves()
+    {
+        return moves_;
+    }
+
+    /**
+     * @return New board holding the position
+     */
+    public ConnectFourGameBoard toBoard()
+    {
+        return MoveStrings.toBoard(width_, height_, moves_);
+    }
+
+    /**
+     * @return Columns (bit i for column i) that solve the position, 0 if any
+     */
+    public int getBestColumns()
+    {
+        return bestColumns_;
+    }
+
+    /**
+     * @return Known result for the side to move, UNKNOWN if not checked
+     */
+    public Result getValue()
+    {
+        return value_;
+    }
+
+    /**
+     * @param column
+     *            Column played
+     * @return True if the column is one of the best columns
+     */
+    public boolean isBestColumn(final int column)
+    {
+        return bestColumns_ == 0 || (column >= 0 && column < Integer.SIZE
+                && (bestColumns_ & (1 << column)) != 0);
+    }
+
+    @Override
+    public String toString()
+    {
+        return moves_.isEmpty() ? "-" : moves_;
+    }
+}
@@ -0,0 +1,79 @@
+package benchmarks;
+
+import game.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ai.AsyncAIAdapter;
+import ai.SearchAI;
+import ai.TranspositionTable;
+import controller.AsyncGameAutomator;
+import controller.GameResult;
+import metrics.Metrics;
+
+/**
+ * Plays many concurrent games between shallow SearchAIs on a small thread
+ * pool through AsyncGameAutomator, and reports how many threads the process
+ * needed for them.
+ * 
+ * Usage: AsyncGameLoad [games] [threads] [depth]
+ */
+public final class AsyncGameLoad
+{
+    public static void main(String args[]) throws Exception
+    {
+        final int games = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        final int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime
+                .getRuntime().availableProcessors();
+        final int depth = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ExecutorService pool = Executors.newFixedThreadPool(threads, runnable ->
+        {
+            final Thread thread = new Thread(runnable, "AI-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        final AsyncGameAutomator automator = new AsyncGameAutomator(7, 6, 0);
+
+        final long start = System.nanoTime();
+        final List<CompletableFuture<GameResult>> results = new ArrayList<CompletableFuture<GameResult>>(
+                games);
+        for(int i = 0; i < games; ++i)
+        {
+            // Small tables: thousands of engines are alive at once
+            final SearchAI first = new SearchAI(Player.PLAYER_1, depth, 0,
+                    new TranspositionTable(1 << 10));
+            final SearchAI second = new SearchAI(Player.PLAYER_2, depth, 0,
+                    new TranspositionTable(1 << 10));
+            final CompletableFuture<GameResult> result = automator.playGame(new AsyncAIAdapter(
+                    first, pool), new AsyncAIAdapter(second, pool));
+            result.whenComplete((game, error) ->
+            {
+                Metrics.unregister(first);
+                Metrics.unregister(second);
+            });
+            results.add(result);
+        }
+        final int liveThreads = Thread.activeCount();
+
+        long moves = 0;
+        int draws = 0;
+        for(final CompletableFuture<GameResult> result : results)
+        {
+            moves += result.join().getMoves().size();
+            draws += result.join().isDraw() ? 1 : 0;
+        }
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d games (%d draws) in flight on %d pool threads (%d live threads)%n",
+                games, draws, threads, liveThreads);
+        System.out.printf("%d moves in %.2f s: %.0f moves/s, %.0f games/s%n", moves, seconds,
+                moves / seconds, games / seconds);
+        pool.shutdown();
+    }
+}
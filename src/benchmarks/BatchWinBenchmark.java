@@ -0,0 +1,101 @@
+package benchmarks;
+
+import game.Player;
+import games.connectfour.BoardBatch;
+import games.connectfour.ConnectFourGameBoard;
+import games.connectfour.ConnectFourMove;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares finding every immediately winning column of many positions with
+ * BoardBatch against calling ConnectFourGameBoard.checkIfWinningMove for
+ * every playable column of every board.
+ * 
+ * Usage: BatchWinBenchmark [positions] [rounds]
+ */
+public final class BatchWinBenchmark
+{
+    public static void main(String args[])
+    {
+        final int positions = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        final int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        final ConnectFourGameBoard[] boards = randomPositions(positions, new Random(42));
+        final BoardBatch batch = new BoardBatch(7, 6, positions);
+        for(final ConnectFourGameBoard board : boards)
+        {
+            batch.add(board);
+        }
+
+        System.out.println(BoardBatch.isVectorized() ? "Vector API kernels" : "scalar kernels");
+        final int[] batchColumns = new int[positions];
+        final int[] scalarColumns = new int[positions];
+        for(int round = 0; round < rounds; ++round)
+        {
+            final long scalarStart = System.nanoTime();
+            scalarWinningColumns(boards, scalarColumns);
+            final long scalarNanos = System.nanoTime() - scalarStart;
+
+            final long batchStart = System.nanoTime();
+            batch.winningColumns(Player.PLAYER_1, batchColumns);
+            final long batchNanos = System.nanoTime() - batchStart;
+
+            for(int i = 0; i < positions; ++i)
+            {
+                if(batchColumns[i] != scalarColumns[i])
+                {
+                    throw new IllegalStateException("Mismatch on position " + i + ":\n"
+                            + boards[i]);
+                }
+            }
+            System.out.printf("round %d: scalar %.1f M positions/s, batch %.1f M positions/s"
+                    + " (%.1fx)%n", round, positions * 1e3 / scalarNanos, positions * 1e3
+                    / batchNanos, (double) scalarNanos / batchNanos);
+        }
+    }
+
+    private static void scalarWinningColumns(final ConnectFourGameBoard[] boards,
+            final int[] columns)
+    {
+        for(int i = 0; i < boards.length; ++i)
+        {
+            int winning = 0;
+            for(final ConnectFourMove move : boards[i].availableMovesFor(Player.PLAYER_1))
+            {
+                if(boards[i].checkIfWinningMove(move))
+                {
+                    winning |= 1 << move.getColumn();
+                }
+            }
+            columns[i] = winning;
+        }
+    }
+
+    // Random mid-game positions that nobody has won yet
+    static ConnectFourGameBoard[] randomPositions(final int count, final Random random)
+    {
+        final ConnectFourGameBoard[] boards = new ConnectFourGameBoard[count];
+        for(int i = 0; i < count; ++i)
+        {
+            final ConnectFourGameBoard board = new ConnectFourGameBoard(7, 6);
+            final int moves = 8 + random.nextInt(24);
+            Player player = Player.PLAYER_1;
+            for(int move = 0; move < moves && !board.boardFull(); ++move)
+            {
+                final List<ConnectFourMove> available = board.availableMovesFor(player);
+                final ConnectFourMove candidate = available.get(random.nextInt(available
+                        .size()));
+                if(board.checkIfWinningMove(candidate))
+                {
+                    continue;
+                }
+                board.addMove(candidate);
+                player = player.opponent();
+            }
+            boards[i] = board;
+        }
+        return boards;
+    }
+}
@@ -0,0 +1,87 @@
+package benchmarks;
+
+import game.Player;
+import ai.AI;
+import ai.DecisionCache;
+import ai.SearchAI;
+import ai.TranspositionTable;
+import controller.GameAutomator;
+import controller.GameResult;
+
+/**
+ * Plays the same round robin tournament (depth limited SearchAIs of every
+ * depth up to the maximum, both colours) several times, with and without a
+ * shared DecisionCache, and reports the time taken along with the cache's
+ * hit rate and memory. A cache smaller than the number of distinct decisions
+ * shows the eviction policy at work. Repeated games that ended differently
+ * from the first round are counted as well.
+ *
+ * Usage: DecisionCacheBenchmark [cache entries] [rounds] [max depth]
+ */
+public final class DecisionCacheBenchmark
+{
+    private static final int TABLE_ENTRIES = 1 << 16;
+
+    public static void main(String args[])
+    {
+        final int entries = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        final int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        final int maxDepth = args.length > 2 ? Integer.parseInt(args[2]) : 7;
+
+        final long uncached = tournament(new GameAutomator(7, 6), rounds, maxDepth);
+        System.out.printf("uncached: %.1f ms%n", uncached / 1e6);
+
+        final DecisionCache cache = new DecisionCache(entries);
+        final long cached = tournament(new GameAutomator(7, 6, cache), rounds, maxDepth);
+        System.out.printf("cached: %.1f ms (%.1fx)%n%s%n", cached / 1e6, (double) uncached
+                / cached, cache);
+    }
+
+    /*
+     * Returns the nanoseconds taken. Transposition tables carry over between
+     * games, so without a cache a repeated game can go differently.
+     */
+    private static long tournament(final GameAutomator automator, final int rounds,
+            final int maxDepth)
+    {
+        final AI[] ones = new AI[maxDepth];
+        final AI[] twos = new AI[maxDepth];
+        for(int depth = 1; depth <= maxDepth; ++depth)
+        {
+            ones[depth - 1] = new SearchAI(Player.PLAYER_1, depth, 0, new TranspositionTable(
+                    TABLE_ENTRIES));
+            twos[depth - 1] = new SearchAI(Player.PLAYER_2, depth, 0, new TranspositionTable(
+                    TABLE_ENTRIES));
+        }
+        final int[] firstRound = new int[maxDepth * maxDepth];
+        int changed = 0;
+        final long start = System.nanoTime();
+        for(int round = 0; round < rounds; ++round)
+        {
+            for(int first = 1; first <= maxDepth; ++first)
+            {
+                for(int second = 1; second <= maxDepth; ++second)
+                {
+                    final GameResult result = automator.playGame(ones[first - 1],
+                            twos[second - 1]);
+                    final int outcome = result.getMoves().size()
+                            * (result.getWinner() == null ? 1 : result.getWinner()
+                                    .ordinal() + 2);
+                    final int game = (first - 1) * maxDepth + second - 1;
+                    if(round == 0)
+                    {
+                        firstRound[game] = outcome;
+                    }
+                    else if(firstRound[game] != outcome)
+                    {
+                        ++changed;
+                    }
+                }
+            }
+        }
+        final long elapsed = System.nanoTime() - start;
+        System.out.printf("%d of %d repeated games ended differently from the first round%n",
+                changed, (rounds - 1) * maxDepth * maxDepth);
+        return elapsed;
+    }
+}
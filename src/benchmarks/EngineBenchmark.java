@@ -0,0 +1,119 @@
+package benchmarks;
+
+import game.Player;
+import games.connectfour.ConnectFourGameBoard;
+import games.connectfour.ConnectFourMove;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import ai.EngineHost;
+import ai.EnginePool;
+import ai.ProcessAI;
+import ai.SearchAI;
+import ai.TranspositionTable;
+
+/**
+ * Measures what asking an AI in another process costs. Workers run
+ * EngineHost with a depth 1 SearchAI, so nearly all of the measured time is
+ * protocol overhead: encoding, pipes, parsing and thread hand-offs.
+ *
+ * Reports the in-process time per move, the round trip of one request at a
+ * time to a single worker, and the throughput of every request in flight at
+ * once over 1 to max workers.
+ *
+ * Usage: EngineBenchmark [requests] [max workers] [rounds]
+ */
+public final class EngineBenchmark
+{
+    public static void main(String args[]) throws IOException
+    {
+        final int count = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        final int maxWorkers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime
+                .getRuntime().availableProcessors();
+        final int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        final ConnectFourGameBoard[] boards = BatchWinBenchmark.randomPositions(count,
+                new Random(42));
+        final Player[] toMove = new Player[count];
+        for(int i = 0; i < count; ++i)
+        {
+            toMove[i] = boards[i].getMoveHistory().size() % 2 == 0 ? Player.PLAYER_1
+                    : Player.PLAYER_2;
+        }
+
+        final SearchAI[] local = { newSearchAI(Player.PLAYER_1), newSearchAI(Player.PLAYER_2) };
+        long expected = 0;
+        for(int round = 0; round < rounds; ++round)
+        {
+            expected = 0;
+            final long start = System.nanoTime();
+            for(int i = 0; i < count; ++i)
+            {
+                expected += local[toMove[i].ordinal()].determineMove(boards[i]).getColumn();
+            }
+            System.out.printf("in-process: %.2f us/move%n", (System.nanoTime() - start) / 1e3
+                    / count);
+        }
+
+        try(final EnginePool pool = new EnginePool(EnginePool.javaCommand(EngineHost.class,
+                "1", "1024"), 1))
+        {
+            final ProcessAI[] remote = newProcessAIs(pool);
+            for(int round = 0; round < rounds; ++round)
+            {
+                long checksum = 0;
+                final long start = System.nanoTime();
+                for(int i = 0; i < count; ++i)
+                {
+                    checksum += remote[toMove[i].ordinal()].determineMove(boards[i]).getColumn();
+                }
+                System.out.printf("sequential, 1 worker: %.2f us/move, checksum %s%n", (System
+                        .nanoTime() - start) / 1e3 / count, checksum == expected ? "matches"
+                        : "DIFFERS");
+            }
+        }
+
+        for(int workers = 1; workers <= maxWorkers; ++workers)
+        {
+            try(final EnginePool pool = new EnginePool(EnginePool.javaCommand(
+                    EngineHost.class, "1", "1024"), workers))
+            {
+                final ProcessAI[] remote = newProcessAIs(pool);
+                final List<CompletableFuture<ConnectFourMove>> futures =
+                        new ArrayList<CompletableFuture<ConnectFourMove>>(count);
+                for(int round = 0; round < rounds; ++round)
+                {
+                    final long start = System.nanoTime();
+                    futures.clear();
+                    for(int i = 0; i < count; ++i)
+                    {
+                        futures.add(remote[toMove[i].ordinal()].determineMoveAsync(boards[i], 0));
+                    }
+                    long checksum = 0;
+                    for(final CompletableFuture<ConnectFourMove> future : futures)
+                    {
+                        checksum += future.join().getColumn();
+                    }
+                    final long nanos = System.nanoTime() - start;
+                    System.out.printf("pipelined, %d worker(s): %.0f moves/s, %.2f us/move, "
+                            + "checksum %s%n", workers, count * 1e9 / nanos, nanos / 1e3 / count,
+                            checksum == expected ? "matches" : "DIFFERS");
+                }
+            }
+        }
+    }
+
+    private static SearchAI newSearchAI(final Player player)
+    {
+        return new SearchAI(player, 1, 0, new TranspositionTable(1024));
+    }
+
+    private static ProcessAI[] newProcessAIs(final EnginePool pool)
+    {
+        return new ProcessAI[] { new ProcessAI(Player.PLAYER_1, pool, 0),
+                new ProcessAI(Player.PLAYER_2, pool, 0) };
+    }
+}
@@ -0,0 +1,114 @@
+package benchmarks;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+import controller.GameServer;
+
+/**
+ * Load test for GameServer over localhost. Opens the requested number of
+ * connections, each of which plays random games as fast as the server
+ * answers, and reports the sustained move rate.
+ * 
+ * Usage: GameServerLoad [connections] [seconds]
+ */
+public final class GameServerLoad
+{
+    public static void main(String args[]) throws Exception
+    {
+        final int connections = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        final int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        try(final GameServer server = new GameServer(0))
+        {
+            server.start();
+            final LongAdder moves = new LongAdder();
+            final LongAdder games = new LongAdder();
+            final CountDownLatch connected = new CountDownLatch(connections);
+            final long end = System.nanoTime() + seconds * 1000000000L;
+
+            final List<Thread> clients = new ArrayList<Thread>(connections);
+            for(int i = 0; i < connections; ++i)
+            {
+                final long seed = i;
+                final Thread client = new Thread(null, () -> playRandomGames(server.getPort(),
+                        seed, end, connected, moves, games), "client-" + i, 128 * 1024);
+                client.setDaemon(true);
+                client.start();
+                clients.add(client);
+            }
+            connected.await();
+            final long start = System.nanoTime();
+            final long movesAtStart = moves.sum();
+            System.out.printf("%d connections open (server reports %d)%n", connections,
+                    server.getActiveConnections());
+
+            for(final Thread client : clients)
+            {
+                client.join();
+            }
+            final double elapsed = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d games, %d moves in %.1f s: %.0f moves/s%n", games.sum(),
+                    moves.sum(), elapsed, (moves.sum() - movesAtStart) / elapsed);
+        }
+    }
+
+    private static void playRandomGames(final int port, final long seed, final long end,
+            final CountDownLatch connected, final LongAdder moves, final LongAdder games)
+    {
+        final Random random = new Random(seed);
+        try(final Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+                final BufferedReader in = new BufferedReader(new InputStreamReader(
+                        socket.getInputStream(), StandardCharsets.US_ASCII));
+                final BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+                        socket.getOutputStream(), StandardCharsets.US_ASCII)))
+        {
+            socket.setTcpNoDelay(true);
+            connected.countDown();
+            while(System.nanoTime() < end)
+            {
+                request(in, out, "NEW");
+                String response = "OK";
+                while(response.equals("OK") || response.startsWith("ERR"))
+                {
+                    response = request(in, out, "MOVE " + random.nextInt(7));
+                    if(!response.startsWith("ERR"))
+                    {
+                        moves.increment();
+                    }
+                }
+                games.increment();
+            }
+            request(in, out, "QUIT");
+        }
+        catch(final IOException e)
+        {
+            System.err.println("Client failed: " + e);
+        }
+    }
+
+    private static String request(final BufferedReader in, final BufferedWriter out,
+            final String command) throws IOException
+    {
+        out.write(command);
+        out.write('\n');
+        out.flush();
+        final String response = in.readLine();
+        if(response == null)
+        {
+            throw new IOException("Server closed the connection");
+        }
+        return response;
+    }
+}
@@ -0,0 +1,93 @@
+package benchmarks;
+
+import games.connectfour.ConnectFourGameBoard;
+import games.connectfour.ConnectFourMove;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import ai.NTupleNetwork;
+
+/**
+ * Replays random games move by move and evaluates the position after every
+ * move with an NTupleNetwork twice: recomputed from scratch, and with an
+ * Accumulator that only updates the tuples containing the new disc. The
+ * checksums of both must match.
+ *
+ * Without a network file an untrained network with random weights is used,
+ * which costs exactly the same to evaluate.
+ *
+ * Usage: NTupleBenchmark [games] [rounds] [network]
+ */
+public final class NTupleBenchmark
+{
+    public static void main(String args[]) throws IOException
+    {
+        final int count = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        final int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        final NTupleNetwork network = args.length > 2 ? NTupleNetwork.load(Paths.get(args[2]))
+                : randomNetwork(new Random(7));
+        final ConnectFourGameBoard[] boards = BatchWinBenchmark.randomPositions(count,
+                new Random(42));
+        final List<List<ConnectFourMove>> games = new ArrayList<List<ConnectFourMove>>(count);
+        long evaluations = 0;
+        for(final ConnectFourGameBoard board : boards)
+        {
+            games.add(board.getMoveHistory());
+            evaluations += board.getMoveHistory().size();
+        }
+        System.out.printf("%s, %d evaluations per round%n", network, evaluations);
+
+        for(int round = 0; round < rounds; ++round)
+        {
+            long fullChecksum = 0;
+            long start = System.nanoTime();
+            for(final List<ConnectFourMove> game : games)
+            {
+                final ConnectFourGameBoard board = new ConnectFourGameBoard(7, 6);
+                for(final ConnectFourMove move : game)
+                {
+                    board.addMove(move);
+                    fullChecksum += network.evaluate(board);
+                }
+            }
+            final long full = System.nanoTime() - start;
+
+            long incrementalChecksum = 0;
+            start = System.nanoTime();
+            for(final List<ConnectFourMove> game : games)
+            {
+                final ConnectFourGameBoard board = new ConnectFourGameBoard(7, 6);
+                final NTupleNetwork.Accumulator accumulator = network.newAccumulator(board);
+                for(final ConnectFourMove move : game)
+                {
+                    board.addMove(move);
+                    final int column = move.getColumn();
+                    accumulator.add(column, board.columnHeight(column) - 1, move.getPlayer());
+                    incrementalChecksum += accumulator.value();
+                }
+            }
+            final long incremental = System.nanoTime() - start;
+
+            System.out.printf("round %d: full %.2fM evals/s, incremental %.2fM evals/s "
+                    + "(%.1fx), checksums %s%n", round, evaluations * 1e3 / full,
+                    evaluations * 1e3 / incremental, (double) full / incremental,
+                    fullChecksum == incrementalChecksum ? "match" : "DIFFER");
+        }
+    }
+
+    private static NTupleNetwork randomNetwork(final Random random)
+    {
+        final int[][] tuples = NTupleNetwork.standardTuples(7, 6);
+        final short[] weights = new short[new NTupleNetwork(7, 6, tuples, null)
+                .getWeightCount()];
+        for(int i = 0; i < weights.length; ++i)
+        {
+            weights[i] = (short) (random.nextInt(201) - 100);
+        }
+        return new NTupleNetwork(7, 6, tuples, weights);
+    }
+}
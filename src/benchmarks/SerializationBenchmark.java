@@ -0,0 +1,63 @@
+package benchmarks;
+
+import games.connectfour.BoardCodec;
+import games.connectfour.ConnectFourGameBoard;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.function.ToLongFunction;
+
+import metrics.Metrics;
+
+/**
+ * Compares the allocation-free board encodings against toString() and
+ * getBoardRepresentation(): nanoseconds and bytes allocated per position.
+ * 
+ * Usage: SerializationBenchmark [positions] [rounds]
+ */
+public final class SerializationBenchmark
+{
+    public static void main(String args[])
+    {
+        final int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        final int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        final ConnectFourGameBoard[] boards = BatchWinBenchmark.randomPositions(1024,
+                new Random(0));
+
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BoardCodec.packedSize(7, 6));
+        final StringBuilder builder = new StringBuilder(64);
+        for(int round = 0; round < rounds; ++round)
+        {
+            System.out.printf("round %d:%n", round);
+            measure("toString()", count, boards, board -> board.toString().length());
+            measure("getBoardRepresentation()", count, boards,
+                    board -> board.getBoardRepresentation().length);
+            measure("writePacked(...)", count, boards, board ->
+            {
+                buffer.clear();
+                return BoardCodec.writePacked(board, buffer);
+            });
+            measure("appendText(...)", count, boards, board ->
+            {
+                builder.setLength(0);
+                return BoardCodec.appendText(board, builder).length();
+            });
+        }
+    }
+
+    private static void measure(final String name, final int count,
+            final ConnectFourGameBoard[] boards, final ToLongFunction<ConnectFourGameBoard> encode)
+    {
+        long checksum = 0;
+        final long allocatedBefore = Metrics.currentThreadAllocatedBytes();
+        final long start = System.nanoTime();
+        for(int i = 0; i < count; ++i)
+        {
+            checksum += encode.applyAsLong(boards[i & (boards.length - 1)]);
+        }
+        final long elapsed = System.nanoTime() - start;
+        final long allocated = Metrics.currentThreadAllocatedBytes() - allocatedBefore;
+        System.out.printf("  %-26s %7.1f ns/position %8.1f bytes/position (%d)%n", name,
+                (double) elapsed / count, (double) allocated / count, checksum);
+    }
+}
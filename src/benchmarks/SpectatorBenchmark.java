@@ -0,0 +1,161 @@
+package benchmarks;
+
+import game.Player;
+import games.connectfour.BoardCodec;
+import games.connectfour.ConnectFourGameBoard;
+import games.connectfour.ConnectFourMove;
+import games.connectfour.LiveBoard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Measures what spectators cost a game thread: random 7x6 games are played
+ * (and taken back move by move) on a plain board, on an unwatched LiveBoard,
+ * and on a LiveBoard that the given number of threads copy in a tight loop.
+ * Every copy is checked for consistency (no floating discs, disc counts one
+ * apart at most), so torn reads would show up as inconsistent snapshots.
+ *
+ * With fewer cores than threads the watched writer also loses CPU time to the
+ * readers, which is not waiting on them.
+ *
+ * Usage: SpectatorBenchmark [readers] [millis per run] [rounds]
+ */
+public final class SpectatorBenchmark
+{
+    private static final int WIDTH = 7;
+    private static final int HEIGHT = 6;
+
+    public static void main(String args[]) throws InterruptedException
+    {
+        final int readers = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        final long millis = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        final int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        for(int round = 0; round < rounds; ++round)
+        {
+            final double plain = movesPerSecond(new ConnectFourGameBoard(WIDTH, HEIGHT), null,
+                    millis);
+            final double unwatched = movesPerSecond(null, new LiveBoard(WIDTH, HEIGHT), millis);
+            final LiveBoard liveBoard = new LiveBoard(WIDTH, HEIGHT);
+            final AtomicBoolean done = new AtomicBoolean();
+            final long[] snapshots = new long[readers];
+            final long[] inconsistent = new long[readers];
+            final List<Thread> threads = new ArrayList<Thread>(readers);
+            for(int i = 0; i < readers; ++i)
+            {
+                final int reader = i;
+                final Thread thread = new Thread(() ->
+                {
+                    final byte[] packed = new byte[BoardCodec.packedSize(WIDTH, HEIGHT)];
+                    while(!done.get())
+                    {
+                        liveBoard.readPacked(packed);
+                        ++snapshots[reader];
+                        if(!consistent(packed))
+                        {
+                            ++inconsistent[reader];
+                        }
+                    }
+                }, "Spectator-" + i);
+                thread.setDaemon(true);
+                threads.add(thread);
+                thread.start();
+            }
+            final double watched = movesPerSecond(null, liveBoard, millis);
+            done.set(true);
+            long totalSnapshots = 0;
+            long totalInconsistent = 0;
+            for(int i = 0; i < readers; ++i)
+            {
+                threads.get(i).join();
+                totalSnapshots += snapshots[i];
+                totalInconsistent += inconsistent[i];
+            }
+
+            System.out.printf("round %d: plain %.2fM moves/s, unwatched %.2fM moves/s, "
+                    + "watched by %d %.2fM moves/s; %.2fM snapshots/s, %d retries, "
+                    + "%d inconsistent%n", round, plain / 1e6, unwatched / 1e6, readers,
+                    watched / 1e6, totalSnapshots * 1e3 / millis / 1e6,
+                    liveBoard.getReadRetries(), totalInconsistent);
+        }
+    }
+
+    // Plays random games on whichever board is not null until the time is up
+    private static double movesPerSecond(final ConnectFourGameBoard gameBoard,
+            final LiveBoard liveBoard, final long millis)
+    {
+        final ConnectFourGameBoard board = gameBoard != null ? gameBoard : liveBoard.getBoard();
+        final Random random = new Random(42);
+        final long end = System.nanoTime() + millis * 1000000L;
+        long moves = 0;
+        while(System.nanoTime() < end)
+        {
+            Player player = Player.PLAYER_1;
+            boolean over = false;
+            while(!over && !board.boardFull())
+            {
+                int column;
+                do
+                {
+                    column = random.nextInt(WIDTH);
+                }
+                while(board.columnHeight(column) == HEIGHT);
+                final ConnectFourMove move = new ConnectFourMove(column, player);
+                over = liveBoard != null ? liveBoard.checkedAddMove(move) : board
+                        .checkedAddMove(move);
+                player = player.opponent();
+                ++moves;
+            }
+            while(board.getMoveCount() > 0)
+            {
+                if(liveBoard != null)
+                {
+                    liveBoard.removeLastMove();
+                }
+                else
+                {
+                    board.removeLastMove();
+                }
+                ++moves;
+            }
+        }
+        return moves * 1e3 / millis;
+    }
+
+    // Gravity holds and PLAYER_1 is never behind or more than one disc ahead
+    private static boolean consistent(final byte[] packed)
+    {
+        int player1 = 0;
+        int player2 = 0;
+        for(int column = 0; column < WIDTH; ++column)
+        {
+            boolean empty = false;
+            for(int row = 0; row < HEIGHT; ++row)
+            {
+                final int space = column * HEIGHT + row;
+                final int code = (packed[2 + (space >>> 2)] >>> ((space & 3) << 1)) & 0x3;
+                if(code == 0)
+                {
+                    empty = true;
+                }
+                else if(empty)
+                {
+                    return false;
+                }
+                else if(code == 1)
+                {
+                    ++player1;
+                }
+                else
+                {
+                    ++player2;
+                }
+            }
+        }
+        final int lead = player1 - player2;
+        return lead == 0 || lead == 1;
+    }
+}
@@ -0,0 +1,96 @@
+package benchmarks;
+
+import java.util.Random;
+
+import controller.MatchStatistics;
+import controller.Sprt;
+
+/**
+ * Compares fixed-length matches with SPRT on simulated games, so that the
+ * games saved and the error rates can be checked without playing any. Each
+ * game is won, drawn or lost at random with the probabilities of a known Elo
+ * difference and draw ratio.
+ *
+ * A fixed-length match passes when its measured Elo is at least halfway
+ * between elo0 and elo1; its default length gives about the same error rates
+ * as SPRT(0, 20, 0.05, 0.05). The SPRT is checked after every game, and gives
+ * up undecided (counted as not passing) after ten times that many games.
+ *
+ * Usage: SprtBenchmark [matches per Elo] [fixed games] [draw ratio]
+ */
+public final class SprtBenchmark
+{
+    private static final double[] ELOS = { -40, -20, -10, 0, 10, 20, 30, 40, 60 };
+
+    public static void main(String args[])
+    {
+        final int matches = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        final int fixedGames = args.length > 1 ? Integer.parseInt(args[1]) : 2300;
+        final double drawRatio = args.length > 2 ? Double.parseDouble(args[2]) : 0.3;
+        final Sprt sprt = new Sprt(0, 20, 0.05, 0.05);
+        final double threshold = (sprt.getElo0() + sprt.getElo1()) / 2;
+        final Random random = new Random(42);
+
+        System.out.printf("%s, %d matches per Elo, %.0f%% draws%n", sprt, matches,
+                drawRatio * 100);
+        System.out.printf("%6s  %12s  %12s  %12s  %12s%n", "Elo", "fixed games", "fixed pass",
+                "sprt games", "sprt pass");
+        long totalFixed = 0;
+        long totalSprt = 0;
+        for(final double elo : ELOS)
+        {
+            final double score = MatchStatistics.score(elo);
+            final double win = score - drawRatio / 2;
+            final double draw = drawRatio;
+
+            int fixedPasses = 0;
+            for(int match = 0; match < matches; ++match)
+            {
+                final MatchStatistics statistics = new MatchStatistics();
+                for(int game = 0; game < fixedGames; ++game)
+                {
+                    play(statistics, random, win, draw);
+                }
+                if(statistics.getElo() >= threshold)
+                {
+                    ++fixedPasses;
+                }
+            }
+
+            int sprtPasses = 0;
+            long sprtGames = 0;
+            for(int match = 0; match < matches; ++match)
+            {
+                final MatchStatistics statistics = new MatchStatistics();
+                Sprt.Decision decision = Sprt.Decision.CONTINUE;
+                while(decision == Sprt.Decision.CONTINUE && statistics.getGames() < 10L
+                        * fixedGames)
+                {
+                    play(statistics, random, win, draw);
+                    decision = sprt.decide(statistics);
+                }
+                sprtGames += statistics.getGames();
+                if(decision == Sprt.Decision.ACCEPT_H1)
+                {
+                    ++sprtPasses;
+                }
+            }
+
+            totalFixed += (long) matches * fixedGames;
+            totalSprt += sprtGames;
+            System.out.printf("%+6.0f  %12d  %11.1f%%  %12.0f  %11.1f%%%n", elo, fixedGames,
+                    fixedPasses * 100.0 / matches, (double) sprtGames / matches, sprtPasses
+                            * 100.0 / matches);
+        }
+        System.out.printf("SPRT played %.1f%% of the fixed-length games%n", totalSprt * 100.0
+                / totalFixed);
+    }
+
+    private static void play(final MatchStatistics statistics, final Random random,
+            final double win, final double draw)
+    {
+        final double roll = random.nextDouble();
+        statistics.add(roll < win ? 1 : 0, roll >= win && roll < win + draw ? 1 : 0, roll
+                >= win + draw ? 1 : 0);
+    }
+}
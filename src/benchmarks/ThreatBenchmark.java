@@ -0,0 +1,120 @@
+package benchmarks;
+
+import game.Player;
+import games.connectfour.BitboardLayout;
+import games.connectfour.ConnectFourGameBoard;
+import games.connectfour.ConnectFourMove;
+
+import java.util.Random;
+
+/**
+ * Compares three ways of finding a position's winning, forced and non-losing
+ * columns: filtering every column with checkIfWinningMove (playing each move
+ * to see what it uncovers), the board's column-set methods, and the raw
+ * BitboardLayout kernels.
+ * 
+ * Usage: ThreatBenchmark [positions] [rounds]
+ */
+public final class ThreatBenchmark
+{
+    public static void main(String args[])
+    {
+        final int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        final int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        final ConnectFourGameBoard[] boards = BatchWinBenchmark.randomPositions(count,
+                new Random(42));
+        final Player[] toMove = new Player[count];
+        final long[] own = new long[count];
+        final long[] other = new long[count];
+        for(int i = 0; i < count; ++i)
+        {
+            toMove[i] = (boards[i].getMoveCount() & 1) == 0 ? Player.PLAYER_1 : Player.PLAYER_2;
+            own[i] = boards[i].getBitboard(toMove[i]);
+            other[i] = boards[i].getBitboard(toMove[i].opponent());
+        }
+        final BitboardLayout layout = boards[0].getBitboardLayout();
+
+        for(int round = 0; round < rounds; ++round)
+        {
+            long checksum = 0;
+            long start = System.nanoTime();
+            for(int i = 0; i < count; ++i)
+            {
+                checksum += filtered(boards[i], toMove[i]);
+            }
+            final long filtered = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for(int i = 0; i < count; ++i)
+            {
+                final ConnectFourGameBoard board = boards[i];
+                checksum -= board.winningColumns(toMove[i]) + board.forcedColumns(toMove[i])
+                        + board.nonLosingColumns(toMove[i]);
+            }
+            final long columnSets = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long spaces = 0;
+            for(int i = 0; i < count; ++i)
+            {
+                spaces += layout.winningMoves(own[i], own[i] | other[i])
+                        + layout.forcedMoves(own[i], other[i])
+                        + layout.nonLosingMoves(own[i], other[i]);
+            }
+            final long kernels = System.nanoTime() - start;
+
+            System.out.printf("round %d: checkIfWinningMove %.1f ns, column sets %.1f ns, "
+                    + "kernels %.1f ns per position (checksum %d/%d)%n", round,
+                    (double) filtered / count, (double) columnSets / count,
+                    (double) kernels / count, checksum, spaces & 0xFF);
+        }
+    }
+
+    // The three sets the way an AI would find them without the generator
+    private static int filtered(final ConnectFourGameBoard board, final Player player)
+    {
+        final Player opponent = player.opponent();
+        int winning = 0;
+        int forced = 0;
+        int playable = 0;
+        for(int column = 0; column < board.getWidth(); ++column)
+        {
+            if(board.columnHeight(column) == board.getHeight())
+            {
+                continue;
+            }
+            playable |= 1 << column;
+            if(board.checkIfWinningMove(new ConnectFourMove(column, player)))
+            {
+                winning |= 1 << column;
+            }
+            if(board.checkIfWinningMove(new ConnectFourMove(column, opponent)))
+            {
+                forced |= 1 << column;
+            }
+        }
+
+        int nonLosing = 0;
+        if(Integer.bitCount(forced) <= 1)
+        {
+            final int candidates = forced != 0 ? forced : playable;
+            for(int column = 0; column < board.getWidth(); ++column)
+            {
+                if((candidates & (1 << column)) == 0)
+                {
+                    continue;
+                }
+                board.addMove(new ConnectFourMove(column, player));
+                final boolean uncovered = board.columnHeight(column) < board.getHeight()
+                        && board.checkIfWinningMove(new ConnectFourMove(column, opponent));
+                board.removeLastMove();
+                if(!uncovered)
+                {
+                    nonLosing |= 1 << column;
+                }
+            }
+        }
+        // Same sign convention as the other two, so a correct run nets to 0
+        return winning + forced + nonLosing;
+    }
+}
@@ -0,0 +1,76 @@
+package benchmarks;
+
+import game.Player;
+import games.connectfour.ConnectFourGameBoard;
+import games.connectfour.ConnectFourMove;
+
+import java.util.List;
+import java.util.Random;
+
+import utils.Validate;
+
+/**
+ * Measures random playouts (the board operations a search hammers) under each
+ * Validate.Level.
+ * 
+ * Usage: ValidationBenchmark [playouts] [rounds]
+ */
+public final class ValidationBenchmark
+{
+    public static void main(String args[])
+    {
+        final int playouts = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        final int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        final Validate.Level original = Validate.getLevel();
+        try
+        {
+            for(int round = 0; round < rounds; ++round)
+            {
+                final StringBuilder line = new StringBuilder("round " + round + ":");
+                for(final Validate.Level level : Validate.Level.values())
+                {
+                    Validate.setLevel(level);
+                    final long start = System.nanoTime();
+                    final long moves = playouts(playouts, new Random(round));
+                    final long elapsed = System.nanoTime() - start;
+                    line.append(String.format(" %s %.2f M moves/s", level, moves * 1e3 / elapsed));
+                }
+                System.out.println(line);
+            }
+        }
+        finally
+        {
+            Validate.setLevel(original);
+        }
+    }
+
+    // Plays random games to the end, undoing every move afterwards
+    private static long playouts(final int count, final Random random)
+    {
+        final ConnectFourGameBoard board = new ConnectFourGameBoard(7, 6);
+        long moves = 0;
+        for(int i = 0; i < count; ++i)
+        {
+            Player player = Player.PLAYER_1;
+            while(!board.boardFull())
+            {
+                final List<ConnectFourMove> available = board.availableMovesFor(player);
+                final ConnectFourMove move = available.get(random.nextInt(available.size()));
+                final boolean won = board.checkIfWinningMove(move);
+                board.addMove(move);
+                ++moves;
+                if(won)
+                {
+                    break;
+                }
+                player = player.opponent();
+            }
+            while(board.getMoveCount() > 0)
+            {
+                board.removeLastMove();
+            }
+        }
+        return moves;
+    }
+}
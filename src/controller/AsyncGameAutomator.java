@@ -0,0 +1,256 @@
+package controller;
+
+import game.Player;
+import games.connectfour.ConnectFourGameBoard;
+import games.connectfour.ConnectFourMove;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import metrics.GameEndEvent;
+import metrics.GameStartEvent;
+import metrics.GameStatistics;
+import metrics.Metrics;
+import ai.AI;
+import ai.AsyncAI;
+import ai.AsyncAIAdapter;
+import utils.Validate;
+
+/**
+ * Plays complete games between two AsyncAIs without ever blocking a thread.
+ * 
+ * Each move is requested from the AI to move and the game continues from the
+ * completion of that request, so a game occupies no thread while an AI is
+ * thinking. The number of games in flight is bounded only by memory; the
+ * threads doing the thinking are whatever the AIs run on (typically a small
+ * pool shared through AsyncAIAdapters).
+ * 
+ * Games are recorded in the process-wide Metrics just like GameAutomator's.
+ */
+public final class AsyncGameAutomator
+{
+    private final int width_;
+    private final int height_;
+    private final long moveTimeMillis_;
+
+    /**
+     * @param width
+     *            Width of the boards to play on
+     * @param height
+     *            Height of the boards to play on
+     * @param moveTimeMillis
+     *            Time budget of every move, 0 for no limit
+     */
+    public AsyncGameAutomator(final int width, final int height, final long moveTimeMillis)
+    {
+        new ConnectFourGameBoard(width, height);
+        Validate.isTrue(moveTimeMillis >= 0, "Move time cannot be negative");
+        width_ = width;
+        height_ = height;
+        moveTimeMillis_ = moveTimeMillis;
+    }
+
+    /**
+     * Starts a game and returns immediately.
+     * 
+     * Cancelling the returned future abandons the game and cancels the move
+     * being thought about.
+     * 
+     * @param first
+     *            AI that moves first
+     * @param second
+     *            AI that moves second, must play for the other Player
+     * @return Future completed with the result of the game, or exceptionally
+     *         if an AI fails or makes an invalid move
+     */
+    public CompletableFuture<GameResult> playGame(final AsyncAI first, final AsyncAI second)
+    {
+        Validate.notNull(first, "Cannot play a game without a first AI");
+        Validate.notNull(second, "Cannot play a game without a second AI");
+        Validate.isTrue(first.getPlayer() != second.getPlayer(),
+                "Both AIs cannot play for the same Player");
+
+        final Game game = new Game(first, second);
+        Metrics.games().gameStarted();
+        final GameStartEvent startEvent = new GameStartEvent();
+        if(startEvent.isEnabled())
+        {
+            startEvent.first = first.toString();
+            startEvent.second = second.toString();
+            startEvent.width = width_;
+            startEvent.height = height_;
+            startEvent.commit();
+        }
+        game.endEvent_.begin();
+
+        game.result_.whenComplete((result, error) ->
+        {
+            game.finish(result);
+            final CompletableFuture<ConnectFourMove> pending = game.pending_;
+            if(game.result_.isCancelled() && pending != null)
+            {
+                pending.cancel(true);
+            }
+        });
+        advance(game);
+        return game.result_;
+    }
+
+    /**
+     * @return Width of the boards played on
+     */
+    public int getWidth()
+    {
+        return width_;
+    }
+
+    /**
+     * @return Height of the boards played on
+     */
+    public int getHeight()
+    {
+        return height_;
+    }
+
+    /*
+     * Requests moves until one has to be waited for. Moves that are already
+     * available are applied in this loop rather than from callbacks, so
+     * instant AIs cannot grow the stack.
+     */
+    private void advance(final Game game)
+    {
+        while(!game.result_.isDone())
+        {
+            final AsyncAI current = game.current_;
+            final long start = System.nanoTime();
+            final CompletableFuture<ConnectFourMove> request;
+            try
+            {
+                request = current.determineMoveAsync(game.board_, moveTimeMillis_);
+            }
+            catch(final RuntimeException e)
+            {
+                game.result_.completeExceptionally(e);
+                return;
+            }
+            game.pending_ = request;
+            if(!request.isDone())
+            {
+                request.whenComplete((move, error) ->
+                {
+                    if(apply(game, current, start, move, error))
+                    {
+                        advance(game);
+                    }
+                });
+                return;
+            }
+
+            final ConnectFourMove move;
+            try
+            {
+                move = request.join();
+            }
+            catch(final RuntimeException e)
+            {
+                apply(game, current, start, null, e);
+                return;
+            }
+            if(!apply(game, current, start, move, null))
+            {
+                return;
+            }
+        }
+    }
+
+    // Plays the move, returns true if the game goes on
+    private static boolean apply(final Game game, final AsyncAI mover, final long start,
+            final ConnectFourMove move, final Throwable error)
+    {
+        game.pending_ = null;
+        if(game.result_.isDone())
+        {
+            return false;
+        }
+        if(error != null)
+        {
+            game.result_.completeExceptionally(error instanceof CompletionException
+                    && error.getCause() != null ? error.getCause() : error);
+            return false;
+        }
+        if(mover instanceof AsyncAIAdapter)
+        {
+            // Allocations happened on another thread, only latency is known
+            final AI ai = ((AsyncAIAdapter) mover).getAI();
+            Metrics.forAI(ai).recordDecision(System.nanoTime() - start, -1,
+                    ai.getLastSearchResult());
+        }
+
+        try
+        {
+            GameAutomator.checkMove(mover, mover.getPlayer(), move, game.board_);
+        }
+        catch(final IllegalArgumentException e)
+        {
+            game.result_.completeExceptionally(e);
+            return false;
+        }
+
+        final boolean won = game.board_.checkedAddMove(move);
+        Metrics.games().moveMade();
+        if(won || game.board_.boardFull())
+        {
+            game.result_.complete(new GameResult(won ? mover.getPlayer() : null, game.board_
+                    .getMoveHistory()));
+            return false;
+        }
+        game.current_ = mover == game.first_ ? game.second_ : game.first_;
+        return true;
+    }
+
+    // State of one game in flight; only touched by the callback of its pending move
+    private final class Game
+    {
+        private final AsyncAI first_;
+        private final AsyncAI second_;
+        private final ConnectFourGameBoard board_;
+        private final CompletableFuture<GameResult> result_;
+        private final GameEndEvent endEvent_;
+
+        private AsyncAI current_;
+        private volatile CompletableFuture<ConnectFourMove> pending_;
+
+        Game(final AsyncAI first, final AsyncAI second)
+        {
+            first_ = first;
+            second_ = second;
+            board_ = new ConnectFourGameBoard(width_, height_);
+            result_ = new CompletableFuture<GameResult>();
+            endEvent_ = new GameEndEvent();
+            current_ = first;
+        }
+
+        // Records the end of the game, null result if it failed or was cancelled
+        void finish(final GameResult result)
+        {
+            final GameStatistics games = Metrics.games();
+            final Player winner = result == null ? null : result.getWinner();
+            if(result == null)
+            {
+                games.gameAbandoned();
+            }
+            else
+            {
+                games.gameFinished(winner);
+            }
+            if(endEvent_.shouldCommit())
+            {
+                endEvent_.first = first_.toString();
+                endEvent_.second = second_.toString();
+                endEvent_.winner = winner == null ? "" : winner.toString();
+                endEvent_.moves = board_.getMoveCount();
+                endEvent_.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package controller;
+
+import game.Player;
+import games.connectfour.LiveBoard;
+
+import java.util.Random;
+
+import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
+
+import view.GameDashboard;
+import ai.AI;
+import ai.SearchAI;
+import ai.TranspositionTable;
+
+/**
+ * Keeps a number of automated games between depth limited SearchAIs running
+ * at once, forever, and watches all of them on a GameDashboard.
+ *
+ * Usage: DashboardController [concurrent games] [max depth] [frames per
+ * second]
+ */
+public final class DashboardController
+{
+    private static final int TABLE_ENTRIES = 1 << 14;
+
+    public static void main(String args[])
+    {
+        final int concurrent = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        final int maxDepth = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+        final int framesPerSecond = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+        final GameDashboard dashboard = new GameDashboard(framesPerSecond);
+        final GameAutomator automator = new GameAutomator(7, 6);
+        for(int i = 0; i < concurrent; ++i)
+        {
+            final long seed = i;
+            final Thread thread = new Thread(() -> playForever(automator, dashboard, maxDepth,
+                    new Random(seed)), "Game-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        SwingUtilities.invokeLater(() ->
+        {
+            final JFrame frame = new JFrame("Connect Four dashboard");
+            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            frame.add(dashboard);
+            frame.pack();
+            frame.setVisible(true);
+            dashboard.start();
+        });
+    }
+
+    private static void playForever(final GameAutomator automator,
+            final GameDashboard dashboard, final int maxDepth, final Random random)
+    {
+        // One pair of AIs per depth, so the process does not keep registering new ones
+        final AI[] ones = new AI[maxDepth];
+        final AI[] twos = new AI[maxDepth];
+        for(int depth = 1; depth <= maxDepth; ++depth)
+        {
+            ones[depth - 1] = new SearchAI(Player.PLAYER_1, depth, 0, new TranspositionTable(
+                    TABLE_ENTRIES));
+            twos[depth - 1] = new SearchAI(Player.PLAYER_2, depth, 0, new TranspositionTable(
+                    TABLE_ENTRIES));
+        }
+        while(true)
+        {
+            final LiveBoard liveBoard = new LiveBoard(automator.getWidth(), automator.getHeight());
+            dashboard.watch(liveBoard);
+            try
+            {
+                automator.playGame(ones[random.nextInt(maxDepth)], twos[random
+                        .nextInt(maxDepth)], liveBoard);
+            }
+            finally
+            {
+                dashboard.finished(liveBoard);
+            }
+        }
+    }
+}
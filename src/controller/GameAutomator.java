@@ -1,7 +1,281 @@
 package controller;
 
+import game.Player;
+import games.connectfour.ConnectFourGameBoard;
+import games.connectfour.ConnectFourMove;
+import games.connectfour.LiveBoard;
+import metrics.AIStatistics;
+import metrics.CacheHitEvent;
+import metrics.DecisionEvent;
+import metrics.GameEndEvent;
+import metrics.GameStartEvent;
+import metrics.GameStatistics;
+import metrics.Metrics;
+import ai.AI;
+import ai.DecisionCache;
+import ai.SearchResult;
+import utils.Validate;
+
+/**
+ * Plays complete games between two AIs without any UI.
+ * 
+ * Every game, move and decision is recorded in the process-wide Metrics, so
+ * long-running automated play can be watched over JMX, and emitted as Flight
+ * Recorder events (disabled unless a recording enables them).
+ * 
+ * Tournaments can share a DecisionCache between automators so that
+ * deterministic AIs only think about each position once.
+ */
 public final class GameAutomator
 {
-    // TODO
+    private final int width_;
+    private final int height_;
+    private final DecisionCache cache_;
+
+    /**
+     * @param width
+     *            Width of the boards to play on
+     * @param height
+     *            Height of the boards to play on
+     */
+    public GameAutomator(final int width, final int height)
+    {
+        this(width, height, null);
+    }
+
+    /**
+     * @param width
+     *            Width of the boards to play on
+     * @param height
+     *            Height of the boards to play on
+     * @param cache
+     *            Cache consulted before asking deterministic AIs for a move,
+     *            null for none
+     */
+    public GameAutomator(final int width, final int height, final DecisionCache cache)
+    {
+        // Fail fast on dimensions the board would reject
+        new ConnectFourGameBoard(width, height);
+        width_ = width;
+        height_ = height;
+        cache_ = cache;
+    }
+
+    /**
+     * Plays a single game to completion.
+     * 
+     * Each AI is handed a copy of the board, so no AI can tamper with the
+     * real game state.
+     * 
+     * @param first
+     *            AI that moves first
+     * @param second
+     *            AI that moves second, must play for the other Player
+     * @return The result of the game
+     * @throws IllegalArgumentException
+     *             if either AI is null, both AIs play for the same Player,
+     *             or an AI makes an invalid move
+     */
+    public GameResult playGame(final AI first, final AI second)
+    {
+        return playGame(first, second, null);
+    }
+
+    /**
+     * Plays a single game to completion on a LiveBoard, so that other threads
+     * (e.g. a GameDashboard) can watch it without slowing it down.
+     * 
+     * @param first
+     *            AI that moves first
+     * @param second
+     *            AI that moves second, must play for the other Player
+     * @param liveBoard
+     *            Empty board of this automator's size to play on, null to
+     *            play on a private board
+     * @return The result of the game
+     * @throws IllegalArgumentException
+     *             if either AI is null, both AIs play for the same Player,
+     *             an AI makes an invalid move, or the board is not empty or
+     *             of the wrong size
+     */
+    public GameResult playGame(final AI first, final AI second, final LiveBoard liveBoard)
+    {
+        Validate.notNull(first, "Cannot play a game without a first AI");
+        Validate.notNull(second, "Cannot play a game without a second AI");
+        Validate.isTrue(first.getPlayer() != second.getPlayer(),
+                "Both AIs cannot play for the same Player");
+        Validate.isTrue(liveBoard == null || (liveBoard.getWidth() == width_
+                && liveBoard.getHeight() == height_ && liveBoard.getBoard().getMoveCount() == 0),
+                "Games must be played on an empty board of the automator's size");
+
+        final GameStatistics games = Metrics.games();
+        final ConnectFourGameBoard gameBoard = liveBoard == null ? new ConnectFourGameBoard(
+                width_, height_) : liveBoard.getBoard();
+        Player winner = null;
+        boolean completed = false;
+        games.gameStarted();
+
+        final GameStartEvent startEvent = new GameStartEvent();
+        if(startEvent.isEnabled())
+        {
+            startEvent.first = first.toString();
+            startEvent.second = second.toString();
+            startEvent.width = width_;
+            startEvent.height = height_;
+            startEvent.commit();
+        }
+        final GameEndEvent endEvent = new GameEndEvent();
+        endEvent.begin();
+
+        try
+        {
+            AI current = first;
+            while(!gameBoard.boardFull())
+            {
+                final ConnectFourMove move = decide(current, gameBoard, cache_);
+                final AI mover = current;
+                checkMove(mover, current.getPlayer(), move, gameBoard);
+                final boolean won = liveBoard == null ? gameBoard.checkedAddMove(move)
+                        : liveBoard.checkedAddMove(move);
+                games.moveMade();
+                if(won)
+                {
+                    winner = current.getPlayer();
+                    break;
+                }
+                current = current == first ? second : first;
+            }
+            completed = true;
+            return new GameResult(winner, gameBoard.getMoveHistory());
+        }
+        finally
+        {
+            if(completed)
+            {
+                games.gameFinished(winner);
+            }
+            else
+            {
+                games.gameAbandoned();
+            }
+            if(endEvent.shouldCommit())
+            {
+                endEvent.first = first.toString();
+                endEvent.second = second.toString();
+                endEvent.winner = winner == null ? "" : winner.toString();
+                endEvent.moves = gameBoard.getMoveCount();
+                endEvent.commit();
+            }
+        }
+    }
+
+    /**
+     * @return Width of the boards played on
+     */
+    public int getWidth()
+    {
+        return width_;
+    }
+
+    /**
+     * @return Height of the boards played on
+     */
+    public int getHeight()
+    {
+        return height_;
+    }
+
+    /**
+     * @return Cache consulted before asking deterministic AIs, null if none
+     */
+    public DecisionCache getDecisionCache()
+    {
+        return cache_;
+    }
+
+    static ConnectFourMove decide(final AI ai, final ConnectFourGameBoard gameBoard)
+    {
+        return decide(ai, gameBoard, null);
+    }
+
+    /*
+     * Vets a move an AI made. AIs are never trusted and board checks may be
+     * switched off for speed, so this checks whatever the validation level.
+     */
+    static void checkMove(final Object mover, final Player player, final ConnectFourMove move,
+            final ConnectFourGameBoard gameBoard)
+    {
+        if(move == null || move.getPlayer() != player)
+        {
+            throw new IllegalArgumentException(String.format(
+                    "%s made a move for the wrong player", mover));
+        }
+        if(!gameBoard.isLegalMove(move))
+        {
+            throw new IllegalArgumentException(String.format(
+                    "%s made an illegal move in column %d", mover, move.getColumn()));
+        }
+    }
+
+    /*
+     * Asks the cache (if any) or the AI for a move (on a copy of the board),
+     * recording latency & allocations for the decision
+     */
+    static ConnectFourMove decide(final AI ai, final ConnectFourGameBoard gameBoard,
+            final DecisionCache cache)
+    {
+        final AIStatistics statistics = Metrics.forAI(ai);
+        final long allocatedBefore = Metrics.currentThreadAllocatedBytes();
+        final long start = System.nanoTime();
+        if(cache != null)
+        {
+            final int column = cache.lookup(ai, gameBoard);
+            if(column != DecisionCache.MISS)
+            {
+                statistics.recordDecision(System.nanoTime() - start, -1, null);
+                final CacheHitEvent hitEvent = new CacheHitEvent();
+                if(hitEvent.isEnabled())
+                {
+                    hitEvent.cache = "decision";
+                    hitEvent.ai = ai.toString();
+                    hitEvent.commit();
+                }
+                return new ConnectFourMove(column, ai.getPlayer());
+            }
+        }
+
+        final ConnectFourGameBoard copy = new ConnectFourGameBoard(gameBoard);
+        final DecisionEvent event = new DecisionEvent();
+        event.begin();
+
+        final ConnectFourMove move = ai.determineMove(copy);
+
+        event.end();
+        final long latency = System.nanoTime() - start;
+        final long allocatedAfter = Metrics.currentThreadAllocatedBytes();
+        final long allocated = allocatedBefore < 0 || allocatedAfter < 0 ? -1 : allocatedAfter
+                - allocatedBefore;
+        final SearchResult result = ai.getLastSearchResult();
+        statistics.recordDecision(latency, allocated, result);
+        if(cache != null)
+        {
+            cache.store(ai, gameBoard, move, latency);
+        }
 
+        if(event.shouldCommit())
+        {
+            event.ai = ai.toString();
+            event.column = move == null ? -1 : move.getColumn();
+            if(result != null)
+            {
+                event.depth = result.getDepth();
+                event.nodes = result.getNodes();
+                event.tableProbes = result.getTableProbes();
+                event.tableHits = result.getTableHits();
+                event.complete = result.isComplete();
+            }
+            event.commit();
+        }
+        return move;
+    }
 }
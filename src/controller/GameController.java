@@ -1,8 +1,8 @@
 package controller;
 
 import game.Player;
-import games.connectfour.ConnectFourGameBoard;
 import games.connectfour.ConnectFourMove;
+import games.connectfour.LiveBoard;
 
 import javax.swing.JFrame;
 import javax.swing.JPanel;
@@ -15,7 +15,7 @@ public final class GameController
     public static void main(String args[])
     {
         // TODO: Move this to testing, just a small playground while I get re-acquainted with swing
-        final ConnectFourGameBoard gameBoard = new ConnectFourGameBoard(6, 7);
+        final LiveBoard gameBoard = new LiveBoard(6, 7);
 
         final GameView gameView = new GameView(gameBoard);
 
@@ -0,0 +1,63 @@
+package controller;
+
+import game.Player;
+import games.connectfour.ConnectFourMove;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import utils.Validate;
+
+/**
+ * Immutable outcome of a single automated game.
+ */
+public final class GameResult
+{
+    private final Player winner_;
+    private final List<ConnectFourMove> moves_;
+
+    /**
+     * @param winner
+     *            Player who won, null for a draw
+     * @param moves
+     *            Non-null, ordered list of every move made in the game
+     */
+    public GameResult(final Player winner, final List<ConnectFourMove> moves)
+    {
+        Validate.notNull(moves, "Cannot create a GameResult without moves");
+        winner_ = winner;
+        moves_ = Collections.unmodifiableList(new ArrayList<ConnectFourMove>(moves));
+    }
+
+    /**
+     * @return Player who won, null for a draw
+     */
+    public Player getWinner()
+    {
+        return winner_;
+    }
+
+    /**
+     * @return True if nobody won
+     */
+    public boolean isDraw()
+    {
+        return winner_ == null;
+    }
+
+    /**
+     * @return Unmodifiable, ordered list of every move made in the game
+     */
+    public List<ConnectFourMove> getMoves()
+    {
+        return moves_;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s after %d moves", isDraw() ? "Draw" : "Player " + winner_
+                + " wins", moves_.size());
+    }
+}
@@ -0,0 +1,236 @@
+package controller;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import utils.Validate;
+
+/**
+ * Headless server hosting any number of concurrent games over TCP.
+ * 
+ * Every connection gets its own thread and owns one game at a time. When the
+ * JVM supports virtual threads (Java 21+) each connection runs on one, so the
+ * blocking reads below park cheaply and thousands of idle connections cost
+ * almost nothing. Older JVMs fall back to daemon platform threads.
+ * 
+ * The protocol is line based ASCII, one response line per command:
+ * 
+ * NEW [width height] -> OK (starts a game, player 1 to move, at most 16x16)
+ * 
+ * MOVE column -> OK | WIN player | DRAW
+ * 
+ * AI [depth] -> MOVE column [WIN player | DRAW] (server plays for the side to move)
+ * 
+ * BOARD -> BOARD rows top to bottom, '/' separated, '.' for empty
+ * 
+ * STATS -> STATS connections n moves n
+ * 
+ * QUIT -> BYE
+ * 
+ * Any invalid command is answered with ERR message. Connections that send a
+ * line longer than 256 characters, or nothing for 10 minutes, are dropped.
+ */
+public final class GameServer implements Closeable
+{
+    static final int DEFAULT_WIDTH = 7;
+    static final int DEFAULT_HEIGHT = 6;
+    static final String BYE = "BYE";
+
+    private static final int BACKLOG = 4096;
+    // Pause after a failed accept, doubled while they keep failing
+    private static final long MIN_ACCEPT_BACKOFF_MILLIS = 10;
+    private static final long MAX_ACCEPT_BACKOFF_MILLIS = 1000;
+
+    private final int requestedPort_;
+    private final ThreadFactory connectionThreads_;
+    private final AtomicInteger activeConnections_ = new AtomicInteger();
+    private final LongAdder totalConnections_ = new LongAdder();
+    private final LongAdder moves_ = new LongAdder();
+
+    private volatile ServerSocket serverSocket_;
+
+    /**
+     * @param port
+     *            Port to listen on, 0 to pick any free port
+     */
+    public GameServer(final int port)
+    {
+        Validate.inOpenInterval(port, 0, 65535);
+        requestedPort_ = port;
+        connectionThreads_ = connectionThreadFactory();
+    }
+
+    /**
+     * Binds the server socket and starts accepting connections in the
+     * background.
+     * 
+     * @throws IOException
+     *             if the port cannot be bound
+     */
+    public void start() throws IOException
+    {
+        Validate.isTrue(serverSocket_ == null, "GameServer has already been started");
+        final ServerSocket serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), requestedPort_),
+                BACKLOG);
+        serverSocket_ = serverSocket;
+
+        final Thread acceptor = new Thread(this::acceptConnections, "GameServer-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * @return The port the server is listening on
+     */
+    public int getPort()
+    {
+        Validate.notNull(serverSocket_, "GameServer has not been started");
+        return serverSocket_.getLocalPort();
+    }
+
+    /**
+     * @return Number of currently open connections
+     */
+    public int getActiveConnections()
+    {
+        return activeConnections_.get();
+    }
+
+    /**
+     * @return Number of connections accepted since start
+     */
+    public long getTotalConnections()
+    {
+        return totalConnections_.sum();
+    }
+
+    /**
+     * @return Number of moves played across every game
+     */
+    public long getMoves()
+    {
+        return moves_.sum();
+    }
+
+    /**
+     * Stops accepting connections. Open connections run until their clients
+     * disconnect.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        final ServerSocket serverSocket = serverSocket_;
+        if(serverSocket != null)
+        {
+            serverSocket.close();
+        }
+    }
+
+    void moveMade()
+    {
+        moves_.increment();
+    }
+
+    void sessionClosed()
+    {
+        activeConnections_.decrementAndGet();
+    }
+
+    String statsLine()
+    {
+        return String.format("STATS connections %d moves %d", getActiveConnections(), getMoves());
+    }
+
+    private void acceptConnections()
+    {
+        final ServerSocket serverSocket = serverSocket_;
+        long backoff = MIN_ACCEPT_BACKOFF_MILLIS;
+        while(!serverSocket.isClosed())
+        {
+            try
+            {
+                final Socket socket = serverSocket.accept();
+                backoff = MIN_ACCEPT_BACKOFF_MILLIS;
+                socket.setTcpNoDelay(true);
+                activeConnections_.incrementAndGet();
+                totalConnections_.increment();
+                connectionThreads_.newThread(new GameSession(this, socket)).start();
+            }
+            catch(final IOException e)
+            {
+                if(serverSocket.isClosed())
+                {
+                    break;
+                }
+                /*
+                 * Failures such as running out of file descriptors persist, so
+                 * wait for connections to close instead of spinning.
+                 */
+                System.err.println("GameServer: accept failed, retrying in " + backoff
+                        + " ms: " + e);
+                try
+                {
+                    Thread.sleep(backoff);
+                }
+                catch(final InterruptedException interrupted)
+                {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                backoff = Math.min(2 * backoff, MAX_ACCEPT_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    /*
+     * Virtual threads when the runtime has them (looked up reflectively so
+     * this still compiles & runs on older JDKs), platform threads otherwise.
+     */
+    private static ThreadFactory connectionThreadFactory()
+    {
+        try
+        {
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            final Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            final Method name = builderType.getMethod("name", String.class, long.class);
+            final Object namedBuilder = name.invoke(builder, "GameSession-", 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(namedBuilder);
+        }
+        catch(final ReflectiveOperationException e)
+        {
+            final AtomicInteger count = new AtomicInteger();
+            return runnable ->
+            {
+                final Thread thread = new Thread(null, runnable, "GameSession-"
+                        + count.getAndIncrement(), 256 * 1024);
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+
+    /**
+     * Runs a GameServer until the process is killed.
+     * 
+     * @param args
+     *            Optional port (defaults to 4004)
+     */
+    public static void main(String args[]) throws Exception
+    {
+        final int port = args.length > 0 ? Integer.parseInt(args[0]) : 4004;
+        final GameServer server = new GameServer(port);
+        server.start();
+        System.out.println("GameServer listening on " + server.getPort());
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,277 @@
+package controller;
+
+import game.Player;
+import games.connectfour.BoardCodec;
+import games.connectfour.ConnectFourGameBoard;
+import games.connectfour.ConnectFourMove;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+
+import metrics.GameStatistics;
+import metrics.Metrics;
+import ai.SearchAI;
+import ai.TranspositionTable;
+
+/**
+ * A single client connection to the GameServer. Each session owns at most one
+ * game at a time and is driven entirely by the client's commands, see
+ * GameServer for the protocol.
+ */
+final class GameSession implements Runnable
+{
+    // Server AIs share the machine with thousands of games, so keep them small
+    private static final int AI_TABLE_ENTRIES = 1 << 12;
+    private static final int MAX_AI_DEPTH = 12;
+    // Clients are untrusted, so they cannot have the server allocate huge boards
+    private static final int MAX_BOARD_SIDE = 16;
+    // Nor have it buffer endless lines, or keep an idle session forever
+    private static final int MAX_LINE_LENGTH = 256;
+    private static final int IDLE_TIMEOUT_MILLIS = 10 * 60 * 1000;
+
+    private final GameServer server_;
+    private final Socket socket_;
+
+    private ConnectFourGameBoard gameBoard_;
+    private Player toMove_;
+    private boolean gameOver_;
+    private final Map<Player, SearchAI> ais_ = new EnumMap<Player, SearchAI>(Player.class);
+
+    GameSession(final GameServer server, final Socket socket)
+    {
+        server_ = server;
+        socket_ = socket;
+    }
+
+    @Override
+    public void run()
+    {
+        try(final Socket socket = socket_;
+                final BufferedReader in = new BufferedReader(new InputStreamReader(
+                        socket.getInputStream(), StandardCharsets.US_ASCII));
+                final BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+                        socket.getOutputStream(), StandardCharsets.US_ASCII)))
+        {
+            socket.setSoTimeout(IDLE_TIMEOUT_MILLIS);
+            final StringBuilder buffer = new StringBuilder();
+            String line;
+            while((line = readLine(in, buffer)) != null)
+            {
+                final String response = handle(line.trim());
+                out.write(response);
+                out.write('\n');
+                out.flush();
+                if(GameServer.BYE.equals(response))
+                {
+                    break;
+                }
+            }
+        }
+        catch(final IOException e)
+        {
+            // Client went away, idled or sent garbage, nothing to report back to
+        }
+        finally
+        {
+            abandonGame();
+            server_.sessionClosed();
+        }
+    }
+
+    // Like BufferedReader.readLine(), but fails on lines that are too long
+    private static String readLine(final BufferedReader in, final StringBuilder buffer)
+            throws IOException
+    {
+        buffer.setLength(0);
+        int c;
+        while((c = in.read()) != '\n')
+        {
+            if(c < 0)
+            {
+                return buffer.length() == 0 ? null : buffer.toString();
+            }
+            if(buffer.length() == MAX_LINE_LENGTH)
+            {
+                throw new IOException("Line longer than " + MAX_LINE_LENGTH + " characters");
+            }
+            buffer.append((char) c);
+        }
+        return buffer.toString();
+    }
+
+    // Runs a single command, returning the response line
+    String handle(final String line)
+    {
+        final String[] tokens = line.split("\\s+");
+        try
+        {
+            switch(tokens[0].toUpperCase())
+            {
+            case "NEW":
+                return newGame(tokens);
+            case "MOVE":
+                return move(tokens);
+            case "AI":
+                return aiMove(tokens);
+            case "BOARD":
+                requireGame();
+                return "BOARD " + boardText();
+            case "STATS":
+                return server_.statsLine();
+            case "QUIT":
+                return GameServer.BYE;
+            default:
+                return "ERR Unknown command: " + tokens[0];
+            }
+        }
+        catch(final IllegalArgumentException e)
+        {
+            return "ERR " + e.getMessage();
+        }
+    }
+
+    private String newGame(final String[] tokens)
+    {
+        final int width = tokens.length > 1 ? parse(tokens[1]) : GameServer.DEFAULT_WIDTH;
+        final int height = tokens.length > 2 ? parse(tokens[2]) : GameServer.DEFAULT_HEIGHT;
+        if(width > MAX_BOARD_SIDE || height > MAX_BOARD_SIDE)
+        {
+            throw new IllegalArgumentException("Boards can be at most " + MAX_BOARD_SIDE + "x"
+                    + MAX_BOARD_SIDE);
+        }
+        final ConnectFourGameBoard gameBoard = new ConnectFourGameBoard(width, height);
+        abandonGame();
+        gameBoard_ = gameBoard;
+        toMove_ = Player.PLAYER_1;
+        gameOver_ = false;
+        ais_.clear();
+        Metrics.games().gameStarted();
+        return "OK";
+    }
+
+    private String move(final String[] tokens)
+    {
+        requireGame();
+        if(tokens.length < 2)
+        {
+            throw new IllegalArgumentException("MOVE requires a column");
+        }
+        final ConnectFourMove move = new ConnectFourMove(parse(tokens[1]), toMove_);
+        // Checked whatever the validation level, clients are never trusted
+        if(!gameBoard_.isLegalMove(move))
+        {
+            throw new IllegalArgumentException(String.format("Column %d cannot be played",
+                    move.getColumn()));
+        }
+        return play(move);
+    }
+
+    private String aiMove(final String[] tokens)
+    {
+        requireGame();
+        final int depth = tokens.length > 1 ? parse(tokens[1]) : 6;
+        if(depth < 1 || depth > MAX_AI_DEPTH)
+        {
+            throw new IllegalArgumentException("AI depth must be within [1, " + MAX_AI_DEPTH + "]");
+        }
+
+        SearchAI ai = ais_.get(toMove_);
+        if(ai == null || ai.getMaxDepth() != depth)
+        {
+            Metrics.unregister(ai);
+            ai = new SearchAI(toMove_, depth, 0, new TranspositionTable(AI_TABLE_ENTRIES));
+            ais_.put(toMove_, ai);
+        }
+        final ConnectFourMove move = GameAutomator.decide(ai, gameBoard_);
+        final String outcome = play(move);
+        return "MOVE " + move.getColumn() + ("OK".equals(outcome) ? "" : " " + outcome);
+    }
+
+    // Applies a move for the player to move, returning OK, WIN <player> or DRAW
+    private String play(final ConnectFourMove move)
+    {
+        final boolean won = gameBoard_.checkedAddMove(move);
+        server_.moveMade();
+        if(won)
+        {
+            endGame(move.getPlayer());
+            return "WIN " + move.getPlayer();
+        }
+        if(gameBoard_.boardFull())
+        {
+            endGame(null);
+            return "DRAW";
+        }
+        toMove_ = toMove_.opponent();
+        return "OK";
+    }
+
+    private void endGame(final Player winner)
+    {
+        if(gameBoard_ != null && !gameOver_)
+        {
+            gameOver_ = true;
+            final GameStatistics games = Metrics.games();
+            games.gameFinished(winner);
+            releaseAIs();
+        }
+    }
+
+    // Ends a game still in progress without a result
+    private void abandonGame()
+    {
+        if(gameBoard_ != null && !gameOver_)
+        {
+            gameOver_ = true;
+            Metrics.games().gameAbandoned();
+            releaseAIs();
+        }
+    }
+
+    private void releaseAIs()
+    {
+        for(final SearchAI ai : ais_.values())
+        {
+            Metrics.unregister(ai);
+        }
+        ais_.clear();
+    }
+
+    private void requireGame()
+    {
+        if(gameBoard_ == null)
+        {
+            throw new IllegalArgumentException("No game, send NEW first");
+        }
+        if(gameOver_)
+        {
+            throw new IllegalArgumentException("Game is over, send NEW to play again");
+        }
+    }
+
+    // Rows from top to bottom separated by '/', '.' for an empty space
+    private String boardText()
+    {
+        return BoardCodec.appendText(gameBoard_, new StringBuilder(gameBoard_.getWidth()
+                * (gameBoard_.getHeight() + 1))).toString();
+    }
+
+    private static int parse(final String token)
+    {
+        try
+        {
+            return Integer.parseInt(token);
+        }
+        catch(final NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Not a number: " + token);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package controller;
+
+import utils.Validate;
+
+/**
+ * Wins, draws and losses of one side of a match, with the Elo difference
+ * they imply. Results can be added at any time and every figure is computed
+ * from the running totals, so the rating is always up to date. Thread-safe.
+ *
+ * Confidence intervals come from the trinomial (win/draw/loss) variance of
+ * the per-game score, mapped through the logistic Elo curve.
+ */
+public final class MatchStatistics
+{
+    // Two-sided 95% quantile of the standard normal distribution
+    private static final double Z_95 = 1.959963984540054;
+
+    // Keeps the likelihood ratio finite while nearly every game is drawn
+    private static final double MIN_VARIANCE = 0.01;
+
+    /*
+     * Win, draw and loss added to the counts when estimating the variance for
+     * the likelihood ratio. Without them a short run of equal results looks
+     * nearly certain and stops matches far too early.
+     */
+    private static final double PRIOR_GAMES = 1;
+
+    private long wins_;
+    private long draws_;
+    private long losses_;
+
+    /**
+     * @param wins
+     *            Games won
+     * @param draws
+     *            Games drawn
+     * @param losses
+     *            Games lost
+     */
+    public synchronized void add(final long wins, final long draws, final long losses)
+    {
+        Validate.isTrue(wins >= 0 && draws >= 0 && losses >= 0, "Counts cannot be negative");
+        wins_ += wins;
+        draws_ += draws;
+        losses_ += losses;
+    }
+
+    /**
+     * @return Games won
+     */
+    public synchronized long getWins()
+    {
+        return wins_;
+    }
+
+    /**
+     * @return Games drawn
+     */
+    public synchronized long getDraws()
+    {
+        return draws_;
+    }
+
+    /**
+     * @return Games lost
+     */
+    public synchronized long getLosses()
+    {
+        return losses_;
+    }
+
+    /**
+     * @return Games played
+     */
+    public synchronized long getGames()
+    {
+        return wins_ + draws_ + losses_;
+    }
+
+    /**
+     * @return Points per game (a win is 1, a draw 1/2), 1/2 before any game
+     */
+    public synchronized double getScore()
+    {
+        final long games = getGames();
+        return games == 0 ? 0.5 : (wins_ + draws_ / 2.0) / games;
+    }
+
+    /**
+     * @return Elo difference the score implies, infinite after nothing but
+     *         wins (or losses)
+     */
+    public double getElo()
+    {
+        return elo(getScore());
+    }
+
+    /**
+     * @return Lower end of the 95% confidence interval of getElo()
+     */
+    public synchronized double getEloLower()
+    {
+        return elo(getScore() - Z_95 * standardError());
+    }
+
+    /**
+     * @return Upper end of the 95% confidence interval of getElo()
+     */
+    public synchronized double getEloUpper()
+    {
+        return elo(getScore() + Z_95 * standardError());
+    }
+
+    /**
+     * @return Likelihood of superiority: probability that this side is the
+     *         stronger one, from wins and losses (draws carry no
+     *         information)
+     */
+    public synchronized double getLikelihoodOfSuperiority()
+    {
+        final long decisive = wins_ + losses_;
+        return decisive == 0 ? 0.5 : normalCdf((wins_ - losses_) / Math.sqrt(decisive));
+    }
+
+    /**
+     * Log-likelihood ratio of "this side is elo1 stronger" against "this side
+     * is elo0 stronger", in the normal approximation of the generalized SPRT.
+     *
+     * @param elo0
+     *            Elo difference of the null hypothesis
+     * @param elo1
+     *            Elo difference of the alternative hypothesis
+     * @return The log-likelihood ratio, 0 before any game
+     */
+    public synchronized double getLogLikelihoodRatio(final double elo0, final double elo1)
+    {
+        final long games = getGames();
+        if(games == 0)
+        {
+            return 0;
+        }
+        final double score0 = score(elo0);
+        final double score1 = score(elo1);
+        final double variance = Math.max(MIN_VARIANCE, variance(wins_ + PRIOR_GAMES, draws_
+                + PRIOR_GAMES, losses_ + PRIOR_GAMES));
+        return games * (score1 - score0) * (2 * getScore() - score0 - score1) / (2 * variance);
+    }
+
+    /**
+     * @param elo
+     *            Elo difference
+     * @return Expected points per game of the side that is elo stronger
+     */
+    public static double score(final double elo)
+    {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    /**
+     * @param score
+     *            Points per game
+     * @return Elo difference that makes score the expected points per game,
+     *         infinite for scores of 0 or 1 (or beyond)
+     */
+    public static double elo(final double score)
+    {
+        if(score <= 0)
+        {
+            return Double.NEGATIVE_INFINITY;
+        }
+        if(score >= 1)
+        {
+            return Double.POSITIVE_INFINITY;
+        }
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    // Variance of the score of a single game
+    private static double variance(final double wins, final double draws, final double losses)
+    {
+        final double games = wins + draws + losses;
+        if(games == 0)
+        {
+            return 0;
+        }
+        final double score = (wins + draws / 2) / games;
+        return (wins * (1 - score) * (1 - score) + draws * (0.5 - score) * (0.5 - score)
+                + losses * score * score) / games;
+    }
+
+    private double standardError()
+    {
+        final long games = getGames();
+        return games == 0 ? Double.POSITIVE_INFINITY : Math.sqrt(variance(wins_, draws_,
+                losses_) / games);
+    }
+
+    // Abramowitz and Stegun 7.1.26, good to about 1e-7
+    private static double normalCdf(final double x)
+    {
+        final double t = 1 / (1 + 0.3275911 * Math.abs(x) / Math.sqrt(2));
+        final double erfc = t * (0.254829592 + t * (-0.284496736 + t * (1.421413741 + t
+                * (-1.453152027 + t * 1.061405429)))) * Math.exp(-x * x / 2);
+        return x >= 0 ? 1 - erfc / 2 : erfc / 2;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return String.format("+%d =%d -%d, %.1f Elo [%.1f, %.1f], LOS %.1f%%", wins_, draws_,
+                losses_, getElo(), getEloLower(), getEloUpper(),
+                getLikelihoodOfSuperiority() * 100);
+    }
+}
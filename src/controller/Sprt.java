@@ -0,0 +1,120 @@
+package controller;
+
+import utils.Validate;
+
+/**
+ * Sequential probability ratio test between two Elo differences: checked
+ * after every batch of results, it stops a match as soon as the results
+ * favour one hypothesis strongly enough, instead of after a fixed number of
+ * games. On average this takes far fewer games than a fixed-length match
+ * with the same error rates, and the fewer the clearer the match.
+ *
+ * The null hypothesis H0 is "the side is elo0 stronger", the alternative H1
+ * "the side is elo1 stronger". alpha is the chance of accepting H1 when H0
+ * holds, beta of accepting H0 when H1 holds. Differences between elo0 and
+ * elo1 take the longest to decide and may go either way.
+ */
+public final class Sprt
+{
+    /**
+     * State of a match under the test
+     */
+    public static enum Decision
+    {
+        /**
+         * Keep playing
+         */
+        CONTINUE,
+        /**
+         * The side is at most elo0 stronger
+         */
+        ACCEPT_H0,
+        /**
+         * The side is at least elo1 stronger
+         */
+        ACCEPT_H1
+    }
+
+    private final double elo0_;
+    private final double elo1_;
+    private final double alpha_;
+    private final double beta_;
+    private final double lowerBound_;
+    private final double upperBound_;
+
+    /**
+     * @param elo0
+     *            Elo difference of the null hypothesis
+     * @param elo1
+     *            Elo difference of the alternative hypothesis, greater than
+     *            elo0
+     * @param alpha
+     *            False positive rate, within (0, 1)
+     * @param beta
+     *            False negative rate, within (0, 1)
+     */
+    public Sprt(final double elo0, final double elo1, final double alpha, final double beta)
+    {
+        Validate.isTrue(elo1 > elo0, "elo1 must be greater than elo0");
+        Validate.isTrue(alpha > 0 && alpha < 1, "alpha must be within (0, 1)");
+        Validate.isTrue(beta > 0 && beta < 1, "beta must be within (0, 1)");
+        elo0_ = elo0;
+        elo1_ = elo1;
+        alpha_ = alpha;
+        beta_ = beta;
+        lowerBound_ = Math.log(beta / (1 - alpha));
+        upperBound_ = Math.log((1 - beta) / alpha);
+    }
+
+    /**
+     * @param match
+     *            Non-null results of the side under test
+     * @return Whether the match is decided, and which way
+     */
+    public Decision decide(final MatchStatistics match)
+    {
+        Validate.notNull(match, "Cannot decide a null match");
+        final double ratio = match.getLogLikelihoodRatio(elo0_, elo1_);
+        return ratio <= lowerBound_ ? Decision.ACCEPT_H0 : ratio >= upperBound_
+                ? Decision.ACCEPT_H1 : Decision.CONTINUE;
+    }
+
+    /**
+     * @return Log-likelihood ratio at or below which H0 is accepted
+     */
+    public double getLowerBound()
+    {
+        return lowerBound_;
+    }
+
+    /**
+     * @return Log-likelihood ratio at or above which H1 is accepted
+     */
+    public double getUpperBound()
+    {
+        return upperBound_;
+    }
+
+    /**
+     * @return Elo difference of the null hypothesis
+     */
+    public double getElo0()
+    {
+        return elo0_;
+    }
+
+    /**
+     * @return Elo difference of the alternative hypothesis
+     */
+    public double getElo1()
+    {
+        return elo1_;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("SPRT(%.1f, %.1f) alpha %.3f beta %.3f", elo0_, elo1_, alpha_,
+                beta_);
+    }
+}
@@ -0,0 +1,520 @@
+package controller;
+
+import game.Player;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import ai.EnginePool;
+import utils.Validate;
+
+/**
+ * Runs a round robin tournament (every contestant against every other, both
+ * colours) on worker JVMs, so that garbage collection and JIT compilation in
+ * one worker never stall the others, and the games scale with the cores
+ * rather than with one heap.
+ *
+ * The tournament is split into shards of a few games between two
+ * contestants. Every worker is a TournamentWorker process fed over its
+ * stdin/stdout; each gets a couple of shards ahead so it never waits for the
+ * coordinator, and takes the next shard from a shared queue as soon as one
+ * is done. Results are merged into one TournamentStandings as they come in.
+ * A worker that dies has its unfinished shards requeued and is started
+ * again.
+ *
+ * Game seeds depend only on the pairing and the game's number within it, so
+ * the standings are the same for any number of workers or shard size.
+ *
+ * With an Sprt, a pairing (both colours) stops as soon as the test decides
+ * it: its remaining shards are skipped rather than played. Shards are handed
+ * out a round of pairings at a time so that every pairing's results build up
+ * together. Which shards still get played then depends on timing, so the
+ * standings can vary from run to run.
+ */
+public final class TournamentCoordinator
+{
+    private static final int SHARDS_IN_FLIGHT = 2;
+    private static final int MAX_RESTARTS = 3;
+    private static final long IDLE_WAIT_MILLIS = 10;
+    private static final long QUIT_WAIT_MILLIS = 1000;
+
+    private final List<String> contestants_;
+    private final int gamesPerPairing_;
+    private final int shardGames_;
+    private final int opening_;
+    private final long seed_;
+    private final int width_;
+    private final int height_;
+
+    private volatile long startupNanos_;
+    private volatile long elapsedNanos_;
+    private volatile int restarts_;
+    private volatile long skippedGames_;
+
+    /**
+     * @param contestants
+     *            At least two contestant descriptions (see TournamentWorker)
+     * @param gamesPerPairing
+     *            Games each contestant plays first against each other one
+     * @param shardGames
+     *            Games per shard
+     * @param opening
+     *            Random moves at the start of every game
+     * @param seed
+     *            Seed of the random openings
+     * @param width
+     *            Width of the boards to play on
+     * @param height
+     *            Height of the boards to play on
+     * @throws IllegalArgumentException
+     *             if a contestant description is invalid
+     */
+    public TournamentCoordinator(final List<String> contestants, final int gamesPerPairing,
+            final int shardGames, final int opening, final long seed, final int width,
+            final int height)
+    {
+        Validate.notNull(contestants, "Cannot run a tournament with null contestants");
+        Validate.isTrue(contestants.size() >= 2, "A tournament needs at least two contestants");
+        Validate.isTrue(gamesPerPairing > 0, "Every pairing must play at least one game");
+        Validate.isTrue(shardGames > 0, "Every shard must have at least one game");
+        Validate.isTrue(opening >= 0, "Openings cannot be negative");
+        // Fail fast on anything the workers would reject
+        new GameAutomator(width, height);
+        for(final String contestant : contestants)
+        {
+            TournamentWorker.contestant(contestant, Player.PLAYER_1);
+        }
+        contestants_ = Collections.unmodifiableList(new ArrayList<String>(contestants));
+        gamesPerPairing_ = gamesPerPairing;
+        shardGames_ = shardGames;
+        opening_ = opening;
+        seed_ = seed;
+        width_ = width;
+        height_ = height;
+    }
+
+    /**
+     * Plays the whole tournament.
+     *
+     * @param workers
+     *            Number of worker JVMs
+     * @return Standings over every game
+     * @throws IOException
+     *             if a worker cannot be started
+     * @throws IllegalStateException
+     *             if a shard fails, or a worker keeps dying
+     */
+    public TournamentStandings run(final int workers) throws IOException, InterruptedException
+    {
+        return run(workers, null);
+    }
+
+    /**
+     * Plays the tournament, stopping every pairing once the test decides it.
+     *
+     * @param workers
+     *            Number of worker JVMs
+     * @param sprt
+     *            Test applied to every pairing, from the point of view of
+     *            the contestant listed first. Null to play every game.
+     * @return Standings over every game played
+     * @throws IOException
+     *             if a worker cannot be started
+     * @throws IllegalStateException
+     *             if a shard fails, or a worker keeps dying
+     */
+    public TournamentStandings run(final int workers, final Sprt sprt) throws IOException,
+            InterruptedException
+    {
+        Validate.isTrue(workers > 0, "Cannot run a tournament with <= 0 workers");
+        final List<Shard> shards = shards();
+        final Queue<Shard> queue = new ConcurrentLinkedQueue<Shard>(shards);
+        final AtomicInteger remaining = new AtomicInteger(shards.size());
+        final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+        final AtomicInteger restarts = new AtomicInteger();
+        final LongAdder skipped = new LongAdder();
+        final TournamentStandings standings = new TournamentStandings(contestants_);
+
+        final long startupStart = System.nanoTime();
+        final List<Worker> started = new ArrayList<Worker>(workers);
+        final List<Thread> threads = new ArrayList<Thread>(workers);
+        try
+        {
+            for(int i = 0; i < workers; ++i)
+            {
+                started.add(new Worker(command()));
+            }
+            startupNanos_ = System.nanoTime() - startupStart;
+
+            final long start = System.nanoTime();
+            for(int i = 0; i < workers; ++i)
+            {
+                final int index = i;
+                final Thread thread = new Thread(() ->
+                {
+                    try
+                    {
+                        serve(started, index, queue, remaining, failure, restarts, standings,
+                                sprt, skipped);
+                    }
+                    catch(final RuntimeException e)
+                    {
+                        failure.compareAndSet(null, e);
+                    }
+                }, "Tournament-" + i);
+                thread.setDaemon(true);
+                threads.add(thread);
+                thread.start();
+            }
+            for(final Thread thread : threads)
+            {
+                thread.join();
+            }
+            elapsedNanos_ = System.nanoTime() - start;
+            restarts_ = restarts.get();
+            skippedGames_ = skipped.sum();
+        }
+        finally
+        {
+            for(final Worker worker : started)
+            {
+                worker.close();
+            }
+        }
+        if(failure.get() != null)
+        {
+            throw failure.get();
+        }
+        return standings;
+    }
+
+    /**
+     * @return Number of shards the tournament is split into
+     */
+    public int getShardCount()
+    {
+        return shards().size();
+    }
+
+    /**
+     * @return Number of games in the tournament
+     */
+    public long getGameCount()
+    {
+        return (long) contestants_.size() * (contestants_.size() - 1) * gamesPerPairing_;
+    }
+
+    /**
+     * @return Time the last run() took to start its workers
+     */
+    public long getStartupNanos()
+    {
+        return startupNanos_;
+    }
+
+    /**
+     * @return Time the last run() took to play every game, once the workers
+     *         were ready
+     */
+    public long getElapsedNanos()
+    {
+        return elapsedNanos_;
+    }
+
+    /**
+     * @return Number of games the last run() skipped because their pairing
+     *         was already decided
+     */
+    public long getSkippedGames()
+    {
+        return skippedGames_;
+    }
+
+    /**
+     * @return Number of workers the last run() had to start again
+     */
+    public int getRestarts()
+    {
+        return restarts_;
+    }
+
+    // Feeds one worker until every shard is done, replacing it when it dies
+    private void serve(final List<Worker> workers, final int index, final Queue<Shard> queue,
+            final AtomicInteger remaining, final AtomicReference<RuntimeException> failure,
+            final AtomicInteger restarts, final TournamentStandings standings,
+            final Sprt sprt, final LongAdder skipped)
+    {
+        final Deque<Shard> outstanding = new ArrayDeque<Shard>(SHARDS_IN_FLIGHT);
+        while(remaining.get() > 0 && failure.get() == null)
+        {
+            Worker worker = workers.get(index);
+            try
+            {
+                Shard shard;
+                while(outstanding.size() < SHARDS_IN_FLIGHT && (shard = queue.poll()) != null)
+                {
+                    if(isDecided(shard, standings, sprt))
+                    {
+                        skipped.add(shard.games_);
+                        remaining.decrementAndGet();
+                        continue;
+                    }
+                    outstanding.add(shard);
+                    worker.send(shard.command());
+                }
+                if(outstanding.isEmpty())
+                {
+                    // Shards of a dying worker may still come back to the queue
+                    Thread.sleep(IDLE_WAIT_MILLIS);
+                    continue;
+                }
+
+                final String line = worker.readLine();
+                if(line == null)
+                {
+                    throw new IOException("Worker exited");
+                }
+                final String[] tokens = line.split(" ", 3);
+                final Shard done = outstanding.peek();
+                Validate.isTrue(tokens.length == 3 && tokens[1].equals(Integer
+                        .toString(done.id_)), () -> "Unexpected answer from worker: " + line);
+                if("error".equals(tokens[0]))
+                {
+                    throw new IllegalStateException(String.format("Shard %d (%s vs %s) failed: %s",
+                            done.id_, contestants_.get(done.first_), contestants_
+                                    .get(done.second_), tokens[2]));
+                }
+                final long[] totals = Arrays.stream(tokens[2].split(" ")).mapToLong(
+                        Long::parseLong).toArray();
+                Validate.isTrue(totals.length == 4, () -> "Unexpected answer from worker: "
+                        + line);
+                standings.record(done.first_, done.second_, totals[0], totals[1], totals[2],
+                        totals[3]);
+                outstanding.poll();
+                remaining.decrementAndGet();
+            }
+            catch(final IOException e)
+            {
+                queue.addAll(outstanding);
+                outstanding.clear();
+                worker.close();
+                Validate.isTrue(restarts.incrementAndGet() <= MAX_RESTARTS * workers.size(),
+                        () -> "Workers keep dying: " + e.getMessage());
+                try
+                {
+                    workers.set(index, new Worker(command()));
+                }
+                catch(final IOException restartError)
+                {
+                    throw new IllegalStateException("Cannot restart a worker", restartError);
+                }
+            }
+            catch(final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for shards", e);
+            }
+        }
+    }
+
+    private List<String> command()
+    {
+        return EnginePool.javaCommand(TournamentWorker.class, Integer.toString(width_), Integer
+                .toString(height_));
+    }
+
+    // Whether the shard's pairing, with either colour, needs no more games
+    private static boolean isDecided(final Shard shard, final TournamentStandings standings,
+            final Sprt sprt)
+    {
+        return sprt != null
+                && sprt.decide(standings.getMatch(Math.min(shard.first_, shard.second_), Math
+                        .max(shard.first_, shard.second_))) != Sprt.Decision.CONTINUE;
+    }
+
+    /*
+     * Shards of every pairing, a round of pairings at a time. Each pairing's
+     * games are numbered from its own seed.
+     */
+    private List<Shard> shards()
+    {
+        final List<Shard> shards = new ArrayList<Shard>();
+        for(int game = 0; game < gamesPerPairing_; game += shardGames_)
+        {
+            long pairing = 0;
+            for(int first = 0; first < contestants_.size(); ++first)
+            {
+                for(int second = 0; second < contestants_.size(); ++second)
+                {
+                    if(first == second)
+                    {
+                        continue;
+                    }
+                    final long pairingSeed = seed_ + pairing++ * gamesPerPairing_;
+                    shards.add(new Shard(shards.size(), first, second, Math.min(shardGames_,
+                            gamesPerPairing_ - game), pairingSeed + game));
+                }
+            }
+        }
+        return shards;
+    }
+
+    private final class Shard
+    {
+        private final int id_;
+        private final int first_;
+        private final int second_;
+        private final int games_;
+        private final long seed_;
+
+        Shard(final int id, final int first, final int second, final int games,
+                final long seed)
+        {
+            id_ = id;
+            first_ = first;
+            second_ = second;
+            games_ = games;
+            seed_ = seed;
+        }
+
+        String command()
+        {
+            return String.format("shard %d %s %s %d %d %d", id_, contestants_.get(first_),
+                    contestants_.get(second_), games_, opening_, seed_);
+        }
+    }
+
+    // One TournamentWorker process, only ever used by one thread at a time
+    private static final class Worker
+    {
+        private final Process process_;
+        private final Writer output_;
+        private final BufferedReader input_;
+
+        Worker(final List<String> command) throws IOException
+        {
+            process_ = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            output_ = new BufferedWriter(new OutputStreamWriter(process_.getOutputStream(),
+                    StandardCharsets.US_ASCII));
+            input_ = new BufferedReader(new InputStreamReader(process_.getInputStream(),
+                    StandardCharsets.US_ASCII));
+            send("isready");
+            final String line = input_.readLine();
+            if(!"readyok".equals(line))
+            {
+                process_.destroyForcibly();
+                throw new IOException("Worker " + command + " answered " + line
+                        + " instead of readyok");
+            }
+        }
+
+        void send(final String line) throws IOException
+        {
+            output_.write(line);
+            output_.write('\n');
+            output_.flush();
+        }
+
+        String readLine() throws IOException
+        {
+            return input_.readLine();
+        }
+
+        void close()
+        {
+            try
+            {
+                send("quit");
+            }
+            catch(final IOException e)
+            {
+                // Killed below
+            }
+            try
+            {
+                if(!process_.waitFor(QUIT_WAIT_MILLIS, TimeUnit.MILLISECONDS))
+                {
+                    process_.destroyForcibly();
+                }
+            }
+            catch(final InterruptedException e)
+            {
+                process_.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Plays the same tournament with 1 to max workers and reports how the
+     * throughput scales, checking that every run merged the same standings.
+     *
+     * Usage: TournamentCoordinator [max workers] [games per pairing] [shard
+     * games] [contestant...]
+     */
+    public static void main(String args[]) throws IOException, InterruptedException
+    {
+        final int maxWorkers = args.length > 0 ? Integer.parseInt(args[0]) : Runtime
+                .getRuntime().availableProcessors();
+        final int gamesPerPairing = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        final int shardGames = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        final List<String> contestants = args.length > 3 ? Arrays.asList(args).subList(3,
+                args.length) : Arrays.asList("2", "4", "6");
+
+        final TournamentCoordinator coordinator = new TournamentCoordinator(contestants,
+                gamesPerPairing, shardGames, 4, 1, 7, 6);
+        System.out.printf("%d games in %d shards%n", coordinator.getGameCount(), coordinator
+                .getShardCount());
+        TournamentStandings first = null;
+        double baseline = 0;
+        for(int workers = 1; workers <= maxWorkers; ++workers)
+        {
+            final TournamentStandings standings = coordinator.run(workers);
+            final double gamesPerSecond = standings.getGames() * 1e9
+                    / coordinator.getElapsedNanos();
+            if(first == null)
+            {
+                first = standings;
+                baseline = gamesPerSecond;
+            }
+            System.out.printf("%d worker(s): %.0f ms (+%.0f ms startup), %.1f games/s, "
+                    + "%.2fx, %d restarts, standings %s%n", workers,
+                    coordinator.getElapsedNanos() / 1e6, coordinator.getStartupNanos() / 1e6,
+                    gamesPerSecond, gamesPerSecond / baseline, coordinator.getRestarts(),
+                    standings.equals(first) ? "match" : "DIFFER");
+        }
+        System.out.print(first);
+
+        final Sprt sprt = new Sprt(0, 50, 0.05, 0.05);
+        final TournamentStandings decided = coordinator.run(maxWorkers, sprt);
+        System.out.printf("%s: %d games played, %d skipped, %.0f ms%n", sprt, decided
+                .getGames(), coordinator.getSkippedGames(), coordinator.getElapsedNanos() / 1e6);
+        for(int i = 0; i < contestants.size(); ++i)
+        {
+            for(int j = i + 1; j < contestants.size(); ++j)
+            {
+                final MatchStatistics match = decided.getMatch(i, j);
+                System.out.printf("%s vs %s: %s, %s%n", contestants.get(i), contestants.get(j),
+                        match, sprt.decide(match));
+            }
+        }
+    }
+}
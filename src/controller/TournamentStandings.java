@@ -0,0 +1,225 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import utils.Validate;
+
+/**
+ * Wins, draws and losses of every contestant of a tournament, merged from
+ * the shards as they come in, along with streaming Elo ratings (see
+ * MatchStatistics): one per pairing (both colours together), and one per
+ * contestant for its performance against the whole field. Thread-safe.
+ */
+public final class TournamentStandings
+{
+    private final List<String> contestants_;
+    private final long[] wins_;
+    private final long[] draws_;
+    private final long[] losses_;
+    private final MatchStatistics[] ratings_;
+    private final MatchStatistics[][] matches_;
+    private long games_;
+    private long moves_;
+
+    /**
+     * @param contestants
+     *            Non-empty descriptions of the contestants
+     */
+    public TournamentStandings(final List<String> contestants)
+    {
+        Validate.notNull(contestants, "Cannot keep standings of null contestants");
+        Validate.isTrue(!contestants.isEmpty(), "Cannot keep standings without contestants");
+        contestants_ = Collections.unmodifiableList(new ArrayList<String>(contestants));
+        wins_ = new long[contestants.size()];
+        draws_ = new long[contestants.size()];
+        losses_ = new long[contestants.size()];
+        ratings_ = new MatchStatistics[contestants.size()];
+        matches_ = new MatchStatistics[contestants.size()][contestants.size()];
+        for(int i = 0; i < contestants.size(); ++i)
+        {
+            ratings_[i] = new MatchStatistics();
+            for(int j = 0; j < contestants.size(); ++j)
+            {
+                matches_[i][j] = new MatchStatistics();
+            }
+        }
+    }
+
+    /**
+     * Merges the games of one shard.
+     *
+     * @param first
+     *            Index of the contestant that moved first
+     * @param second
+     *            Index of the contestant that moved second
+     * @param firstWins
+     *            Games the first contestant won
+     * @param secondWins
+     *            Games the second contestant won
+     * @param draws
+     *            Games drawn
+     * @param moves
+     *            Moves made over all the games
+     */
+    public synchronized void record(final int first, final int second, final long firstWins,
+            final long secondWins, final long draws, final long moves)
+    {
+        Validate.isTrue(firstWins >= 0 && secondWins >= 0 && draws >= 0 && moves >= 0,
+                "Counts cannot be negative");
+        wins_[first] += firstWins;
+        losses_[first] += secondWins;
+        draws_[first] += draws;
+        wins_[second] += secondWins;
+        losses_[second] += firstWins;
+        draws_[second] += draws;
+        games_ += firstWins + secondWins + draws;
+        moves_ += moves;
+        ratings_[first].add(firstWins, draws, secondWins);
+        ratings_[second].add(secondWins, draws, firstWins);
+        matches_[first][second].add(firstWins, draws, secondWins);
+        matches_[second][first].add(secondWins, draws, firstWins);
+    }
+
+    /**
+     * @return Unmodifiable descriptions of the contestants
+     */
+    public List<String> getContestants()
+    {
+        return contestants_;
+    }
+
+    /**
+     * @param contestant
+     *            Index of the contestant
+     * @return Games the contestant won
+     */
+    public synchronized long getWins(final int contestant)
+    {
+        return wins_[contestant];
+    }
+
+    /**
+     * @param contestant
+     *            Index of the contestant
+     * @return Games the contestant drew
+     */
+    public synchronized long getDraws(final int contestant)
+    {
+        return draws_[contestant];
+    }
+
+    /**
+     * @param contestant
+     *            Index of the contestant
+     * @return Games the contestant lost
+     */
+    public synchronized long getLosses(final int contestant)
+    {
+        return losses_[contestant];
+    }
+
+    /**
+     * @return Games played
+     */
+    public synchronized long getGames()
+    {
+        return games_;
+    }
+
+    /**
+     * @return Moves made over all games
+     */
+    public synchronized long getMoves()
+    {
+        return moves_;
+    }
+
+    /**
+     * @param contestant
+     *            Index of the contestant
+     * @return Points per game (a win is 1, a draw 1/2), 0 before any game
+     */
+    public synchronized double getScore(final int contestant)
+    {
+        final long games = wins_[contestant] + draws_[contestant] + losses_[contestant];
+        return games == 0 ? 0 : (wins_[contestant] + draws_[contestant] / 2.0) / games;
+    }
+
+    /**
+     * @param contestant
+     *            Index of the contestant
+     * @return Live results of the contestant against the whole field
+     */
+    public MatchStatistics getRating(final int contestant)
+    {
+        return ratings_[contestant];
+    }
+
+    /**
+     * @param contestant
+     *            Index of the contestant
+     * @param opponent
+     *            Index of another contestant
+     * @return Live results of the contestant against the opponent, with
+     *         either colour
+     */
+    public MatchStatistics getMatch(final int contestant, final int opponent)
+    {
+        Validate.isTrue(contestant != opponent, "A contestant never plays itself");
+        return matches_[contestant][opponent];
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return contestants_.hashCode() * 31 + Arrays.hashCode(counts());
+    }
+
+    @Override
+    public boolean equals(final Object other)
+    {
+        if(this == other)
+        {
+            return true;
+        }
+        if(!(other instanceof TournamentStandings))
+        {
+            return false;
+        }
+        final TournamentStandings standings = (TournamentStandings) other;
+        return contestants_.equals(standings.contestants_)
+                && Arrays.equals(counts(), standings.counts());
+    }
+
+    // Consistent copy of every count
+    private synchronized long[] counts()
+    {
+        final int size = contestants_.size();
+        final long[] counts = new long[3 * size + 2];
+        System.arraycopy(wins_, 0, counts, 0, size);
+        System.arraycopy(draws_, 0, counts, size, size);
+        System.arraycopy(losses_, 0, counts, 2 * size, size);
+        counts[3 * size] = games_;
+        counts[3 * size + 1] = moves_;
+        return counts;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        final StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%d games, %d moves%n", games_, moves_));
+        for(int i = 0; i < contestants_.size(); ++i)
+        {
+            final MatchStatistics rating = ratings_[i];
+            builder.append(String.format("%-16s %6d W %6d D %6d L  %5.1f%%  %+7.1f Elo "
+                    + "[%+.1f, %+.1f]%n", contestants_.get(i), wins_[i], draws_[i],
+                    losses_[i], getScore(i) * 100, rating.getElo(), rating.getEloLower(),
+                    rating.getEloUpper()));
+        }
+        return builder.toString();
+    }
+}
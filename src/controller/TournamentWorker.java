@@ -0,0 +1,220 @@
+package controller;
+
+import game.Player;
+import games.connectfour.ConnectFourGameBoard;
+import games.connectfour.ConnectFourMove;
+import metrics.Metrics;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+
+import ai.AI;
+import ai.NTupleNetwork;
+import ai.SearchAI;
+import ai.TranspositionTable;
+import utils.Validate;
+
+/**
+ * Plays tournament shards handed out by a TournamentCoordinator, one after
+ * the other, in its own JVM. Talks over stdin/stdout, one line per command:
+ *
+ * isready -> readyok
+ *
+ * shard id first second games opening seed -> done id first_wins second_wins
+ * draws moves, or error id message
+ *
+ * quit -> exits
+ *
+ * A shard is a number of games between two contestants (see contestant(...)),
+ * the first always moving first. Each game opens with the given number of
+ * random moves, drawn from a Random seeded with seed + game number, so a
+ * shard plays the same games on any worker. Every shard gets fresh AIs.
+ */
+public final class TournamentWorker
+{
+    private static final int TABLE_ENTRIES = 1 << 16;
+
+    private TournamentWorker()
+    {
+        // Static access only
+    }
+
+    /**
+     * Creates a contestant from its description: a search depth, optionally
+     * followed by ':' and an NTupleNetwork file to evaluate with, e.g. "6" or
+     * "6:trained.ntn".
+     *
+     * @param contestant
+     *            Non-null description
+     * @param player
+     *            Non-null player the AI plays for
+     * @return The AI
+     * @throws IllegalArgumentException
+     *             if the description is invalid
+     * @throws UncheckedIOException
+     *             if the network cannot be read
+     */
+    static AI contestant(final String contestant, final Player player)
+    {
+        Validate.notNull(contestant, "Cannot create a null contestant");
+        final int split = contestant.indexOf(':');
+        final int depth;
+        try
+        {
+            depth = Integer.parseInt(split < 0 ? contestant : contestant.substring(0, split));
+        }
+        catch(final NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Contestants are depth[:network], not "
+                    + contestant);
+        }
+        try
+        {
+            final NTupleNetwork network = split < 0 ? null : NTupleNetwork.load(Paths
+                    .get(contestant.substring(split + 1)));
+            return new SearchAI(player, depth, 0, new TranspositionTable(TABLE_ENTRIES),
+                    network);
+        }
+        catch(final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Plays one shard.
+     *
+     * @return first wins, second wins, draws and moves
+     */
+    static long[] playShard(final GameAutomator automator, final String first,
+            final String second, final int games, final int opening, final long seed)
+    {
+        Validate.isTrue(games > 0, "A shard must have at least one game");
+        Validate.isTrue(opening >= 0, "Openings cannot be negative");
+        final long[] totals = new long[4];
+        final OpeningAI firstAI = new OpeningAI(contestant(first, Player.PLAYER_1), opening);
+        final OpeningAI secondAI = new OpeningAI(contestant(second, Player.PLAYER_2), opening);
+        try
+        {
+            for(int game = 0; game < games; ++game)
+            {
+                final Random random = new Random(seed + game);
+                firstAI.random_ = random;
+                secondAI.random_ = random;
+                final GameResult result = automator.playGame(firstAI, secondAI);
+                ++totals[result.isDraw() ? 2 : result.getWinner() == Player.PLAYER_1 ? 0 : 1];
+                totals[3] += result.getMoves().size();
+            }
+        }
+        finally
+        {
+            Metrics.unregister(firstAI);
+            Metrics.unregister(secondAI);
+        }
+        return totals;
+    }
+
+    /*
+     * Plays random moves for the first opening plies of the game (counting
+     * both sides), then hands over to the contestant
+     */
+    private static final class OpeningAI extends AI
+    {
+        private final AI contestant_;
+        private final int opening_;
+        private Random random_;
+
+        OpeningAI(final AI contestant, final int opening)
+        {
+            super(contestant.getPlayer());
+            contestant_ = contestant;
+            opening_ = opening;
+        }
+
+        @Override
+        public ConnectFourMove determineMove(final ConnectFourGameBoard gameBoard)
+        {
+            if(gameBoard.getMoveCount() >= opening_)
+            {
+                return contestant_.determineMove(gameBoard);
+            }
+            final List<ConnectFourMove> moves = gameBoard.availableMovesFor(getPlayer());
+            return moves.get(random_.nextInt(moves.size()));
+        }
+
+        @Override
+        public String toString()
+        {
+            return contestant_.toString();
+        }
+    }
+
+    /**
+     * Serves shards on stdin/stdout until quit or the end of the input.
+     *
+     * Usage: TournamentWorker [width height]
+     *
+     * @param args
+     *            See usage
+     * @throws IOException
+     *             if stdin or stdout fail
+     */
+    public static void main(String args[]) throws IOException
+    {
+        final int width = args.length > 1 ? Integer.parseInt(args[0]) : 7;
+        final int height = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+        final GameAutomator automator = new GameAutomator(width, height);
+        final BufferedReader input = new BufferedReader(new InputStreamReader(System.in,
+                StandardCharsets.US_ASCII));
+        final Writer output = new BufferedWriter(new OutputStreamWriter(System.out,
+                StandardCharsets.US_ASCII));
+
+        String line;
+        while((line = input.readLine()) != null)
+        {
+            final String[] tokens = line.trim().split("\\s+");
+            switch(tokens[0])
+            {
+            case "isready":
+                output.write("readyok\n");
+                break;
+            case "shard":
+                final String id = tokens.length > 1 ? tokens[1] : "-";
+                try
+                {
+                    Validate.isTrue(tokens.length == 7,
+                            "Usage: shard id first second games opening seed");
+                    final long[] totals = playShard(automator, tokens[2], tokens[3], Integer
+                            .parseInt(tokens[4]), Integer.parseInt(tokens[5]), Long
+                            .parseLong(tokens[6]));
+                    output.write(String.format("done %s %d %d %d %d\n", id, totals[0],
+                            totals[1], totals[2], totals[3]));
+                }
+                catch(final RuntimeException e)
+                {
+                    output.write("error " + id + " " + String.valueOf(e.getMessage()).replace(
+                            '\n', ' ') + "\n");
+                }
+                break;
+            case "quit":
+                output.flush();
+                return;
+            case "":
+                break;
+            default:
+                output.write("error - unknown command " + tokens[0] + "\n");
+                break;
+            }
+            output.flush();
+        }
+    }
+}
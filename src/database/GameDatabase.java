@@ -0,0 +1,193 @@
+package database;
+
+import games.connectfour.ConnectFourGameBoard;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import utils.Validate;
+
+/**
+ * Read-only database of every position reached in a set of completed games
+ * (see GameDatabaseWriter), answering how games from a position ended and
+ * which columns were played from it.
+ * 
+ * The database is a directory of columnar files, one value per position,
+ * sorted by position hash. Every column is memory-mapped, so opening a
+ * database costs no heap whatever its size, the OS decides what stays in
+ * memory, and a lookup is a binary search over the mapped hashes.
+ * 
+ * Positions are identified by ConnectFourGameBoard.positionHash(), minus its
+ * lowest 8 bits (which the writer uses for the per-game payload).
+ */
+public final class GameDatabase
+{
+    static final int MAGIC = 0x43344442;
+    static final int VERSION = 1;
+
+    static final String META_FILE = "database.meta";
+    static final String KEYS_FILE = "keys.col";
+    static final String PLAYER1_WINS_FILE = "player1Wins.col";
+    static final String DRAWS_FILE = "draws.col";
+    static final String PLAYER2_WINS_FILE = "player2Wins.col";
+    static final String NEXT_OFFSETS_FILE = "nextOffsets.col";
+    static final String NEXT_COLUMNS_FILE = "nextColumns.col";
+    static final String NEXT_COUNTS_FILE = "nextCounts.col";
+
+    // Low bits of a record: (column + 1) << 2 | result
+    static final long PAYLOAD_MASK = 0xFF;
+    static final int PLAYER1_WIN = 0;
+    static final int DRAW = 1;
+    static final int PLAYER2_WIN = 2;
+
+    private final int width_;
+    private final int height_;
+    private final long games_;
+
+    private final MappedColumn keys_;
+    private final MappedColumn player1Wins_;
+    private final MappedColumn draws_;
+    private final MappedColumn player2Wins_;
+    private final MappedColumn nextOffsets_;
+    private final MappedColumn nextColumns_;
+    private final MappedColumn nextCounts_;
+
+    private GameDatabase(final Path directory, final int width, final int height,
+            final long games) throws IOException
+    {
+        width_ = width;
+        height_ = height;
+        games_ = games;
+        keys_ = MappedColumn.open(directory.resolve(KEYS_FILE), Long.BYTES);
+        player1Wins_ = MappedColumn.open(directory.resolve(PLAYER1_WINS_FILE), Integer.BYTES);
+        draws_ = MappedColumn.open(directory.resolve(DRAWS_FILE), Integer.BYTES);
+        player2Wins_ = MappedColumn.open(directory.resolve(PLAYER2_WINS_FILE), Integer.BYTES);
+        nextOffsets_ = MappedColumn.open(directory.resolve(NEXT_OFFSETS_FILE), Long.BYTES);
+        nextColumns_ = MappedColumn.open(directory.resolve(NEXT_COLUMNS_FILE), Byte.BYTES);
+        nextCounts_ = MappedColumn.open(directory.resolve(NEXT_COUNTS_FILE), Integer.BYTES);
+        Validate.isTrue(nextOffsets_.length() == keys_.length() + 1
+                && player1Wins_.length() == keys_.length(),
+                () -> directory + " holds an incomplete game database");
+    }
+
+    /**
+     * @param directory
+     *            Directory written by a GameDatabaseWriter
+     * @return The opened database
+     * @throws IOException
+     *             if the database cannot be read
+     */
+    public static GameDatabase open(final Path directory) throws IOException
+    {
+        Validate.notNull(directory, "Cannot open a game database from a null directory");
+        try(final DataInputStream meta = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(directory.resolve(META_FILE)))))
+        {
+            Validate.isTrue(meta.readInt() == MAGIC, () -> directory
+                    + " is not a game database");
+            final int version = meta.readInt();
+            Validate.isTrue(version == VERSION, () -> String.format(
+                    "%s has unsupported game database version %d", directory, version));
+            final int width = meta.readInt();
+            final int height = meta.readInt();
+            final long games = meta.readLong();
+            return new GameDatabase(directory, width, height, games);
+        }
+    }
+
+    /**
+     * @param gameBoard
+     *            Non-null board of the database's size
+     * @return Statistics of the board's position, null if no game reached it
+     */
+    public PositionStatistics lookup(final ConnectFourGameBoard gameBoard)
+    {
+        Validate.notNull(gameBoard, "Cannot look up a null board");
+        Validate.isTrue(gameBoard.getWidth() == width_ && gameBoard.getHeight() == height_,
+                "Board size does not match the game database");
+        return lookup(gameBoard.positionHash());
+    }
+
+    /**
+     * @param positionHash
+     *            Hash of the position, see ConnectFourGameBoard.positionHash()
+     * @return Statistics of the position, null if no game reached it
+     */
+    public PositionStatistics lookup(final long positionHash)
+    {
+        final long position = find(positionHash & ~PAYLOAD_MASK);
+        if(position < 0)
+        {
+            return null;
+        }
+
+        final long[] columnCounts = new long[width_];
+        final long end = nextOffsets_.getLong(position + 1);
+        for(long i = nextOffsets_.getLong(position); i < end; ++i)
+        {
+            columnCounts[nextColumns_.getByte(i)] = nextCounts_.getInt(i);
+        }
+        return new PositionStatistics(player1Wins_.getInt(position), draws_.getInt(position),
+                player2Wins_.getInt(position), columnCounts);
+    }
+
+    /**
+     * @return Width of the boards the games were played on
+     */
+    public int getWidth()
+    {
+        return width_;
+    }
+
+    /**
+     * @return Height of the boards the games were played on
+     */
+    public int getHeight()
+    {
+        return height_;
+    }
+
+    /**
+     * @return Number of games ingested
+     */
+    public long getGames()
+    {
+        return games_;
+    }
+
+    /**
+     * @return Number of distinct positions stored
+     */
+    public long getPositions()
+    {
+        return keys_.length();
+    }
+
+    // Binary search over the sorted, mapped keys
+    private long find(final long key)
+    {
+        long low = 0;
+        long high = keys_.length() - 1;
+        while(low <= high)
+        {
+            final long middle = (low + high) >>> 1;
+            final long candidate = keys_.getLong(middle);
+            if(candidate < key)
+            {
+                low = middle + 1;
+            }
+            else if(candidate > key)
+            {
+                high = middle - 1;
+            }
+            else
+            {
+                return middle;
+            }
+        }
+        return -1;
+    }
+}
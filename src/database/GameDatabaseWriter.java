@@ -0,0 +1,392 @@
+package database;
+
+import game.Player;
+import games.connectfour.ConnectFourGameBoard;
+import games.connectfour.ConnectFourMove;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import controller.GameResult;
+import utils.Validate;
+
+/**
+ * Ingests completed games and builds a GameDatabase from them.
+ * 
+ * Every position of every game becomes a single long record: the position
+ * hash with its lowest 8 bits replaced by the column played next and the
+ * result of the game. Records are buffered, sorted and spilled to run files
+ * as the buffer fills, then close() merges all the runs into the database's
+ * columnar files. Only the buffer is ever held in memory, so the number of
+ * games is bounded by disk space rather than heap.
+ * 
+ * addGame() may be called from any number of threads.
+ */
+public final class GameDatabaseWriter implements Closeable
+{
+    /**
+     * Default number of positions buffered before a run is spilled (32 MB)
+     */
+    public static final int DEFAULT_BUFFERED_POSITIONS = 1 << 22;
+
+    private static final int STREAM_BUFFER_BYTES = 1 << 16;
+    // The record payload leaves 6 bits for the column
+    private static final int MAX_WIDTH = 62;
+
+    private final Path directory_;
+    private final int width_;
+    private final int height_;
+
+    // Guarded by this
+    private final long[] buffer_;
+    private int buffered_;
+    private final List<Path> runs_;
+    private long games_;
+    private boolean closed_;
+
+    /**
+     * @param directory
+     *            Directory to write the database to, created if needed
+     * @param width
+     *            Width of the boards the games are played on
+     * @param height
+     *            Height of the boards the games are played on
+     */
+    public GameDatabaseWriter(final Path directory, final int width, final int height)
+            throws IOException
+    {
+        this(directory, width, height, DEFAULT_BUFFERED_POSITIONS);
+    }
+
+    /**
+     * @param directory
+     *            Directory to write the database to, created if needed
+     * @param width
+     *            Width of the boards the games are played on
+     * @param height
+     *            Height of the boards the games are played on
+     * @param bufferedPositions
+     *            Number of positions held in memory before being spilled
+     */
+    public GameDatabaseWriter(final Path directory, final int width, final int height,
+            final int bufferedPositions) throws IOException
+    {
+        Validate.notNull(directory, "Cannot write a game database to a null directory");
+        new ConnectFourGameBoard(width, height);
+        Validate.isTrue(width <= MAX_WIDTH, () -> String.format(
+                "Game databases support boards up to %d columns wide", MAX_WIDTH));
+        Validate.isTrue(bufferedPositions > 0, "Must buffer at least one position");
+        directory_ = Files.createDirectories(directory);
+        width_ = width;
+        height_ = height;
+        buffer_ = new long[bufferedPositions];
+        runs_ = new ArrayList<Path>();
+    }
+
+    /**
+     * @param result
+     *            Non-null result of a completed game
+     */
+    public void addGame(final GameResult result) throws IOException
+    {
+        Validate.notNull(result, "Cannot add a null game");
+        addGame(result.getMoves(), result.getWinner());
+    }
+
+    /**
+     * @param moves
+     *            Non-null move history of a completed game, such as
+     *            ConnectFourGameBoard.getMoveHistory()
+     * @param winner
+     *            Player who won, null for a draw
+     * @throws IllegalArgumentException
+     *             if a move cannot be played, before anything is added
+     */
+    public void addGame(final List<ConnectFourMove> moves, final Player winner)
+            throws IOException
+    {
+        Validate.notNull(moves, "Cannot add a game without moves");
+        final int result = winner == null ? GameDatabase.DRAW
+                : winner == Player.PLAYER_1 ? GameDatabase.PLAYER1_WIN : GameDatabase.PLAYER2_WIN;
+
+        // Replay outside the lock, only the copy into the buffer is serialised
+        final ConnectFourGameBoard gameBoard = new ConnectFourGameBoard(width_, height_);
+        final long[] records = new long[moves.size() + 1];
+        for(int i = 0; i < moves.size(); ++i)
+        {
+            final ConnectFourMove move = moves.get(i);
+            // Checked whatever the validation level, games come from outside
+            if(!gameBoard.isLegalMove(move))
+            {
+                throw new IllegalArgumentException("Illegal move at " + i);
+            }
+            records[i] = record(gameBoard.positionHash(), move.getColumn(), result);
+            gameBoard.addMove(move);
+        }
+        records[moves.size()] = record(gameBoard.positionHash(), -1, result);
+
+        synchronized(this)
+        {
+            Validate.isTrue(!closed_, "Cannot add games to a closed GameDatabaseWriter");
+            Validate.isTrue(games_ < Integer.MAX_VALUE, "Game database is full");
+            int copied = 0;
+            while(copied < records.length)
+            {
+                final int count = Math.min(records.length - copied, buffer_.length - buffered_);
+                System.arraycopy(records, copied, buffer_, buffered_, count);
+                buffered_ += count;
+                copied += count;
+                if(buffered_ == buffer_.length)
+                {
+                    spill();
+                }
+            }
+            ++games_;
+        }
+    }
+
+    /**
+     * @return Number of games added so far
+     */
+    public synchronized long getGames()
+    {
+        return games_;
+    }
+
+    /**
+     * Merges everything added into the database files. The writer cannot be
+     * used afterwards.
+     */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if(closed_)
+        {
+            return;
+        }
+        closed_ = true;
+        spill();
+        try
+        {
+            merge();
+            try(final DataOutputStream meta = output(GameDatabase.META_FILE))
+            {
+                meta.writeInt(GameDatabase.MAGIC);
+                meta.writeInt(GameDatabase.VERSION);
+                meta.writeInt(width_);
+                meta.writeInt(height_);
+                meta.writeLong(games_);
+            }
+        }
+        finally
+        {
+            for(final Path run : runs_)
+            {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+
+    private static long record(final long positionHash, final int nextColumn, final int result)
+    {
+        return (positionHash & ~GameDatabase.PAYLOAD_MASK) | ((nextColumn + 1) << 2) | result;
+    }
+
+    // Sorts the buffer and writes it out as a new run
+    private void spill() throws IOException
+    {
+        if(buffered_ == 0)
+        {
+            return;
+        }
+        Arrays.parallelSort(buffer_, 0, buffered_);
+        final Path run = directory_.resolve("run-" + runs_.size() + ".tmp");
+        runs_.add(run);
+        try(final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(run), STREAM_BUFFER_BYTES)))
+        {
+            for(int i = 0; i < buffered_; ++i)
+            {
+                out.writeLong(buffer_[i]);
+            }
+        }
+        buffered_ = 0;
+    }
+
+    // K-way merge of the sorted runs, aggregating equal positions
+    private void merge() throws IOException
+    {
+        final PriorityQueue<Run> queue = new PriorityQueue<Run>(Math.max(1, runs_.size()),
+                (a, b) -> Long.compare(a.current_, b.current_));
+        try(final Columns columns = new Columns(directory_))
+        {
+            for(final Path path : runs_)
+            {
+                final Run run = new Run(path);
+                if(run.advance())
+                {
+                    queue.add(run);
+                }
+                else
+                {
+                    run.close();
+                }
+            }
+
+            final int[] results = new int[3];
+            final int[] columnCounts = new int[width_];
+            long key = 0;
+            boolean pending = false;
+            while(!queue.isEmpty())
+            {
+                final Run run = queue.poll();
+                final long record = run.current_;
+                if(run.advance())
+                {
+                    queue.add(run);
+                }
+                else
+                {
+                    run.close();
+                }
+
+                final long recordKey = record & ~GameDatabase.PAYLOAD_MASK;
+                if(pending && recordKey != key)
+                {
+                    columns.writePosition(key, results, columnCounts);
+                    Arrays.fill(results, 0);
+                    Arrays.fill(columnCounts, 0);
+                }
+                key = recordKey;
+                pending = true;
+                ++results[(int) (record & 0x3)];
+                final int column = (int) ((record & GameDatabase.PAYLOAD_MASK) >>> 2) - 1;
+                if(column >= 0)
+                {
+                    ++columnCounts[column];
+                }
+            }
+            if(pending)
+            {
+                columns.writePosition(key, results, columnCounts);
+            }
+        }
+        finally
+        {
+            for(final Run run : queue)
+            {
+                run.close();
+            }
+        }
+    }
+
+    private DataOutputStream output(final String file) throws IOException
+    {
+        return output(directory_, file);
+    }
+
+    private static DataOutputStream output(final Path directory, final String file)
+            throws IOException
+    {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(directory
+                .resolve(file)), STREAM_BUFFER_BYTES));
+    }
+
+    // Appends aggregated positions to every column file
+    private static final class Columns implements Closeable
+    {
+        private final DataOutputStream keys_;
+        private final DataOutputStream player1Wins_;
+        private final DataOutputStream draws_;
+        private final DataOutputStream player2Wins_;
+        private final DataOutputStream nextOffsets_;
+        private final DataOutputStream nextColumns_;
+        private final DataOutputStream nextCounts_;
+        private long nextOffset_;
+
+        Columns(final Path directory) throws IOException
+        {
+            keys_ = output(directory, GameDatabase.KEYS_FILE);
+            player1Wins_ = output(directory, GameDatabase.PLAYER1_WINS_FILE);
+            draws_ = output(directory, GameDatabase.DRAWS_FILE);
+            player2Wins_ = output(directory, GameDatabase.PLAYER2_WINS_FILE);
+            nextOffsets_ = output(directory, GameDatabase.NEXT_OFFSETS_FILE);
+            nextColumns_ = output(directory, GameDatabase.NEXT_COLUMNS_FILE);
+            nextCounts_ = output(directory, GameDatabase.NEXT_COUNTS_FILE);
+        }
+
+        void writePosition(final long key, final int[] results, final int[] columnCounts)
+                throws IOException
+        {
+            keys_.writeLong(key);
+            player1Wins_.writeInt(results[GameDatabase.PLAYER1_WIN]);
+            draws_.writeInt(results[GameDatabase.DRAW]);
+            player2Wins_.writeInt(results[GameDatabase.PLAYER2_WIN]);
+            nextOffsets_.writeLong(nextOffset_);
+            for(int column = 0; column < columnCounts.length; ++column)
+            {
+                if(columnCounts[column] > 0)
+                {
+                    nextColumns_.writeByte(column);
+                    nextCounts_.writeInt(columnCounts[column]);
+                    ++nextOffset_;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            // One extra offset so every position's range is [offset[i], offset[i + 1])
+            nextOffsets_.writeLong(nextOffset_);
+            for(final DataOutputStream out : new DataOutputStream[] {keys_, player1Wins_,
+                    draws_, player2Wins_, nextOffsets_, nextColumns_, nextCounts_})
+            {
+                out.close();
+            }
+        }
+    }
+
+    // Sequential reader over one sorted run
+    private static final class Run implements Closeable
+    {
+        private final DataInputStream in_;
+        private long current_;
+
+        Run(final Path path) throws IOException
+        {
+            in_ = new DataInputStream(new BufferedInputStream(Files.newInputStream(path),
+                    STREAM_BUFFER_BYTES));
+        }
+
+        boolean advance() throws IOException
+        {
+            try
+            {
+                current_ = in_.readLong();
+                return true;
+            }
+            catch(final EOFException e)
+            {
+                return false;
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            in_.close();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package database;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only, memory-mapped array of fixed-size elements stored in a single
+ * file.
+ * 
+ * Files larger than a single mapping can address are mapped in 1 GiB
+ * segments. Segments are a whole number of elements long, so an element never
+ * straddles two segments.
+ */
+final class MappedColumn
+{
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final MappedByteBuffer[] segments_;
+    private final int elementShift_;
+    private final long length_;
+
+    private MappedColumn(final MappedByteBuffer[] segments, final int elementShift,
+            final long length)
+    {
+        segments_ = segments;
+        elementShift_ = elementShift;
+        length_ = length;
+    }
+
+    /**
+     * @param file
+     *            File to map
+     * @param elementBytes
+     *            Size of an element: 1, 4 or 8
+     */
+    static MappedColumn open(final Path file, final int elementBytes) throws IOException
+    {
+        final int elementShift = Integer.numberOfTrailingZeros(elementBytes);
+        try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            final long size = channel.size();
+            final MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size
+                    + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+            for(int i = 0; i < segments.length; ++i)
+            {
+                final long start = (long) i << SEGMENT_SHIFT;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(size - start, 1L << SEGMENT_SHIFT));
+            }
+            // Mappings outlive the channel
+            return new MappedColumn(segments, elementShift, size >>> elementShift);
+        }
+    }
+
+    long length()
+    {
+        return length_;
+    }
+
+    long getLong(final long index)
+    {
+        final long offset = index << elementShift_;
+        return segments_[(int) (offset >>> SEGMENT_SHIFT)].getLong((int) (offset & SEGMENT_MASK));
+    }
+
+    int getInt(final long index)
+    {
+        final long offset = index << elementShift_;
+        return segments_[(int) (offset >>> SEGMENT_SHIFT)].getInt((int) (offset & SEGMENT_MASK));
+    }
+
+    byte getByte(final long index)
+    {
+        return segments_[(int) (index >>> SEGMENT_SHIFT)].get((int) (index & SEGMENT_MASK));
+    }
+}
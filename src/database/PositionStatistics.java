@@ -0,0 +1,106 @@
+package database;
+
+import java.util.Arrays;
+
+/**
+ * Immutable record of how the games that reached a position went, and which
+ * columns were played from it.
+ */
+public final class PositionStatistics
+{
+    private final long player1Wins_;
+    private final long draws_;
+    private final long player2Wins_;
+    private final long[] columnCounts_;
+
+    PositionStatistics(final long player1Wins, final long draws, final long player2Wins,
+            final long[] columnCounts)
+    {
+        player1Wins_ = player1Wins;
+        draws_ = draws;
+        player2Wins_ = player2Wins;
+        columnCounts_ = columnCounts;
+    }
+
+    /**
+     * @return Number of games through this position that PLAYER_1 won
+     */
+    public long getPlayer1Wins()
+    {
+        return player1Wins_;
+    }
+
+    /**
+     * @return Number of games through this position that were drawn
+     */
+    public long getDraws()
+    {
+        return draws_;
+    }
+
+    /**
+     * @return Number of games through this position that PLAYER_2 won
+     */
+    public long getPlayer2Wins()
+    {
+        return player2Wins_;
+    }
+
+    /**
+     * @return Number of games that reached this position
+     */
+    public long getGames()
+    {
+        return player1Wins_ + draws_ + player2Wins_;
+    }
+
+    /**
+     * @param column
+     *            Column (0 indexed)
+     * @return Number of times the column was played from this position
+     */
+    public long getColumnCount(final int column)
+    {
+        return column < 0 || column >= columnCounts_.length ? 0 : columnCounts_[column];
+    }
+
+    /**
+     * @return Columns played from this position, most played first (ties go
+     *         to the lower column)
+     */
+    public int[] getMostPlayedColumns()
+    {
+        int played = 0;
+        for(final long count : columnCounts_)
+        {
+            if(count > 0)
+            {
+                ++played;
+            }
+        }
+        final int[] columns = new int[played];
+        final boolean[] taken = new boolean[columnCounts_.length];
+        for(int i = 0; i < played; ++i)
+        {
+            int best = -1;
+            for(int column = 0; column < columnCounts_.length; ++column)
+            {
+                if(!taken[column] && columnCounts_[column] > 0
+                        && (best < 0 || columnCounts_[column] > columnCounts_[best]))
+                {
+                    best = column;
+                }
+            }
+            taken[best] = true;
+            columns[i] = best;
+        }
+        return columns;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%d games (+%d =%d -%d) columns %s", getGames(), player1Wins_,
+                draws_, player2Wins_, Arrays.toString(columnCounts_));
+    }
+}
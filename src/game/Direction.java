@@ -2,30 +2,53 @@ package game;
 
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Collections;
+import java.util.List;
 
+import utils.PackedCoordinates;
 import utils.Vector2;
 
 /**
  * Direction represents a movement along a 2D plane. This is used primarily for
  * navigation across 2D gameboards.
  *
+ * Everything a Direction hands out is computed once, so none of its methods
+ * allocate.
  */
 public enum Direction
 {
-    UP, UPPER_RIGHT, RIGHT, LOWER_RIGHT, DOWN, LOWER_LEFT, LEFT, UPPER_LEFT;
+    UP(0, 1), UPPER_RIGHT(1, 1), RIGHT(1, 0), LOWER_RIGHT(1, -1), DOWN(0, -1),
+    LOWER_LEFT(-1, -1), LEFT(-1, 0), UPPER_LEFT(-1, 1);
+
+    // values() clones its array on every call, so keep our own
+    private static final Direction[] VALUES = values();
+
+    private static final List<Direction> UNIQUE_LINE_DIRECTIONS = Collections
+            .unmodifiableList(Arrays.asList(Arrays.copyOf(VALUES, VALUES.length / 2)));
+
+    private final int dx_;
+    private final int dy_;
+    private final Vector2 unitVector_;
+    private final int unitOffset_;
+
+    private Direction(final int dx, final int dy)
+    {
+        dx_ = dx;
+        dy_ = dy;
+        // Vector2 is immutable, so every caller can share the same instance
+        unitVector_ = new Vector2(dx, dy);
+        unitOffset_ = PackedCoordinates.pack(dx, dy);
+    }
 
     /**
      * @return Whatever Direction is opposite (lies on the same line)
      */
     public Direction opposite()
     {
-        final int totalDirections = Direction.values().length;
+        final int totalDirections = VALUES.length;
         final int oppositeDirectionOffset = totalDirections / 2;
         final int currentDirectionIndex = ordinal();
-        return Direction.values()[(currentDirectionIndex + oppositeDirectionOffset)
-                % totalDirections];
+        return VALUES[(currentDirectionIndex + oppositeDirectionOffset) % totalDirections];
     }
 
     /**
@@ -33,26 +56,31 @@ public enum Direction
      */
     public Vector2 unitVector()
     {
-        switch(this)
-        {
-        case UP:
-            return new Vector2(0, 1);
-        case UPPER_RIGHT:
-            return new Vector2(1, 1);
-        case RIGHT:
-            return new Vector2(1, 0);
-        case LOWER_RIGHT:
-            return new Vector2(1, -1);
-        case DOWN:
-            return new Vector2(0, -1);
-        case LOWER_LEFT:
-            return new Vector2(-1, -1);
-        case LEFT:
-            return new Vector2(-1, 0);
-        case UPPER_LEFT:
-            return new Vector2(-1, 1);
-        }
-        throw new IllegalArgumentException("Could not determine unit vector for " + this);
+        return unitVector_;
+    }
+
+    /**
+     * @return The Unit Vector for the direction, packed with PackedCoordinates
+     */
+    public int unitOffset()
+    {
+        return unitOffset_;
+    }
+
+    /**
+     * @return X component of the Unit Vector
+     */
+    public int dx()
+    {
+        return dx_;
+    }
+
+    /**
+     * @return Y component of the Unit Vector
+     */
+    public int dy()
+    {
+        return dy_;
     }
 
     /**
@@ -62,21 +90,16 @@ public enum Direction
      *         not in the Collection, and the Union of all Directions produced
      *         in this manner with the original Collection will be every
      *         direction. IE, each Direction within the returned Collection will
-     *         be a unique line in the 2D plane.
+     *         be a unique line in the 2D plane. The Collection is constant and
+     *         unmodifiable.
      * 
      */
     public static Collection<Direction> uniqueLineDirections()
     {
-        final int totalDirections = Direction.values().length;
-        final int numberOfUniqueDirections = totalDirections / 2;
-        final Set<Direction> uniqueDirections = new HashSet<Direction>(numberOfUniqueDirections);
-        Arrays.asList(Direction.values()).forEach(direction ->
-        {
-            if(!uniqueDirections.contains(direction.opposite()))
-            {
-                uniqueDirections.add(direction);
-            }
-        });
-        return uniqueDirections;
+        /*
+         * Opposites are exactly half the enum apart, so the first half of the
+         * enum covers every line exactly once
+         */
+        return UNIQUE_LINE_DIRECTIONS;
     }
 }
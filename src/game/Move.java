@@ -23,7 +23,10 @@ public abstract class Move<T extends Game>
      */
     public Move(final Player player)
     {
-        Validate.notNull(player, "Cannot create a move without a valid player");
+        if(Validate.internalChecksEnabled())
+        {
+            Validate.notNull(player, "Cannot create a move without a valid player");
+        }
         player_ = player;
     }
     
@@ -37,7 +40,10 @@ public abstract class Move<T extends Game>
      */
     public Move(final Move<T> move)
     {
-        Validate.notNull(move, "Cannot copy a null move");
+        if(Validate.internalChecksEnabled())
+        {
+            Validate.notNull(move, "Cannot copy a null move");
+        }
         player_ = move.player_;
     }
 
@@ -0,0 +1,38 @@
+package games.connectfour;
+
+/**
+ * Whole-batch bitboard kernels behind BoardBatch. Every method works on the
+ * entries [from, to) of its arrays, each array holding one bitboard per
+ * position.
+ */
+interface BatchKernels
+{
+    /**
+     * @param player1
+     *            Spaces occupied by PLAYER_1
+     * @param player2
+     *            Spaces occupied by PLAYER_2
+     * @param playable
+     *            Output, the lowest empty space of every column that is not
+     *            full
+     */
+    void playableSpaces(BitboardLayout layout, long[] player1, long[] player2,
+            long[] playable, int from, int to);
+
+    /**
+     * @param own
+     *            Spaces occupied by the player to move (player1 or player2)
+     * @param winning
+     *            Output, playable spaces that win immediately
+     */
+    void winningMoves(BitboardLayout layout, long[] own, long[] player1, long[] player2,
+            long[] winning, int from, int to);
+
+    /**
+     * @param own
+     *            Spaces occupied by the player
+     * @param won
+     *            Output, whether the player already has four in a line
+     */
+    void hasFour(BitboardLayout layout, long[] own, boolean[] won, int from, int to);
+}
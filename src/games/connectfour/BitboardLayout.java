@@ -0,0 +1,257 @@
+package games.connectfour;
+
+import utils.Validate;
+
+/**
+ * Bit layout used to pack a ConnectFour position into a single long.
+ *
+ * Each column takes (height + 1) consecutive bits, the lowest bit being the
+ * bottom row. The extra bit on top of every column is always empty, which
+ * stops lines from wrapping from the top of one column into the bottom of the
+ * next when bitboards are shifted. A position is then two longs, one per
+ * player (or a mask of occupied spaces plus one player).
+ *
+ * Only boards where width * (height + 1) <= 64 can be packed, see supports().
+ */
+public final class BitboardLayout
+{
+    private final int width_;
+    private final int height_;
+    private final int columnStride_;
+    private final long bottomMask_;
+    private final long boardMask_;
+    private final long[] columnMasks_;
+
+    /**
+     * @param width
+     *            Board width
+     * @param height
+     *            Board height
+     * @throws IllegalArgumentException
+     *             if the board does not fit into 64 bits
+     */
+    public BitboardLayout(final int width, final int height)
+    {
+        Validate.isTrue(supports(width, height), () -> String.format(
+                "A %dx%d board cannot be packed into 64 bits", width, height));
+        width_ = width;
+        height_ = height;
+        columnStride_ = height + 1;
+        columnMasks_ = new long[width];
+
+        long bottomMask = 0;
+        long boardMask = 0;
+        final long column = (1L << height) - 1;
+        for(int i = 0; i < width; ++i)
+        {
+            columnMasks_[i] = column << (i * columnStride_);
+            bottomMask |= 1L << (i * columnStride_);
+            boardMask |= columnMasks_[i];
+        }
+        bottomMask_ = bottomMask;
+        boardMask_ = boardMask;
+    }
+
+    /**
+     * @param width
+     *            Board width
+     * @param height
+     *            Board height
+     * @return True if positions of the given size can be packed into a long
+     */
+    public static boolean supports(final int width, final int height)
+    {
+        return width > 0 && height > 0 && width * (height + 1) <= Long.SIZE;
+    }
+
+    /**
+     * @return Board width
+     */
+    public int getWidth()
+    {
+        return width_;
+    }
+
+    /**
+     * @return Board height
+     */
+    public int getHeight()
+    {
+        return height_;
+    }
+
+    /**
+     * @param column
+     *            Column (0 indexed)
+     * @param row
+     *            Row (0 is the bottom)
+     * @return Single bit representing the space
+     */
+    public long bit(final int column, final int row)
+    {
+        return 1L << (column * columnStride_ + row);
+    }
+
+    /**
+     * @return Bits of every space in the bottom row
+     */
+    public long bottomMask()
+    {
+        return bottomMask_;
+    }
+
+    /**
+     * @return Bits of every space on the board
+     */
+    public long boardMask()
+    {
+        return boardMask_;
+    }
+
+    /**
+     * @param column
+     *            Column (0 indexed)
+     * @return Bits of every space in the column
+     */
+    public long columnMask(final int column)
+    {
+        return columnMasks_[column];
+    }
+
+    /**
+     * @param mask
+     *            Occupied spaces
+     * @return The lowest empty space of every column that is not full
+     */
+    public long playableSpaces(final long mask)
+    {
+        return (mask + bottomMask_) & boardMask_;
+    }
+
+    /**
+     * Finds every empty space that would complete a line of four for the
+     * player, whether or not it can be played right now.
+     *
+     * @param player
+     *            Spaces occupied by the player
+     * @param mask
+     *            Occupied spaces (both players)
+     * @return Empty spaces that complete a line of four
+     */
+    public long winningSpaces(final long player, final long mask)
+    {
+        final int stride = columnStride_;
+        // Vertical: three stones directly below
+        long result = (player << 1) & (player << 2) & (player << 3);
+        // Horizontal, then both diagonals (stride - 1 and stride + 1)
+        result |= lineCompletions(player, stride);
+        result |= lineCompletions(player, stride - 1);
+        result |= lineCompletions(player, stride + 1);
+        return result & (boardMask_ ^ mask);
+    }
+
+    /**
+     * @param player
+     *            Spaces occupied by the player to move
+     * @param mask
+     *            Occupied spaces (both players)
+     * @return Playable spaces that win immediately
+     */
+    public long winningMoves(final long player, final long mask)
+    {
+        return winningSpaces(player, mask) & playableSpaces(mask);
+    }
+
+    /**
+     * @param player
+     *            Spaces occupied by the player to move
+     * @param opponent
+     *            Spaces occupied by the other player
+     * @return Playable spaces the player must take to stop the opponent
+     *         winning next turn (more than one means the game is lost)
+     */
+    public long forcedMoves(final long player, final long opponent)
+    {
+        final long mask = player | opponent;
+        return winningSpaces(opponent, mask) & playableSpaces(mask);
+    }
+
+    /**
+     * Playable spaces after which the opponent cannot win on the next move:
+     * the forced block if there is exactly one, never a space directly below
+     * one the opponent would win on. Does not look for the player's own
+     * immediate wins, check winningMoves(...) first.
+     *
+     * @param player
+     *            Spaces occupied by the player to move
+     * @param opponent
+     *            Spaces occupied by the other player
+     * @return Non-losing playable spaces, 0 if every move loses
+     */
+    public long nonLosingMoves(final long player, final long opponent)
+    {
+        final long mask = player | opponent;
+        final long threats = winningSpaces(opponent, mask);
+        long possible = playableSpaces(mask);
+        final long forced = possible & threats;
+        if(forced != 0)
+        {
+            if((forced & (forced - 1)) != 0)
+            {
+                // Two threats at once, only one can be blocked
+                return 0;
+            }
+            possible = forced;
+        }
+        return possible & ~(threats >>> 1);
+    }
+
+    /**
+     * @param player
+     *            Spaces occupied by the player
+     * @return True if the player already has four in a line
+     */
+    public boolean hasFour(final long player)
+    {
+        return (fours(player, 1) | fours(player, columnStride_) | fours(player,
+                columnStride_ - 1) | fours(player, columnStride_ + 1)) != 0;
+    }
+
+    /**
+     * Compresses a set of spaces into the set of columns containing them.
+     *
+     * @param spaces
+     *            Any set of spaces
+     * @return Bit i set if column i contains any of the spaces
+     */
+    public int columnsOf(final long spaces)
+    {
+        int columns = 0;
+        for(int i = 0; i < width_; ++i)
+        {
+            if((spaces & columnMasks_[i]) != 0)
+            {
+                columns |= 1 << i;
+            }
+        }
+        return columns;
+    }
+
+    // Spaces that complete three stones along the given shift (both directions)
+    private static long lineCompletions(final long player, final int shift)
+    {
+        long pair = (player << shift) & (player << (2 * shift));
+        long result = pair & (player << (3 * shift));
+        result |= pair & (player >>> shift);
+        pair = (player >>> shift) & (player >>> (2 * shift));
+        result |= pair & (player << shift);
+        result |= pair & (player >>> (3 * shift));
+        return result;
+    }
+
+    private static long fours(final long player, final int shift)
+    {
+        final long pair = player & (player >>> shift);
+        return pair & (pair >>> (2 * shift));
+    }
+}
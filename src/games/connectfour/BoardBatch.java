@@ -0,0 +1,203 @@
+package games.connectfour;
+
+import game.Player;
+
+import utils.Validate;
+
+/**
+ * A batch of independent positions of the same size, stored as a structure
+ * of arrays (one long[] of bitboards per player) so that whole-batch queries
+ * run as tight, branch-free loops over primitive arrays.
+ *
+ * When the jdk.incubator.vector module is resolved (java --add-modules
+ * jdk.incubator.vector) and VectorBatchKernels was compiled (see its source
+ * folder, src-vector), the kernels run on the Vector API. Otherwise, or with
+ * -Dconnectfour.vector=false, they run as plain scalar loops that HotSpot may
+ * still auto-vectorize.
+ *
+ * Only sizes supported by BitboardLayout can be batched.
+ */
+public final class BoardBatch
+{
+    private static final BatchKernels KERNELS = loadKernels();
+
+    private final BitboardLayout layout_;
+    private final long[] player1_;
+    private final long[] player2_;
+    // Scratch space, reused so queries never allocate
+    private final long[] scratch_;
+    private int size_;
+
+    /**
+     * @param width
+     *            Width of every board in the batch
+     * @param height
+     *            Height of every board in the batch
+     * @param capacity
+     *            Maximum number of boards in the batch
+     */
+    public BoardBatch(final int width, final int height, final int capacity)
+    {
+        Validate.isTrue(capacity > 0, "Cannot create a BoardBatch with capacity <= 0");
+        layout_ = new BitboardLayout(width, height);
+        player1_ = new long[capacity];
+        player2_ = new long[capacity];
+        scratch_ = new long[capacity];
+    }
+
+    /**
+     * Adds a board's current position to the batch.
+     * 
+     * @param gameBoard
+     *            Non-null board of the batch's size
+     * @return Index of the position within the batch
+     */
+    public int add(final ConnectFourGameBoard gameBoard)
+    {
+        Validate.notNull(gameBoard, "Cannot add a null board to a BoardBatch");
+        Validate.isTrue(gameBoard.getWidth() == layout_.getWidth()
+                && gameBoard.getHeight() == layout_.getHeight(),
+                "Board size does not match the BoardBatch");
+        return add(gameBoard.getBitboard(Player.PLAYER_1),
+                gameBoard.getBitboard(Player.PLAYER_2));
+    }
+
+    /**
+     * Adds an already packed position to the batch.
+     * 
+     * @param player1
+     *            Spaces occupied by PLAYER_1, packed according to getLayout()
+     * @param player2
+     *            Spaces occupied by PLAYER_2, packed according to getLayout()
+     * @return Index of the position within the batch
+     */
+    public int add(final long player1, final long player2)
+    {
+        Validate.isTrue(size_ < player1_.length, "BoardBatch is full");
+        player1_[size_] = player1;
+        player2_[size_] = player2;
+        return size_++;
+    }
+
+    /**
+     * Removes every position, keeping the capacity.
+     */
+    public void clear()
+    {
+        size_ = 0;
+    }
+
+    /**
+     * @return Number of positions in the batch
+     */
+    public int size()
+    {
+        return size_;
+    }
+
+    /**
+     * @return Layout the positions are packed with
+     */
+    public BitboardLayout getLayout()
+    {
+        return layout_;
+    }
+
+    /**
+     * For every position, finds the columns where the player wins
+     * immediately (equivalent to calling checkIfWinningMove on each playable
+     * column of each board).
+     * 
+     * @param player
+     *            Player to move
+     * @param columns
+     *            Output, at least size() long. Bit i of columns[n] is set if
+     *            playing column i wins position n
+     */
+    public void winningColumns(final Player player, final int[] columns)
+    {
+        Validate.isTrue(columns.length >= size_, "Output array is smaller than the batch");
+        final long[] own = player == Player.PLAYER_1 ? player1_ : player2_;
+        KERNELS.winningMoves(layout_, own, player1_, player2_, scratch_, 0, size_);
+        compressToColumns(scratch_, columns);
+    }
+
+    /**
+     * For every position, finds the columns that are not full.
+     * 
+     * @param columns
+     *            Output, at least size() long. Bit i of columns[n] is set if
+     *            column i of position n can be played
+     */
+    public void playableColumns(final int[] columns)
+    {
+        Validate.isTrue(columns.length >= size_, "Output array is smaller than the batch");
+        KERNELS.playableSpaces(layout_, player1_, player2_, scratch_, 0, size_);
+        compressToColumns(scratch_, columns);
+    }
+
+    /**
+     * For every position, checks whether the player already has four in a
+     * line.
+     * 
+     * @param player
+     *            Player to check
+     * @param won
+     *            Output, at least size() long
+     */
+    public void hasFour(final Player player, final boolean[] won)
+    {
+        Validate.isTrue(won.length >= size_, "Output array is smaller than the batch");
+        final long[] own = player == Player.PLAYER_1 ? player1_ : player2_;
+        KERNELS.hasFour(layout_, own, won, 0, size_);
+    }
+
+    /**
+     * @return True if batches run on the Vector API, false for scalar loops
+     */
+    public static boolean isVectorized()
+    {
+        return !(KERNELS instanceof ScalarBatchKernels);
+    }
+
+    private static BatchKernels loadKernels()
+    {
+        if(!Boolean.parseBoolean(System.getProperty("connectfour.vector", "true"))
+                || !ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+        {
+            return new ScalarBatchKernels();
+        }
+        try
+        {
+            final BatchKernels kernels = (BatchKernels) Class.forName(
+                    "games.connectfour.VectorBatchKernels").getDeclaredConstructor()
+                    .newInstance();
+            // Links the Vector API classes now rather than in the middle of a query
+            kernels.hasFour(new BitboardLayout(7, 6), new long[64], new boolean[64], 0, 64);
+            return kernels;
+        }
+        catch(final ReflectiveOperationException | LinkageError e)
+        {
+            // Not compiled in, run the scalar loops
+            return new ScalarBatchKernels();
+        }
+    }
+
+    // Column by column, so the inner loop runs over the whole batch
+    private void compressToColumns(final long[] spaces, final int[] columns)
+    {
+        for(int i = 0; i < size_; ++i)
+        {
+            columns[i] = 0;
+        }
+        for(int column = 0; column < layout_.getWidth(); ++column)
+        {
+            final long columnMask = layout_.columnMask(column);
+            final int bit = 1 << column;
+            for(int i = 0; i < size_; ++i)
+            {
+                columns[i] |= (spaces[i] & columnMask) != 0 ? bit : 0;
+            }
+        }
+    }
+}
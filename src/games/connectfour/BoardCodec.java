@@ -0,0 +1,234 @@
+package games.connectfour;
+
+import game.Player;
+
+import java.nio.ByteBuffer;
+
+import utils.Validate;
+
+/**
+ * Compact encodings of a ConnectFourGameBoard's position, written straight
+ * into caller-supplied buffers so logging or sending millions of positions
+ * allocates nothing per position.
+ * 
+ * Packed: width and height (one byte each), then 2 bits per space (0 empty, 1
+ * PLAYER_1, 2 PLAYER_2), column by column from the bottom, 4 spaces per byte
+ * starting at the low bits. A 7x6 board takes 13 bytes.
+ * 
+ * Text: rows from the top separated by '/', '.' for an empty space and the
+ * player's number otherwise ("......./......./.../...1..."), the notation the
+ * GameServer protocol uses.
+ * 
+ * Only positions are encoded: decoding rebuilds a board holding the same
+ * discs (same positionHash()), played column by column, not the original
+ * move order.
+ */
+public final class BoardCodec
+{
+    private static final int MAX_DIMENSION = 0xFF;
+
+    private BoardCodec()
+    {
+        // Static access only
+    }
+
+    /**
+     * @param width
+     *            Board width
+     * @param height
+     *            Board height
+     * @return Number of bytes writePacked(...) writes for a board of that size
+     */
+    public static int packedSize(final int width, final int height)
+    {
+        return 2 + (width * height + 3) / 4;
+    }
+
+    /**
+     * @param gameBoard
+     *            Non-null board, at most 255x255
+     * @param buffer
+     *            Non-null buffer with at least packedSize(...) bytes remaining,
+     *            written from its position onwards
+     * @return Number of bytes written
+     */
+    public static int writePacked(final ConnectFourGameBoard gameBoard, final ByteBuffer buffer)
+    {
+        Validate.notNull(gameBoard, "Cannot encode a null board");
+        Validate.notNull(buffer, "Cannot encode into a null buffer");
+        final int width = gameBoard.getWidth();
+        final int height = gameBoard.getHeight();
+        Validate.isTrue(width <= MAX_DIMENSION && height <= MAX_DIMENSION,
+                "Packed boards are at most 255x255");
+        final int size = packedSize(width, height);
+        Validate.isTrue(buffer.remaining() >= size, "Buffer too small for a packed board");
+
+        buffer.put((byte) width).put((byte) height);
+        final BitboardLayout layout = gameBoard.getBitboardLayout();
+        final long player1 = layout == null ? 0 : gameBoard.getBitboard(Player.PLAYER_1);
+        final long player2 = layout == null ? 0 : gameBoard.getBitboard(Player.PLAYER_2);
+        int packed = 0;
+        int space = 0;
+        for(int column = 0; column < width; ++column)
+        {
+            for(int row = 0; row < height; ++row, ++space)
+            {
+                packed |= code(gameBoard, layout, player1, player2, column, row) << ((space & 3)
+                        << 1);
+                if((space & 3) == 3)
+                {
+                    buffer.put((byte) packed);
+                    packed = 0;
+                }
+            }
+        }
+        if((space & 3) != 0)
+        {
+            buffer.put((byte) packed);
+        }
+        return size;
+    }
+
+    /**
+     * @param buffer
+     *            Non-null buffer positioned on a packed board, which is
+     *            consumed
+     * @return Board holding the decoded position
+     * @throws IllegalArgumentException
+     *             if the bytes are not a valid position
+     */
+    public static ConnectFourGameBoard readPacked(final ByteBuffer buffer)
+    {
+        Validate.notNull(buffer, "Cannot decode a null buffer");
+        Validate.isTrue(buffer.remaining() >= 2, "Buffer too small for a packed board");
+        final int width = buffer.get() & 0xFF;
+        final int height = buffer.get() & 0xFF;
+        final ConnectFourGameBoard gameBoard = new ConnectFourGameBoard(width, height);
+        Validate.isTrue(buffer.remaining() >= packedSize(width, height) - 2,
+                "Buffer too small for a packed board");
+
+        int packed = 0;
+        int space = 0;
+        for(int column = 0; column < width; ++column)
+        {
+            boolean empty = false;
+            for(int row = 0; row < height; ++row, ++space)
+            {
+                if((space & 3) == 0)
+                {
+                    packed = buffer.get();
+                }
+                final int code = (packed >>> ((space & 3) << 1)) & 0x3;
+                empty = addDisc(gameBoard, column, code == 0 ? null : code == 1 ? Player.PLAYER_1
+                        : code == 2 ? Player.PLAYER_2 : invalid(), empty);
+            }
+        }
+        return gameBoard;
+    }
+
+    /**
+     * @param gameBoard
+     *            Non-null board
+     * @param builder
+     *            Non-null builder to append the text notation to
+     * @return The builder
+     */
+    public static StringBuilder appendText(final ConnectFourGameBoard gameBoard,
+            final StringBuilder builder)
+    {
+        Validate.notNull(gameBoard, "Cannot encode a null board");
+        Validate.notNull(builder, "Cannot encode into a null builder");
+        final int width = gameBoard.getWidth();
+        final BitboardLayout layout = gameBoard.getBitboardLayout();
+        final long player1 = layout == null ? 0 : gameBoard.getBitboard(Player.PLAYER_1);
+        final long player2 = layout == null ? 0 : gameBoard.getBitboard(Player.PLAYER_2);
+        for(int row = gameBoard.getHeight() - 1; row >= 0; --row)
+        {
+            for(int column = 0; column < width; ++column)
+            {
+                final int code = code(gameBoard, layout, player1, player2, column, row);
+                builder.append(code == 0 ? '.' : (char) ('0' + code));
+            }
+            if(row > 0)
+            {
+                builder.append('/');
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * @param text
+     *            Non-null text notation, see appendText(...)
+     * @return Board holding the decoded position
+     * @throws IllegalArgumentException
+     *             if the text is not a valid position
+     */
+    public static ConnectFourGameBoard parseText(final CharSequence text)
+    {
+        Validate.notNull(text, "Cannot decode null text");
+        int width = 0;
+        while(width < text.length() && text.charAt(width) != '/')
+        {
+            ++width;
+        }
+        final int height = (text.length() + 1) / (width + 1);
+        Validate.isTrue(width > 0 && height * (width + 1) - 1 == text.length(), () ->
+                "Rows of a board's text must all be the same length: " + text);
+        final ConnectFourGameBoard gameBoard = new ConnectFourGameBoard(width, height);
+
+        for(int column = 0; column < width; ++column)
+        {
+            boolean empty = false;
+            for(int row = 0; row < height; ++row)
+            {
+                final int index = (height - 1 - row) * (width + 1) + column;
+                if(column == 0 && row < height - 1)
+                {
+                    Validate.isTrue(text.charAt(index - 1) == '/', () -> String.format(
+                            "Expected '/' at %d in %s", index - 1, text));
+                }
+                final char symbol = text.charAt(index);
+                empty = addDisc(gameBoard, column, symbol == '.' ? null : symbol == '1'
+                        ? Player.PLAYER_1 : symbol == '2' ? Player.PLAYER_2 : invalid(), empty);
+            }
+        }
+        return gameBoard;
+    }
+
+    static char symbol(final Player player)
+    {
+        return (char) ('1' + player.ordinal());
+    }
+
+    // 0 for an empty space, otherwise the player's ordinal + 1
+    private static int code(final ConnectFourGameBoard gameBoard, final BitboardLayout layout,
+            final long player1, final long player2, final int column, final int row)
+    {
+        if(layout != null)
+        {
+            final long bit = layout.bit(column, row);
+            return (player1 & bit) != 0 ? 1 : (player2 & bit) != 0 ? 2 : 0;
+        }
+        final Player player = gameBoard.playerAt(column, row);
+        return player == null ? 0 : player.ordinal() + 1;
+    }
+
+    // Returns true once the column has had an empty space
+    private static boolean addDisc(final ConnectFourGameBoard gameBoard, final int column,
+            final Player player, final boolean empty)
+    {
+        if(player == null)
+        {
+            return true;
+        }
+        Validate.isTrue(!empty, "Discs cannot float above an empty space");
+        gameBoard.addMove(new ConnectFourMove(column, player));
+        return false;
+    }
+
+    private static Player invalid()
+    {
+        throw new IllegalArgumentException("Invalid space in encoded board");
+    }
+}
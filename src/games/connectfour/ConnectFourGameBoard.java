@@ -5,11 +5,10 @@ import game.GameBoard;
 import game.Player;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.function.BiConsumer;
-import java.util.function.Consumer;
 
+import metrics.MoveEvent;
+import utils.PackedCoordinates;
 import utils.Validate;
 import utils.Vector2;
 
@@ -22,9 +21,24 @@ public final class ConnectFourGameBoard extends
 {
     private static final short MOVES_TO_WIN = 4;
 
-    private final List<ConnectFourMove>[] board_;
+    /*
+     * Top disc of every column, each column being a persistent stack (null
+     * when empty). The array itself is copy-on-write: once it has been handed
+     * to a snapshot or another board, columnsShared_ is set and the array is
+     * cloned before the next modification.
+     */
+    private MoveNode[] columns_;
+    private boolean columnsShared_;
+
+    // Most recent move, the whole history is a persistent stack
+    private MoveNode history_;
 
-    private final List<ConnectFourMove> moveHistory_;
+    // Zobrist-style hash of the current position, maintained incrementally
+    private long positionHash_;
+
+    // Packed copy of the position (one long per player), null if too large
+    private final BitboardLayout layout_;
+    private final long[] bitboards_;
 
     /**
      * Creates a new ConnectFourGameBoard with the provided width & height
@@ -34,50 +48,202 @@ public final class ConnectFourGameBoard extends
      * @param height
      *            Height of board
      */
-    @SuppressWarnings("unchecked")
     public ConnectFourGameBoard(final int width, final int height)
     {
         super(width, height);
         Validate.inOpenInterval(MOVES_TO_WIN, 0, width);
         Validate.inOpenInterval(MOVES_TO_WIN, 0, height);
 
-        board_ = new List[width];
-        moveHistory_ = new ArrayList<ConnectFourMove>(width * height);
-        initializeBoard();
+        columns_ = new MoveNode[width];
+        layout_ = BitboardLayout.supports(width, height) ? new BitboardLayout(width, height)
+                : null;
+        bitboards_ = new long[Player.values().length];
     }
 
     /**
      * Creates a copy of the provided board. Modifying the state of either board
      * will have no impact on the other.
      * 
+     * Note: Moves are shared rather than copied, so this is O(1).
+     * 
      * @param copy
      *            Board to copy
      */
-    @SuppressWarnings("unchecked")
     public ConnectFourGameBoard(final ConnectFourGameBoard copy)
     {
         super(copy);
-        board_ = new List[width_];
-        moveHistory_ = new ArrayList<ConnectFourMove>(copy.moveHistory_);
-        for(int i = 0; i < width_; ++i)
-        {
-            board_[i] = new ArrayList<ConnectFourMove>(copy.board_[i]);
-        }
+        copy.columnsShared_ = true;
+        columns_ = copy.columns_;
+        columnsShared_ = true;
+        history_ = copy.history_;
+        positionHash_ = copy.positionHash_;
+        // Layouts are immutable, so they can be shared
+        layout_ = copy.layout_;
+        bitboards_ = copy.bitboards_.clone();
+    }
+
+    /**
+     * Creates a board in the position captured by the snapshot. The history is
+     * shared with the snapshot rather than copied, so this is O(1).
+     * 
+     * @param snapshot
+     *            Non-null snapshot to branch off
+     */
+    public ConnectFourGameBoard(final ConnectFourSnapshot snapshot)
+    {
+        super(snapshotWidth(snapshot), snapshot.getHeight());
+        columns_ = snapshot.columns();
+        columnsShared_ = true;
+        history_ = snapshot.history();
+        positionHash_ = snapshot.positionHash();
+        layout_ = snapshot.layout();
+        bitboards_ = new long[] { snapshot.bitboard(Player.PLAYER_1),
+                snapshot.bitboard(Player.PLAYER_2) };
+    }
+
+    /**
+     * Captures the current position in an immutable snapshot. The snapshot
+     * shares every move with this board, so taking one costs O(1) time and
+     * memory no matter how long the game is.
+     * 
+     * @return Snapshot of the current position
+     */
+    public ConnectFourSnapshot snapshot()
+    {
+        columnsShared_ = true;
+        return new ConnectFourSnapshot(width_, height_, columns_, history_, positionHash_,
+                layout_, bitboards_[Player.PLAYER_1.ordinal()],
+                bitboards_[Player.PLAYER_2.ordinal()]);
+    }
+
+    private static int snapshotWidth(final ConnectFourSnapshot snapshot)
+    {
+        Validate.notNull(snapshot, "Cannot create a board from a null snapshot");
+        return snapshot.getWidth();
     }
 
     @Override
     public void addMove(final ConnectFourMove move)
     {
-        validateMove(move);
+        if(Validate.internalChecksEnabled())
+        {
+            validateMove(move);
+        }
         internalAddMove(move);
+
+        // Free unless a Flight Recorder recording has the event enabled
+        final MoveEvent event = new MoveEvent();
+        if(event.isEnabled())
+        {
+            event.player = move.getPlayer().toString();
+            event.column = move.getColumn();
+            event.moveNumber = MoveNode.sizeOf(history_);
+            event.commit();
+        }
     }
 
     // Adds the move, move is assumed valid
     private void internalAddMove(final ConnectFourMove move)
     {
         final int column = move.getColumn();
-        board_[column].add(move);
-        moveHistory_.add(move);
+        final int row = lengthOfColumn(column);
+        positionHash_ ^= cellHash(column, row, move.getPlayer());
+        if(layout_ != null)
+        {
+            bitboards_[move.getPlayer().ordinal()] |= layout_.bit(column, row);
+        }
+        writableColumns()[column] = new MoveNode(move, columns_[column]);
+        history_ = new MoveNode(move, history_);
+    }
+
+    // Clones the column array if anybody else can see it
+    private MoveNode[] writableColumns()
+    {
+        if(columnsShared_)
+        {
+            columns_ = columns_.clone();
+            columnsShared_ = false;
+        }
+        return columns_;
+    }
+
+    /**
+     * Removes the most recently made move from the board, restoring the board
+     * to the exact state it was in before that move was made. This is
+     * primarily intended for search algorithms that explore moves in place
+     * instead of copying the board for every candidate.
+     * 
+     * @return The move that was removed
+     * @throws IllegalArgumentException
+     *             if no moves have been made
+     */
+    public ConnectFourMove removeLastMove()
+    {
+        if(Validate.internalChecksEnabled())
+        {
+            Validate.isTrue(history_ != null, "Cannot remove a move from an empty board");
+        }
+        final ConnectFourMove move = history_.move();
+        history_ = history_.previous();
+        final int column = move.getColumn();
+        final MoveNode[] columns = writableColumns();
+        columns[column] = columns[column].previous();
+        final int row = lengthOfColumn(column);
+        positionHash_ ^= cellHash(column, row, move.getPlayer());
+        if(layout_ != null)
+        {
+            bitboards_[move.getPlayer().ordinal()] &= ~layout_.bit(column, row);
+        }
+        return move;
+    }
+
+    /**
+     * Returns a 64 bit hash of the current position. Unlike hashCode(), this
+     * value is maintained incrementally as moves are added and removed, so it
+     * is essentially free to query. Identical positions always produce
+     * identical hashes, regardless of the order the moves were made in, and
+     * the value is stable across processes.
+     * 
+     * @return 64 bit hash of the position
+     */
+    public long positionHash()
+    {
+        return positionHash_;
+    }
+
+    /**
+     * @return The layout of this board's bitboards, or null if the board is
+     *         too large to be packed (see BitboardLayout.supports())
+     */
+    public BitboardLayout getBitboardLayout()
+    {
+        return layout_;
+    }
+
+    /**
+     * Returns the spaces occupied by the player, packed according to
+     * getBitboardLayout(). Maintained incrementally, so this is free.
+     * 
+     * @param player
+     *            Non-null player
+     * @return Spaces occupied by the player
+     * @throws IllegalArgumentException
+     *             if the board is too large to be packed
+     */
+    public long getBitboard(final Player player)
+    {
+        Validate.notNull(layout_, "Board is too large to be represented as a bitboard");
+        return bitboards_[player.ordinal()];
+    }
+
+    // Deterministic per-cell, per-player random value (SplitMix64 finalizer)
+    private long cellHash(final int column, final int row, final Player player)
+    {
+        long value = ((long) (column * height_ + row) << 1 | player.ordinal()) + 1;
+        value *= 0x9E3779B97F4A7C15L;
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
     }
 
     @Override
@@ -91,91 +257,240 @@ public final class ConnectFourGameBoard extends
     @Override
     public boolean checkIfWinningMove(final ConnectFourMove move)
     {
+        if(Validate.internalChecksEnabled())
+        {
+            validateMove(move);
+        }
         final int x = move.getColumn();
         final int y = lengthOfColumn(x);
-        final Vector2 movePosition = new Vector2(x, y);
         final Player player = move.getPlayer();
-        boolean isWinningMove = false;
+        if(layout_ != null)
+        {
+            // Every line through the space in a handful of shifts
+            final long mask = bitboards_[0] | bitboards_[1];
+            return (layout_.winningSpaces(bitboards_[player.ordinal()], mask) & layout_.bit(x, y)) != 0;
+        }
+
+        final int movePosition = PackedCoordinates.pack(x, y);
         for(final Direction direction : Direction.uniqueLineDirections())
         {
             // Winner if any line from the move's point have length
-            isWinningMove |= internalCheckWinnerOnLine(movePosition, direction, player);
+            if(internalCheckWinnerOnLine(movePosition, direction, player))
+            {
+                return true;
+            }
         }
-
-        return isWinningMove;
+        return false;
     }
 
     /*
      * Walk in both both directions away from the starting position to determine
-     * the the length of a line
+     * the the length of a line. The starting position itself is the (empty)
+     * space the move would occupy, so the walk begins on its neighbours.
      */
-    private boolean internalCheckWinnerOnLine(final Vector2 startingPosition,
+    private boolean internalCheckWinnerOnLine(final int startingPosition,
             final Direction direction, final Player player)
     {
-        final int consecutiveMovesTowards = consecutiveMovesByPlayerInDirection(startingPosition,
-                direction, player, 0);
-        final int consecutiveMovesAway = consecutiveMovesByPlayerInDirection(startingPosition,
-                direction.opposite(), player, 0);
+        final Direction opposite = direction.opposite();
+        final int consecutiveMovesTowards = consecutiveMovesByPlayerInDirection(
+                PackedCoordinates.add(startingPosition, direction.unitOffset()), direction,
+                player);
+        final int consecutiveMovesAway = consecutiveMovesByPlayerInDirection(
+                PackedCoordinates.add(startingPosition, opposite.unitOffset()), opposite,
+                player);
         return (consecutiveMovesAway + consecutiveMovesTowards + 1) >= MOVES_TO_WIN;
     }
 
-    /**
-     * Returns the number
-     */
-    private int consecutiveMovesByPlayerInDirection(final Vector2 currentPosition,
-            final Direction direction, final Player player, final int currentMoveCount)
+    // Returns the number of the player's discs in a row, starting at currentPosition
+    private int consecutiveMovesByPlayerInDirection(final int startingPosition,
+            final Direction direction, final Player player)
     {
-        if(isWithinBounds(currentPosition) && internalPlayerAt(currentPosition) == player)
+        int count = 0;
+        int currentPosition = startingPosition;
+        while(isWithinBounds(currentPosition) && internalPlayerAt(currentPosition) == player)
         {
-            return consecutiveMovesByPlayerInDirection(currentPosition.add(direction.unitVector()),
-                    direction, player, currentMoveCount + 1);
+            ++count;
+            currentPosition = PackedCoordinates.add(currentPosition, direction.unitOffset());
         }
-        return currentMoveCount;
+        return count;
     }
 
-    // Returns true if the Vector2 is in the bounds of the board
-    private boolean isWithinBounds(final Vector2 position)
+    // Returns true if the packed position is an occupied space of the board
+    private boolean isWithinBounds(final int packedPosition)
     {
-        final int x = position.getX();
-        final int y = position.getY();
-        return x >= 0 && x < board_.length && y >= 0 && lengthOfColumn(x) > y;
+        final int x = PackedCoordinates.x(packedPosition);
+        final int y = PackedCoordinates.y(packedPosition);
+        return x >= 0 && x < width_ && y >= 0 && lengthOfColumn(x) > y;
     }
 
     /*
-     * Returns the player at the specified boardIndex, or null if no player is
-     * there.
+     * Returns the player at the specified packed position, or null if no
+     * player is there.
      */
-    private Player internalPlayerAt(final Vector2 boardIndex)
+    private Player internalPlayerAt(final int packedPosition)
+    {
+        return internalPlayerAt(PackedCoordinates.x(packedPosition),
+                PackedCoordinates.y(packedPosition));
+    }
+
+    private Player internalPlayerAt(final int x, final int y)
     {
-        final int x = boardIndex.getX();
-        final int y = boardIndex.getY();
-        final List<ConnectFourMove> column = board_[x];
-        if(column.size() >= y)
+        if(y >= lengthOfColumn(x))
         {
             return null;
         }
-        return column.get(y).getPlayer();
+        if(layout_ != null)
+        {
+            // Bitboards answer in O(1), walking the column is O(height)
+            return (bitboards_[Player.PLAYER_1.ordinal()] & layout_.bit(x, y)) != 0
+                    ? Player.PLAYER_1 : Player.PLAYER_2;
+        }
+        return MoveNode.moveAt(columns_[x], y).getPlayer();
+    }
+
+    private void validateColumnSet(final Player player)
+    {
+        Validate.notNull(player, "Player cannot be null");
+        Validate.isTrue(width_ <= Integer.SIZE, "Column sets hold at most 32 columns");
+    }
+
+    private int slowWinningColumns(final Player player)
+    {
+        int columns = 0;
+        for(int column = 0; column < width_; ++column)
+        {
+            if(lengthOfColumn(column) < height_
+                    && checkIfWinningMove(new ConnectFourMove(column, player)))
+            {
+                columns |= 1 << column;
+            }
+        }
+        return columns;
     }
 
     // How many moves are stacked in the given column
     private int lengthOfColumn(final int column)
     {
-        return board_[column].size();
+        return MoveNode.sizeOf(columns_[column]);
     }
 
-    @Override
-    protected void validateMove(final ConnectFourMove move)
+    /**
+     * @param player
+     *            Player to move
+     * @return Columns (bit i for column i) where the player wins immediately
+     */
+    public int winningColumns(final Player player)
     {
-        Validate.notNull(move, "Provided move cannot be null");
-        Validate.inOpenInterval(move.getColumn(), 0, board_.length);
+        validateColumnSet(player);
+        if(layout_ != null)
+        {
+            final long own = bitboards_[player.ordinal()];
+            return layout_.columnsOf(layout_.winningMoves(own, own
+                    | bitboards_[player.opponent().ordinal()]));
+        }
+        return slowWinningColumns(player);
     }
 
-    private void initializeBoard()
+    /**
+     * @param player
+     *            Player to move
+     * @return Columns (bit i for column i) the player must play to stop the
+     *         opponent winning next turn. More than one means the game is
+     *         lost.
+     */
+    public int forcedColumns(final Player player)
     {
-        for(int i = 0; i < board_.length; ++i)
+        validateColumnSet(player);
+        if(layout_ != null)
+        {
+            return layout_.columnsOf(layout_.forcedMoves(bitboards_[player.ordinal()],
+                    bitboards_[player.opponent().ordinal()]));
+        }
+        return slowWinningColumns(player.opponent());
+    }
+
+    /**
+     * Columns after which the opponent cannot win on the next move (see
+     * BitboardLayout.nonLosingMoves(...)). The player's own immediate wins
+     * are not looked for, check winningColumns(...) first.
+     * 
+     * @param player
+     *            Player to move
+     * @return Columns (bit i for column i) that do not lose immediately, 0 if
+     *         every move does
+     */
+    public int nonLosingColumns(final Player player)
+    {
+        validateColumnSet(player);
+        if(layout_ != null)
+        {
+            return layout_.columnsOf(layout_.nonLosingMoves(bitboards_[player.ordinal()],
+                    bitboards_[player.opponent().ordinal()]));
+        }
+
+        final int forced = slowWinningColumns(player.opponent());
+        if(Integer.bitCount(forced) > 1)
+        {
+            return 0;
+        }
+        int candidates = forced;
+        if(candidates == 0)
         {
-            board_[i] = new ArrayList<ConnectFourMove>(height_);
+            for(int column = 0; column < width_; ++column)
+            {
+                if(lengthOfColumn(column) < height_)
+                {
+                    candidates |= 1 << column;
+                }
+            }
+        }
+
+        int nonLosing = 0;
+        for(int column = 0; column < width_; ++column)
+        {
+            if((candidates & (1 << column)) == 0)
+            {
+                continue;
+            }
+            // Would the opponent win on the space this move uncovers?
+            addMove(new ConnectFourMove(column, player));
+            final boolean uncovered = lengthOfColumn(column) < height_
+                    && checkIfWinningMove(new ConnectFourMove(column, player.opponent()));
+            removeLastMove();
+            if(!uncovered)
+            {
+                nonLosing |= 1 << column;
+            }
         }
+        return nonLosing;
+    }
+
+    /**
+     * Checks a move without throwing. Unlike addMove(...), this always checks,
+     * whatever the validation level, so external entry points can use it to
+     * vet untrusted moves.
+     * 
+     * @param move
+     *            Move to check
+     * @return True if the move can be played on this board
+     */
+    public boolean isLegalMove(final ConnectFourMove move)
+    {
+        return move != null && move.getColumn() >= 0 && move.getColumn() < width_
+                && lengthOfColumn(move.getColumn()) < height_;
+    }
+
+    /*
+     * Note: addMove(...) and checkIfWinningMove(...) only call this when
+     * internal checks are enabled, see Validate.Level
+     */
+    @Override
+    protected void validateMove(final ConnectFourMove move)
+    {
+        Validate.notNull(move, "Provided move cannot be null");
+        Validate.inOpenInterval(move.getColumn(), 0, width_ - 1);
+        Validate.isTrue(lengthOfColumn(move.getColumn()) < height_,
+                "Cannot add a move to a full column");
     }
 
     @Override
@@ -183,12 +498,51 @@ public final class ConnectFourGameBoard extends
     {
         validateSpace(position);
         final Vector2 coordinates = position.getPosition();
-        if(position == null || !isWithinBounds(coordinates))
+        return playerAt(coordinates.getX(), coordinates.getY());
+    }
+
+    /**
+     * Allocation-free version of playerAt(ConnectFourSpace).
+     * 
+     * @param packedPosition
+     *            Position packed with PackedCoordinates
+     * @return The player at the space, if any, null if no player (or the
+     *         position is outside the board).
+     */
+    public Player playerAt(final int packedPosition)
+    {
+        return isWithinBounds(packedPosition) ? internalPlayerAt(packedPosition) : null;
+    }
+
+    /**
+     * Allocation-free version of playerAt(ConnectFourSpace).
+     * 
+     * @param column
+     *            Column of the space
+     * @param row
+     *            Row of the space (0 is the bottom)
+     * @return The player at the space, if any, null if no player (or the
+     *         position is outside the board).
+     */
+    public Player playerAt(final int column, final int row)
+    {
+        if(column < 0 || column >= width_ || row < 0 || row >= lengthOfColumn(column))
         {
             return null;
         }
+        return internalPlayerAt(column, row);
+    }
 
-        return internalPlayerAt(coordinates);
+    /**
+     * @param column
+     *            Column (0 indexed)
+     * @return Number of discs in the column, which is also the row the next
+     *         disc played there lands on
+     */
+    public int columnHeight(final int column)
+    {
+        Validate.inOpenInterval(column, 0, width_ - 1);
+        return lengthOfColumn(column);
     }
 
     /**
@@ -205,34 +559,39 @@ public final class ConnectFourGameBoard extends
      */
     public Player[][] getBoardRepresentation()
     {
-        final Player[][] representation = new Player[board_.length][height_];
+        final Player[][] representation = new Player[width_][height_];
+        visitSpaces((column, row, player) -> representation[column][height_ - 1 - row] = player);
+        return representation;
+    }
 
-        applyFunctionToBoard((columnIndex, rowIndex) ->
+    /**
+     * Visits every space "visually": rows from the top down, each row from
+     * left to right, with endOfRow(...) after each row. Nothing is allocated
+     * or boxed along the way.
+     * 
+     * @param visitor
+     *            Non-null visitor
+     */
+    public void visitSpaces(final SpaceVisitor visitor)
+    {
+        Validate.notNull(visitor, "Cannot visit the board with a null visitor");
+        for(int row = height_ - 1; row >= 0; --row)
         {
-            final List<ConnectFourMove> column = board_[columnIndex];
-            Player player = null;
-            if(column.size() > rowIndex)
+            for(int column = 0; column < width_; ++column)
             {
-                // Grab the player only if it exists
-                final ConnectFourMove move = column.get(rowIndex);
-                player = move.getPlayer();
+                visitor.visit(column, row, internalPlayerAt(column, row));
             }
-            representation[columnIndex][height_ - 1 - rowIndex] = player;
-        }, column ->
-        {
-            // No row-end function
-            });
-
-        return representation;
+            visitor.endOfRow(row);
+        }
     }
 
     @Override
     public List<ConnectFourMove> availableMovesFor(final Player player)
     {
-        final List<ConnectFourMove> availableMoves = new ArrayList<ConnectFourMove>(board_.length);
-        for(int i = 0; i < board_.length; ++i)
+        final List<ConnectFourMove> availableMoves = new ArrayList<ConnectFourMove>(width_);
+        for(int i = 0; i < width_; ++i)
         {
-            if(board_[i].size() < height_)
+            if(lengthOfColumn(i) < height_)
             {
                 final ConnectFourMove availableMove = new ConnectFourMove(i, player);
                 availableMoves.add(availableMove);
@@ -246,7 +605,7 @@ public final class ConnectFourGameBoard extends
      */
     public boolean boardFull()
     {
-        return availableMovesFor(null).isEmpty();
+        return MoveNode.sizeOf(history_) == width_ * height_;
     }
 
     @Override
@@ -255,13 +614,21 @@ public final class ConnectFourGameBoard extends
      */
     public List<ConnectFourMove> getMoveHistory()
     {
-        return new ArrayList<ConnectFourMove>(moveHistory_);
+        return MoveNode.toList(history_);
+    }
+
+    /**
+     * @return Number of moves made so far
+     */
+    public int getMoveCount()
+    {
+        return MoveNode.sizeOf(history_);
     }
 
     @Override
     public int hashCode()
     {
-        return Arrays.deepHashCode(board_);
+        return Long.hashCode(positionHash_);
     }
 
     @Override
@@ -277,59 +644,40 @@ public final class ConnectFourGameBoard extends
         }
 
         final ConnectFourGameBoard gameBoard = (ConnectFourGameBoard) other;
-        return Arrays.deepEquals(board_, gameBoard.board_);
-    }
-
-    /**
-     * This is kind of confusing, but this allows us to apply any BiConsumer to
-     * the board (to be executed for every move in each row) and a Consumer to
-     * be executed once the end of each row has been hit. This allows us to do
-     * share code between converting the board into a String & converting the
-     * board into a 2D array
-     * 
-     * @param middleOfRow
-     *            Function to apply for (row, column) each element in a game
-     *            board row
-     * @param endOfRow
-     *            Function to apply for (row) at the end of each row
-     */
-    private void applyFunctionToBoard(final BiConsumer<Integer, Integer> middleOfRow,
-            final Consumer<Integer> endOfRow)
-    {
-        for(int i = (height_ - 1); i >= 0; --i)
+        if(width_ != gameBoard.width_ || height_ != gameBoard.height_
+                || positionHash_ != gameBoard.positionHash_)
         {
-            for(int j = 0; j < board_.length; ++j)
+            return false;
+        }
+        for(int i = 0; i < width_; ++i)
+        {
+            if(!MoveNode.sameMoves(columns_[i], gameBoard.columns_[i]))
             {
-                middleOfRow.accept(j, i);
+                return false;
             }
-            endOfRow.accept(i);
         }
+        return true;
     }
 
     @Override
     public String toString()
     {
-        final StringBuilder boardBuilder = new StringBuilder();
-        applyFunctionToBoard((columnIndex, rowIndex) ->
+        final StringBuilder boardBuilder = new StringBuilder(height_ * (2 * width_ + 1));
+        visitSpaces(new SpaceVisitor()
         {
-            final List<ConnectFourMove> column = board_[columnIndex];
-            if(column.size() <= rowIndex)
+            @Override
+            public void visit(final int column, final int row, final Player player)
             {
-                boardBuilder.append("  ");
+                boardBuilder.append(' ').append(player == null ? ' ' : BoardCodec.symbol(player));
             }
-            else
+
+            @Override
+            public void endOfRow(final int row)
             {
-                boardBuilder.append(" ");
-                final ConnectFourMove move = column.get(rowIndex);
-                boardBuilder.append(move.toString());
+                boardBuilder.append('\n');
             }
-        }, column ->
-        {
-            boardBuilder.append("\n");
         });
-
-        final String boardRepresentation = boardBuilder.toString();
-        return boardRepresentation;
+        return boardBuilder.toString();
     }
 
     @Override
@@ -0,0 +1,180 @@
+package games.connectfour;
+
+import game.Player;
+
+import java.util.List;
+
+import utils.Validate;
+
+/**
+ * Immutable snapshot of a ConnectFourGameBoard position, created with
+ * ConnectFourGameBoard.snapshot().
+ * 
+ * Snapshots share their moves with the board they came from (and with each
+ * other), so keeping one per move of a long game costs a few small objects
+ * per snapshot rather than a copy of the board. Branch off any snapshot with
+ * toBoard() to continue playing from that position.
+ */
+public final class ConnectFourSnapshot
+{
+    private final int width_;
+    private final int height_;
+    // Never modified, every board treats it as shared
+    private final MoveNode[] columns_;
+    private final MoveNode history_;
+    private final long positionHash_;
+    private final BitboardLayout layout_;
+    private final long player1_;
+    private final long player2_;
+
+    ConnectFourSnapshot(final int width, final int height, final MoveNode[] columns,
+            final MoveNode history, final long positionHash, final BitboardLayout layout,
+            final long player1, final long player2)
+    {
+        width_ = width;
+        height_ = height;
+        columns_ = columns;
+        history_ = history;
+        positionHash_ = positionHash;
+        layout_ = layout;
+        player1_ = player1;
+        player2_ = player2;
+    }
+
+    /**
+     * @return A new board in this position, sharing this snapshot's history
+     */
+    public ConnectFourGameBoard toBoard()
+    {
+        return new ConnectFourGameBoard(this);
+    }
+
+    /**
+     * @return Board width
+     */
+    public int getWidth()
+    {
+        return width_;
+    }
+
+    /**
+     * @return Board height
+     */
+    public int getHeight()
+    {
+        return height_;
+    }
+
+    /**
+     * @return Number of moves made to reach this position
+     */
+    public int getMoveCount()
+    {
+        return MoveNode.sizeOf(history_);
+    }
+
+    /**
+     * @return The move that led to this position, null for an empty board
+     */
+    public ConnectFourMove getLastMove()
+    {
+        return history_ == null ? null : history_.move();
+    }
+
+    /**
+     * @return New list of every move made to reach this position, oldest
+     *         first
+     */
+    public List<ConnectFourMove> getMoveHistory()
+    {
+        return MoveNode.toList(history_);
+    }
+
+    /**
+     * @return Same value as ConnectFourGameBoard.positionHash() in this
+     *         position
+     */
+    public long positionHash()
+    {
+        return positionHash_;
+    }
+
+    /**
+     * @param column
+     *            Column (0 indexed)
+     * @param row
+     *            Row (0 is the bottom)
+     * @return Player at the space, null if nobody has played there
+     */
+    public Player playerAt(final int column, final int row)
+    {
+        Validate.inOpenInterval(column, 0, width_ - 1);
+        Validate.inOpenInterval(row, 0, height_ - 1);
+        final MoveNode top = columns_[column];
+        if(row >= MoveNode.sizeOf(top))
+        {
+            return null;
+        }
+        return MoveNode.moveAt(top, row).getPlayer();
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Long.hashCode(positionHash_);
+    }
+
+    @Override
+    public boolean equals(Object other)
+    {
+        if(!(other instanceof ConnectFourSnapshot))
+        {
+            return false;
+        }
+        if(other == this)
+        {
+            return true;
+        }
+
+        final ConnectFourSnapshot snapshot = (ConnectFourSnapshot) other;
+        if(width_ != snapshot.width_ || height_ != snapshot.height_
+                || positionHash_ != snapshot.positionHash_)
+        {
+            return false;
+        }
+        for(int i = 0; i < width_; ++i)
+        {
+            if(!MoveNode.sameMoves(columns_[i], snapshot.columns_[i]))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toBoard().toString();
+    }
+
+    MoveNode[] columns()
+    {
+        return columns_;
+    }
+
+    MoveNode history()
+    {
+        return history_;
+    }
+
+    BitboardLayout layout()
+    {
+        return layout_;
+    }
+
+    long bitboard(final Player player)
+    {
+        return player == Player.PLAYER_1 ? player1_ : player2_;
+    }
+}
@@ -35,8 +35,30 @@ public final class ConnectFourSpace extends Space<ConnectFour>
         position_ = other.position_;
     }
 
+    /**
+     * Creates a ConnectFourSpace out of a presumed-valid ConnectFourGameBoard
+     * position
+     * 
+     * @param column
+     *            Column of the space
+     * @param row
+     *            Row of the space (0 is the bottom)
+     */
+    public ConnectFourSpace(final int column, final int row)
+    {
+        position_ = new Vector2(column, row);
+    }
+
     public Vector2 getPosition()
     {
         return position_;
     }
+
+    /**
+     * @return The position packed with PackedCoordinates
+     */
+    public int getPackedPosition()
+    {
+        return position_.pack();
+    }
 }
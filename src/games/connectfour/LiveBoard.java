@@ -0,0 +1,219 @@
+package games.connectfour;
+
+import game.Player;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+import utils.Validate;
+
+/**
+ * A ConnectFourGameBoard owned by one game thread that any number of other
+ * threads (views, spectators, metrics) can read while the game is running.
+ *
+ * The game thread makes its moves through addMove() and removeLastMove(),
+ * which also keep a BoardCodec packed copy of the position up to date (one
+ * byte changes per move). Readers copy that packed state under a StampedLock
+ * optimistic read, i.e. a seqlock: they never acquire the lock, so the writer
+ * never waits for them, and a copy that raced with a move is thrown away and
+ * taken again. All the writer pays per move is an uncontended write stamp.
+ *
+ * getBoard() itself is still only safe to use from the game thread.
+ */
+public final class LiveBoard
+{
+    private final ConnectFourGameBoard board_;
+    private final StampedLock lock_;
+    private final byte[] packed_;
+    private final LongAdder retries_;
+
+    private long version_;
+
+    /**
+     * @param width
+     *            Board width, at most 255
+     * @param height
+     *            Board height, at most 255
+     */
+    public LiveBoard(final int width, final int height)
+    {
+        this(new ConnectFourGameBoard(width, height));
+    }
+
+    /**
+     * @param gameBoard
+     *            Non-null board, at most 255x255, to publish. From now on it
+     *            must only be changed through this LiveBoard.
+     */
+    public LiveBoard(final ConnectFourGameBoard gameBoard)
+    {
+        Validate.notNull(gameBoard, "Cannot publish a null board");
+        board_ = gameBoard;
+        lock_ = new StampedLock();
+        packed_ = new byte[BoardCodec.packedSize(gameBoard.getWidth(), gameBoard.getHeight())];
+        retries_ = new LongAdder();
+        BoardCodec.writePacked(gameBoard, ByteBuffer.wrap(packed_));
+    }
+
+    /**
+     * @return The underlying board, for the game thread only
+     */
+    public ConnectFourGameBoard getBoard()
+    {
+        return board_;
+    }
+
+    /**
+     * @return Board width
+     */
+    public int getWidth()
+    {
+        return board_.getWidth();
+    }
+
+    /**
+     * @return Board height
+     */
+    public int getHeight()
+    {
+        return board_.getHeight();
+    }
+
+    /**
+     * Game thread only.
+     *
+     * @param move
+     *            Valid move to make and publish
+     */
+    public void addMove(final ConnectFourMove move)
+    {
+        board_.addMove(move);
+        final int column = move.getColumn();
+        publish(column, board_.columnHeight(column) - 1, move.getPlayer());
+    }
+
+    /**
+     * Game thread only.
+     *
+     * @param move
+     *            Valid move to make and publish
+     * @return True if the move won the game
+     */
+    public boolean checkedAddMove(final ConnectFourMove move)
+    {
+        final boolean won = board_.checkIfWinningMove(move);
+        addMove(move);
+        return won;
+    }
+
+    /**
+     * Game thread only.
+     *
+     * @return The move that was taken back
+     */
+    public ConnectFourMove removeLastMove()
+    {
+        final ConnectFourMove move = board_.removeLastMove();
+        final int column = move.getColumn();
+        publish(column, board_.columnHeight(column), null);
+        return move;
+    }
+
+    /**
+     * Any thread.
+     *
+     * @return Number of changes published so far, readers can skip work while
+     *         it stays the same
+     */
+    public long getVersion()
+    {
+        while(true)
+        {
+            final long stamp = lock_.tryOptimisticRead();
+            final long version = version_;
+            if(stamp != 0 && lock_.validate(stamp))
+            {
+                return version;
+            }
+            retry();
+        }
+    }
+
+    /**
+     * Any thread. Copies a consistent BoardCodec packed encoding of the
+     * current position, without allocating or blocking the game thread.
+     *
+     * @param destination
+     *            Non-null array of at least BoardCodec.packedSize(width,
+     *            height) bytes
+     * @return Version (see getVersion()) of the copied position
+     */
+    public long readPacked(final byte[] destination)
+    {
+        Validate.notNull(destination, "Cannot copy into a null array");
+        Validate.isTrue(destination.length >= packed_.length,
+                "Array too small for a packed board");
+        while(true)
+        {
+            final long stamp = lock_.tryOptimisticRead();
+            if(stamp != 0)
+            {
+                System.arraycopy(packed_, 0, destination, 0, packed_.length);
+                final long version = version_;
+                if(lock_.validate(stamp))
+                {
+                    return version;
+                }
+            }
+            retry();
+        }
+    }
+
+    /**
+     * Any thread.
+     *
+     * @return New board holding a consistent copy of the current position
+     *         (discs only, see BoardCodec)
+     */
+    public ConnectFourGameBoard snapshot()
+    {
+        final byte[] packed = new byte[packed_.length];
+        readPacked(packed);
+        return BoardCodec.readPacked(ByteBuffer.wrap(packed));
+    }
+
+    /**
+     * @return Number of times a reader had to take its copy again because
+     *         the game thread was moving
+     */
+    public long getReadRetries()
+    {
+        return retries_.sum();
+    }
+
+    private void publish(final int column, final int row, final Player player)
+    {
+        final int space = column * board_.getHeight() + row;
+        final int index = 2 + (space >>> 2);
+        final int shift = (space & 3) << 1;
+        final int code = player == null ? 0 : player == Player.PLAYER_1 ? 1 : 2;
+
+        final long stamp = lock_.writeLock();
+        try
+        {
+            packed_[index] = (byte) ((packed_[index] & ~(0x3 << shift)) | (code << shift));
+            ++version_;
+        }
+        finally
+        {
+            lock_.unlockWrite(stamp);
+        }
+    }
+
+    private void retry()
+    {
+        retries_.increment();
+        Thread.onSpinWait();
+    }
+}
@@ -0,0 +1,110 @@
+package games.connectfour;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable, singly linked stack of moves. A push creates a single node that
+ * points at the previous top, so any number of boards and snapshots can share
+ * the same moves without copying them.
+ * 
+ * Used both for the move history and for the contents of each column (where
+ * the top of the stack is the highest disc).
+ */
+final class MoveNode
+{
+    private final ConnectFourMove move_;
+    private final MoveNode previous_;
+    private final int size_;
+
+    MoveNode(final ConnectFourMove move, final MoveNode previous)
+    {
+        move_ = move;
+        previous_ = previous;
+        size_ = sizeOf(previous) + 1;
+    }
+
+    ConnectFourMove move()
+    {
+        return move_;
+    }
+
+    MoveNode previous()
+    {
+        return previous_;
+    }
+
+    /**
+     * @param node
+     *            Top of a stack, null for an empty stack
+     * @return Number of moves in the stack
+     */
+    static int sizeOf(final MoveNode node)
+    {
+        return node == null ? 0 : node.size_;
+    }
+
+    /**
+     * @param node
+     *            Top of a stack, null for an empty stack
+     * @param index
+     *            Index from the bottom of the stack (0 is the oldest move)
+     * @return The move at the index
+     */
+    static ConnectFourMove moveAt(final MoveNode node, final int index)
+    {
+        MoveNode current = node;
+        for(int i = sizeOf(node) - 1; i > index; --i)
+        {
+            current = current.previous_;
+        }
+        return current.move_;
+    }
+
+    /**
+     * @param node
+     *            Top of a stack, null for an empty stack
+     * @return New list of the stack's moves, oldest first
+     */
+    static List<ConnectFourMove> toList(final MoveNode node)
+    {
+        final int size = sizeOf(node);
+        final ConnectFourMove[] moves = new ConnectFourMove[size];
+        MoveNode current = node;
+        for(int i = size - 1; i >= 0; --i)
+        {
+            moves[i] = current.move_;
+            current = current.previous_;
+        }
+        final List<ConnectFourMove> list = new ArrayList<ConnectFourMove>(size);
+        for(final ConnectFourMove move : moves)
+        {
+            list.add(move);
+        }
+        return list;
+    }
+
+    /**
+     * @return True if both stacks hold equal moves in the same order
+     */
+    static boolean sameMoves(final MoveNode first, final MoveNode second)
+    {
+        if(sizeOf(first) != sizeOf(second))
+        {
+            return false;
+        }
+        MoveNode left = first;
+        MoveNode right = second;
+        // Shared tails are identical, so the walk usually stops early
+        while(left != right)
+        {
+            if(!left.move_.equals(right.move_))
+            {
+                return false;
+            }
+            left = left.previous_;
+            right = right.previous_;
+        }
+        return true;
+    }
+}
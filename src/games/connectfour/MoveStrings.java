@@ -0,0 +1,95 @@
+package games.connectfour;
+
+import game.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import utils.Validate;
+
+/**
+ * Converts games to and from move strings: the columns played, in order, as
+ * 1 indexed digits ("4453" is columns 3, 3, 4 then 2). PLAYER_1 always moves
+ * first and the players alternate, which is the usual notation for recorded
+ * Connect Four games and test positions. Boards up to 9 columns wide only.
+ */
+public final class MoveStrings
+{
+    private MoveStrings()
+    {
+        // Static access only
+    }
+
+    /**
+     * @param moves
+     *            Non-null move string
+     * @return The moves, PLAYER_1 first
+     * @throws IllegalArgumentException
+     *             if the string contains anything but digits 1 to 9
+     */
+    public static List<ConnectFourMove> parse(final CharSequence moves)
+    {
+        Validate.notNull(moves, "Cannot parse a null move string");
+        final List<ConnectFourMove> parsed = new ArrayList<ConnectFourMove>(moves.length());
+        Player player = Player.PLAYER_1;
+        for(int i = 0; i < moves.length(); ++i)
+        {
+            final char digit = moves.charAt(i);
+            final int index = i;
+            Validate.isTrue(digit >= '1' && digit <= '9', () -> String.format(
+                    "Invalid column '%c' at %d in move string %s", digit, index, moves));
+            parsed.add(new ConnectFourMove(digit - '1', player));
+            player = player.opponent();
+        }
+        return parsed;
+    }
+
+    /**
+     * Plays a move string on a new board.
+     * 
+     * @param width
+     *            Board width
+     * @param height
+     *            Board height
+     * @param moves
+     *            Non-null move string
+     * @return Board with every move played
+     * @throws IllegalArgumentException
+     *             if a move is invalid
+     */
+    public static ConnectFourGameBoard toBoard(final int width, final int height,
+            final CharSequence moves)
+    {
+        final ConnectFourGameBoard gameBoard = new ConnectFourGameBoard(width, height);
+        for(final ConnectFourMove move : parse(moves))
+        {
+            // Checked whatever the validation level, move strings come from outside
+            if(!gameBoard.isLegalMove(move))
+            {
+                throw new IllegalArgumentException(String.format(
+                        "Illegal move in column %d in move string %s", move.getColumn() + 1,
+                        moves));
+            }
+            gameBoard.addMove(move);
+        }
+        return gameBoard;
+    }
+
+    /**
+     * @param moves
+     *            Non-null moves, all within the first 9 columns
+     * @return The move string
+     */
+    public static String format(final List<ConnectFourMove> moves)
+    {
+        Validate.notNull(moves, "Cannot format null moves");
+        final StringBuilder builder = new StringBuilder(moves.size());
+        for(final ConnectFourMove move : moves)
+        {
+            Validate.isTrue(move.getColumn() >= 0 && move.getColumn() < 9,
+                    "Move strings only hold columns 1 to 9");
+            builder.append((char) ('1' + move.getColumn()));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,44 @@
+package games.connectfour;
+
+/**
+ * BatchKernels as plain loops over BitboardLayout, which HotSpot may still
+ * auto-vectorize. Used whenever the Vector API is not available.
+ */
+final class ScalarBatchKernels implements BatchKernels
+{
+    @Override
+    public void playableSpaces(final BitboardLayout layout, final long[] player1,
+            final long[] player2, final long[] playable, final int from, final int to)
+    {
+        final long bottom = layout.bottomMask();
+        final long board = layout.boardMask();
+        for(int i = from; i < to; ++i)
+        {
+            playable[i] = ((player1[i] | player2[i]) + bottom) & board;
+        }
+    }
+
+    @Override
+    public void winningMoves(final BitboardLayout layout, final long[] own,
+            final long[] player1, final long[] player2, final long[] winning, final int from,
+            final int to)
+    {
+        final long bottom = layout.bottomMask();
+        final long board = layout.boardMask();
+        for(int i = from; i < to; ++i)
+        {
+            final long mask = player1[i] | player2[i];
+            winning[i] = layout.winningSpaces(own[i], mask) & ((mask + bottom) & board);
+        }
+    }
+
+    @Override
+    public void hasFour(final BitboardLayout layout, final long[] own, final boolean[] won,
+            final int from, final int to)
+    {
+        for(int i = from; i < to; ++i)
+        {
+            won[i] = layout.hasFour(own[i]);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package games.connectfour;
+
+import game.Player;
+
+/**
+ * Callback for every space of a ConnectFourGameBoard, see
+ * ConnectFourGameBoard.visitSpaces(...). Takes primitive coordinates, so
+ * visiting a board never boxes.
+ */
+@FunctionalInterface
+public interface SpaceVisitor
+{
+    /**
+     * @param column
+     *            Column of the space (0 indexed)
+     * @param row
+     *            Row of the space (0 is the bottom)
+     * @param player
+     *            Player occupying the space, null if empty
+     */
+    public void visit(final int column, final int row, final Player player);
+
+    /**
+     * Called once every space of a row has been visited.
+     * 
+     * @param row
+     *            Row that was just finished
+     */
+    public default void endOfRow(final int row)
+    {
+        // Most visitors don't care
+    }
+}
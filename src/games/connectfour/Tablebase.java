@@ -0,0 +1,209 @@
+package games.connectfour;
+
+import game.Player;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import utils.Validate;
+
+/**
+ * Read-only, memory-mapped endgame tablebase holding the perfect-play result
+ * of every position of a small board, or of every position from a minimum
+ * disc count, or of every continuation of one base position (see
+ * TablebaseGenerator). Positions outside of that are UNKNOWN.
+ * 
+ * Entries are 2 bits each and are read straight from the mapped file, so an
+ * open tablebase costs no heap regardless of its size, and any number of
+ * processes opening the same file share a single copy in the OS page cache.
+ * 
+ * Results assume PLAYER_1 moved first, so the side to move is PLAYER_1 when
+ * an even number of discs has been played.
+ */
+public final class Tablebase implements Closeable
+{
+    /**
+     * Perfect-play result for the side to move. The ordinal is the 2 bit
+     * value stored in the file.
+     */
+    public static enum Result
+    {
+        /**
+         * Position is not covered (e.g. unreachable)
+         */
+        UNKNOWN,
+        /**
+         * Side to move wins
+         */
+        WIN,
+        /**
+         * Neither side can force a win
+         */
+        DRAW,
+        /**
+         * Side to move loses
+         */
+        LOSS;
+
+        private static final Result[] VALUES = values();
+
+        static Result fromBits(final int bits)
+        {
+            return VALUES[bits & 0x3];
+        }
+
+        /**
+         * @return The same result seen from the other player's side
+         */
+        public Result flip()
+        {
+            switch(this)
+            {
+            case WIN:
+                return LOSS;
+            case LOSS:
+                return WIN;
+            default:
+                return this;
+            }
+        }
+    }
+
+    static final int MAGIC = 0x43345442;
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 48;
+
+    private final FileChannel channel_;
+    private final MappedByteBuffer data_;
+    private final TablebaseIndex index_;
+
+    private Tablebase(final FileChannel channel, final MappedByteBuffer data,
+            final TablebaseIndex index)
+    {
+        channel_ = channel;
+        data_ = data;
+        index_ = index;
+    }
+
+    /**
+     * Maps a tablebase file into memory.
+     * 
+     * @param file
+     *            File written by TablebaseGenerator
+     * @return The opened tablebase
+     * @throws IOException
+     *             if the file cannot be read
+     * @throws IllegalArgumentException
+     *             if the file is not a tablebase of a supported version
+     */
+    public static Tablebase open(final Path file) throws IOException
+    {
+        Validate.notNull(file, "Cannot open a null tablebase file");
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try
+        {
+            final MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+            data.order(ByteOrder.LITTLE_ENDIAN);
+            Validate.isTrue(data.capacity() >= HEADER_BYTES && data.getInt(0) == MAGIC,
+                    () -> file + " is not a tablebase");
+            Validate.isTrue(data.getInt(4) == VERSION, () -> String.format(
+                    "%s has unsupported tablebase version %d", file, data.getInt(4)));
+            final TablebaseIndex index = new TablebaseIndex(data.getInt(8), data.getInt(12),
+                    data.getLong(32), data.getLong(40), data.getInt(24));
+            Validate.isTrue(data.getLong(16) == index.size()
+                    && data.capacity() >= HEADER_BYTES + bytesFor(index.size()),
+                    () -> file + " is truncated");
+            return new Tablebase(channel, data, index);
+        }
+        catch(final IOException | RuntimeException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param gameBoard
+     *            Non-null board of the tablebase's size
+     * @return Result for the side to move
+     */
+    public Result probe(final ConnectFourGameBoard gameBoard)
+    {
+        Validate.notNull(gameBoard, "Cannot probe a null board");
+        Validate.isTrue(gameBoard.getWidth() == getWidth()
+                && gameBoard.getHeight() == getHeight(),
+                "Board size does not match the tablebase");
+        return probe(gameBoard.getBitboard(Player.PLAYER_1),
+                gameBoard.getBitboard(Player.PLAYER_2));
+    }
+
+    /**
+     * @param player1
+     *            Spaces occupied by PLAYER_1
+     * @param player2
+     *            Spaces occupied by PLAYER_2
+     * @return Result for the side to move
+     */
+    public Result probe(final long player1, final long player2)
+    {
+        final long index = index_.index(player1, player1 | player2);
+        if(index == TablebaseIndex.NOT_COVERED)
+        {
+            return Result.UNKNOWN;
+        }
+        final int packed = data_.get(HEADER_BYTES + (int) (index >>> 2));
+        return Result.fromBits(packed >>> ((int) (index & 3) << 1));
+    }
+
+    /**
+     * @param gameBoard
+     *            Non-null board
+     * @return True if the board is of the tablebase's size and its position
+     *         is one the tablebase was built for
+     */
+    public boolean covers(final ConnectFourGameBoard gameBoard)
+    {
+        Validate.notNull(gameBoard, "Cannot check a null board");
+        if(gameBoard.getWidth() != getWidth() || gameBoard.getHeight() != getHeight())
+        {
+            return false;
+        }
+        final long player1 = gameBoard.getBitboard(Player.PLAYER_1);
+        return index_.index(player1, player1 | gameBoard.getBitboard(Player.PLAYER_2))
+                != TablebaseIndex.NOT_COVERED;
+    }
+
+    /**
+     * @return Width of the boards covered
+     */
+    public int getWidth()
+    {
+        return index_.layout().getWidth();
+    }
+
+    /**
+     * @return Height of the boards covered
+     */
+    public int getHeight()
+    {
+        return index_.layout().getHeight();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        // The mapping itself stays valid until it is garbage collected
+        channel_.close();
+    }
+
+    static long bytesFor(final long entries)
+    {
+        return (entries + 3) / 4;
+    }
+}
@@ -0,0 +1,341 @@
+package games.connectfour;
+
+import game.Player;
+import games.connectfour.Tablebase.Result;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import utils.Validate;
+
+/**
+ * Builds a Tablebase by retrograde analysis.
+ * 
+ * Every move adds a disc, so positions can be solved one disc count at a
+ * time, starting from full boards and working back to the empty board (or
+ * to the base position and disc count window the tablebase is limited to,
+ * see TablebaseIndex). All positions with n discs only depend on positions
+ * with n + 1 discs, so each level is solved in parallel across every core.
+ *
+ * A whole 6x5 board needs about 10G entries, too many to hold, but every
+ * 6x5 position with at least 22 discs fits. On 7x6 boards even the full
+ * level has too many colourings, so tablebases there cover the endgame of
+ * one base position: every continuation of a position with 16 or more
+ * discs fits.
+ */
+public final class TablebaseGenerator
+{
+    /**
+     * Largest index space generated (2 bits per entry, kept in memory while
+     * generating and mapped as a single buffer when probing). 5x4 boards need
+     * ~6M entries, 6x5 boards from 22 discs ~8.3G.
+     */
+    public static final long MAX_ENTRIES = 4L * (Integer.MAX_VALUE - Tablebase.HEADER_BYTES);
+
+    private final TablebaseIndex index_;
+    private final BitboardLayout layout_;
+    // 32 entries per long, written with CAS since levels are solved in parallel
+    private final AtomicLongArray entries_;
+
+    private TablebaseGenerator(final ConnectFourGameBoard base, final int minDiscs)
+    {
+        final int width = base.getWidth();
+        final int height = base.getHeight();
+        final long player1 = base.getBitboard(Player.PLAYER_1);
+        final long player2 = base.getBitboard(Player.PLAYER_2);
+        index_ = new TablebaseIndex(width, height, player1, player1 | player2, minDiscs);
+        layout_ = index_.layout();
+        Validate.isTrue(!layout_.hasFour(player1) && !layout_.hasFour(player2),
+                "Cannot build a tablebase from a finished game");
+        Validate.isTrue(index_.size() <= MAX_ENTRIES, () -> String.format(
+                "A %dx%d tablebase from %d discs needs %d entries, the limit is %d", width,
+                height, minDiscs, index_.size(), MAX_ENTRIES));
+        entries_ = new AtomicLongArray((int) ((index_.size() + 31) / 32));
+    }
+
+    /**
+     * Solves every position of the given board size and writes the tablebase.
+     * 
+     * @param width
+     *            Board width
+     * @param height
+     *            Board height
+     * @param file
+     *            File to (over)write
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    public static void generate(final int width, final int height, final Path file)
+            throws IOException
+    {
+        generate(new ConnectFourGameBoard(width, height), 0, file);
+    }
+
+    /**
+     * Solves every continuation of a position that has at least the given
+     * number of discs and writes the tablebase.
+     * 
+     * @param base
+     *            Non-null position every covered position extends, PLAYER_1
+     *            having moved first
+     * @param minDiscs
+     *            Fewest discs a covered position has, at least as many as the
+     *            base has
+     * @param file
+     *            File to (over)write
+     * @throws IOException
+     *             if the file cannot be written
+     * @throws IllegalArgumentException
+     *             if the tablebase would be too large
+     */
+    public static void generate(final ConnectFourGameBoard base, final int minDiscs,
+            final Path file) throws IOException
+    {
+        Validate.notNull(base, "Cannot build a tablebase from a null base position");
+        Validate.notNull(file, "Cannot write a tablebase to a null file");
+        final TablebaseGenerator generator = new TablebaseGenerator(base, minDiscs);
+        generator.solve();
+        generator.write(file);
+    }
+
+    private void solve()
+    {
+        final int spaces = layout_.getWidth() * layout_.getHeight();
+        final int baseDiscs = Long.bitCount(index_.baseMask());
+        for(int discs = spaces; discs >= index_.minDiscs(); --discs)
+        {
+            final int level = discs;
+            columnHeights(level - baseDiscs).parallelStream().forEach(
+                    heights -> solve(level, heights));
+        }
+    }
+
+    // Solves every colouring of the discs added to the base in the given heights
+    private void solve(final int discs, final int[] heights)
+    {
+        long added = 0;
+        for(int column = 0; column < heights.length; ++column)
+        {
+            final int bottom = index_.baseHeight(column);
+            added |= ((1L << heights[column]) - 1) << (column * (layout_.getHeight() + 1)
+                    + bottom);
+        }
+        final long base = index_.basePlayer1();
+        final long mask = index_.baseMask() | added;
+        final int addedDiscs = Long.bitCount(added);
+
+        // PLAYER_1 moves first, so owns the extra disc on odd levels
+        final int player1Discs = index_.player1Added(addedDiscs);
+        final boolean player1ToMove = (discs & 1) == 0;
+        if(player1Discs < 0 || player1Discs > addedDiscs)
+        {
+            return;
+        }
+        if(player1Discs == 0)
+        {
+            solve(base, mask, discs, player1ToMove);
+            return;
+        }
+
+        // Gosper's hack: every addedDiscs-bit number with player1Discs bits set
+        final long last = ((1L << player1Discs) - 1) << (addedDiscs - player1Discs);
+        long combination = (1L << player1Discs) - 1;
+        while(true)
+        {
+            solve(base | deposit(combination, added), mask, discs, player1ToMove);
+            if(combination == last)
+            {
+                break;
+            }
+            final long lowest = combination & -combination;
+            final long ripple = combination + lowest;
+            combination = (((ripple ^ combination) >>> 2) / lowest) | ripple;
+        }
+    }
+
+    private void solve(final long player1, final long mask, final int discs,
+            final boolean player1ToMove)
+    {
+        final long player2 = mask ^ player1;
+        final long toMove = player1ToMove ? player1 : player2;
+        final long justMoved = player1ToMove ? player2 : player1;
+        if(layout_.hasFour(toMove))
+        {
+            // Unreachable, the game would have ended a move earlier
+            return;
+        }
+
+        final Result result;
+        if(layout_.hasFour(justMoved))
+        {
+            result = Result.LOSS;
+        }
+        else if(discs == layout_.getWidth() * layout_.getHeight())
+        {
+            result = Result.DRAW;
+        }
+        else if((layout_.winningSpaces(toMove, mask) & layout_.playableSpaces(mask)) != 0)
+        {
+            result = Result.WIN;
+        }
+        else
+        {
+            result = bestChild(toMove, mask, player1ToMove);
+        }
+        set(index_.index(player1, mask), result);
+    }
+
+    private Result bestChild(final long toMove, final long mask, final boolean player1ToMove)
+    {
+        long moves = layout_.playableSpaces(mask);
+        Result best = Result.LOSS;
+        while(moves != 0)
+        {
+            final long move = moves & -moves;
+            moves ^= move;
+            final long childPlayer1 = player1ToMove ? toMove | move : mask ^ toMove;
+            // Child results are from the opponent's point of view
+            final Result child = get(index_.index(childPlayer1, mask | move)).flip();
+            if(child == Result.WIN)
+            {
+                return Result.WIN;
+            }
+            if(child == Result.DRAW)
+            {
+                best = Result.DRAW;
+            }
+        }
+        return best;
+    }
+
+    // Every way of stacking discs discs on the base, columns holding at most height
+    private List<int[]> columnHeights(final int discs)
+    {
+        final List<int[]> all = new ArrayList<int[]>();
+        columnHeights(new int[layout_.getWidth()], 0, discs, all);
+        return all;
+    }
+
+    private void columnHeights(final int[] heights, final int column, final int remaining,
+            final List<int[]> all)
+    {
+        if(column == heights.length)
+        {
+            if(remaining == 0)
+            {
+                all.add(heights.clone());
+            }
+            return;
+        }
+        final int maximum = Math.min(remaining, layout_.getHeight()
+                - index_.baseHeight(column));
+        for(int height = 0; height <= maximum; ++height)
+        {
+            heights[column] = height;
+            columnHeights(heights, column + 1, remaining - height, all);
+        }
+    }
+
+    // Scatters the low bits of value into the set bits of mask (software PDEP)
+    private static long deposit(final long value, final long mask)
+    {
+        long result = 0;
+        long remaining = mask;
+        for(long bit = 1; remaining != 0; bit <<= 1)
+        {
+            final long lowest = remaining & -remaining;
+            if((value & bit) != 0)
+            {
+                result |= lowest;
+            }
+            remaining ^= lowest;
+        }
+        return result;
+    }
+
+    private Result get(final long index)
+    {
+        return Result.fromBits((int) (entries_.get((int) (index >>> 5)) >>> ((index & 31) << 1)));
+    }
+
+    private void set(final long index, final Result result)
+    {
+        final int slot = (int) (index >>> 5);
+        final int shift = (int) (index & 31) << 1;
+        long current;
+        long updated;
+        do
+        {
+            current = entries_.get(slot);
+            updated = (current & ~(3L << shift)) | ((long) result.ordinal() << shift);
+        }
+        while(!entries_.compareAndSet(slot, current, updated));
+    }
+
+    private void write(final Path file) throws IOException
+    {
+        try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            final ByteBuffer header = ByteBuffer.allocate(Tablebase.HEADER_BYTES).order(
+                    ByteOrder.LITTLE_ENDIAN);
+            header.putInt(Tablebase.MAGIC).putInt(Tablebase.VERSION)
+                    .putInt(layout_.getWidth()).putInt(layout_.getHeight())
+                    .putLong(index_.size()).putInt(index_.minDiscs()).putInt(0)
+                    .putLong(index_.basePlayer1()).putLong(index_.baseMask());
+            header.clear();
+            while(header.hasRemaining())
+            {
+                channel.write(header);
+            }
+
+            // Little endian longs put entry i in byte i / 4, which is how they are read
+            final long bytes = Tablebase.bytesFor(index_.size());
+            final ByteBuffer chunk = ByteBuffer.allocateDirect(1 << 20).order(
+                    ByteOrder.LITTLE_ENDIAN);
+            long written = 0;
+            for(int slot = 0; slot < entries_.length(); ++slot)
+            {
+                chunk.putLong(entries_.get(slot));
+                if(!chunk.hasRemaining() || slot == entries_.length() - 1)
+                {
+                    chunk.flip();
+                    chunk.limit((int) Math.min(chunk.limit(), bytes - written));
+                    written += chunk.remaining();
+                    while(chunk.hasRemaining())
+                    {
+                        channel.write(chunk);
+                    }
+                    chunk.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Usage: TablebaseGenerator width height file [min discs [base moves]]
+     * 
+     * Base moves are a move string (see MoveStrings), e.g. a 7x6 endgame.
+     */
+    public static void main(String args[]) throws IOException
+    {
+        Validate.isTrue(args.length >= 3 && args.length <= 5,
+                "Usage: TablebaseGenerator width height file [min discs [base moves]]");
+        final int width = Integer.parseInt(args[0]);
+        final int height = Integer.parseInt(args[1]);
+        final ConnectFourGameBoard base = args.length > 4 ? MoveStrings.toBoard(width, height,
+                args[4]) : new ConnectFourGameBoard(width, height);
+        final int minDiscs = args.length > 3 ? Integer.parseInt(args[3]) : base.getMoveCount();
+        final long start = System.nanoTime();
+        generate(base, Math.max(minDiscs, base.getMoveCount()), Paths.get(args[2]));
+        System.out.printf("Generated %s in %.1f s%n", args[2], (System.nanoTime() - start) / 1e9);
+    }
+}
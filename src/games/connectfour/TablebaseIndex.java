@@ -0,0 +1,216 @@
+package games.connectfour;
+
+import utils.Validate;
+
+/**
+ * Perfect index of the positions a tablebase covers: every position that
+ * extends a base position (the empty board for a whole-board tablebase), has
+ * at least a minimum number of discs, and has the disc balance of a real game
+ * (PLAYER_1 moving first).
+ *
+ * Positions are grouped by the number of discs added to the base. Within a
+ * group, each way of stacking the added discs into the columns gets a block
+ * (ranked in lexicographic order of the added column heights), and within a
+ * block PLAYER_1's added discs are ranked as a combination of the added
+ * spaces (colexicographic rank). Arrangements that break the disc balance
+ * therefore take no space, which keeps 6x5 boards (from a disc count window)
+ * and 7x6 endgames (from a base position) within reach.
+ */
+final class TablebaseIndex
+{
+    /**
+     * Returned by index(...) for positions the index does not cover
+     */
+    static final long NOT_COVERED = -1;
+
+    private final BitboardLayout layout_;
+    private final long basePlayer1_;
+    private final long baseMask_;
+    private final int baseDiscs_;
+    private final int basePlayer1Discs_;
+    private final int minDiscs_;
+    // Discs of the base in every column
+    private final int[] baseHeights_;
+    // stackings_[column][discs]: ways to stack discs added discs into column and beyond
+    private final long[][] stackings_;
+    // First index of every number of added discs, plus the size at the end
+    private final long[] offsets_;
+    private final long[][] binomials_;
+
+    /**
+     * @param width
+     *            Board width
+     * @param height
+     *            Board height
+     * @param basePlayer1
+     *            Spaces PLAYER_1 occupies in the base position
+     * @param baseMask
+     *            Spaces either player occupies in the base position
+     * @param minDiscs
+     *            Fewest discs a covered position has, at least as many as the
+     *            base
+     */
+    TablebaseIndex(final int width, final int height, final long basePlayer1,
+            final long baseMask, final int minDiscs)
+    {
+        layout_ = new BitboardLayout(width, height);
+        final int spaces = width * height;
+        baseHeights_ = new int[width];
+        for(int column = 0; column < width; ++column)
+        {
+            final long columnMask = layout_.columnMask(column);
+            baseHeights_[column] = Long.bitCount(baseMask & columnMask);
+            final long stacked = (layout_.bottomMask() & columnMask)
+                    * ((1L << baseHeights_[column]) - 1);
+            Validate.isTrue((baseMask & columnMask) == stacked, "Base discs must be stacked");
+        }
+        Validate.isTrue((basePlayer1 & ~baseMask) == 0,
+                "Base PLAYER_1 discs must be in the base");
+        basePlayer1_ = basePlayer1;
+        baseMask_ = baseMask;
+        baseDiscs_ = Long.bitCount(baseMask);
+        basePlayer1Discs_ = Long.bitCount(basePlayer1);
+        Validate.isTrue(basePlayer1Discs_ == (baseDiscs_ + 1) / 2,
+                "Base position must have PLAYER_1 moving first");
+        Validate.isTrue(minDiscs >= baseDiscs_ && minDiscs <= spaces, () -> String.format(
+                "Minimum discs must be within [%d, %d]", baseDiscs_, spaces));
+        minDiscs_ = minDiscs;
+
+        binomials_ = new long[spaces + 1][spaces + 1];
+        for(int n = 0; n <= spaces; ++n)
+        {
+            binomials_[n][0] = 1;
+            for(int k = 1; k <= n; ++k)
+            {
+                binomials_[n][k] = binomials_[n - 1][k - 1] + binomials_[n - 1][k];
+            }
+        }
+
+        final int free = spaces - baseDiscs_;
+        stackings_ = new long[width + 1][free + 1];
+        stackings_[width][0] = 1;
+        for(int column = width - 1; column >= 0; --column)
+        {
+            for(int discs = 0; discs <= free; ++discs)
+            {
+                final int maximum = Math.min(discs, height - baseHeights_[column]);
+                for(int added = 0; added <= maximum; ++added)
+                {
+                    stackings_[column][discs] += stackings_[column + 1][discs - added];
+                }
+            }
+        }
+
+        offsets_ = new long[free + 2];
+        for(int added = 0; added <= free; ++added)
+        {
+            long positions = 0;
+            final int player1Added = player1Added(added);
+            if(baseDiscs_ + added >= minDiscs && player1Added >= 0 && player1Added <= added)
+            {
+                final long colourings = binomials_[added][player1Added];
+                Validate.isTrue(stackings_[0][added] <= (Long.MAX_VALUE - offsets_[added])
+                        / colourings, "Tablebase index overflow");
+                positions = stackings_[0][added] * colourings;
+            }
+            offsets_[added + 1] = offsets_[added] + positions;
+        }
+    }
+
+    BitboardLayout layout()
+    {
+        return layout_;
+    }
+
+    /**
+     * @return Number of distinct indices
+     */
+    long size()
+    {
+        return offsets_[offsets_.length - 1];
+    }
+
+    long basePlayer1()
+    {
+        return basePlayer1_;
+    }
+
+    long baseMask()
+    {
+        return baseMask_;
+    }
+
+    int minDiscs()
+    {
+        return minDiscs_;
+    }
+
+    /**
+     * @param column
+     *            Column of the board
+     * @return Discs the base position has in the column
+     */
+    int baseHeight(final int column)
+    {
+        return baseHeights_[column];
+    }
+
+    /**
+     * @param added
+     *            Discs added to the base
+     * @return How many of them are PLAYER_1's
+     */
+    int player1Added(final int added)
+    {
+        return (baseDiscs_ + added + 1) / 2 - basePlayer1Discs_;
+    }
+
+    /**
+     * @param player1
+     *            Spaces occupied by PLAYER_1
+     * @param mask
+     *            Spaces occupied by either player
+     * @return Index of the position, or NOT_COVERED
+     */
+    long index(final long player1, final long mask)
+    {
+        final int discs = Long.bitCount(mask);
+        if(discs < minDiscs_ || (mask & baseMask_) != baseMask_
+                || (player1 & baseMask_) != basePlayer1_
+                || Long.bitCount(player1) != (discs + 1) / 2)
+        {
+            return NOT_COVERED;
+        }
+
+        final int added = discs - baseDiscs_;
+        long stacking = 0;
+        int remaining = added;
+        for(int column = 0; column < baseHeights_.length; ++column)
+        {
+            final int columnAdded = Long.bitCount(mask & layout_.columnMask(column))
+                    - baseHeights_[column];
+            for(int smaller = 0; smaller < columnAdded; ++smaller)
+            {
+                stacking += stackings_[column + 1][remaining - smaller];
+            }
+            remaining -= columnAdded;
+        }
+
+        // Colexicographic rank of PLAYER_1's added discs among the added spaces
+        long colouring = 0;
+        long spaces = mask & ~baseMask_;
+        int space = 0;
+        int chosen = 0;
+        while(spaces != 0)
+        {
+            final long lowest = spaces & -spaces;
+            spaces ^= lowest;
+            if((player1 & lowest) != 0)
+            {
+                colouring += binomials_[space][++chosen];
+            }
+            ++space;
+        }
+        return offsets_[added] + stacking * binomials_[added][player1Added(added)] + colouring;
+    }
+}
@@ -0,0 +1,153 @@
+package metrics;
+
+import ai.SearchResult;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for a single AI, fed once per decision by whoever calls
+ * determineMove(...). Search statistics are taken from the AI's
+ * SearchResult, when it has one.
+ *
+ * All methods are thread-safe and recording never blocks.
+ */
+public final class AIStatistics implements AIStatisticsMBean
+{
+    private final String name_;
+
+    private final LongAdder decisions_ = new LongAdder();
+    private final LongAdder searches_ = new LongAdder();
+    private final LongAdder nodes_ = new LongAdder();
+    private final LongAdder interiorNodes_ = new LongAdder();
+    private final LongAdder searchNanos_ = new LongAdder();
+    private final LongAdder depth_ = new LongAdder();
+    private final LongAdder tableProbes_ = new LongAdder();
+    private final LongAdder tableHits_ = new LongAdder();
+    private final LongAdder latencyNanos_ = new LongAdder();
+    private final LongAccumulator maxLatencyNanos_ = new LongAccumulator(Math::max, 0);
+    private final LongAdder measuredAllocations_ = new LongAdder();
+    private final LongAdder allocatedBytes_ = new LongAdder();
+
+    AIStatistics(final String name)
+    {
+        name_ = name;
+    }
+
+    /**
+     * Records a single decision.
+     * 
+     * @param latencyNanos
+     *            Wall-clock time determineMove(...) took
+     * @param allocatedBytes
+     *            Bytes allocated by the calling thread during the decision, or
+     *            a negative value if unknown
+     * @param result
+     *            The AI's search statistics for the decision, may be null
+     */
+    public void recordDecision(final long latencyNanos, final long allocatedBytes,
+            final SearchResult result)
+    {
+        decisions_.increment();
+        latencyNanos_.add(latencyNanos);
+        maxLatencyNanos_.accumulate(latencyNanos);
+        if(allocatedBytes >= 0)
+        {
+            measuredAllocations_.increment();
+            allocatedBytes_.add(allocatedBytes);
+        }
+        if(result != null)
+        {
+            searches_.increment();
+            nodes_.add(result.getNodes());
+            interiorNodes_.add(result.getInteriorNodes());
+            searchNanos_.add(result.getElapsedNanos());
+            depth_.add(result.getDepth());
+            tableProbes_.add(result.getTableProbes());
+            tableHits_.add(result.getTableHits());
+        }
+    }
+
+    @Override
+    public String getName()
+    {
+        return name_;
+    }
+
+    @Override
+    public long getDecisions()
+    {
+        return decisions_.sum();
+    }
+
+    @Override
+    public long getNodesTotal()
+    {
+        return nodes_.sum();
+    }
+
+    @Override
+    public double getNodesPerSecond()
+    {
+        return ratio(nodes_.sum() * 1e9, searchNanos_.sum());
+    }
+
+    @Override
+    public double getTableHitRate()
+    {
+        return ratio(tableHits_.sum(), tableProbes_.sum());
+    }
+
+    @Override
+    public double getAverageBranchingFactor()
+    {
+        return ratio(nodes_.sum(), interiorNodes_.sum());
+    }
+
+    @Override
+    public double getAverageDepth()
+    {
+        return ratio(depth_.sum(), searches_.sum());
+    }
+
+    @Override
+    public double getAverageDecisionLatencyMillis()
+    {
+        return ratio(latencyNanos_.sum() / 1e6, decisions_.sum());
+    }
+
+    @Override
+    public double getMaxDecisionLatencyMillis()
+    {
+        return maxLatencyNanos_.get() / 1e6;
+    }
+
+    @Override
+    public double getAllocatedBytesPerMove()
+    {
+        final long measured = measuredAllocations_.sum();
+        return measured == 0 ? -1 : (double) allocatedBytes_.sum() / measured;
+    }
+
+    @Override
+    public void reset()
+    {
+        decisions_.reset();
+        searches_.reset();
+        nodes_.reset();
+        interiorNodes_.reset();
+        searchNanos_.reset();
+        depth_.reset();
+        tableProbes_.reset();
+        tableHits_.reset();
+        latencyNanos_.reset();
+        maxLatencyNanos_.reset();
+        measuredAllocations_.reset();
+        allocatedBytes_.reset();
+    }
+
+    private static double ratio(final double numerator, final double denominator)
+    {
+        return denominator == 0 ? 0 : numerator / denominator;
+    }
+}
@@ -0,0 +1,63 @@
+package metrics;
+
+/**
+ * JMX view of a single AI's decisions.
+ */
+public interface AIStatisticsMBean
+{
+    /**
+     * @return Description of the AI
+     */
+    public String getName();
+
+    /**
+     * @return Number of moves the AI has decided on
+     */
+    public long getDecisions();
+
+    /**
+     * @return Total positions searched
+     */
+    public long getNodesTotal();
+
+    /**
+     * @return Positions searched per second of search time
+     */
+    public double getNodesPerSecond();
+
+    /**
+     * @return Fraction of transposition table lookups that found an entry
+     */
+    public double getTableHitRate();
+
+    /**
+     * @return Average number of children searched per expanded position
+     */
+    public double getAverageBranchingFactor();
+
+    /**
+     * @return Average depth the AI completed per decision
+     */
+    public double getAverageDepth();
+
+    /**
+     * @return Average wall-clock time per decision, in milliseconds
+     */
+    public double getAverageDecisionLatencyMillis();
+
+    /**
+     * @return Slowest decision, in milliseconds
+     */
+    public double getMaxDecisionLatencyMillis();
+
+    /**
+     * @return Average bytes allocated by the deciding thread per move, -1 if
+     *         the JVM cannot measure allocations
+     */
+    public double getAllocatedBytesPerMove();
+
+    /**
+     * Clears every counter.
+     */
+    public void reset();
+}
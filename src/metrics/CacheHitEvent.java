@@ -0,0 +1,33 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event emitted whenever a move is answered from a cache
+ * (e.g. a ponder hit) rather than searched.
+ */
+@Name("connectfour.CacheHit")
+@Label("Cache Hit")
+@Category("Connect Four")
+@Description("A move was answered from a cache instead of being searched")
+@Enabled(false)
+@StackTrace(false)
+public final class CacheHitEvent extends Event
+{
+    @Label("Cache")
+    public String cache;
+
+    @Label("AI")
+    public String ai;
+
+    @Label("Time Saved")
+    @Timespan(Timespan.NANOSECONDS)
+    public long savedNanos;
+}
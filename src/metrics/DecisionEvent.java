@@ -0,0 +1,45 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event covering a single AI.determineMove(...) call. Search
+ * fields are only filled in for AIs that report a SearchResult.
+ */
+@Name("connectfour.Decision")
+@Label("Decision")
+@Category("Connect Four")
+@Description("An AI decided on a move")
+@Enabled(false)
+@StackTrace(false)
+public final class DecisionEvent extends Event
+{
+    @Label("AI")
+    public String ai;
+
+    @Label("Column")
+    public int column;
+
+    @Label("Depth")
+    @Description("Deepest completed search iteration")
+    public int depth;
+
+    @Label("Nodes")
+    public long nodes;
+
+    @Label("Table Probes")
+    public long tableProbes;
+
+    @Label("Table Hits")
+    public long tableHits;
+
+    @Label("Complete")
+    @Description("False if the search was stopped before reaching its depth limit")
+    public boolean complete;
+}
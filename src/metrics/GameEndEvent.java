@@ -0,0 +1,35 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted when a game ends. The event's duration spans
+ * the whole game.
+ */
+@Name("connectfour.GameEnd")
+@Label("Game End")
+@Category("Connect Four")
+@Description("A game finished, the duration covers the whole game")
+@Enabled(false)
+@StackTrace(false)
+public final class GameEndEvent extends Event
+{
+    @Label("First AI")
+    public String first;
+
+    @Label("Second AI")
+    public String second;
+
+    @Label("Winner")
+    @Description("Winning player, empty for a draw or an abandoned game")
+    public String winner;
+
+    @Label("Moves")
+    public int moves;
+}
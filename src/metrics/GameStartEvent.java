@@ -0,0 +1,37 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted when a game starts.
+ * 
+ * Like every connectfour.* event this is disabled by default and costs
+ * nothing until a recording enables it, e.g. with the settings in
+ * connectfour.jfc (next to this class).
+ */
+@Name("connectfour.GameStart")
+@Label("Game Start")
+@Category("Connect Four")
+@Description("A game between two AIs started")
+@Enabled(false)
+@StackTrace(false)
+public final class GameStartEvent extends Event
+{
+    @Label("First AI")
+    public String first;
+
+    @Label("Second AI")
+    public String second;
+
+    @Label("Width")
+    public int width;
+
+    @Label("Height")
+    public int height;
+}
@@ -0,0 +1,118 @@
+package metrics;
+
+import game.Player;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for games in progress. Game runners call gameStarted(), moveMade()
+ * and gameFinished(...) (or gameAbandoned()) and everything else is derived
+ * on read.
+ *
+ * All methods are thread-safe and recording never blocks.
+ */
+public final class GameStatistics implements GameStatisticsMBean
+{
+    private final LongAdder gamesInFlight_ = new LongAdder();
+    private final LongAdder gamesStarted_ = new LongAdder();
+    private final LongAdder draws_ = new LongAdder();
+    private final Rate gamesCompleted_ = new Rate();
+    private final Rate moves_ = new Rate();
+
+    GameStatistics()
+    {
+        // Only created by Metrics
+    }
+
+    /**
+     * Records the start of a game.
+     */
+    public void gameStarted()
+    {
+        gamesStarted_.increment();
+        gamesInFlight_.increment();
+    }
+
+    /**
+     * Records a move in any game.
+     */
+    public void moveMade()
+    {
+        moves_.increment();
+    }
+
+    /**
+     * Records the end of a game.
+     * 
+     * @param winner
+     *            Player who won, null for a draw
+     */
+    public void gameFinished(final Player winner)
+    {
+        gamesInFlight_.decrement();
+        gamesCompleted_.increment();
+        if(winner == null)
+        {
+            draws_.increment();
+        }
+    }
+
+    /**
+     * Records a game that ended before a result, neither completed nor drawn.
+     */
+    public void gameAbandoned()
+    {
+        gamesInFlight_.decrement();
+    }
+
+    @Override
+    public long getGamesInFlight()
+    {
+        return gamesInFlight_.sum();
+    }
+
+    @Override
+    public long getGamesStarted()
+    {
+        return gamesStarted_.sum();
+    }
+
+    @Override
+    public long getGamesCompleted()
+    {
+        return gamesCompleted_.total();
+    }
+
+    @Override
+    public double getGamesPerSecond()
+    {
+        return gamesCompleted_.perSecond();
+    }
+
+    @Override
+    public long getMovesTotal()
+    {
+        return moves_.total();
+    }
+
+    @Override
+    public double getMovesPerSecond()
+    {
+        return moves_.perSecond();
+    }
+
+    @Override
+    public long getDraws()
+    {
+        return draws_.sum();
+    }
+
+    @Override
+    public void reset()
+    {
+        gamesStarted_.reset();
+        draws_.reset();
+        gamesCompleted_.reset();
+        moves_.reset();
+    }
+}
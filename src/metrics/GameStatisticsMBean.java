@@ -0,0 +1,47 @@
+package metrics;
+
+/**
+ * JMX view of every game played through the controller.
+ */
+public interface GameStatisticsMBean
+{
+    /**
+     * @return Games that have started but not finished
+     */
+    public long getGamesInFlight();
+
+    /**
+     * @return Games started since startup (or the last reset)
+     */
+    public long getGamesStarted();
+
+    /**
+     * @return Games finished since startup (or the last reset)
+     */
+    public long getGamesCompleted();
+
+    /**
+     * @return Recent rate of finished games
+     */
+    public double getGamesPerSecond();
+
+    /**
+     * @return Moves made since startup (or the last reset)
+     */
+    public long getMovesTotal();
+
+    /**
+     * @return Recent rate of moves made
+     */
+    public double getMovesPerSecond();
+
+    /**
+     * @return Finished games that ended without a winner
+     */
+    public long getDraws();
+
+    /**
+     * Clears every counter except games in flight.
+     */
+    public void reset();
+}
@@ -0,0 +1,210 @@
+package metrics;
+
+import ai.AI;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import utils.Validate;
+
+/**
+ * Process-wide home of every statistics object. Each one is registered with
+ * the platform MBeanServer under the "connectfour" domain, so any JMX client
+ * (jconsole, VisualVM, ...) can watch a running process:
+ * 
+ * connectfour:type=Games
+ * 
+ * connectfour:type=AI,name="SearchAI piloting 1 @1b6d3586"
+ * 
+ * AIs are only held weakly: the statistics of an AI that is no longer used
+ * anywhere else are unregistered once it has been garbage collected, so
+ * callers that never call unregister(...) do not leak their AIs.
+ */
+public final class Metrics
+{
+    private static final String DOMAIN = "connectfour";
+
+    private static final GameStatistics GAMES = new GameStatistics();
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private static final Map<AIKey, AIStatistics> AI_STATISTICS = new ConcurrentHashMap<AIKey, AIStatistics>();
+
+    // Keys of collected AIs, whose statistics are still registered
+    private static final ReferenceQueue<AI> COLLECTED = new ReferenceQueue<AI>();
+
+    static
+    {
+        register(GAMES, DOMAIN + ":type=Games");
+    }
+
+    private Metrics()
+    {
+        // Static access only
+    }
+
+    /**
+     * @return Statistics shared by every game in the process
+     */
+    public static GameStatistics games()
+    {
+        return GAMES;
+    }
+
+    /**
+     * Returns the statistics for the provided AI, registering them on first
+     * use. They are unregistered once the AI is garbage collected, or sooner
+     * by unregister(...).
+     * 
+     * @param ai
+     *            Non-null AI
+     * @return Statistics for the AI
+     */
+    public static AIStatistics forAI(final AI ai)
+    {
+        Validate.notNull(ai, "Cannot provide statistics for a null AI");
+        expungeCollected();
+        final AIStatistics existing = AI_STATISTICS.get(new AIKey(ai, null));
+        if(existing != null)
+        {
+            return existing;
+        }
+        return AI_STATISTICS.computeIfAbsent(new AIKey(ai, COLLECTED), key ->
+        {
+            final AIStatistics statistics = new AIStatistics(ai.toString());
+            register(statistics, key.objectName_);
+            return statistics;
+        });
+    }
+
+    /**
+     * Removes the AI's statistics from JMX.
+     * 
+     * @param ai
+     *            AI that is no longer in use
+     */
+    public static void unregister(final AI ai)
+    {
+        expungeCollected();
+        if(ai != null && AI_STATISTICS.remove(new AIKey(ai, null)) != null)
+        {
+            unregister(objectName(ai));
+        }
+    }
+
+    // Unregisters the statistics of every AI collected since the last call
+    private static void expungeCollected()
+    {
+        Reference<? extends AI> reference;
+        while((reference = COLLECTED.poll()) != null)
+        {
+            final AIKey key = (AIKey) reference;
+            if(AI_STATISTICS.remove(key) != null)
+            {
+                unregister(key.objectName_);
+            }
+        }
+    }
+
+    private static void unregister(final String name)
+    {
+        try
+        {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(name));
+        }
+        catch(final JMException e)
+        {
+            // Already gone, nothing to do
+        }
+    }
+
+    /**
+     * Uses the HotSpot extension of ThreadMXBean, which tracks allocation per
+     * thread at essentially no cost.
+     * 
+     * @return Bytes allocated by the calling thread so far, or -1 if the JVM
+     *         cannot measure it
+     */
+    public static long currentThreadAllocatedBytes()
+    {
+        if(THREADS instanceof com.sun.management.ThreadMXBean)
+        {
+            final com.sun.management.ThreadMXBean hotspotThreads = (com.sun.management.ThreadMXBean) THREADS;
+            if(hotspotThreads.isThreadAllocatedMemorySupported()
+                    && hotspotThreads.isThreadAllocatedMemoryEnabled())
+            {
+                return hotspotThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static String objectName(final AI ai)
+    {
+        return String.format("%s:type=AI,name=%s", DOMAIN,
+                ObjectName.quote(String.format("%s @%x", ai, System.identityHashCode(ai))));
+    }
+
+    private static void register(final Object mbean, final String name)
+    {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try
+        {
+            server.registerMBean(mbean, new ObjectName(name));
+        }
+        catch(final JMException e)
+        {
+            /*
+             * Metrics are best effort, a name clash (or a locked down
+             * MBeanServer) must never stop games from being played.
+             */
+        }
+    }
+
+    /*
+     * Weak, identity-based key of an AI. Remembers the AI's MBean name so the
+     * statistics can still be unregistered after the AI is collected.
+     */
+    private static final class AIKey extends WeakReference<AI>
+    {
+        private final int hash_;
+        private final String objectName_;
+
+        AIKey(final AI ai, final ReferenceQueue<AI> queue)
+        {
+            super(ai, queue);
+            hash_ = System.identityHashCode(ai);
+            objectName_ = queue == null ? null : objectName(ai);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash_;
+        }
+
+        @Override
+        public boolean equals(final Object other)
+        {
+            if(this == other)
+            {
+                return true;
+            }
+            if(!(other instanceof AIKey))
+            {
+                return false;
+            }
+            final AI ai = get();
+            return ai != null && ai == ((AIKey) other).get();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted for every ConnectFourGameBoard.addMove(...).
+ * 
+ * Note: Searches add moves to scratch boards too, so enabling this event
+ * during a search-heavy run produces a very large recording.
+ */
+@Name("connectfour.Move")
+@Label("Move")
+@Category("Connect Four")
+@Description("A move was added to a ConnectFourGameBoard")
+@Enabled(false)
+@StackTrace(false)
+public final class MoveEvent extends Event
+{
+    @Label("Player")
+    public String player;
+
+    @Label("Column")
+    public int column;
+
+    @Label("Move Number")
+    @Description("1 for the first move on the board")
+    public int moveNumber;
+}
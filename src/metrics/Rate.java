@@ -0,0 +1,64 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Striped event counter that can report how quickly events are arriving.
+ *
+ * Recording is a single LongAdder increment, so writers on many threads never
+ * contend. The rate is computed on read, over a window of at least a second.
+ */
+final class Rate
+{
+    private static final long MINIMUM_WINDOW_NANOS = 1000000000L;
+
+    private final LongAdder count_ = new LongAdder();
+
+    // Read-side state, only touched under the monitor
+    private long windowStartNanos_ = System.nanoTime();
+    private long windowStartCount_;
+    private double lastRate_;
+
+    void add(final long amount)
+    {
+        count_.add(amount);
+    }
+
+    void increment()
+    {
+        count_.increment();
+    }
+
+    long total()
+    {
+        return count_.sum();
+    }
+
+    synchronized double perSecond()
+    {
+        final long now = System.nanoTime();
+        final long total = count_.sum();
+        final long elapsed = now - windowStartNanos_;
+        if(elapsed <= 0)
+        {
+            return lastRate_;
+        }
+
+        final double rate = (total - windowStartCount_) * 1e9 / elapsed;
+        if(elapsed >= MINIMUM_WINDOW_NANOS)
+        {
+            windowStartNanos_ = now;
+            windowStartCount_ = total;
+            lastRate_ = rate;
+        }
+        return rate;
+    }
+
+    synchronized void reset()
+    {
+        count_.reset();
+        windowStartNanos_ = System.nanoTime();
+        windowStartCount_ = 0;
+        lastRate_ = 0;
+    }
+}
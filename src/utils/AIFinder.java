@@ -37,7 +37,7 @@ public final class AIFinder
     private Collection<File> recursivelyFindAllFiles(final File currentDirectory)
     {
         Validate.isTrue(currentDirectory.isDirectory(),
-                String.format("%s is not a directory!", currentDirectory));
+                () -> String.format("%s is not a directory!", currentDirectory));
 
         final File[] filesInDirectory = currentDirectory.listFiles();
         final Collection<File> filesInCurrentDirectory = new ArrayList<File>(filesInDirectory.length);
@@ -0,0 +1,59 @@
+package utils;
+
+/**
+ * Allocation-free alternative to Vector2: a point is packed into a single int
+ * (x in the high 16 bits, y in the low 16 bits, both signed).
+ * 
+ * Coordinates must fit in a short, which is far larger than any board.
+ */
+public final class PackedCoordinates
+{
+    private PackedCoordinates()
+    {
+        // Static access only
+    }
+
+    /**
+     * @param x
+     *            The x coordinate, within [-32768, 32767]
+     * @param y
+     *            The y coordinate, within [-32768, 32767]
+     * @return The packed point
+     */
+    public static int pack(final int x, final int y)
+    {
+        return (x << 16) | (y & 0xFFFF);
+    }
+
+    /**
+     * @param packed
+     *            Packed point
+     * @return X coordinate
+     */
+    public static int x(final int packed)
+    {
+        return packed >> 16;
+    }
+
+    /**
+     * @param packed
+     *            Packed point
+     * @return Y coordinate
+     */
+    public static int y(final int packed)
+    {
+        return (short) packed;
+    }
+
+    /**
+     * @param first
+     *            Packed point
+     * @param second
+     *            Packed point
+     * @return Packed sum of the two points
+     */
+    public static int add(final int first, final int second)
+    {
+        return pack(x(first) + x(second), y(first) + y(second));
+    }
+}
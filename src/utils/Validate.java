@@ -1,22 +1,96 @@
 package utils;
 
+import java.util.function.Supplier;
+
 /**
  * Poor-man's Apache Validation.
  * 
  * Simple Validation for expressions/objects, expand as needed.
+ * 
+ * How much gets validated is controlled process-wide by the Level (see
+ * setLevel(...), or start the JVM with -Dconnectfour.validation=LEVEL). The
+ * checks in this class guard external entry points and run unless the level
+ * is OFF. Hot-path code that is only reached from trusted callers guards its
+ * checks with internalChecksEnabled() instead, so they can be switched off
+ * on their own.
  *
  */
 public final class Validate
 {
+    /**
+     * How much validation runs.
+     */
+    public static enum Level
+    {
+        /**
+         * Everything is validated (default)
+         */
+        FULL,
+        /**
+         * Only external entry points are validated, internal hot-path checks
+         * are skipped
+         */
+        BOUNDARY_ONLY,
+        /**
+         * Nothing is validated
+         */
+        OFF
+    }
+
+    private static volatile Level level_ = initialLevel();
+
+    /**
+     * Changes the validation level for the whole process.
+     * 
+     * @param level
+     *            Non-null level
+     */
+    public static void setLevel(final Level level)
+    {
+        if(level == null)
+        {
+            throw new IllegalArgumentException("Validation level cannot be null");
+        }
+        level_ = level;
+    }
+
+    /**
+     * @return The current validation level
+     */
+    public static Level getLevel()
+    {
+        return level_;
+    }
+
+    /**
+     * Hot-path code that trusts its callers should skip its checks when this
+     * returns false.
+     * 
+     * @return True if internal checks should run (level is FULL)
+     */
+    public static boolean internalChecksEnabled()
+    {
+        return level_ == Level.FULL;
+    }
+
     // Internal checker
     private static void failIfTrue(final boolean expression, final String message)
     {
-        if(expression)
+        if(expression && level_ != Level.OFF)
         {
             throw new IllegalArgumentException(message);
         }
     }
 
+    // Internal checker, message is only built on failure
+    private static void failIfTrue(final boolean expression, final Supplier<String> message)
+    {
+        if(expression && level_ != Level.OFF)
+        {
+            throw new IllegalArgumentException(message.get());
+        }
+    }
+
     /**
      * Checks to see if the provided assertion is true.
      * 
@@ -44,6 +118,20 @@ public final class Validate
         failIfTrue(!assertion, message);
     }
 
+    /**
+     * Checks to see if the provided assertion is true.
+     * 
+     * @param assertion
+     *            Assertion to check for truthiness
+     * @param message
+     *            Supplies the message for the IllegalArgumentException, only
+     *            called if the assertion is false
+     */
+    public static void isTrue(final boolean assertion, final Supplier<String> message)
+    {
+        failIfTrue(!assertion, message);
+    }
+
     /**
      * Checks to see if the provided value is null.
      * 
@@ -69,6 +157,20 @@ public final class Validate
         failIfTrue(value == null, message);
     }
 
+    /**
+     * Checks to see if the provided value is null.
+     * 
+     * @param value
+     *            Value to check for null-ness
+     * @param message
+     *            Supplies the message for the IllegalArgumentException, only
+     *            called if the value is null
+     */
+    public static void notNull(final Object value, final Supplier<String> message)
+    {
+        failIfTrue(value == null, message);
+    }
+
     /**
      * Checks to see if value is within the open interval [min, max]
      * 
@@ -92,6 +194,46 @@ public final class Validate
         notNull(max, "max cannot be null");
         failIfTrue(
                 value.doubleValue() < min.doubleValue() || value.doubleValue() > max.doubleValue(),
-                String.format("%d was not within [%d, %d]", value, min, max));
+                () -> String.format("%s was not within [%s, %s]", value, min, max));
+    }
+
+    /**
+     * Checks to see if value is within the open interval [min, max]. Primitive
+     * version, nothing is boxed or formatted unless the check fails.
+     * 
+     * @param value
+     *            Value to check
+     * @param min
+     *            Minimum of range
+     * @param max
+     *            Maximum of range
+     * 
+     * @throws IllegalArgumentException
+     *             if value is less than min or larger than max.
+     */
+    public static void inOpenInterval(final int value, final int min, final int max)
+    {
+        if((value < min || value > max) && level_ != Level.OFF)
+        {
+            throw new IllegalArgumentException(String.format("%d was not within [%d, %d]", value,
+                    min, max));
+        }
+    }
+
+    private static Level initialLevel()
+    {
+        final String configured = System.getProperty("connectfour.validation");
+        if(configured == null)
+        {
+            return Level.FULL;
+        }
+        try
+        {
+            return Level.valueOf(configured.trim().toUpperCase());
+        }
+        catch(final IllegalArgumentException e)
+        {
+            throw new IllegalArgumentException("Unknown validation level: " + configured, e);
+        }
     }
 }
@@ -33,7 +33,10 @@ public final class Vector2
      */
     public Vector2(final Vector2 other)
     {
-        Validate.notNull(other, "Cannot create a copy of a null Vector2");
+        if(Validate.internalChecksEnabled())
+        {
+            Validate.notNull(other, "Cannot create a copy of a null Vector2");
+        }
         x_ = other.x_;
         y_ = other.y_;
     }
@@ -65,7 +68,28 @@ public final class Vector2
      */
     public Vector2 add(final Vector2 other)
     {
-        Validate.notNull(other, "Cannot add a null vector");
+        if(Validate.internalChecksEnabled())
+        {
+            Validate.notNull(other, "Cannot add a null vector");
+        }
         return new Vector2(x_ + other.x_, y_ + other.y_);
     }
+
+    /**
+     * @return This vector packed into an int, see PackedCoordinates
+     */
+    public int pack()
+    {
+        return PackedCoordinates.pack(x_, y_);
+    }
+
+    /**
+     * @param packed
+     *            Point packed with PackedCoordinates
+     * @return A new Vector2 for the packed point
+     */
+    public static Vector2 unpack(final int packed)
+    {
+        return new Vector2(PackedCoordinates.x(packed), PackedCoordinates.y(packed));
+    }
 }
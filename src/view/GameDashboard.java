@@ -0,0 +1,301 @@
+package view;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.swing.JComponent;
+import javax.swing.Timer;
+
+import metrics.GameStatistics;
+import metrics.Metrics;
+import utils.Validate;
+import games.connectfour.BoardCodec;
+import games.connectfour.LiveBoard;
+
+/**
+ * Watches any number of running games at once, painting every board into a
+ * single component along with the process-wide throughput counters.
+ *
+ * Game threads only ever hand boards over through watch() and finished(),
+ * which queue them without blocking. Everything else happens on the Swing
+ * thread: a Timer samples each board a fixed number of times per second
+ * (copying its position lock-free, and only if it changed), then repaints.
+ * Moves made between two frames are simply never drawn, and a slow Swing
+ * thread drops frames rather than holding up any game.
+ *
+ * A finished game stays on screen, faded, until a new game takes its place.
+ */
+public final class GameDashboard extends JComponent
+{
+    private static final long serialVersionUID = 1L;
+
+    private static final int HEADER_HEIGHT = 20;
+    private static final int GAP = 4;
+    private static final Color BACKGROUND = Color.LIGHT_GRAY;
+    private static final Color EMPTY = Color.WHITE;
+    private static final Color PLAYER_1 = Color.BLACK;
+    private static final Color PLAYER_2 = Color.RED;
+    private static final Color FADE = new Color(0xC0, 0xC0, 0xC0, 0xA0);
+
+    private final Queue<LiveBoard> watched_;
+    private final Queue<LiveBoard> finished_;
+    private final Timer timer_;
+
+    // Swing thread only
+    private final List<Slot> slots_;
+    private String status_;
+    private long frames_;
+    private long samples_;
+    private long sampleNanos_;
+
+    /**
+     * @param framesPerSecond
+     *            How often to sample the games and repaint, must be positive
+     */
+    public GameDashboard(final int framesPerSecond)
+    {
+        Validate.isTrue(framesPerSecond > 0 && framesPerSecond <= 1000,
+                "framesPerSecond must be within [1, 1000]");
+        watched_ = new ConcurrentLinkedQueue<LiveBoard>();
+        finished_ = new ConcurrentLinkedQueue<LiveBoard>();
+        slots_ = new ArrayList<Slot>();
+        status_ = "";
+        timer_ = new Timer(1000 / framesPerSecond, event -> frame());
+        timer_.setCoalesce(true);
+        setPreferredSize(new Dimension(800, 600));
+        setOpaque(true);
+    }
+
+    /**
+     * Starts sampling and repainting. Any thread.
+     */
+    public void start()
+    {
+        timer_.start();
+    }
+
+    /**
+     * Stops sampling and repainting. Any thread.
+     */
+    public void stop()
+    {
+        timer_.stop();
+    }
+
+    /**
+     * Starts showing a game. Never blocks, any thread.
+     *
+     * @param liveBoard
+     *            Non-null board of a game that is about to start or running
+     */
+    public void watch(final LiveBoard liveBoard)
+    {
+        Validate.notNull(liveBoard, "Cannot watch a null board");
+        watched_.add(liveBoard);
+    }
+
+    /**
+     * Marks a game as over: its final position is shown until another game
+     * takes its place. Never blocks, any thread.
+     *
+     * @param liveBoard
+     *            Non-null board previously passed to watch()
+     */
+    public void finished(final LiveBoard liveBoard)
+    {
+        Validate.notNull(liveBoard, "Cannot finish a null board");
+        finished_.add(liveBoard);
+    }
+
+    /**
+     * @return Number of frames sampled so far (Swing thread only)
+     */
+    public long getFrames()
+    {
+        return frames_;
+    }
+
+    // Samples every game that changed, then repaints
+    private void frame()
+    {
+        final long start = System.nanoTime();
+        final Set<LiveBoard> finished = Collections.newSetFromMap(
+                new IdentityHashMap<LiveBoard, Boolean>());
+        LiveBoard liveBoard;
+        while((liveBoard = finished_.poll()) != null)
+        {
+            finished.add(liveBoard);
+        }
+        for(final Slot slot : slots_)
+        {
+            if(!slot.finished_ && finished.remove(slot.liveBoard_))
+            {
+                slot.sample();
+                slot.finished_ = true;
+            }
+        }
+        while((liveBoard = watched_.poll()) != null)
+        {
+            // Games that started and ended between two frames are never shown
+            if(!finished.remove(liveBoard))
+            {
+                place(liveBoard);
+            }
+        }
+
+        int live = 0;
+        for(final Slot slot : slots_)
+        {
+            if(!slot.finished_)
+            {
+                ++live;
+                if(slot.sample())
+                {
+                    ++samples_;
+                }
+            }
+        }
+        ++frames_;
+        sampleNanos_ += System.nanoTime() - start;
+
+        final GameStatistics games = Metrics.games();
+        status_ = String.format("%d games in flight (%d shown), %.1f games/s, %.0f moves/s, "
+                + "%d games completed | frame %d, %.0f boards/frame, %.3f ms/frame",
+                games.getGamesInFlight(), live, games.getGamesPerSecond(),
+                games.getMovesPerSecond(), games.getGamesCompleted(), frames_,
+                (double) samples_ / frames_, sampleNanos_ / 1e6 / frames_);
+        repaint();
+    }
+
+    // Reuses the slot of the game that finished longest ago, so the grid stays put
+    private void place(final LiveBoard liveBoard)
+    {
+        Slot oldest = null;
+        for(final Slot slot : slots_)
+        {
+            if(slot.finished_ && (oldest == null || slot.changedFrame_ < oldest.changedFrame_))
+            {
+                oldest = slot;
+            }
+        }
+        if(oldest == null)
+        {
+            slots_.add(new Slot(liveBoard, frames_));
+        }
+        else
+        {
+            slots_.set(slots_.indexOf(oldest), new Slot(liveBoard, frames_));
+        }
+    }
+
+    @Override
+    protected void paintComponent(final Graphics graphics)
+    {
+        final Graphics2D g = (Graphics2D) graphics;
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(BACKGROUND);
+        g.fillRect(0, 0, getWidth(), getHeight());
+        g.setColor(Color.BLACK);
+        g.drawString(status_, GAP, HEADER_HEIGHT - 6);
+
+        final int count = slots_.size();
+        if(count == 0)
+        {
+            return;
+        }
+        final int width = getWidth();
+        final int height = getHeight() - HEADER_HEIGHT;
+        // Grid shape that gives every board the most room
+        int bestColumns = 1;
+        int bestCell = 0;
+        for(int columns = 1; columns <= count; ++columns)
+        {
+            final int rows = (count + columns - 1) / columns;
+            final int cell = Math.min(width / columns, height / rows);
+            if(cell > bestCell)
+            {
+                bestCell = cell;
+                bestColumns = columns;
+            }
+        }
+
+        for(int i = 0; i < count; ++i)
+        {
+            final int x = (i % bestColumns) * bestCell;
+            final int y = HEADER_HEIGHT + (i / bestColumns) * bestCell;
+            slots_.get(i).paint(g, x + GAP / 2, y + GAP / 2, bestCell - GAP);
+        }
+    }
+
+    /*
+     * One board on screen: the last sampled position of a game, in
+     * BoardCodec's packed encoding.
+     */
+    private final class Slot
+    {
+        private final LiveBoard liveBoard_;
+        private final byte[] packed_;
+        private final int columns_;
+        private final int rows_;
+        private long version_;
+        private boolean finished_;
+        private long changedFrame_;
+
+        Slot(final LiveBoard liveBoard, final long frame)
+        {
+            liveBoard_ = liveBoard;
+            columns_ = liveBoard.getWidth();
+            rows_ = liveBoard.getHeight();
+            packed_ = new byte[BoardCodec.packedSize(columns_, rows_)];
+            version_ = -1;
+            changedFrame_ = frame;
+        }
+
+        // Copies the position if it changed since the last frame
+        boolean sample()
+        {
+            if(liveBoard_.getVersion() == version_)
+            {
+                return false;
+            }
+            version_ = liveBoard_.readPacked(packed_);
+            changedFrame_ = frames_;
+            return true;
+        }
+
+        void paint(final Graphics2D g, final int x, final int y, final int size)
+        {
+            final int disc = Math.max(1, size / Math.max(columns_, rows_));
+            final int left = x + (size - disc * columns_) / 2;
+            final int top = y + (size - disc * rows_) / 2;
+            g.setColor(Color.BLUE.darker());
+            g.fillRect(left, top, disc * columns_, disc * rows_);
+            for(int column = 0; column < columns_; ++column)
+            {
+                for(int row = 0; row < rows_; ++row)
+                {
+                    final int space = column * rows_ + row;
+                    final int code = (packed_[2 + (space >>> 2)] >>> ((space & 3) << 1)) & 0x3;
+                    g.setColor(code == 0 ? EMPTY : code == 1 ? PLAYER_1 : PLAYER_2);
+                    g.fillOval(left + column * disc + 1, top + (rows_ - 1 - row) * disc + 1,
+                            Math.max(1, disc - 2), Math.max(1, disc - 2));
+                }
+            }
+            if(finished_)
+            {
+                g.setColor(FADE);
+                g.fillRect(left, top, disc * columns_, disc * rows_);
+            }
+        }
+    }
+}
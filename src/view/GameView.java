@@ -7,6 +7,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Supplier;
 
 import javax.swing.JLabel;
 import javax.swing.JPanel;
@@ -14,18 +15,43 @@ import javax.swing.JPanel;
 import utils.Validate;
 import game.Player;
 import games.connectfour.ConnectFourGameBoard;
+import games.connectfour.LiveBoard;
 
 public final class GameView
 {
-    private final ConnectFourGameBoard gameBoard_;
+    private final Supplier<ConnectFourGameBoard> gameBoard_;
+    private final int width_;
+    private final int height_;
     private final Map<Player, Color> playerColors_;
     private final JPanel boardRepresentation_;
 
+    /**
+     * @param gameBoard
+     *            Non-null board, which must not change while refresh() runs
+     */
     public GameView(final ConnectFourGameBoard gameBoard)
     {
-        Validate.notNull(gameBoard,
-                "Cannot create a view into a null gameboard");
+        this(() -> gameBoard, viewedBoard(gameBoard));
+    }
+
+    /**
+     * Safe to refresh from the Swing thread while a game thread plays on the
+     * board: every refresh() draws a consistent snapshot.
+     *
+     * @param liveBoard
+     *            Non-null board being played on
+     */
+    public GameView(final LiveBoard liveBoard)
+    {
+        this(liveBoard::snapshot, viewedBoard(liveBoard).snapshot());
+    }
+
+    private GameView(final Supplier<ConnectFourGameBoard> gameBoard,
+            final ConnectFourGameBoard initial)
+    {
         gameBoard_ = gameBoard;
+        width_ = initial.getWidth();
+        height_ = initial.getHeight();
         playerColors_ = new HashMap<Player, Color>(Player.values().length);
         boardRepresentation_ = new JPanel();
 
@@ -34,6 +60,13 @@ public final class GameView
         refresh();
     }
 
+    private static <T> T viewedBoard(final T gameBoard)
+    {
+        Validate.notNull(gameBoard,
+                "Cannot create a view into a null gameboard");
+        return gameBoard;
+    }
+
     private void initializePlayerColors()
     {
         playerColors_.put(Player.PLAYER_1, Color.BLACK);
@@ -71,8 +104,8 @@ public final class GameView
     
     private void initializeLayout()
     {
-        final int width = gameBoard_.getWidth();
-        final int height = gameBoard_.getHeight();
+        final int width = width_;
+        final int height = height_;
         final GridLayout connectFourLayout = new GridLayout();
         connectFourLayout.setColumns(width);
         connectFourLayout.setRows(height);
@@ -82,10 +115,10 @@ public final class GameView
     
     private void addGameMoves()
     {
-        final Player[][] boardRepresentation = gameBoard_
+        final Player[][] boardRepresentation = gameBoard_.get()
                 .getBoardRepresentation();
-        int width = gameBoard_.getWidth();
-        int height = gameBoard_.getHeight();
+        int width = width_;
+        int height = height_;
         for (int j = 0; j < height; ++j)
         {
             for (int i = 0; i < width; ++i)